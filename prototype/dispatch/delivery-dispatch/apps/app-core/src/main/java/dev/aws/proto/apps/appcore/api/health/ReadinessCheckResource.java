@@ -18,6 +18,7 @@ package dev.aws.proto.apps.appcore.api.health;
 
 import com.graphhopper.GraphHopper;
 import dev.aws.proto.core.routing.config.RoutingConfig;
+import dev.aws.proto.core.routing.route.RoutingExecutor;
 import io.quarkus.runtime.configuration.ProfileManager;
 import org.eclipse.microprofile.health.HealthCheck;
 import org.eclipse.microprofile.health.HealthCheckResponse;
@@ -49,6 +50,15 @@ public class ReadinessCheckResource implements HealthCheck {
                         .withData("profile", ProfileManager.getActiveProfile())
                         .withData("graphhopper", "loaded");
             }
+
+            // matrix generation load: requests waiting for the routing executor and its thread utilization
+            RoutingExecutor.Metrics executorMetrics = routingConfig.routingExecutor().getMetrics();
+            responseBuilder
+                    .withData("routingExecutorRunningRequests", executorMetrics.getRunningRequests())
+                    .withData("routingExecutorQueuedRequests", executorMetrics.getQueuedRequests())
+                    .withData("routingExecutorRejectedRequests", executorMetrics.getRejectedRequests())
+                    .withData("routingExecutorActiveThreads", executorMetrics.getActiveThreads())
+                    .withData("routingExecutorUtilization", String.format("%.3f", executorMetrics.getUtilization()));
         } catch (Exception e) {
             logger.error("Health check error", e);
             responseBuilder.down();
@@ -32,4 +32,28 @@ public interface DistanceCachingProperties {
 
     @WithName("s3-bucket-name")
     Optional<String> cacheBucketName();
+
+    /**
+     * Max number of hexagon pairs routed outside the cache that are kept in memory.
+     */
+    @WithName("fallback-memo-size")
+    Optional<Integer> fallbackMemoSize();
+
+    /**
+     * Number of concurrent ranged GETs when the cache file is imported from S3.
+     */
+    @WithName("s3-download-parallelism")
+    Optional<Integer> s3DownloadParallelism();
+
+    /**
+     * Max number of shards kept in memory when the file path points to a sharded cache directory.
+     */
+    @WithName("max-loaded-shards")
+    Optional<Integer> maxLoadedShards();
+
+    /**
+     * Max size (in MB) of the memory-mapped distance buffers of the loaded shards.
+     */
+    @WithName("max-loaded-shard-megabytes")
+    Optional<Long> maxLoadedShardMegabytes();
 }
@@ -19,8 +19,10 @@ package dev.aws.proto.apps.distancecache.util;
 
 import dev.aws.proto.apps.distancecache.util.commands.BuildH3Cache;
 import dev.aws.proto.apps.distancecache.util.commands.BuildLatLongCache;
+import dev.aws.proto.apps.distancecache.util.commands.DistributedH3Cache;
 import dev.aws.proto.apps.distancecache.util.commands.ImportH3Cache;
 import dev.aws.proto.apps.distancecache.util.commands.ImportLatLongCache;
+import dev.aws.proto.apps.distancecache.util.experimental.BenchmarkMatrixFill;
 import dev.aws.proto.apps.distancecache.util.experimental.BuildMatrixRaw;
 import dev.aws.proto.apps.distancecache.util.experimental.BuildMatrixWithH3Cache;
 import org.slf4j.Logger;
@@ -39,6 +41,7 @@ import java.util.concurrent.Callable;
         subcommands = {
                 ImportH3Cache.class,
                 BuildH3Cache.class,
+                DistributedH3Cache.class,
 
                 BuildLatLongCache.class,
                 ImportLatLongCache.class,
@@ -46,6 +49,7 @@ import java.util.concurrent.Callable;
                 // experimental
                 BuildMatrixWithH3Cache.class,
                 BuildMatrixRaw.class,
+                BenchmarkMatrixFill.class,
         }
 )
 public class App implements Callable<Integer> {
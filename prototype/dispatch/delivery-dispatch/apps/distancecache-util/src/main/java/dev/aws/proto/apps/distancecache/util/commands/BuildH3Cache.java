@@ -17,24 +17,35 @@
 
 package dev.aws.proto.apps.distancecache.util.commands;
 
-import com.mapbox.geojson.GeometryCollection;
-import com.mapbox.geojson.Point;
-import com.mapbox.geojson.Polygon;
-import com.uber.h3core.util.GeoCoord;
+import com.uber.h3core.H3Core;
 import dev.aws.proto.core.routing.H3;
+import dev.aws.proto.core.routing.cache.H3CacheStorageMode;
 import dev.aws.proto.core.routing.cache.H3DistanceCache;
-import dev.aws.proto.core.routing.cache.persistence.h3.FilePersistence;
+import dev.aws.proto.core.routing.cache.HierarchicalH3DistanceCache;
+import dev.aws.proto.core.routing.cache.encoding.CellEncoding;
+import dev.aws.proto.core.routing.cache.incremental.H3CacheBuildPlan;
+import dev.aws.proto.core.routing.cache.incremental.IncrementalH3CacheBuilder;
+import dev.aws.proto.core.routing.cache.inspection.AccuracyStats;
+import dev.aws.proto.core.routing.cache.persistence.h3.H3CacheFileFormat;
+import dev.aws.proto.core.routing.cache.persistence.h3.HierarchicalFilePersistence;
+import dev.aws.proto.core.routing.cache.persistence.h3.MappedFilePersistence;
+import dev.aws.proto.core.routing.cache.persistence.h3.ShardedFilePersistence;
+import dev.aws.proto.core.routing.distance.TravelDistance;
 import dev.aws.proto.core.routing.route.GraphhopperLoader;
+import dev.aws.proto.core.routing.route.GraphhopperMatrixRouter;
 import dev.aws.proto.core.routing.route.GraphhopperRouter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
 import java.io.File;
-import java.nio.file.Files;
-import java.util.ArrayList;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 @CommandLine.Command(name = "build-h3", description = "Build H3DistanceCache and export")
 public class BuildH3Cache implements Callable<Integer> {
@@ -71,6 +82,54 @@ public class BuildH3Cache implements Callable<Integer> {
     @CommandLine.Option(names = {"-o", "--output"}, description = "The output file")
     private String outputFilename = "output.distcache";
 
+    @CommandLine.Option(names = {"-f", "--format"}, description = "The output file format: ${COMPLETION-CANDIDATES}")
+    private H3CacheFileFormat fileFormat = H3CacheFileFormat.MAPPED;
+
+    @CommandLine.Option(names = {"-s", "--storage-mode"}, description = "The storage mode of the distances: ${COMPLETION-CANDIDATES}")
+    private H3CacheStorageMode storageMode = H3CacheStorageMode.FULL;
+
+    @CommandLine.Option(names = {"-c", "--cell-encoding"}, description = "The encoding of the meters/seconds cells (mapped format): ${COMPLETION-CANDIDATES}")
+    private CellEncoding cellEncoding = CellEncoding.INT24;
+
+    @CommandLine.Option(names = {"-e", "--engine"}, description = "The routing engine: ${COMPLETION-CANDIDATES}")
+    private RoutingEngine routingEngine = RoutingEngine.MATRIX;
+
+    @CommandLine.Option(names = "--shard-resolution", description = "Split the cache into shards by the parents of the hexagons in this resolution (the output is a directory)")
+    private Integer shardResolution;
+
+    @CommandLine.Option(names = "--border-resolution", description = "The resolution of the cross-shard border cache (default: shard resolution + 1)")
+    private Integer borderResolution;
+
+    @CommandLine.Option(names = "--checkpoint-dir", description = "Build incrementally: checkpoint row blocks into this directory, resume from it, and only compute the rows and columns of new hexagons")
+    private String checkpointDir;
+
+    @CommandLine.Option(names = "--block-size", description = "Incremental build: number of rows in a checkpointed block")
+    private int blockSize = H3CacheBuildPlan.DEFAULT_BLOCK_SIZE;
+
+    @CommandLine.Option(names = "--coarse-resolution", description = "Build a hierarchical cache: nearby pairs in the resolution, the rest in this coarser resolution (the output is a directory)")
+    private Integer coarseResolution;
+
+    @CommandLine.Option(names = "--rings", description = "Hierarchical cache: pairs within this many rings are kept in the fine resolution (default: the diameter of a coarse cell)")
+    private Integer rings;
+
+    @CommandLine.Option(names = "--reference", description = "Hierarchical cache: a full cache file in the fine resolution to measure the accuracy against (default: route a sample)")
+    private String referenceCacheFile;
+
+    @CommandLine.Option(names = "--accuracy-sample", description = "Hierarchical cache: number of hexagon pairs the accuracy is measured on")
+    private int accuracySampleSize = 10_000;
+
+    /**
+     * MATRIX: one shortest-path-tree search per hexagon (fills a row at once).
+     * POINT_TO_POINT: one route request per cell.
+     */
+    public enum RoutingEngine {
+        MATRIX,
+        POINT_TO_POINT
+    }
+
+    private GraphhopperMatrixRouter matrixRouter;
+    private GraphhopperRouter router;
+
     @Override
     public Integer call() throws Exception {
         logger.debug("Parameters:");
@@ -82,31 +141,35 @@ public class BuildH3Cache implements Callable<Integer> {
         logger.debug("\tlocalGraphhopperDir = {}", localGraphhopperDir);
         logger.debug("\tosmFile = {}", osmFile);
         logger.debug("\toutputFilename = {}", outputFilename);
+        logger.debug("\tfileFormat = {}", fileFormat);
+        logger.debug("\troutingEngine = {}", routingEngine);
+        logger.debug("\tstorageMode = {}", storageMode);
+        logger.debug("\tcellEncoding = {}", cellEncoding);
+        logger.debug("\tshardResolution = {}", shardResolution);
+        logger.debug("\tborderResolution = {}", borderResolution);
+        logger.debug("\tcheckpointDir = {}", checkpointDir);
+        logger.debug("\tblockSize = {}", blockSize);
+        logger.debug("\tcoarseResolution = {}", coarseResolution);
+        logger.debug("\trings = {}", rings);
         logger.debug("\n");
 
-        logger.info("Loading geoJson file {}", geoJsonFile.toPath().toString());
-        String geoJsonContent = Files.readString(geoJsonFile.toPath());
-        GeometryCollection geometryCollection = GeometryCollection.fromJson(geoJsonContent);
-        if (geometryCollection.geometries().size() < 1) {
-            logger.error("No geometries found in loaded file. Quitting.");
+        // every polygon of the collection is covered (e.g. one per metro area), shard them with --shard-resolution
+        List<Long> coveringHexagons = CoveringHexagons.of(geoJsonFile, resolution);
+        if (coveringHexagons.isEmpty()) {
+            logger.error("No hexagons to cover. Quitting.");
             return 1;
         }
-
-        Polygon polygon = (Polygon) geometryCollection.geometries().get(0);
-        List<GeoCoord> h3GeoCoords = new ArrayList<>();
-        for (List<Point> coordList : polygon.coordinates()) {
-            for (Point point : coordList) {
-                h3GeoCoords.add(new GeoCoord(point.latitude(), point.longitude()));
-            }
-        }
-        logger.info("Loaded polygon is defined by {} geo coordinates.", h3GeoCoords.size());
-
-        List<Long> coveringHexagons = H3.h3().polyfill(h3GeoCoords, null, resolution);
         int dim = coveringHexagons.size();
-        logger.info("Number of covering hexagons is {} at resolution {}", dim, resolution);
         logger.info("This will result a {}x{} distance matrix cache ({} cells).", dim, dim, dim * dim);
 
-        long bytesNum = (4 + 4 + dim * 8 + (dim * dim) * (8 + 8 + 4));
+        if (storageMode != H3CacheStorageMode.FULL && fileFormat == H3CacheFileFormat.LEGACY) {
+            logger.warn("The {} file format doesn't support the {} storage mode, the full matrix will be written.", fileFormat, storageMode);
+        }
+
+        long cellCnt = (long) dim * dim;
+        long bytesNum = fileFormat == H3CacheFileFormat.MAPPED
+                ? MappedFilePersistence.fileSize(dim, storageMode, cellEncoding)
+                : (4 + 4 + dim * 8L + cellCnt * (8 + 8 + 4));
         double mb = (bytesNum / 1024.0) / 1024.0;
         logger.info("Predicted size of the cache file: {} MB", String.format("%.3f", mb));
 
@@ -114,16 +177,163 @@ public class BuildH3Cache implements Callable<Integer> {
         GraphhopperLoader ghLoader = new GraphhopperLoader(localOsmDir, localGraphhopperDir, osmFile);
         ghLoader.initAndLoad();
 
-        logger.info("Initializing Graphhopper Router...");
-        GraphhopperRouter router = new GraphhopperRouter(ghLoader.getHopper(), routingProfile);
+        if (routingEngine == RoutingEngine.MATRIX) {
+            logger.info("Initializing Graphhopper Matrix Router...");
+            this.matrixRouter = new GraphhopperMatrixRouter(ghLoader.getHopper(), routingProfile);
+        } else {
+            logger.info("Initializing Graphhopper Router...");
+            this.router = new GraphhopperRouter(ghLoader.getHopper(), routingProfile);
+        }
+
+        if (shardResolution != null) {
+            return this.buildSharded(coveringHexagons);
+        }
+        if (coarseResolution != null) {
+            return this.buildHierarchical(coveringHexagons, ghLoader);
+        }
 
-        logger.info("Generating H3DistanceCache (dim = {})", dim);
-        H3DistanceCache distanceCache = H3DistanceCache.generate(coveringHexagons, resolution, router);
+        H3DistanceCache distanceCache;
+        if (checkpointDir != null) {
+            distanceCache = this.buildIncremental(coveringHexagons);
+        } else {
+            logger.info("Generating H3DistanceCache (dim = {})", dim);
+            distanceCache = this.generate(coveringHexagons, resolution);
+        }
         logger.info("H3DistanceCache generated successfully.");
+        if (distanceCache.getAsymmetryStats() != null) {
+            logger.info("Asymmetry: {}", distanceCache.getAsymmetryStats());
+        }
 
-        FilePersistence filePersistence = new FilePersistence(outputFilename);
-        filePersistence.buildCache(distanceCache);
+        distanceCache = distanceCache.withCellEncoding(cellEncoding);
+        fileFormat.persistence(outputFilename).buildCache(distanceCache);
 
         return 0;
     }
+
+    private H3DistanceCache generate(List<Long> hexagons, int h3Resolution) {
+        return routingEngine == RoutingEngine.MATRIX
+                ? H3DistanceCache.generate(hexagons, h3Resolution, matrixRouter, storageMode)
+                : H3DistanceCache.generate(hexagons, h3Resolution, router, storageMode);
+    }
+
+    /**
+     * Computes the work units of the checkpointed build that are not done yet (all of them on the first run, the
+     * rows and columns of the new hexagons after a polygon growth), then merges the segments.
+     */
+    private H3DistanceCache buildIncremental(List<Long> coveringHexagons) {
+        H3CacheBuildPlan plan = H3CacheBuildPlan.createOrExtend(Paths.get(checkpointDir), resolution, blockSize, coveringHexagons);
+        IncrementalH3CacheBuilder builder = routingEngine == RoutingEngine.MATRIX
+                ? new IncrementalH3CacheBuilder(plan, matrixRouter)
+                : new IncrementalH3CacheBuilder(plan, router);
+        builder.run();
+
+        // the merged matrix covers all the hexagons of the plan, also the ones of earlier runs
+        return IncrementalH3CacheBuilder.merge(plan).withStorageMode(storageMode);
+    }
+
+    /**
+     * Builds one cache per parent cell in the shard resolution, and a border cache between the covered cells in the
+     * border resolution. The shards are written as soon as they are generated.
+     */
+    private int buildSharded(List<Long> coveringHexagons) {
+        int borderRes = borderResolution != null ? borderResolution : Math.min(shardResolution + 1, resolution);
+        if (shardResolution > resolution || borderRes < shardResolution || borderRes > resolution) {
+            logger.error("Invalid resolutions: shard ({}) <= border ({}) <= cache ({}) is required.", shardResolution, borderRes, resolution);
+            return 1;
+        }
+
+        H3Core h3 = H3.h3();
+        Map<Long, List<Long>> hexagonsByShard = coveringHexagons.stream()
+                .collect(Collectors.groupingBy(hexa -> h3.h3ToParent(hexa, shardResolution), TreeMap::new, Collectors.toList()));
+        List<Long> borderHexagons = coveringHexagons.stream()
+                .map(hexa -> h3.h3ToParent(hexa, borderRes))
+                .distinct()
+                .collect(Collectors.toList());
+        logger.info("Sharding {} hexagons into {} shards (resolution {}), border cache dim = {} (resolution {})",
+                coveringHexagons.size(), hexagonsByShard.size(), shardResolution, borderHexagons.size(), borderRes);
+
+        ShardedFilePersistence persistence = new ShardedFilePersistence(outputFilename);
+        persistence.createDirectory();
+
+        int shardCtr = 0;
+        for (Map.Entry<Long, List<Long>> shard : hexagonsByShard.entrySet()) {
+            logger.info("Generating shard {} ({}/{}, dim = {})", Long.toHexString(shard.getKey()), ++shardCtr, hexagonsByShard.size(), shard.getValue().size());
+            persistence.buildShard(shard.getKey(), this.generate(shard.getValue(), resolution).withCellEncoding(cellEncoding));
+        }
+
+        logger.info("Generating border cache (dim = {})", borderHexagons.size());
+        persistence.buildBorder(this.generate(borderHexagons, borderRes).withCellEncoding(cellEncoding));
+
+        persistence.buildManifest(resolution, shardResolution, hexagonsByShard.keySet().stream().mapToLong(Long::longValue).toArray());
+        return 0;
+    }
+
+    /**
+     * Builds a hierarchical cache, and reports its accuracy compared with the full fine-resolution distances.
+     */
+    private int buildHierarchical(List<Long> coveringHexagons, GraphhopperLoader ghLoader) {
+        if (coarseResolution >= resolution) {
+            logger.error("Invalid resolutions: the coarse resolution ({}) must be coarser than {}.", coarseResolution, resolution);
+            return 1;
+        }
+        int ringCnt = rings != null ? rings : HierarchicalH3DistanceCache.defaultRings(resolution, coarseResolution);
+        logger.info("Generating HierarchicalH3DistanceCache (dim = {}, rings = {}, coarse resolution = {})", coveringHexagons.size(), ringCnt, coarseResolution);
+
+        HierarchicalH3DistanceCache distanceCache = routingEngine == RoutingEngine.MATRIX
+                ? HierarchicalH3DistanceCache.generate(coveringHexagons, resolution, ringCnt, coarseResolution, matrixRouter)
+                : HierarchicalH3DistanceCache.generate(coveringHexagons, resolution, ringCnt, coarseResolution, router);
+        new HierarchicalFilePersistence(outputFilename).buildCache(distanceCache);
+
+        long fullBytes = MappedFilePersistence.fileSize(coveringHexagons.size(), H3CacheStorageMode.FULL, CellEncoding.INT32);
+        logger.info("Memory: {} MB (full fine-resolution matrix: {} MB)",
+                String.format("%.3f", distanceCache.sizeInBytes() / 1024.0 / 1024.0), String.format("%.3f", fullBytes / 1024.0 / 1024.0));
+
+        this.reportAccuracy(distanceCache, ghLoader);
+        return 0;
+    }
+
+    /**
+     * Compares a sample of nearby pairs and a sample of random pairs with a full fine-resolution cache (if given),
+     * or with routes between the fine hexagon centers.
+     */
+    private void reportAccuracy(HierarchicalH3DistanceCache distanceCache, GraphhopperLoader ghLoader) {
+        H3DistanceCache reference = referenceCacheFile == null ? null : H3CacheFileFormat.persistenceFor(referenceCacheFile).importCache();
+        GraphhopperRouter referenceRouter = reference != null ? null
+                : router != null ? router : new GraphhopperRouter(ghLoader.getHopper(), routingProfile);
+        logger.info("Measuring accuracy on {} pairs against {}", accuracySampleSize, reference != null ? referenceCacheFile : "routed distances");
+
+        H3Core h3 = H3.h3();
+        long[] hexagons = distanceCache.getH3Hexagons();
+        Random random = new Random(hexagons.length);
+        AccuracyStats.Accumulator near = new AccuracyStats.Accumulator();
+        AccuracyStats.Accumulator far = new AccuracyStats.Accumulator();
+        for (int sample = 0; sample < accuracySampleSize; sample++) {
+            long from = hexagons[random.nextInt(hexagons.length)];
+            long to;
+            if (sample % 2 == 0) {
+                List<Long> ring = h3.kRing(from, distanceCache.getRings());
+                to = ring.get(random.nextInt(ring.size()));
+            } else {
+                to = hexagons[random.nextInt(hexagons.length)];
+            }
+
+            TravelDistance expected = reference != null
+                    ? reference.getDistanceTrusted(from, to)
+                    : H3DistanceCache.calculateTravelDistance(referenceRouter, from, to);
+            if (expected == null) {
+                continue;
+            }
+
+            TravelDistance actual = distanceCache.getDistanceTrusted(from, to);
+            long meters = actual == null ? H3DistanceCache.MISSING_DISTANCE : actual.getDistanceInMeters();
+            long seconds = actual == null ? H3DistanceCache.MISSING_DISTANCE : actual.getDistanceInSeconds();
+
+            int h3Distance = expected.getH3Distance();
+            AccuracyStats.Accumulator accumulator = h3Distance >= 0 && h3Distance <= distanceCache.getRings() ? near : far;
+            accumulator.add(meters, expected.getDistanceInMeters(), seconds, expected.getDistanceInSeconds());
+        }
+
+        logger.info("Accuracy (nearby pairs, fine resolution): {}", near.build());
+        logger.info("Accuracy (distant pairs, coarse resolution): {}", far.build());
+    }
 }
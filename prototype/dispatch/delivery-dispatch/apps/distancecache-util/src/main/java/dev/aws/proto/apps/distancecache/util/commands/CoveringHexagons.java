@@ -0,0 +1,76 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.distancecache.util.commands;
+
+import com.mapbox.geojson.Geometry;
+import com.mapbox.geojson.GeometryCollection;
+import com.mapbox.geojson.Point;
+import com.mapbox.geojson.Polygon;
+import com.uber.h3core.util.GeoCoord;
+import dev.aws.proto.core.routing.H3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Computes the h3 hexagons that cover the polygons of a GeoJSON geometry collection.
+ */
+public class CoveringHexagons {
+    private static final Logger logger = LoggerFactory.getLogger(CoveringHexagons.class);
+
+    /**
+     * Every polygon of the collection is covered (e.g. one per metro area).
+     *
+     * @param geoJsonFile The GeoJSON file with a geometry collection of polygons.
+     * @param resolution  The H3 resolution.
+     * @return The covering hexagons, sorted. Empty if the file has no geometries.
+     */
+    public static List<Long> of(File geoJsonFile, int resolution) throws IOException {
+        logger.info("Loading geoJson file {}", geoJsonFile.toPath().toString());
+        String geoJsonContent = Files.readString(geoJsonFile.toPath());
+        GeometryCollection geometryCollection = GeometryCollection.fromJson(geoJsonContent);
+        if (geometryCollection.geometries().size() < 1) {
+            logger.error("No geometries found in loaded file.");
+            return new ArrayList<>();
+        }
+
+        Set<Long> coveringHexagonSet = new TreeSet<>();
+        for (Geometry geometry : geometryCollection.geometries()) {
+            Polygon polygon = (Polygon) geometry;
+            List<GeoCoord> h3GeoCoords = new ArrayList<>();
+            for (List<Point> coordList : polygon.coordinates()) {
+                for (Point point : coordList) {
+                    h3GeoCoords.add(new GeoCoord(point.latitude(), point.longitude()));
+                }
+            }
+            logger.info("Loaded polygon is defined by {} geo coordinates.", h3GeoCoords.size());
+            coveringHexagonSet.addAll(H3.h3().polyfill(h3GeoCoords, null, resolution));
+        }
+
+        List<Long> coveringHexagons = new ArrayList<>(coveringHexagonSet);
+        logger.info("Number of covering hexagons is {} at resolution {}", coveringHexagons.size(), resolution);
+        return coveringHexagons;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.distancecache.util.commands;
+
+import picocli.CommandLine;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Builds an h3 distance cache with several worker processes (on one or several nodes) sharing a build directory:
+ * <p>
+ * 1. <code>plan</code> partitions the hexagons into row-block work units
+ * 2. <code>work</code> computes units, run it on as many nodes/processes as needed
+ * 3. <code>merge</code> assembles the cache file once all the units are done
+ */
+@CommandLine.Command(
+        name = "distributed-h3",
+        description = "Build H3DistanceCache with several workers: plan, work, merge",
+        subcommands = {
+                PlanH3Cache.class,
+                WorkH3Cache.class,
+                MergeH3Cache.class,
+        }
+)
+public class DistributedH3Cache implements Callable<Integer> {
+    @CommandLine.Spec
+    CommandLine.Model.CommandSpec spec;
+
+    @Override
+    public Integer call() throws Exception {
+        spec.commandLine().usage(System.err);
+        return 1;
+    }
+}
@@ -18,7 +18,8 @@
 package dev.aws.proto.apps.distancecache.util.commands;
 
 import dev.aws.proto.core.routing.cache.H3DistanceCache;
-import dev.aws.proto.core.routing.cache.persistence.h3.FilePersistence;
+import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
+import dev.aws.proto.core.routing.cache.persistence.h3.H3CacheFileFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
@@ -38,7 +39,10 @@ public class ImportH3Cache implements Callable<Integer> {
         logger.info("Importing cache file from {}", cacheFile.toPath().toString());
 
         try {
-            FilePersistence filePersistence = new FilePersistence(cacheFile.toPath().toString());
+            H3CacheFileFormat fileFormat = H3CacheFileFormat.detect(cacheFile.toPath());
+            logger.info("Detected cache file format: {}", fileFormat);
+
+            ICachePersistence<H3DistanceCache> filePersistence = fileFormat.persistence(cacheFile.toPath().toString());
             H3DistanceCache distanceCache = filePersistence.importCache();
 
             int dim = distanceCache.getH3Hexagons().length;
@@ -46,6 +50,9 @@ public class ImportH3Cache implements Callable<Integer> {
             logger.info("Number of hexagons: {}", dim);
             logger.info("H3 resolution: {}", distanceCache.getH3Resolution());
             logger.info("Matrix size: {}x{} ({} cells)", dim, dim, dim * dim);
+            logger.info("Storage mode: {} ({} stored cells)", distanceCache.getStorageMode(), distanceCache.getStorageMode().cellCount(dim));
+            logger.info("Cell encoding: {}", distanceCache.getCellEncoding());
+            logger.info("Asymmetry: {}", distanceCache.getAsymmetryStats() == null ? "not measured" : distanceCache.getAsymmetryStats());
 
             return 0;
         } catch (Exception ex) {
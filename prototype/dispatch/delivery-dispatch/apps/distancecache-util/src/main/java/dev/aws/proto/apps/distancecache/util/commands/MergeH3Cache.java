@@ -0,0 +1,71 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.distancecache.util.commands;
+
+import dev.aws.proto.core.routing.cache.H3CacheStorageMode;
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.cache.encoding.CellEncoding;
+import dev.aws.proto.core.routing.cache.incremental.H3CacheBuildPlan;
+import dev.aws.proto.core.routing.cache.incremental.H3CacheWorkUnit;
+import dev.aws.proto.core.routing.cache.incremental.IncrementalH3CacheBuilder;
+import dev.aws.proto.core.routing.cache.persistence.h3.H3CacheFileFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@CommandLine.Command(name = "merge", description = "Assemble the cache file from the computed work units")
+public class MergeH3Cache implements Callable<Integer> {
+    private static final Logger logger = LoggerFactory.getLogger(MergeH3Cache.class);
+
+    @CommandLine.Option(names = {"-d", "--build-dir"}, required = true, description = "The build directory, shared by the workers")
+    private String buildDir;
+
+    @CommandLine.Option(names = {"-o", "--output"}, description = "The output file")
+    private String outputFilename = "output.distcache";
+
+    @CommandLine.Option(names = {"-f", "--format"}, description = "The output file format: ${COMPLETION-CANDIDATES}")
+    private H3CacheFileFormat fileFormat = H3CacheFileFormat.MAPPED;
+
+    @CommandLine.Option(names = {"-s", "--storage-mode"}, description = "The storage mode of the distances: ${COMPLETION-CANDIDATES}")
+    private H3CacheStorageMode storageMode = H3CacheStorageMode.FULL;
+
+    @CommandLine.Option(names = {"-c", "--cell-encoding"}, description = "The encoding of the meters/seconds cells (mapped format): ${COMPLETION-CANDIDATES}")
+    private CellEncoding cellEncoding = CellEncoding.INT24;
+
+    @Override
+    public Integer call() throws Exception {
+        H3CacheBuildPlan plan = H3CacheBuildPlan.load(Paths.get(buildDir));
+        List<H3CacheWorkUnit> pending = plan.getPendingWorkUnits();
+        if (!pending.isEmpty()) {
+            logger.error("{} work units are not done yet (e.g. {}). Run more workers before merging.", pending.size(), pending.get(0));
+            return 1;
+        }
+
+        H3DistanceCache distanceCache = IncrementalH3CacheBuilder.merge(plan).withStorageMode(storageMode);
+        if (distanceCache.getAsymmetryStats() != null) {
+            logger.info("Asymmetry: {}", distanceCache.getAsymmetryStats());
+        }
+
+        fileFormat.persistence(outputFilename).buildCache(distanceCache.withCellEncoding(cellEncoding));
+        return 0;
+    }
+}
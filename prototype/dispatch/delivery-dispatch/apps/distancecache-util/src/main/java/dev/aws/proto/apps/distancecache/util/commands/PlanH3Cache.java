@@ -0,0 +1,65 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.distancecache.util.commands;
+
+import dev.aws.proto.core.routing.cache.incremental.H3CacheBuildPlan;
+import dev.aws.proto.core.routing.cache.incremental.H3CacheWorkUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@CommandLine.Command(name = "plan", description = "Partition the covering hexagons into work units (extends an existing plan with new hexagons)")
+public class PlanH3Cache implements Callable<Integer> {
+    private static final Logger logger = LoggerFactory.getLogger(PlanH3Cache.class);
+
+    @CommandLine.Parameters(index = "0", description = "The GeoJSON file input")
+    private File geoJsonFile;
+
+    @CommandLine.Option(names = {"-d", "--build-dir"}, required = true, description = "The build directory, shared by the workers")
+    private String buildDir;
+
+    @CommandLine.Option(names = {"-r", "--resolution"}, description = "H3 resolution")
+    private int resolution = 10;
+
+    @CommandLine.Option(names = "--block-size", description = "Number of rows in a work unit")
+    private int blockSize = H3CacheBuildPlan.DEFAULT_BLOCK_SIZE;
+
+    @Override
+    public Integer call() throws Exception {
+        List<Long> coveringHexagons = CoveringHexagons.of(geoJsonFile, resolution);
+        if (coveringHexagons.isEmpty()) {
+            logger.error("No hexagons to cover. Quitting.");
+            return 1;
+        }
+
+        H3CacheBuildPlan plan = H3CacheBuildPlan.createOrExtend(Paths.get(buildDir), resolution, blockSize, coveringHexagons);
+        plan.writeUnitList();
+
+        List<H3CacheWorkUnit> units = plan.getWorkUnits();
+        long cellCnt = units.stream().mapToLong(H3CacheWorkUnit::getCellCount).sum();
+        logger.info("Plan: {} hexagons in {} generations :: {} work units ({} cells) :: {} pending",
+                plan.getHexagons().length, plan.getGenerationCount(), units.size(), cellCnt, plan.getPendingWorkUnits().size());
+        logger.info("Work units are listed in {}", Paths.get(buildDir, H3CacheBuildPlan.UNITS_FILE));
+        return 0;
+    }
+}
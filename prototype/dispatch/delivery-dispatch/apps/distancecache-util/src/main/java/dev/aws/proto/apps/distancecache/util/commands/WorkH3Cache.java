@@ -0,0 +1,101 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.distancecache.util.commands;
+
+import dev.aws.proto.core.routing.cache.incremental.H3CacheBuildPlan;
+import dev.aws.proto.core.routing.cache.incremental.H3CacheWorkUnit;
+import dev.aws.proto.core.routing.cache.incremental.IncrementalH3CacheBuilder;
+import dev.aws.proto.core.routing.route.GraphhopperLoader;
+import dev.aws.proto.core.routing.route.GraphhopperMatrixRouter;
+import dev.aws.proto.core.routing.route.GraphhopperRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+@CommandLine.Command(name = "work", description = "Compute pending work units of a plan with the local OSM graph")
+public class WorkH3Cache implements Callable<Integer> {
+    private static final Logger logger = LoggerFactory.getLogger(WorkH3Cache.class);
+
+    @CommandLine.Option(names = {"-d", "--build-dir"}, required = true, description = "The build directory, shared by the workers")
+    private String buildDir;
+
+    @CommandLine.Option(names = "--unit", description = "Compute only this work unit")
+    private String unitId;
+
+    @CommandLine.Option(names = "--worker-index", description = "Static partitioning: compute only the units where (unit index % worker count) == worker index")
+    private int workerIndex = 0;
+
+    @CommandLine.Option(names = "--worker-count", description = "Static partitioning: the number of workers (default: 1, units are claimed dynamically)")
+    private int workerCount = 1;
+
+    @CommandLine.Option(names = "--max-units", description = "Stop after computing this many units")
+    private int maxUnits = Integer.MAX_VALUE;
+
+    @CommandLine.Option(names = "--claim-timeout-minutes", description = "Take over the claims of other workers older than this (e.g. terminated spot instances)")
+    private long claimTimeoutMinutes = H3CacheBuildPlan.DEFAULT_CLAIM_TIMEOUT_MILLIS / 60_000;
+
+    @CommandLine.Option(names = "--routing-profile", description = "car, motorcycle")
+    private String routingProfile = "motorcycle";
+
+    @CommandLine.Option(names = "--local-osm-dir", description = "The directory to look the OSM file for")
+    private String localOsmDir = "~/.graphhopper/openstreetmap";
+
+    @CommandLine.Option(names = "--local-graphhopper-dir", description = "The graphhopper cache dir")
+    private String localGraphhopperDir = "~/.graphhopper/graphhopper";
+
+    @CommandLine.Option(names = "--local-osm-file", description = "The OSM file")
+    private String osmFile = "mapfile.osm.pbf";
+
+    @CommandLine.Option(names = {"-e", "--engine"}, description = "The routing engine: ${COMPLETION-CANDIDATES}")
+    private BuildH3Cache.RoutingEngine routingEngine = BuildH3Cache.RoutingEngine.MATRIX;
+
+    @Override
+    public Integer call() throws Exception {
+        H3CacheBuildPlan plan = H3CacheBuildPlan.load(Paths.get(buildDir));
+
+        Predicate<H3CacheWorkUnit> selector;
+        if (unitId != null) {
+            if (plan.findWorkUnit(unitId) == null) {
+                logger.error("No work unit {} in the plan. Quitting.", unitId);
+                return 1;
+            }
+            selector = unit -> unit.getId().equals(unitId);
+        } else {
+            List<String> unitIds = plan.getWorkUnits().stream().map(H3CacheWorkUnit::getId).collect(Collectors.toList());
+            selector = unit -> unitIds.indexOf(unit.getId()) % workerCount == workerIndex;
+        }
+
+        logger.info("Attempting to load Graphhopper...");
+        GraphhopperLoader ghLoader = new GraphhopperLoader(localOsmDir, localGraphhopperDir, osmFile);
+        ghLoader.initAndLoad();
+
+        IncrementalH3CacheBuilder builder = routingEngine == BuildH3Cache.RoutingEngine.MATRIX
+                ? new IncrementalH3CacheBuilder(plan, new GraphhopperMatrixRouter(ghLoader.getHopper(), routingProfile))
+                : new IncrementalH3CacheBuilder(plan, new GraphhopperRouter(ghLoader.getHopper(), routingProfile));
+
+        int computed = builder.run(selector, maxUnits, claimTimeoutMinutes * 60_000);
+        logger.info("Computed {} work units, {} are pending in the plan", computed, plan.getPendingWorkUnits().size());
+        return 0;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.distancecache.util.experimental;
+
+import com.uber.h3core.H3Core;
+import com.uber.h3core.util.GeoCoord;
+import dev.aws.proto.core.routing.H3;
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.cache.H3DistanceMatrix;
+import dev.aws.proto.core.routing.cache.persistence.h3.H3CacheFileFormat;
+import dev.aws.proto.core.routing.distance.TravelDistance;
+import dev.aws.proto.core.routing.location.Coordinate;
+import dev.aws.proto.core.routing.location.ILocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the per-cell fill of an H3 distance matrix (flat cell index split across the common pool, both endpoints
+ * converted to hexagons for every cell, one <code>TravelDistance</code> object per cell) with the tiled fill of
+ * {@link H3DistanceMatrix#generate(dev.aws.proto.core.routing.cache.IH3DistanceLookup, List)}.
+ * <p>
+ * The locations are the centers of random hexagons of the cache, so every cell is a cache hit in both fills.
+ */
+@CommandLine.Command(name = "matrix-fill-benchmark", description = "Experiment comparing the per-cell and the tiled H3 distance matrix fill")
+public class BenchmarkMatrixFill implements Callable<Integer> {
+    private static final Logger logger = LoggerFactory.getLogger(BenchmarkMatrixFill.class);
+
+    @CommandLine.Parameters(index = "0", description = "The H3 cache file to use")
+    private File cacheFile;
+
+    @CommandLine.Option(names = {"-d", "--dimensions"}, split = ",", description = "Matrix dimensions to generate (default: 500,1000,2000)")
+    private int[] dimensions = {500, 1000, 2000};
+
+    @CommandLine.Option(names = {"-n", "--iterations"}, description = "Measured runs per dimension and fill (default: 10)")
+    private int iterations = 10;
+
+    @CommandLine.Option(names = "--warmup", description = "Warmup runs per dimension and fill (default: 3)")
+    private int warmup = 3;
+
+    @CommandLine.Option(names = "--seed", description = "Seed of the random locations (default: 42)")
+    private long seed = 42;
+
+    private static class Location implements ILocation {
+        private final Coordinate coordinate;
+
+        Location(GeoCoord point) {
+            this.coordinate = new Coordinate(point.lat, point.lng);
+        }
+
+        @Override
+        public Coordinate coordinate() {
+            return this.coordinate;
+        }
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        H3DistanceCache loadedCache;
+        try {
+            loadedCache = H3CacheFileFormat.detect(cacheFile.toPath()).persistence(cacheFile.toPath().toString()).importCache();
+        } catch (Exception ex) {
+            logger.error("Error while loading distance cache file: {}", ex.getMessage());
+            ex.printStackTrace();
+
+            return 1;
+        }
+
+        final H3DistanceCache distanceCache = loadedCache;
+        long[] hexagons = distanceCache.getH3Hexagons();
+        logger.info("Distance cache loaded :: hexagons = {} :: resolution = {}", hexagons.length, distanceCache.getH3Resolution());
+
+        H3Core h3 = H3.h3();
+        Random random = new Random(seed);
+        for (int dim : dimensions) {
+            List<Location> locations = new ArrayList<>(dim);
+            for (int i = 0; i < dim; i++) {
+                locations.add(new Location(h3.h3ToGeo(hexagons[random.nextInt(hexagons.length)])));
+            }
+
+            long[] perCellTimes = this.measure(() -> perCellFill(distanceCache, locations));
+            long[] tiledTimes = this.measure(() -> H3DistanceMatrix.generate(distanceCache, locations));
+
+            double perCellMedian = median(perCellTimes) / 1e6;
+            double tiledMedian = median(tiledTimes) / 1e6;
+            logger.info("{}x{} :: per-cell fill median = {}ms (min {}ms) :: tiled fill median = {}ms (min {}ms) :: speedup = {}x",
+                    dim, dim,
+                    String.format("%.1f", perCellMedian), String.format("%.1f", perCellTimes[0] / 1e6),
+                    String.format("%.1f", tiledMedian), String.format("%.1f", tiledTimes[0] / 1e6),
+                    String.format("%.2f", perCellMedian / tiledMedian));
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return The sorted run times of the measured iterations, in nanoseconds.
+     */
+    private long[] measure(Runnable fill) {
+        for (int n = 0; n < warmup; n++) {
+            fill.run();
+        }
+
+        long[] times = new long[iterations];
+        for (int n = 0; n < iterations; n++) {
+            long start = System.nanoTime();
+            fill.run();
+            times[n] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        return times;
+    }
+
+    private static double median(long[] sortedTimes) {
+        int mid = sortedTimes.length / 2;
+        return sortedTimes.length % 2 == 1 ? sortedTimes[mid] : (sortedTimes[mid - 1] + sortedTimes[mid]) / 2.0;
+    }
+
+    /**
+     * The fill order the matrix builders used before the tiles: every cell resolves both of its locations.
+     */
+    private static TravelDistance[][] perCellFill(H3DistanceCache distanceCache, List<Location> locations) {
+        H3Core h3 = H3.h3();
+        int dim = locations.size();
+        int resolution = distanceCache.getH3Resolution();
+        TravelDistance[][] distances = new TravelDistance[dim][dim];
+        IntStream.range(0, dim * dim)
+                .parallel()
+                .forEach(idx -> {
+                    int i = idx / dim;
+                    int j = idx % dim;
+                    Coordinate from = locations.get(i).coordinate();
+                    Coordinate to = locations.get(j).coordinate();
+                    distances[i][j] = distanceCache.getDistanceTrusted(
+                            h3.geoToH3(from.getLatitude(), from.getLongitude(), resolution),
+                            h3.geoToH3(to.getLatitude(), to.getLongitude(), resolution));
+                });
+        return distances;
+    }
+}
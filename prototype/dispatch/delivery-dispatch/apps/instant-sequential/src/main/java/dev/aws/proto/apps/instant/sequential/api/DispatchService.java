@@ -37,6 +37,7 @@ import dev.aws.proto.core.routing.config.RoutingConfig;
 import dev.aws.proto.core.routing.distance.DistanceMatrix;
 import dev.aws.proto.core.routing.location.Coordinate;
 import dev.aws.proto.core.routing.location.ILocation;
+import dev.aws.proto.core.routing.route.GraphhopperMatrixRouter;
 import dev.aws.proto.core.routing.route.GraphhopperRouter;
 import org.optaplanner.core.api.solver.SolverJob;
 import org.optaplanner.core.api.solver.SolverManager;
@@ -69,12 +70,18 @@ public class DispatchService extends dev.aws.proto.apps.appcore.api.DispatchServ
     @Inject
     DdbAssignmentService assignmentService;
 
+    /**
+     * One-to-many router to build the distance matrix (one search per location instead of one per cell).
+     */
+    private GraphhopperMatrixRouter matrixRouter;
+
     DispatchService(RoutingConfig routingConfig, SolutionConfig solutionConfig, DriverQueryManager driverQueryManager) {
         this.routingConfig = routingConfig;
         this.solutionConfig = solutionConfig;
         this.driverQueryManager = driverQueryManager;
 
-        this.graphhopperRouter = new GraphhopperRouter(routingConfig.graphHopper(), routingConfig.routingProfile());
+        this.graphhopperRouter = new GraphhopperRouter(routingConfig.graphHopper(), routingConfig.routingProfile(), routingConfig.routeCache(), routingConfig.routingExecutor());
+        this.matrixRouter = new GraphhopperMatrixRouter(routingConfig.graphHopper(), routingConfig.routingProfile(), routingConfig.routingExecutor());
 
         SolverConfig solverConfig = SolverConfig.createFromXmlFile(java.nio.file.Path.of(this.solutionConfig.getSolverConfigXmlPath()).toFile());
         this.solverManager = SolverManager.create(solverConfig, new SolverManagerConfig());
@@ -147,7 +154,7 @@ public class DispatchService extends dev.aws.proto.apps.appcore.api.DispatchServ
 
         List<ILocation> matrixLocs = allLocations.stream().map(locBase -> (ILocation) locBase).collect(Collectors.toList());
         // build distance matrix
-        DistanceMatrix distanceMatrix = DistanceMatrix.generate(matrixLocs, this.graphhopperRouter);
+        DistanceMatrix distanceMatrix = DistanceMatrix.generate(matrixLocs, this.matrixRouter);
         logger.trace(distanceMatrix.toString());
         for (Location loc : allLocations) {
             loc.setDistanceMatrix(distanceMatrix);
@@ -50,7 +50,7 @@ public class RoutingResource {
     @Inject
     public RoutingResource(RoutingConfig routingConfig) {
         this.routingConfig = routingConfig;
-        this.graphhopperRouter = new GraphhopperRouter(routingConfig.graphHopper(), routingConfig.routingProfile());
+        this.graphhopperRouter = new GraphhopperRouter(routingConfig.graphHopper(), routingConfig.routingProfile(), routingConfig.routeCache(), routingConfig.routingExecutor());
     }
 
     @POST
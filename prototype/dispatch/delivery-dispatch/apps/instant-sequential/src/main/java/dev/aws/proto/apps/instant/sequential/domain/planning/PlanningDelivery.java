@@ -28,8 +28,10 @@ import lombok.Setter;
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
 import org.optaplanner.core.api.domain.lookup.PlanningId;
 import org.optaplanner.core.api.domain.variable.AnchorShadowVariable;
+import org.optaplanner.core.api.domain.variable.CustomShadowVariable;
 import org.optaplanner.core.api.domain.variable.PlanningVariable;
 import org.optaplanner.core.api.domain.variable.PlanningVariableGraphType;
+import org.optaplanner.core.api.domain.variable.PlanningVariableReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -90,6 +92,13 @@ public class PlanningDelivery implements DeliveryOrDriver {
     @Setter
     private PlanningDriver planningDriver;
 
+    /**
+     * The driver whose chain length this delivery is counted in. Bookkeeping of the
+     * {@link dev.aws.proto.apps.instant.sequential.domain.planning.solver.ChainLengthUpdatingVariableListener}.
+     */
+    @CustomShadowVariable(variableListenerRef = @PlanningVariableReference(entityClass = PlanningDriver.class, variableName = "chainLength"))
+    private PlanningDriver countedDriver;
+
     public PlanningDelivery(Order order, OriginLocation pickup, DestinationLocation dropoff) {
         this.order = order;
         this.pickup = pickup;
@@ -227,10 +236,12 @@ public class PlanningDelivery implements DeliveryOrDriver {
      * @return distance in sec * distance in meters
      */
     public long scoreForPreferCloserDriverToPickupLocation() {
-        Distance dist = this.getDistanceFromPrevDriverOrDelivery();
+        Location previousLocation = previousDeliveryOrDriver.isDriver() ?
+                this.getPlanningDriver().getLocation() :
+                ((PlanningDelivery) previousDeliveryOrDriver).dropoff;
 
-        long distInSec = dist.getDistanceInSeconds();
-        long distInMeters = dist.getDistanceInMeters();
+        long distInSec = previousLocation.secondsTo(this.pickup);
+        long distInMeters = previousLocation.metersTo(this.pickup);
         return distInSec * distInMeters;
     }
 
@@ -241,10 +252,8 @@ public class PlanningDelivery implements DeliveryOrDriver {
      * @return The custom distance metric.
      */
     public long scoreForDistance(Location otherLocation) {
-        Distance dist = otherLocation.distanceTo(this.getPickup());
-
-        long distInSec = dist.getDistanceInSeconds();
-        long distInMeters = dist.getDistanceInMeters();
+        long distInSec = otherLocation.secondsTo(this.getPickup());
+        long distInMeters = otherLocation.metersTo(this.getPickup());
         return distInSec * distInMeters;
     }
 }
@@ -16,19 +16,26 @@
  */
 package dev.aws.proto.apps.instant.sequential.domain.planning;
 
+import dev.aws.proto.apps.instant.sequential.domain.planning.solver.ChainLengthUpdatingVariableListener;
 import dev.aws.proto.apps.instant.sequential.location.DriverLocation;
+import dev.aws.proto.apps.instant.sequential.util.Constants;
 import dev.aws.proto.core.routing.distance.Distance;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.optaplanner.core.api.domain.entity.PlanningEntity;
 import org.optaplanner.core.api.domain.lookup.PlanningId;
+import org.optaplanner.core.api.domain.variable.CustomShadowVariable;
+import org.optaplanner.core.api.domain.variable.PlanningVariableReference;
 
 import java.util.Objects;
 
 /**
  * Represents a driver in the planning process.
+ * It's the anchor of the delivery chains, and a planning entity because of its shadow variables.
  */
+@PlanningEntity
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -42,6 +49,15 @@ public class PlanningDriver implements DeliveryOrDriver {
     // Shadow variable
     private PlanningDelivery nextPlanningDelivery;
 
+    /**
+     * The length of the chain: number of deliveries assigned to this driver.
+     */
+    @CustomShadowVariable(
+            variableListenerClass = ChainLengthUpdatingVariableListener.class,
+            sources = {@PlanningVariableReference(entityClass = PlanningDelivery.class, variableName = Constants.PlanningDriver)}
+    )
+    private int chainLength;
+
     @PlanningId
     public String getId() {
         return this.id;
@@ -80,21 +96,6 @@ public class PlanningDriver implements DeliveryOrDriver {
         return this.getLocation().distanceTo(delivery.getPickup());
     }
 
-    /**
-     * Gets the length of the chain: number of orders assigned to this driver.
-     *
-     * @return The length of the chain.
-     */
-    public long chainLength() {
-        DeliveryOrDriver current = this;
-        long chainLen = 0;
-        while (current.getNextPlanningDelivery() != null) {
-            current = current.getNextPlanningDelivery();
-            chainLen++;
-        }
-        return chainLen;
-    }
-
     /**
      * Custom score value for indicating if a driver is assigned.
      *
@@ -0,0 +1,90 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.instant.sequential.domain.planning.solver;
+
+import dev.aws.proto.apps.instant.sequential.domain.planning.PlanningDelivery;
+import dev.aws.proto.apps.instant.sequential.domain.planning.PlanningDriver;
+import dev.aws.proto.apps.instant.sequential.planner.solution.DispatchSolution;
+import org.optaplanner.core.api.domain.variable.VariableListener;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+
+/**
+ * Maintains the chain length of the drivers (the number of deliveries assigned to them).
+ * <p>
+ * Listens to the anchor (<code>planningDriver</code>) of the deliveries. Every delivery remembers the driver it's
+ * counted for (<code>countedDriver</code>), so when its anchor changes only the old and the new driver are updated,
+ * without walking the chains. The update is idempotent: it doesn't matter how many events a move fires for a
+ * delivery, only the anchor it ends up with.
+ */
+public class ChainLengthUpdatingVariableListener implements VariableListener<DispatchSolution, PlanningDelivery> {
+
+    @Override
+    public void beforeEntityAdded(ScoreDirector<DispatchSolution> scoreDirector, PlanningDelivery planningDelivery) {
+        // do nothing
+    }
+
+    @Override
+    public void afterEntityAdded(ScoreDirector<DispatchSolution> scoreDirector, PlanningDelivery planningDelivery) {
+        updateDelivery(scoreDirector, planningDelivery, planningDelivery.getPlanningDriver());
+    }
+
+    @Override
+    public void beforeVariableChanged(ScoreDirector<DispatchSolution> scoreDirector, PlanningDelivery planningDelivery) {
+        // do nothing
+    }
+
+    @Override
+    public void afterVariableChanged(ScoreDirector<DispatchSolution> scoreDirector, PlanningDelivery planningDelivery) {
+        updateDelivery(scoreDirector, planningDelivery, planningDelivery.getPlanningDriver());
+    }
+
+    @Override
+    public void beforeEntityRemoved(ScoreDirector<DispatchSolution> scoreDirector, PlanningDelivery planningDelivery) {
+        // the delivery is not counted anymore
+        updateDelivery(scoreDirector, planningDelivery, null);
+    }
+
+    @Override
+    public void afterEntityRemoved(ScoreDirector<DispatchSolution> scoreDirector, PlanningDelivery planningDelivery) {
+        // do nothing
+    }
+
+    private void updateDelivery(ScoreDirector<DispatchSolution> scoreDirector, PlanningDelivery delivery, PlanningDriver driver) {
+        PlanningDriver countedDriver = delivery.getCountedDriver();
+        if (countedDriver == driver) {
+            return;
+        }
+
+        if (countedDriver != null) {
+            updateChainLength(scoreDirector, countedDriver, -1);
+        }
+        if (driver != null) {
+            updateChainLength(scoreDirector, driver, 1);
+        }
+
+        scoreDirector.beforeVariableChanged(delivery, "countedDriver");
+        delivery.setCountedDriver(driver);
+        scoreDirector.afterVariableChanged(delivery, "countedDriver");
+    }
+
+    private static void updateChainLength(ScoreDirector<DispatchSolution> scoreDirector, PlanningDriver driver, int delta) {
+        scoreDirector.beforeVariableChanged(driver, "chainLength");
+        driver.setChainLength(driver.getChainLength() + delta);
+        scoreDirector.afterVariableChanged(driver, "chainLength");
+    }
+}
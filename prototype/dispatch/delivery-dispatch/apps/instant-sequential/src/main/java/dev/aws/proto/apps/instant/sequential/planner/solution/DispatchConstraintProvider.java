@@ -21,6 +21,7 @@ import dev.aws.proto.apps.instant.sequential.domain.planning.PlanningDelivery;
 import dev.aws.proto.apps.instant.sequential.domain.planning.PlanningDriver;
 import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
 import org.optaplanner.core.api.score.stream.Constraint;
+import org.optaplanner.core.api.score.stream.ConstraintCollectors;
 import org.optaplanner.core.api.score.stream.ConstraintFactory;
 import org.optaplanner.core.api.score.stream.ConstraintProvider;
 import org.optaplanner.core.api.score.stream.Joiners;
@@ -56,15 +57,26 @@ public class DispatchConstraintProvider implements ConstraintProvider {
                 );
     }
 
+    /**
+     * Penalizes every (idle driver, driver with multiple deliveries) pair.
+     * The drivers are counted in two groups instead of joining them pairwise, so a move only updates the
+     * counts of the drivers it touched.
+     *
+     * @param factory
+     * @return
+     */
     protected Constraint dontAssignMultipleIfOtherDriversUnassigned(ConstraintFactory factory) {
         return factory.forEach(PlanningDriver.class)
-                .join(PlanningDriver.class,
-                        Joiners.filtering((a, b) -> a.chainLength() == 0 && b.chainLength() > 1),
-                        Joiners.filtering((a, b) -> a.getId() != b.getId())
+                .filter(driver -> driver.getChainLength() > 1)
+                .groupBy(ConstraintCollectors.count())
+                .join(factory.forEach(PlanningDriver.class)
+                        .filter(driver -> driver.getChainLength() == 0)
+                        .groupBy(ConstraintCollectors.count())
                 )
                 .penalize(
                         "dontAssignMultipleIfOtherDriversUnassigned",
-                        HardMediumSoftLongScore.ONE_HARD
+                        HardMediumSoftLongScore.ONE_HARD,
+                        (busyDriverCnt, idleDriverCnt) -> busyDriverCnt * idleDriverCnt
                 );
     }
 
@@ -30,6 +30,7 @@ public class Constants {
     // instant/sequential
     public static final String PlanningDeliveryRange = "PlanningDeliveryRange";
     public static final String PreviousDeliveryOrDriver = "previousDeliveryOrDriver";
+    public static final String PlanningDriver = "planningDriver";
 
     private Constants() {
         throw new AssertionError("Utility class");
@@ -17,7 +17,6 @@
 
 package dev.aws.proto.apps.sameday.directpudo.api;
 
-import com.uber.h3core.H3Core;
 import dev.aws.proto.apps.appcore.config.SolutionConfig;
 import dev.aws.proto.apps.appcore.planner.solution.SolutionState;
 import dev.aws.proto.apps.sameday.directpudo.Order;
@@ -26,12 +25,12 @@ import dev.aws.proto.apps.sameday.directpudo.api.response.DeliveryJob;
 import dev.aws.proto.apps.sameday.directpudo.api.response.SolverJob;
 import dev.aws.proto.apps.sameday.directpudo.api.response.SolverJobWithDeliveryJobs;
 import dev.aws.proto.apps.sameday.directpudo.config.DistanceCachingConfig;
+import dev.aws.proto.apps.sameday.directpudo.config.SolverProperties;
 import dev.aws.proto.apps.sameday.directpudo.data.*;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.DeliveryRide;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningHub;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVehicle;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
-import dev.aws.proto.apps.sameday.directpudo.domain.planning.capacity.CurrentCapacity;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.capacity.MaxCapacity;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.capacity.VehicleType;
 import dev.aws.proto.apps.sameday.directpudo.location.DropoffLocation;
@@ -40,12 +39,14 @@ import dev.aws.proto.apps.sameday.directpudo.location.Location;
 import dev.aws.proto.apps.sameday.directpudo.location.PickupLocation;
 import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
 import dev.aws.proto.apps.sameday.directpudo.planner.solution.SolutionConsumer;
-import dev.aws.proto.core.routing.H3;
-import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.apps.sameday.directpudo.solver.nearby.NearbySelection;
+import dev.aws.proto.apps.sameday.directpudo.solver.partition.DispatchSolutionPartitioner;
+import dev.aws.proto.apps.sameday.directpudo.solver.partition.PartitionedSearch;
 import dev.aws.proto.core.routing.cache.H3DistanceMatrix;
+import dev.aws.proto.core.routing.cache.IH3DistanceLookup;
+import dev.aws.proto.core.routing.cache.TieredH3DistanceProvider;
 import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
 import dev.aws.proto.core.routing.config.RoutingConfig;
-import dev.aws.proto.core.routing.distance.TravelDistance;
 import dev.aws.proto.core.routing.location.Coordinate;
 import dev.aws.proto.core.routing.route.GraphhopperRouter;
 import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
@@ -88,22 +89,42 @@ public class DispatchService extends dev.aws.proto.apps.appcore.api.DispatchServ
     @Inject
     DistanceCachingConfig distanceCachingConfig;
 
-    private H3DistanceCache h3DistanceCache;
+    @Inject
+    SolverProperties solverProperties;
+
+    private IH3DistanceLookup h3DistanceCache;
+
+    private TieredH3DistanceProvider distanceProvider;
 
-    DispatchService(RoutingConfig routingConfig, SolutionConfig solutionConfig, DistanceCachingConfig distanceCachingConfig) {
+    DispatchService(RoutingConfig routingConfig, SolutionConfig solutionConfig, DistanceCachingConfig distanceCachingConfig, SolverProperties solverProperties) {
         this.routingConfig = routingConfig;
         this.solutionConfig = solutionConfig;
         this.distanceCachingConfig = distanceCachingConfig;
+        this.solverProperties = solverProperties;
 
         // instantiate the graphhopper router
-        this.graphhopperRouter = new GraphhopperRouter(routingConfig.graphHopper(), routingConfig.routingProfile());
+        this.graphhopperRouter = new GraphhopperRouter(routingConfig.graphHopper(), routingConfig.routingProfile(), routingConfig.routeCache(), routingConfig.routingExecutor());
 
         // instantiate distance cache
-        ICachePersistence<H3DistanceCache> distanceMatrixPersistence = distanceCachingConfig.getCachePersistence();
+        ICachePersistence<? extends IH3DistanceLookup> distanceMatrixPersistence = distanceCachingConfig.getCachePersistence();
         this.h3DistanceCache = distanceMatrixPersistence.importCache();
 
+        // serve distances from the cache, route the pairs outside the cache with graphhopper
+        this.distanceProvider = new TieredH3DistanceProvider(this.h3DistanceCache, this.graphhopperRouter,
+                distanceCachingConfig.getFallbackMemoSize());
+
         // create the solver config and the solver manager
         SolverConfig solverConfig = SolverConfig.createFromXmlFile(java.nio.file.Path.of(this.solutionConfig.getSolverConfigXmlPath()).toFile());
+        if (solverProperties.nearbySelectionEnabled().orElse(false)) {
+            NearbySelection.apply(solverConfig, solverProperties.nearbyDistributionSizeMaximum().orElse(NearbySelection.DEFAULT_DISTRIBUTION_SIZE_MAXIMUM));
+        }
+        // after the nearby selection, so the phases of the parts have it too
+        if (solverProperties.partitionedSearchEnabled().orElse(false)) {
+            PartitionedSearch.apply(solverConfig,
+                    solverProperties.partitionedSearchPartCount().orElse(null),
+                    solverProperties.partitionedSearchH3Resolution().orElse(DispatchSolutionPartitioner.DEFAULT_H3_RESOLUTION),
+                    solverProperties.partitionedSearchPolishingSeconds().orElse(PartitionedSearch.DEFAULT_POLISHING_SECONDS_SPENT_LIMIT));
+        }
         this.solverManager = SolverManager.create(solverConfig, new SolverManagerConfig());
         this.solutionMap = new ConcurrentHashMap<>();
     }
@@ -134,19 +155,8 @@ public class DispatchService extends dev.aws.proto.apps.appcore.api.DispatchServ
             locationMap.put(hub.getId(), hubLoc);
         }
 
-        // THIS IS A HACK - DO NOT USE IN PROD
-        // -------------------------------------------------------------------------------------------------------------
-        // Removes all the orders that have either a pickup or a dropoff location that is NOT inside the cached area,
-        // which we determine if it has a distance cached already inside our coverage area.
-        // For prod, either report these removed orders and feed it back to the queue or filter out on the backend so
-        // dispatcher doesn't have to handle it.
-        // -------------------------------------------------------------------------------------------------------------
-        H3Core h3 = H3.h3();
-
-        // this lat/long should be somewhere in the center of your coverage area
-        long centerHexa = h3.geoToH3(14.617794, 121.001995, h3DistanceCache.getH3Resolution());
-
-        // keep the orders that have only "valid" pickup/dropoff locations for our caching mechanism
+        // orders outside the cache coverage area are kept, their distances are routed by the distance provider
+        // (orders that can't be routed at all are rejected once the distance matrix is generated)
         Map<String, Order> validOrdersMap = new HashMap<>();
 
         for (Order o : req.getOrders()) {
@@ -156,27 +166,11 @@ public class DispatchService extends dev.aws.proto.apps.appcore.api.DispatchServ
                 continue;
             }
 
-            // check if origin/destination coordinates are in the cache coverage area
-            Coordinate origin = o.getOrigin();
-            Coordinate dest = o.getDestination();
-
-            TravelDistance origDist = h3DistanceCache.getDistance(
-                    h3.geoToH3(origin.getLatitude(), origin.getLongitude(), h3DistanceCache.getH3Resolution()), centerHexa);
-            TravelDistance destDist = h3DistanceCache.getDistance(
-                    h3.geoToH3(dest.getLatitude(), dest.getLongitude(), h3DistanceCache.getH3Resolution()), centerHexa);
-
-            if (origDist == null || destDist == null) {
-                logger.warn("Skipping order {} because origin or destination location is outside or on the edge of covered geo polygon", o.getOrderId());
-                continue;
-            }
-
             // save valid order
             validOrdersMap.put(o.getOrderId(), o);
         }
         List<Order> validOrders = new ArrayList<>(validOrdersMap.values());
         logger.debug("Original orders: {}, valid orders: {}", req.getOrders().length, validOrders.size());
-        // -------------------------------------------------------------------------------------------------------------
-        // -------------------------------------------------------------------------------------------------------------
 
         // create pickup and dropoff locations
         // reuse objects if the location IDs are reused
@@ -216,6 +210,15 @@ public class DispatchService extends dev.aws.proto.apps.appcore.api.DispatchServ
             dropoffVisit.setVisitType(PlanningVisit.VisitType.DROPOFF);
             dropoffVisit.setLocation(dropoffLocations.get(orderId));
 
+            // the delivery jobs start when the problem is created, time windows are relative to that
+            Order.Payload payload = o.getPayload();
+            long orderCreatedAt = o.getCreatedAt() > 0 ? o.getCreatedAt() : createdAt;
+            long preparedAt = orderCreatedAt + o.getOrigin().getPreparationTimeInMins() * 60_000L;
+            pickupVisit.setReadyTimeInSec(Math.max(secondsSince(createdAt, preparedAt), timeframeFromInSec(createdAt, payload.getPickupTimeframe())));
+            pickupVisit.setDueTimeInSec(timeframeToInSec(createdAt, payload.getPickupTimeframe()));
+            dropoffVisit.setReadyTimeInSec(timeframeFromInSec(createdAt, payload.getDropoffTimeframe()));
+            dropoffVisit.setDueTimeInSec(timeframeToInSec(createdAt, payload.getDropoffTimeframe()));
+
             Parcel orderParcel = o.getPayload().getParcel();
 
             rideId++;
@@ -252,7 +255,6 @@ public class DispatchService extends dev.aws.proto.apps.appcore.api.DispatchServ
             for (int i = 0; i < hub.getNumOfVehicles(); i++) {
                 PlanningVehicle vehicle = new PlanningVehicle();
                 vehicle.setMaxCapacity(MOTORBIKE_MAXCAPACITY);
-                vehicle.setCurrentCapacity(CurrentCapacity.ZERO);
                 vehicle.setLocation(vehicleLocation);
                 vehicle.setId(UUID.randomUUID().toString());
                 vehicles.add(vehicle);
@@ -262,13 +264,36 @@ public class DispatchService extends dev.aws.proto.apps.appcore.api.DispatchServ
         // generate the distance matrix that will be used to lookup distances between any location pairs
         logger.debug("Starting to generate a distance matrix with {} locations extracted from the request.", locationMap.size());
         List<Location> locationList = new ArrayList<>(locationMap.values());
-        H3DistanceMatrix<Location> h3DistanceMatrix = H3DistanceMatrix.generate(this.h3DistanceCache, locationList);
+        H3DistanceMatrix<Location> h3DistanceMatrix = H3DistanceMatrix.generate(this.distanceProvider, locationList);
 
         // save the reference to the distance matrix for each location for convenience
         for (Location loc : locationList) {
             loc.setDistanceMatrix(h3DistanceMatrix);
         }
 
+        // orders that can't be routed (e.g. outside the road graph) would only reach the solver as penalties
+        List<HubLocation> hubLocations = new ArrayList<>();
+        for (PlanningHub hub : hubs) {
+            hubLocations.add((HubLocation) locationMap.get(hub.getId()));
+        }
+        Set<String> unroutableOrderIds = new HashSet<>();
+        for (DeliveryRide ride : rides) {
+            if (!isRoutable(ride, hubLocations, h3DistanceMatrix)) {
+                logger.warn("Skipping order {}: NO ROUTE BETWEEN PICKUP, DROPOFF AND THE HUBS", ride.getOrderId());
+                unroutableOrderIds.add(ride.getOrderId());
+            }
+        }
+        if (!unroutableOrderIds.isEmpty()) {
+            rides.removeIf(ride -> unroutableOrderIds.contains(ride.getOrderId()));
+            planningVisits.removeIf(visit -> unroutableOrderIds.contains(visit.getOrderId()));
+
+            // keep the hubs and the locations of the remaining visits
+            Set<Location> usedLocations = new HashSet<>(hubLocations);
+            planningVisits.forEach(visit -> usedLocations.add(visit.getLocation()));
+            locationList.removeIf(loc -> !usedLocations.contains(loc));
+            logger.info("Rejected {} unroutable orders, {} orders left", unroutableOrderIds.size(), rides.size());
+        }
+
         // create the problem instance
         DispatchSolution realProblem = DispatchSolution.builder()
                 .id(problemId)
@@ -352,4 +377,36 @@ public class DispatchService extends dev.aws.proto.apps.appcore.api.DispatchServ
                 .score("NA")
                 .build());
     }
+
+    /**
+     * A ride is routable if there's a route from its pickup to its dropoff, and at least one hub can reach
+     * the pickup and be reached from the dropoff.
+     */
+    private static boolean isRoutable(DeliveryRide ride, List<HubLocation> hubLocations, H3DistanceMatrix<Location> distanceMatrix) {
+        int pickupIdx = ride.getPickupVisit().getLocation().getMatrixIndex();
+        int dropoffIdx = ride.getDropoffVisit().getLocation().getMatrixIndex();
+        if (!distanceMatrix.isRoutable(pickupIdx, dropoffIdx)) {
+            return false;
+        }
+
+        return hubLocations.stream()
+                .mapToInt(Location::getMatrixIndex)
+                .anyMatch(hubIdx -> distanceMatrix.isRoutable(hubIdx, pickupIdx) && distanceMatrix.isRoutable(dropoffIdx, hubIdx));
+    }
+
+    private static long secondsSince(long startedAt, long timestamp) {
+        return Math.max((timestamp - startedAt) / 1000, 0);
+    }
+
+    private static long timeframeFromInSec(long startedAt, Timeframe timeframe) {
+        return timeframe == null ? 0 : secondsSince(startedAt, timeframe.getFrom());
+    }
+
+    private static Long timeframeToInSec(long startedAt, Timeframe timeframe) {
+        // a timeframe that is already closed can't be met, it would only skew the lateness of the other visits
+        if (timeframe == null || timeframe.getTo() <= startedAt) {
+            return null;
+        }
+        return (timeframe.getTo() - startedAt) / 1000;
+    }
 }
@@ -18,38 +18,63 @@
 package dev.aws.proto.apps.sameday.directpudo.config;
 
 import dev.aws.proto.apps.appcore.config.DistanceCachingProperties;
-import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.cache.IH3DistanceLookup;
+import dev.aws.proto.core.routing.cache.ShardedH3DistanceCache;
+import dev.aws.proto.core.routing.cache.TieredH3DistanceProvider;
 import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
-import dev.aws.proto.core.routing.cache.persistence.h3.FilePersistence;
+import dev.aws.proto.core.routing.cache.persistence.h3.H3CacheFileFormat;
+import dev.aws.proto.core.routing.cache.persistence.h3.HierarchicalFilePersistence;
 import dev.aws.proto.core.routing.cache.persistence.h3.S3FilePersistence;
+import dev.aws.proto.core.routing.cache.persistence.h3.ShardedFilePersistence;
 import dev.aws.proto.core.util.PathHelper;
+import dev.aws.proto.core.util.aws.S3ChunkedTransfer;
 import lombok.Getter;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.ws.rs.NotSupportedException;
+import java.nio.file.Paths;
 
 @ApplicationScoped
 public class DistanceCachingConfig {
 
     @Getter
-    private final ICachePersistence<H3DistanceCache> cachePersistence;
+    private final ICachePersistence<? extends IH3DistanceLookup> cachePersistence;
+
+    @Getter
+    private final int fallbackMemoSize;
 
     @Inject
     DistanceCachingProperties distanceCachingProperties;
 
     DistanceCachingConfig(DistanceCachingProperties distanceCachingProperties) {
         String persistenceType = distanceCachingProperties.persistenceType();
+        this.fallbackMemoSize = distanceCachingProperties.fallbackMemoSize().orElse(TieredH3DistanceProvider.DEFAULT_MEMO_SIZE);
 
         if (persistenceType.equalsIgnoreCase("file")) {
             String cacheFilePath = PathHelper.getAbsPath(distanceCachingProperties.cacheFilePath()).toString();
-            this.cachePersistence = new FilePersistence(cacheFilePath);
+            if (ShardedFilePersistence.isShardedCache(Paths.get(cacheFilePath))) {
+                // a directory of shards, imported lazily
+                this.cachePersistence = new ShardedFilePersistence(cacheFilePath,
+                        distanceCachingProperties.maxLoadedShards().orElse(ShardedH3DistanceCache.DEFAULT_MAX_LOADED_SHARDS),
+                        distanceCachingProperties.maxLoadedShardMegabytes().map(mb -> mb * 1024 * 1024).orElse(ShardedH3DistanceCache.DEFAULT_MAX_LOADED_BYTES));
+            } else if (HierarchicalFilePersistence.isHierarchicalCache(Paths.get(cacheFilePath))) {
+                // nearby pairs in the fine resolution, the rest in a coarse resolution
+                this.cachePersistence = new HierarchicalFilePersistence(cacheFilePath);
+            } else {
+                // legacy and mapped cache files are both supported, the format is detected from the file header
+                this.cachePersistence = H3CacheFileFormat.persistenceFor(cacheFilePath);
+            }
         } else if (persistenceType.equalsIgnoreCase("s3")) {
             if (distanceCachingProperties.cacheBucketName().isEmpty()) {
                 throw new IllegalArgumentException("Error initializing DistanceCachingConfig: cacheBucketName is missing from application.properties");
             }
 
-            this.cachePersistence = new S3FilePersistence(distanceCachingProperties.cacheBucketName().get(), distanceCachingProperties.cacheFilePath());
+            this.cachePersistence = new S3FilePersistence(
+                    distanceCachingProperties.cacheBucketName().get(),
+                    distanceCachingProperties.cacheFilePath(),
+                    H3CacheFileFormat.MAPPED,
+                    distanceCachingProperties.s3DownloadParallelism().orElse(S3ChunkedTransfer.DEFAULT_PARALLELISM));
         } else {
             throw new NotSupportedException("Error initializing DistanceCachingConfig: " + distanceCachingProperties.persistenceType() + " persistence type not supported in this version.");
         }
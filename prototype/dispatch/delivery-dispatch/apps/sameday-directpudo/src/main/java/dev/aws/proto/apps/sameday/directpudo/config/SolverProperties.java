@@ -0,0 +1,65 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.sameday.directpudo.config;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithName;
+
+import java.util.Optional;
+
+/**
+ * Solver settings applied on top of the solver config xml.
+ */
+@ConfigMapping(prefix = "app.solver")
+public interface SolverProperties {
+    /**
+     * Restricts the local search moves to nearby visits (see {@link dev.aws.proto.apps.sameday.directpudo.solver.nearby.NearbySelection}).
+     */
+    @WithName("nearby-selection.enabled")
+    Optional<Boolean> nearbySelectionEnabled();
+
+    /**
+     * Max number of nearest visits a move picks its other visit from.
+     */
+    @WithName("nearby-selection.distribution-size-maximum")
+    Optional<Integer> nearbyDistributionSizeMaximum();
+
+    /**
+     * Solves the problem in parts, in parallel (see {@link dev.aws.proto.apps.sameday.directpudo.solver.partition.PartitionedSearch}).
+     */
+    @WithName("partitioned-search.enabled")
+    Optional<Boolean> partitionedSearchEnabled();
+
+    /**
+     * Number of parts, by default the number of part threads.
+     */
+    @WithName("partitioned-search.part-count")
+    Optional<Integer> partitionedSearchPartCount();
+
+    /**
+     * Resolution of the H3 cells the rides of a hub are clustered by when a hub is split into several parts.
+     */
+    @WithName("partitioned-search.h3-resolution")
+    Optional<Integer> partitionedSearchH3Resolution();
+
+    /**
+     * Time limit of the local search on the whole solution after the parts are solved.
+     */
+    @WithName("partitioned-search.polishing-seconds")
+    Optional<Long> partitionedSearchPolishingSeconds();
+}
@@ -17,12 +17,9 @@
 
 package dev.aws.proto.apps.sameday.directpudo.domain.planning;
 
-import dev.aws.proto.apps.sameday.directpudo.data.Parcel;
-import dev.aws.proto.apps.sameday.directpudo.domain.planning.capacity.CurrentCapacity;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.capacity.MaxCapacity;
 import dev.aws.proto.apps.sameday.directpudo.location.HubLocation;
 import dev.aws.proto.apps.sameday.directpudo.location.Location;
-import dev.aws.proto.apps.sameday.directpudo.util.Constants;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -34,7 +31,6 @@ public class PlanningVehicle extends PlanningBase<String> implements VisitOrVehi
     private MaxCapacity maxCapacity;
 
     // shadow variables
-    private CurrentCapacity currentCapacity;
     private PlanningVisit nextPlanningVisit;
 
     // overrides
@@ -58,22 +54,25 @@ public class PlanningVehicle extends PlanningBase<String> implements VisitOrVehi
         return 0L;
     }
 
+    @Override
+    public Float getHeightAfterVisit() {
+        // vehicles start empty
+        return 0f;
+    }
+
+    @Override
+    public Float getWeightAfterVisit() {
+        return 0f;
+    }
+
     @Override
     public PlanningVisit getNextPlanningVisit() {
         return this.nextPlanningVisit;
     }
 
-//    @CustomShadowVariable(
-//            variableListenerClass = CurrentCapacityUpdatingVariableListener.class,
-//            sources = {@PlanningVariableReference(entityClass = PlanningVisit.class, variableName = Constants.PreviousVisitOrVehicle)}
-//    )
-//    public CurrentCapacity getCurrentCapacity() {
-//        return this.currentCapacity;
-//    }
-
     @Override
     public String toString() {
-        return "[Driver][" + getId() + "] :: " + currentCapacity + " :: " + maxCapacity;
+        return "[Driver][" + getId() + "] :: " + maxCapacity;
     }
 
     @Override
@@ -91,71 +90,4 @@ public class PlanningVehicle extends PlanningBase<String> implements VisitOrVehi
         }
         return len;
     }
-
-    public int scoreForCapacityViolationHard() {
-        CurrentCapacity currentCapacity = CurrentCapacity.ZERO;
-        currentCapacity.setMaxCapacity(this.maxCapacity);
-
-        PlanningVisit visit = this.getNextPlanningVisit();
-        while (visit != null) {
-            Parcel parcel = visit.getRide().getParcel();
-            if (visit.getVisitType() == PlanningVisit.VisitType.PICKUP) {
-                boolean success = currentCapacity.tryAddParcel(parcel);
-                if (!success) {
-                    return 1;
-                }
-            } else {
-                currentCapacity.removeParcel(parcel);
-            }
-
-            visit = visit.getNextPlanningVisit();
-        }
-
-        return 0;
-    }
-
-    public int scoreForCapacityViolationMedium() {
-        CurrentCapacity currentCapacity = CurrentCapacity.ZERO;
-        currentCapacity.setMaxCapacity(this.maxCapacity);
-
-        int penaltyScore = 0;
-        PlanningVisit visit = this.getNextPlanningVisit();
-        while (visit != null) {
-            Parcel parcel = visit.getRide().getParcel();
-            if (visit.getVisitType() == PlanningVisit.VisitType.PICKUP) {
-                currentCapacity.addParcel(parcel);
-
-                penaltyScore += (int) currentCapacity.excessAmountForHeight();
-                penaltyScore += (int) currentCapacity.excessAmountForWeight() * 10;
-
-                if (penaltyScore > 0) {
-                    return penaltyScore * 1000;
-                }
-            } else {
-                currentCapacity.removeParcel(parcel);
-            }
-
-            visit = visit.getNextPlanningVisit();
-        }
-
-        return 0;
-    }
-
-    /**
-     * NOT USED ATM
-     */
-    public int scoreForDeliveryJobMaxDuration() {
-        long durationInSeconds = 0;
-
-        VisitOrVehicle prev = this;
-        PlanningVisit visit = this.getNextPlanningVisit();
-        while (visit != null) {
-            durationInSeconds += prev.getLocation().distanceTo(visit.getLocation()).getDistanceInSeconds();
-            prev = visit;
-            visit = visit.getNextPlanningVisit();
-        }
-
-//        return (int) Math.max(durationInSeconds - Constants.MaxDurationOfDeliveryJobInSeconds, 0) * 100;
-        return durationInSeconds > Constants.MaxDurationOfDeliveryJobInSeconds ? 1 : 0;
-    }
 }
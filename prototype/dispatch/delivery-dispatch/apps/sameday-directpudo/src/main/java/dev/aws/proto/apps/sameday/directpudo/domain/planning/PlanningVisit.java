@@ -17,10 +17,13 @@
 
 package dev.aws.proto.apps.sameday.directpudo.domain.planning;
 
+import dev.aws.proto.apps.sameday.directpudo.data.Parcel;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.capacity.MaxCapacity;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.solver.VisitIndexUpdatingVariableListener;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.solver.VisitLoadUpdatingVariableListener;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.solver.VisitShadowVarsUpdatingVariableListener;
 import dev.aws.proto.apps.sameday.directpudo.location.Location;
 import dev.aws.proto.apps.sameday.directpudo.util.Constants;
-import dev.aws.proto.core.routing.distance.TravelDistance;
 import lombok.Getter;
 import lombok.Setter;
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
@@ -46,6 +49,18 @@ public class PlanningVisit extends PlanningBase<String> implements VisitOrVehicl
     private DeliveryRide ride;
     private String orderId;
 
+    /**
+     * Seconds from the start of the delivery job until the visit can start (e.g. the order is prepared, or the
+     * timeframe opens). The vehicle waits if it arrives earlier.
+     */
+    private long readyTimeInSec;
+
+    /**
+     * Seconds from the start of the delivery job until the timeframe of the visit closes, <code>null</code> if the
+     * visit has no timeframe.
+     */
+    private Long dueTimeInSec;
+
     // planning variables: changes during planning
     private VisitOrVehicle previousVisitOrVehicle;
 
@@ -54,6 +69,8 @@ public class PlanningVisit extends PlanningBase<String> implements VisitOrVehicl
     private PlanningVisit nextPlanningVisit;
     private Integer visitIndex;
     private Long deliveryDurationUntilNow;
+    private Float heightAfterVisit;
+    private Float weightAfterVisit;
 
     // getters/setters overrides
 
@@ -91,13 +108,28 @@ public class PlanningVisit extends PlanningBase<String> implements VisitOrVehicl
         return this.visitIndex;
     }
 
-    //    @CustomShadowVariable(
-//            variableListenerRef = @PlanningVariableReference(variableName = "visitIndex")
-//    )
+    @CustomShadowVariable(
+            variableListenerClass = VisitShadowVarsUpdatingVariableListener.class,
+            sources = {@PlanningVariableReference(variableName = Constants.PreviousVisitOrVehicle)}
+    )
     public Long getDeliveryDurationUntilNow() {
         return this.deliveryDurationUntilNow;
     }
 
+    @CustomShadowVariable(
+            variableListenerClass = VisitLoadUpdatingVariableListener.class,
+            sources = {@PlanningVariableReference(variableName = Constants.PreviousVisitOrVehicle)}
+    )
+    public Float getHeightAfterVisit() {
+        return this.heightAfterVisit;
+    }
+
+    // updated together with heightAfterVisit
+    @CustomShadowVariable(variableListenerRef = @PlanningVariableReference(variableName = "heightAfterVisit"))
+    public Float getWeightAfterVisit() {
+        return this.weightAfterVisit;
+    }
+
     // todo: add distanceTo() method
 
     public String getPlanningVehicleId() {
@@ -129,8 +161,7 @@ public class PlanningVisit extends PlanningBase<String> implements VisitOrVehicl
             throw new IllegalStateException("This method should not be called when the previousVisitOrDriver is not initialized yet.");
         }
 
-        TravelDistance distance = this.location.distanceTo(previousVisitOrVehicle.getLocation());
-        return (int) (distance.getDistanceInMeters() * distance.getDistanceInSeconds());
+        return scoreForDistance(previousVisitOrVehicle.getLocation());
     }
 
     public boolean isLastVisit() {
@@ -142,12 +173,79 @@ public class PlanningVisit extends PlanningBase<String> implements VisitOrVehicl
             throw new IllegalStateException("This method should not be called when this visit is not the last one");
         }
 
-        TravelDistance distance = this.location.distanceTo(this.getPlanningVehicle().getLocation());
-        return (int) (distance.getDistanceInMeters() * distance.getDistanceInSeconds());
+        return scoreForDistance(this.getPlanningVehicle().getLocation());
+    }
+
+    /**
+     * Custom distance metric: sec * meters, capped to the int range of the score.
+     *
+     * @param otherLocation The other location
+     * @return The custom distance metric.
+     */
+    private int scoreForDistance(Location otherLocation) {
+        long score = this.location.metersTo(otherLocation) * this.location.secondsTo(otherLocation);
+        return (int) Math.min(score, Integer.MAX_VALUE);
+    }
+
+    public boolean isPickup() {
+        return this.visitType == VisitType.PICKUP;
+    }
+
+    /**
+     * A pickup violates the capacity if the parcel doesn't fit the vehicle, or the load after the pickup exceeds its
+     * max height or weight.
+     *
+     * @return 1 if the capacity is violated, 0 otherwise.
+     */
+    public int scoreForCapacityViolationHard() {
+        if (!isPickup() || this.planningVehicle == null || this.heightAfterVisit == null) {
+            return 0;
+        }
+
+        Parcel parcel = this.ride.getParcel();
+        MaxCapacity maxCapacity = this.planningVehicle.getMaxCapacity();
+        return maxCapacity.exceeds(parcel.getLength(), this.heightAfterVisit, parcel.getWidth(), this.weightAfterVisit) ? 1 : 0;
+    }
+
+    /**
+     * @return The penalty for the load exceeding the max height and weight of the vehicle after the pickup.
+     */
+    public int scoreForCapacityViolationMedium() {
+        if (!isPickup() || this.planningVehicle == null || this.heightAfterVisit == null) {
+            return 0;
+        }
+
+        MaxCapacity maxCapacity = this.planningVehicle.getMaxCapacity();
+        int penaltyScore = (int) Math.max(this.heightAfterVisit - maxCapacity.getHeight(), 0);
+        penaltyScore += (int) Math.max(this.weightAfterVisit - maxCapacity.getWeight(), 0) * 10;
+        return penaltyScore * 1000;
     }
 
+    /**
+     * @return Minutes the vehicle arrives after the timeframe of the visit closes, 0 if it's in time.
+     */
+    public int scoreForTimeframeViolation() {
+        if (this.dueTimeInSec == null || this.deliveryDurationUntilNow == null) {
+            return 0;
+        }
+
+        return lateInMins(this.deliveryDurationUntilNow - this.dueTimeInSec);
+    }
+
+    /**
+     * The last visit of a vehicle ends its delivery job.
+     *
+     * @return Minutes the delivery job exceeds the max duration, 0 if it doesn't.
+     */
     public int scoreForMaxDurationOfDeliveryJob() {
-        int secDiff = (int) (this.deliveryDurationUntilNow - Constants.MaxDurationOfDeliveryJobInSeconds);
-        return Math.max(secDiff, 0);
+        if (this.deliveryDurationUntilNow == null) {
+            return 0;
+        }
+
+        return lateInMins(this.deliveryDurationUntilNow - Constants.MaxDurationOfDeliveryJobInSeconds);
+    }
+
+    private static int lateInMins(long lateInSec) {
+        return lateInSec <= 0 ? 0 : (int) ((lateInSec + 59) / 60);
     }
 }
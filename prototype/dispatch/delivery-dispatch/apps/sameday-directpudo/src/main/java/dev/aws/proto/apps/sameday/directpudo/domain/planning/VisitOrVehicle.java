@@ -33,6 +33,16 @@ public interface VisitOrVehicle {
 
     Long getDeliveryDurationUntilNow();
 
+    /**
+     * @return Sum of the heights of the parcels in the vehicle after the visit.
+     */
+    Float getHeightAfterVisit();
+
+    /**
+     * @return Sum of the weights of the parcels in the vehicle after the visit.
+     */
+    Float getWeightAfterVisit();
+
     @InverseRelationShadowVariable(sourceVariableName = Constants.PreviousVisitOrVehicle)
     PlanningVisit getNextPlanningVisit();
 
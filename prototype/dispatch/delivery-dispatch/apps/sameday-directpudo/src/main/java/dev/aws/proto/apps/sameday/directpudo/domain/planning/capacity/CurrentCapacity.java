@@ -28,8 +28,6 @@ import lombok.experimental.SuperBuilder;
 @AllArgsConstructor
 @SuperBuilder
 public class CurrentCapacity extends CapacityBase {
-    public static final CurrentCapacity ZERO = CurrentCapacity.builder().build();
-
     private MaxCapacity maxCapacity;
 
     public boolean canAddParcel(Parcel parcel) {
@@ -0,0 +1,104 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.sameday.directpudo.domain.planning.solver;
+
+import dev.aws.proto.apps.sameday.directpudo.data.Parcel;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.VisitOrVehicle;
+import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
+import org.optaplanner.core.api.domain.variable.VariableListener;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+
+import java.util.Objects;
+
+/**
+ * Updates the load of the vehicle after the visit (<code>heightAfterVisit</code> and <code>weightAfterVisit</code>).
+ * <p>
+ * Pickups add the parcel to the load of the previous visit (or the empty vehicle), drop-offs remove it. Only the
+ * part of the chain after the changed visit is updated, and only until a visit already has the right load.
+ */
+public class VisitLoadUpdatingVariableListener implements VariableListener<DispatchSolution, PlanningVisit> {
+
+    @Override
+    public void beforeEntityAdded(ScoreDirector<DispatchSolution> scoreDirector, PlanningVisit planningVisit) {
+        // do nothing
+    }
+
+    @Override
+    public void afterEntityAdded(ScoreDirector<DispatchSolution> scoreDirector, PlanningVisit planningVisit) {
+        updateVisit(scoreDirector, planningVisit);
+    }
+
+    @Override
+    public void beforeVariableChanged(ScoreDirector<DispatchSolution> scoreDirector, PlanningVisit planningVisit) {
+        // do nothing
+    }
+
+    @Override
+    public void afterVariableChanged(ScoreDirector<DispatchSolution> scoreDirector, PlanningVisit planningVisit) {
+        updateVisit(scoreDirector, planningVisit);
+    }
+
+    @Override
+    public void beforeEntityRemoved(ScoreDirector<DispatchSolution> scoreDirector, PlanningVisit planningVisit) {
+        // do nothing
+    }
+
+    @Override
+    public void afterEntityRemoved(ScoreDirector<DispatchSolution> scoreDirector, PlanningVisit planningVisit) {
+        // do nothing
+    }
+
+    private void updateVisit(ScoreDirector<DispatchSolution> scoreDirector, PlanningVisit sourceVisit) {
+        VisitOrVehicle previousVisitOrVehicle = sourceVisit.getPreviousVisitOrVehicle();
+
+        // sourceVisit is not assigned: no load
+        Float height = previousVisitOrVehicle == null ? null : previousVisitOrVehicle.getHeightAfterVisit();
+        Float weight = previousVisitOrVehicle == null ? null : previousVisitOrVehicle.getWeightAfterVisit();
+
+        PlanningVisit shadowVisit = sourceVisit;
+        while (shadowVisit != null) {
+            if (height != null) {
+                Parcel parcel = shadowVisit.getRide().getParcel();
+                boolean pickup = shadowVisit.getVisitType() == PlanningVisit.VisitType.PICKUP;
+
+                // the load never goes below zero, even if a drop-off is planned before its pickup
+                height = pickup ? height + parcel.getHeight() : Math.max(height - parcel.getHeight(), 0);
+                weight = pickup ? weight + parcel.getWeight() : Math.max(weight - parcel.getWeight(), 0);
+            }
+
+            // the rest of the chain is already up-to-date
+            if (Objects.equals(shadowVisit.getHeightAfterVisit(), height) && Objects.equals(shadowVisit.getWeightAfterVisit(), weight)) {
+                break;
+            }
+
+            setLoad(scoreDirector, shadowVisit, height, weight);
+            shadowVisit = shadowVisit.getNextPlanningVisit();
+        }
+    }
+
+    private static void setLoad(ScoreDirector<DispatchSolution> scoreDirector, PlanningVisit visit, Float height, Float weight) {
+        scoreDirector.beforeVariableChanged(visit, "heightAfterVisit");
+        visit.setHeightAfterVisit(height);
+        scoreDirector.afterVariableChanged(visit, "heightAfterVisit");
+
+        scoreDirector.beforeVariableChanged(visit, "weightAfterVisit");
+        visit.setWeightAfterVisit(weight);
+        scoreDirector.afterVariableChanged(visit, "weightAfterVisit");
+    }
+}
@@ -20,17 +20,18 @@ package dev.aws.proto.apps.sameday.directpudo.domain.planning.solver;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.VisitOrVehicle;
 import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
-import dev.aws.proto.core.routing.distance.TravelDistance;
 import org.optaplanner.core.api.domain.variable.VariableListener;
 import org.optaplanner.core.api.score.director.ScoreDirector;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
 
+/**
+ * Maintains the <code>deliveryDurationUntilNow</code> of the visits: the time from the start of the delivery job until
+ * the visit, including the waits for visits that are not ready yet.
+ * <p>
+ * Only the visits after the changed one are updated, until a visit that already has the right value.
+ */
 public class VisitShadowVarsUpdatingVariableListener implements VariableListener<DispatchSolution, PlanningVisit> {
-    private static final Logger logger = LoggerFactory.getLogger(VisitShadowVarsUpdatingVariableListener.class);
-
     @Override
     public void beforeEntityAdded(ScoreDirector<DispatchSolution> scoreDirector, PlanningVisit planningVisit) {
         // do nothing
@@ -63,69 +64,34 @@ public class VisitShadowVarsUpdatingVariableListener implements VariableListener
 
     private void updateVisit(ScoreDirector<DispatchSolution> scoreDirector, PlanningVisit sourceVisit) {
         VisitOrVehicle previousVisitOrVehicle = sourceVisit.getPreviousVisitOrVehicle();
-
-        Integer visitIdx;
-        Long deliveryDurationUntilNow;
-
-
-        if (previousVisitOrVehicle == null) { // sourceVisit didn't have a prev assigned
-            visitIdx = null;
-            deliveryDurationUntilNow = 0L;
-        } else { // sourceVisit was a visit
-            visitIdx = previousVisitOrVehicle.getVisitIndex();
-            deliveryDurationUntilNow = previousVisitOrVehicle.getDeliveryDurationUntilNow();
-
-            if (visitIdx != null) { // sourceVisit was the first visit, so its previous was the driver that has null visitIdx
-                visitIdx++;
-            }
-
-            if (deliveryDurationUntilNow != null) {
-                deliveryDurationUntilNow += previousVisitOrVehicle.getLocation().distanceTo(sourceVisit.getLocation()).getDistanceInSeconds();
-            }
-        }
-//        logger.debug("visitIdx = {}, deliveryDur = {}", visitIdx, deliveryDurationUntilNow);
-
-        // --------
-        // update the visitIndex shadow variable
-
-        // maintain a reference to the previous item in the chain
         PlanningVisit shadowVisit = sourceVisit;
+        Long deliveryDurationUntilNow = durationUntilVisit(previousVisitOrVehicle, shadowVisit);
 
-        // until we reach the end of the chain AND visitIdx_prev != visitIdx_curr
-        while (shadowVisit != null && !Objects.equals(shadowVisit.getVisitIndex(), visitIdx)) {
-            // change the visitIndex of the current node
-            scoreDirector.beforeVariableChanged(shadowVisit, "visitIndex");
-            shadowVisit.setVisitIndex(visitIdx);
-            scoreDirector.afterVariableChanged(shadowVisit, "visitIndex");
+        // until we reach the end of the chain OR a visit that is already up-to-date
+        while (shadowVisit != null && !Objects.equals(shadowVisit.getDeliveryDurationUntilNow(), deliveryDurationUntilNow)) {
+            scoreDirector.beforeVariableChanged(shadowVisit, "deliveryDurationUntilNow");
+            shadowVisit.setDeliveryDurationUntilNow(deliveryDurationUntilNow);
+            scoreDirector.afterVariableChanged(shadowVisit, "deliveryDurationUntilNow");
 
             // move to the next node in the chain
+            previousVisitOrVehicle = shadowVisit;
             shadowVisit = shadowVisit.getNextPlanningVisit();
-            if (visitIdx != null) {
-                visitIdx++;
-            }
+            deliveryDurationUntilNow = durationUntilVisit(previousVisitOrVehicle, shadowVisit);
         }
+    }
 
-        // -----------
-        // update the deliveryDurationUntilNow shadow variable
-
-        VisitOrVehicle previousShadowVisit = previousVisitOrVehicle;
-        PlanningVisit currentShadowVisit = sourceVisit;
-
-        while (previousShadowVisit != null && currentShadowVisit != null && !Objects.equals(previousShadowVisit.getDeliveryDurationUntilNow(), deliveryDurationUntilNow)) {
-            // update the variable on current
-            scoreDirector.beforeVariableChanged(currentShadowVisit, "deliveryDurationUntilNow");
-            currentShadowVisit.setDeliveryDurationUntilNow(deliveryDurationUntilNow);
-            scoreDirector.afterVariableChanged(currentShadowVisit, "deliveryDurationUntilNow");
-
-            // move the pointers together to next
-            previousShadowVisit = currentShadowVisit;
-            currentShadowVisit = currentShadowVisit.getNextPlanningVisit();
-
-            // update the value
-            if (deliveryDurationUntilNow != null && currentShadowVisit != null) {
-                TravelDistance distance = previousShadowVisit.getLocation().distanceTo(currentShadowVisit.getLocation());
-                deliveryDurationUntilNow += distance.getDistanceInSeconds();
-            }
+    /**
+     * The vehicle arrives at the visit after travelling from the previous visit (or the hub), and waits if the visit
+     * is not ready yet (e.g. the order is still being prepared).
+     *
+     * @return Seconds from the start of the delivery job until the visit, <code>null</code> if it's not assigned.
+     */
+    private static Long durationUntilVisit(VisitOrVehicle previousVisitOrVehicle, PlanningVisit visit) {
+        if (previousVisitOrVehicle == null || visit == null || previousVisitOrVehicle.getDeliveryDurationUntilNow() == null) {
+            return null;
         }
+
+        long arrival = previousVisitOrVehicle.getDeliveryDurationUntilNow() + previousVisitOrVehicle.getLocation().secondsTo(visit.getLocation());
+        return Math.max(arrival, visit.getReadyTimeInSec());
     }
 }
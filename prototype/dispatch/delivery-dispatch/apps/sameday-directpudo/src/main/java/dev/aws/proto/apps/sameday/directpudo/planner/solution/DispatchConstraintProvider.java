@@ -17,7 +17,6 @@
 
 package dev.aws.proto.apps.sameday.directpudo.planner.solution;
 
-import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVehicle;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
 import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
 import org.optaplanner.core.api.score.stream.Constraint;
@@ -45,9 +44,8 @@ public class DispatchConstraintProvider implements ConstraintProvider {
                 pickupBeforeDropoff(constraintFactory),
                 distanceToPreviousVisitOrVehicle(constraintFactory),
                 distanceFromLastVisitToHub(constraintFactory),
-
-                // not used ATM
-                // limitDeliveryJobToMaxDuration(constraintFactory),
+                visitWithinTimeframe(constraintFactory),
+                limitDeliveryJobToMaxDuration(constraintFactory),
         };
     }
 
@@ -100,29 +98,43 @@ public class DispatchConstraintProvider implements ConstraintProvider {
                 );
     }
 
+    protected Constraint visitWithinTimeframe(ConstraintFactory factory) {
+        // deliveryDurationUntilNow is a shadow variable, no need to walk the chain
+        return factory.forEach(PlanningVisit.class)
+                .filter(visit -> visit.getDueTimeInSec() != null)
+                .penalize("Visit within the timeframe",
+                        HardMediumSoftLongScore.ONE_HARD,
+                        PlanningVisit::scoreForTimeframeViolation
+                );
+    }
+
     protected Constraint limitDeliveryJobToMaxDuration(ConstraintFactory factory) {
-        return factory.forEach(PlanningVehicle.class)
+        return factory.forEach(PlanningVisit.class)
+                .filter(PlanningVisit::isLastVisit)
                 .penalize("Limit max duration of a delivery job",
                         HardMediumSoftLongScore.ONE_HARD,
-                        PlanningVehicle::scoreForDeliveryJobMaxDuration
+                        PlanningVisit::scoreForMaxDurationOfDeliveryJob
                 );
     }
 
     protected Constraint vehicleCapacity(ConstraintFactory factory) {
-        return factory.forEach(PlanningVehicle.class)
+        // the load after each visit is a shadow variable, only pickups can exceed the capacity
+        return factory.forEach(PlanningVisit.class)
+                .filter(PlanningVisit::isPickup)
                 .penalize(
                         "Vehicle capacity - HARD score",
                         HardMediumSoftLongScore.ONE_HARD,
-                        PlanningVehicle::scoreForCapacityViolationHard
+                        PlanningVisit::scoreForCapacityViolationHard
                 );
     }
 
     protected Constraint vehicleCapacityMedium(ConstraintFactory factory) {
-        return factory.forEach(PlanningVehicle.class)
+        return factory.forEach(PlanningVisit.class)
+                .filter(PlanningVisit::isPickup)
                 .penalize(
                         "Vehicle capacity - MEDIUM/SOFT score",
                         HardMediumSoftLongScore.ONE_SOFT,
-                        PlanningVehicle::scoreForCapacityViolationMedium
+                        PlanningVisit::scoreForCapacityViolationMedium
                 );
     }
 
@@ -164,8 +164,7 @@ public class SolutionConsumer {
                 }
 
                 TravelDistance segmentDist = prevLoc.distanceTo(visit.getLocation());
-                List<Coordinate> segmentPath = router.getPath(prevLoc.getCoordinate(), visit.getLocation().coordinate());
-                String segmentPointsEnc = PolylineHelper.encodePointsToPolyline(segmentPath);
+                String segmentPointsEnc = router.getEncodedPath(prevLoc.getCoordinate(), visit.getLocation().coordinate());
 
                 DeliverySegment segment = DeliverySegment.builder()
                         .orderId(visit.getOrderId())
@@ -0,0 +1,104 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.sameday.directpudo.solver.move;
+
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVehicle;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.VisitOrVehicle;
+import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
+import dev.aws.proto.apps.sameday.directpudo.util.Constants;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base of the moves that change the position of the pickup and the dropoff of rides in one move.
+ * <p>
+ * The move changes the chains of the vehicles as lists (see {@link #changeChains(Map)}), then only the visits whose
+ * previous visit (or vehicle) is different are changed. The shadow variables, including the inverse relation
+ * (<code>nextPlanningVisit</code>), are updated by the score director when the move is done, so the move reads the
+ * chains only before changing anything, and doesn't need any supply of the solver.
+ */
+public abstract class AbstractDeliveryRideMove extends AbstractMove<DispatchSolution> {
+
+    /**
+     * @return The vehicles whose chains are changed by the move.
+     */
+    protected abstract Set<PlanningVehicle> changedVehicles();
+
+    /**
+     * Changes the chains of the {@link #changedVehicles()}.
+     *
+     * @param chains The visits of the vehicles in the order of their chains, by vehicle.
+     */
+    protected abstract void changeChains(Map<PlanningVehicle, List<PlanningVisit>> chains);
+
+    @Override
+    protected VisitChainRestoreMove createUndoMove(ScoreDirector<DispatchSolution> scoreDirector) {
+        Map<PlanningVisit, VisitOrVehicle> previousVisitOrVehicles = new LinkedHashMap<>();
+        for (PlanningVehicle vehicle : changedVehicles()) {
+            for (PlanningVisit visit : chainOf(vehicle)) {
+                previousVisitOrVehicles.put(visit, visit.getPreviousVisitOrVehicle());
+            }
+        }
+        return new VisitChainRestoreMove(previousVisitOrVehicles);
+    }
+
+    @Override
+    protected void doMoveOnGenuineVariables(ScoreDirector<DispatchSolution> scoreDirector) {
+        Map<PlanningVehicle, List<PlanningVisit>> chains = new LinkedHashMap<>();
+        for (PlanningVehicle vehicle : changedVehicles()) {
+            chains.put(vehicle, chainOf(vehicle));
+        }
+
+        changeChains(chains);
+
+        chains.forEach((vehicle, chain) -> {
+            VisitOrVehicle previousVisitOrVehicle = vehicle;
+            for (PlanningVisit visit : chain) {
+                if (visit.getPreviousVisitOrVehicle() != previousVisitOrVehicle) {
+                    changePreviousVisitOrVehicle(scoreDirector, visit, previousVisitOrVehicle);
+                }
+                previousVisitOrVehicle = visit;
+            }
+        });
+    }
+
+    /**
+     * @param vehicle The vehicle.
+     * @return The visits of the vehicle in the order of its chain.
+     */
+    protected static List<PlanningVisit> chainOf(PlanningVehicle vehicle) {
+        List<PlanningVisit> chain = new ArrayList<>();
+        for (PlanningVisit visit = vehicle.getNextPlanningVisit(); visit != null; visit = visit.getNextPlanningVisit()) {
+            chain.add(visit);
+        }
+        return chain;
+    }
+
+    static void changePreviousVisitOrVehicle(ScoreDirector<DispatchSolution> scoreDirector, PlanningVisit visit, VisitOrVehicle previousVisitOrVehicle) {
+        scoreDirector.beforeVariableChanged(visit, Constants.PreviousVisitOrVehicle);
+        visit.setPreviousVisitOrVehicle(previousVisitOrVehicle);
+        scoreDirector.afterVariableChanged(visit, Constants.PreviousVisitOrVehicle);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.sameday.directpudo.solver.move;
+
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.DeliveryRide;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVehicle;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
+import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
+import lombok.Getter;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Moves the pickup and the dropoff of a ride to a vehicle, the pickup before the dropoff.
+ */
+@Getter
+public class DeliveryRideChangeMove extends AbstractDeliveryRideMove {
+    private final DeliveryRide ride;
+    private final PlanningVehicle toVehicle;
+
+    /**
+     * Index of the pickup in the new chain of the vehicle.
+     */
+    private final int pickupIndex;
+
+    /**
+     * Index of the dropoff in the new chain of the vehicle, after the pickup.
+     */
+    private final int dropoffIndex;
+
+    public DeliveryRideChangeMove(DeliveryRide ride, PlanningVehicle toVehicle, int pickupIndex, int dropoffIndex) {
+        if (pickupIndex < 0 || dropoffIndex <= pickupIndex) {
+            throw new IllegalArgumentException("The dropoff index (" + dropoffIndex + ") must be after the pickup index (" + pickupIndex + ")");
+        }
+
+        this.ride = ride;
+        this.toVehicle = toVehicle;
+        this.pickupIndex = pickupIndex;
+        this.dropoffIndex = dropoffIndex;
+    }
+
+    @Override
+    public boolean isMoveDoable(ScoreDirector<DispatchSolution> scoreDirector) {
+        PlanningVisit pickup = ride.getPickupVisit();
+        PlanningVisit dropoff = ride.getDropoffVisit();
+        if (pickup.getPlanningVehicle() == null || dropoff.getPlanningVehicle() == null) {
+            return false;
+        }
+
+        // the visit index of the first visit is 1
+        boolean sameChainPositions = pickup.getPlanningVehicle() == toVehicle && dropoff.getPlanningVehicle() == toVehicle
+                && Objects.equals(pickup.getVisitIndex(), pickupIndex + 1)
+                && Objects.equals(dropoff.getVisitIndex(), dropoffIndex + 1);
+        return !sameChainPositions;
+    }
+
+    @Override
+    protected Set<PlanningVehicle> changedVehicles() {
+        Set<PlanningVehicle> vehicles = new LinkedHashSet<>();
+        vehicles.add(ride.getPickupVisit().getPlanningVehicle());
+        vehicles.add(ride.getDropoffVisit().getPlanningVehicle());
+        vehicles.add(toVehicle);
+        return vehicles;
+    }
+
+    @Override
+    protected void changeChains(Map<PlanningVehicle, List<PlanningVisit>> chains) {
+        PlanningVisit pickup = ride.getPickupVisit();
+        PlanningVisit dropoff = ride.getDropoffVisit();
+        chains.get(pickup.getPlanningVehicle()).remove(pickup);
+        chains.get(dropoff.getPlanningVehicle()).remove(dropoff);
+
+        List<PlanningVisit> toChain = chains.get(toVehicle);
+        toChain.add(pickupIndex, pickup);
+        toChain.add(dropoffIndex, dropoff);
+    }
+
+    @Override
+    public DeliveryRideChangeMove rebase(ScoreDirector<DispatchSolution> destinationScoreDirector) {
+        return new DeliveryRideChangeMove(
+                destinationScoreDirector.lookUpWorkingObject(ride),
+                destinationScoreDirector.lookUpWorkingObject(toVehicle),
+                pickupIndex,
+                dropoffIndex);
+    }
+
+    @Override
+    public Collection<?> getPlanningEntities() {
+        return Arrays.asList(ride.getPickupVisit(), ride.getDropoffVisit());
+    }
+
+    @Override
+    public Collection<?> getPlanningValues() {
+        return Collections.singletonList(toVehicle);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DeliveryRideChangeMove other = (DeliveryRideChangeMove) o;
+        return pickupIndex == other.pickupIndex && dropoffIndex == other.dropoffIndex
+                && ride == other.ride && toVehicle == other.toVehicle;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(ride.getId(), toVehicle.getId(), pickupIndex, dropoffIndex);
+    }
+
+    @Override
+    public String toString() {
+        return "ride[" + ride.getOrderId() + "] -> " + toVehicle.getId() + " [" + pickupIndex + ", " + dropoffIndex + "]";
+    }
+}
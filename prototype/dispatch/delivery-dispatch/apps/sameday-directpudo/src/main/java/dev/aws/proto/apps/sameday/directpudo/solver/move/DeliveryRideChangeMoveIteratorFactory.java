@@ -18,120 +18,134 @@
 package dev.aws.proto.apps.sameday.directpudo.solver.move;
 
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.DeliveryRide;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVehicle;
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
-import dev.aws.proto.apps.sameday.directpudo.domain.planning.VisitOrVehicle;
 import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
-import dev.aws.proto.apps.sameday.directpudo.util.Constants;
-import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
 import org.optaplanner.core.api.score.director.ScoreDirector;
-import org.optaplanner.core.impl.domain.variable.descriptor.GenuineVariableDescriptor;
-import org.optaplanner.core.impl.domain.variable.inverserelation.SingletonInverseVariableDemand;
-import org.optaplanner.core.impl.domain.variable.inverserelation.SingletonInverseVariableSupply;
-import org.optaplanner.core.impl.heuristic.move.CompositeMove;
-import org.optaplanner.core.impl.heuristic.move.Move;
 import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
-import org.optaplanner.core.impl.heuristic.selector.move.generic.chained.ChainedChangeMove;
-import org.optaplanner.core.impl.score.director.InnerScoreDirector;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
 
-public class DeliveryRideChangeMoveIteratorFactory implements MoveIteratorFactory<DispatchSolution, Move<DispatchSolution>> {
-    private static final Logger logger = LoggerFactory.getLogger(DeliveryRideChangeMoveIteratorFactory.class);
-
-    GenuineVariableDescriptor<DispatchSolution> variableDescriptor = null;
-    SingletonInverseVariableSupply inverseVariableSupply = null;
+/**
+ * {@link DeliveryRideChangeMove}s. In original order every ride is moved to every vehicle, to every pair of pickup and
+ * dropoff positions. In random order a random ride is moved to random positions of a random vehicle.
+ * <p>
+ * The factory has no state, the moves are rebased to the working solutions of the move threads.
+ */
+public class DeliveryRideChangeMoveIteratorFactory implements MoveIteratorFactory<DispatchSolution, DeliveryRideChangeMove> {
 
     @Override
     public long getSize(ScoreDirector<DispatchSolution> scoreDirector) {
-        throw new UnsupportedOperationException();
+        DispatchSolution solution = scoreDirector.getWorkingSolution();
+        return (long) solution.getRides().size() * (solution.getPlanningVehicles().size() + solution.getPlanningVisits().size());
     }
 
     @Override
-    public Iterator<Move<DispatchSolution>> createOriginalMoveIterator(ScoreDirector<DispatchSolution> scoreDirector) {
-        throw new UnsupportedOperationException();
+    public Iterator<DeliveryRideChangeMove> createOriginalMoveIterator(ScoreDirector<DispatchSolution> scoreDirector) {
+        DispatchSolution solution = scoreDirector.getWorkingSolution();
+        return new OriginalDeliveryRideChangeMoveIterator(solution.getRides(), solution.getPlanningVehicles());
     }
 
     @Override
-    public Iterator<Move<DispatchSolution>> createRandomMoveIterator(ScoreDirector<DispatchSolution> scoreDirector, Random workingRandom) {
-        // original comments from @ge0ffrey
-        // TODO DIRTY HACK due to lack of lifecycle methods
-        if (inverseVariableSupply == null) {
-            // original comments from @ge0ffrey
-            // TODO DO NOT USE InnerScoreDirector!
-            // No seriously, write a custom move instead of reusing ChainedChangeMove so you don't need any of this
-            // Yes, I know, chain correction like in ChainedChangeMove is a big pain to write yourself...
-            InnerScoreDirector<DispatchSolution, HardMediumSoftLongScore> innerScoreDirector = (InnerScoreDirector<DispatchSolution, HardMediumSoftLongScore>) scoreDirector;
-            variableDescriptor = innerScoreDirector.getSolutionDescriptor().findEntityDescriptorOrFail(PlanningVisit.class).getGenuineVariableDescriptor(Constants.PreviousVisitOrVehicle);
-
-            // original comments from @ge0ffrey
-            // TODO DO NOT demand supplies without returning them
-            inverseVariableSupply = innerScoreDirector.getSupplyManager().demand((new SingletonInverseVariableDemand<>(variableDescriptor)));
+    public Iterator<DeliveryRideChangeMove> createRandomMoveIterator(ScoreDirector<DispatchSolution> scoreDirector, Random workingRandom) {
+        DispatchSolution solution = scoreDirector.getWorkingSolution();
+        return new DeliveryRideChangeMoveIterator(solution.getRides(), solution.getPlanningVehicles(), workingRandom);
+    }
+
+    /**
+     * @return The number of visits of the vehicle, not counting the visits of the ride.
+     */
+    private static int chainLengthWithout(PlanningVehicle vehicle, DeliveryRide ride) {
+        int chainLength = 0;
+        for (PlanningVisit visit = vehicle.getNextPlanningVisit(); visit != null; visit = visit.getNextPlanningVisit()) {
+            if (visit.getRide() != ride) {
+                chainLength++;
+            }
         }
+        return chainLength;
+    }
 
-        logger.trace("Creating DeliveryRideChangeMoveIterator :: VariableDescriptor = {}", variableDescriptor);
+    /**
+     * Iterates over ride x vehicle x pickup index x dropoff index. The chain length of a vehicle is read when the
+     * iterator gets to it, the moves are created lazily.
+     */
+    private static class OriginalDeliveryRideChangeMoveIterator implements Iterator<DeliveryRideChangeMove> {
+        private final List<DeliveryRide> rides;
+        private final List<PlanningVehicle> vehicles;
+
+        private int rideIdx = 0;
+        private int vehicleIdx = 0;
+        private int chainLength = -1;
+        private int pickupIndex = 0;
+        private int dropoffIndex = 1;
+
+        public OriginalDeliveryRideChangeMoveIterator(List<DeliveryRide> rides, List<PlanningVehicle> vehicles) {
+            this.rides = rides;
+            this.vehicles = vehicles;
+        }
 
-        DispatchSolution solution = scoreDirector.getWorkingSolution();
-        // original comments from @geoffrey
-        // TODO perf loss because it happens at the start of every step but it doesn't different during the phase?
-        List<VisitOrVehicle> allDriversAndVisits = new ArrayList<>(solution.getPlanningVehicles().size() + solution.getPlanningVisits().size());
-        allDriversAndVisits.addAll(solution.getPlanningVehicles());
-        allDriversAndVisits.addAll(solution.getPlanningVisits());
+        @Override
+        public boolean hasNext() {
+            return !vehicles.isEmpty() && rideIdx < rides.size();
+        }
 
-        DeliveryRideChangeMoveIterator deliveryRideChangeMoveIterator = new DeliveryRideChangeMoveIterator(solution.getRides(), allDriversAndVisits, workingRandom);
-        logger.debug("DeliveryRideChangeMoveIterator created");
+        @Override
+        public DeliveryRideChangeMove next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
 
-        return deliveryRideChangeMoveIterator;
+            DeliveryRide ride = rides.get(rideIdx);
+            PlanningVehicle toVehicle = vehicles.get(vehicleIdx);
+            if (chainLength < 0) {
+                chainLength = chainLengthWithout(toVehicle, ride);
+            }
+            DeliveryRideChangeMove move = new DeliveryRideChangeMove(ride, toVehicle, pickupIndex, dropoffIndex);
+
+            // the dropoff goes after the pickup, at most after the last visit of the chain (with the pickup in it)
+            if (++dropoffIndex > chainLength + 1) {
+                if (++pickupIndex > chainLength) {
+                    pickupIndex = 0;
+                    chainLength = -1;
+                    if (++vehicleIdx == vehicles.size()) {
+                        vehicleIdx = 0;
+                        rideIdx++;
+                    }
+                }
+                dropoffIndex = pickupIndex + 1;
+            }
+            return move;
+        }
     }
 
-    private class DeliveryRideChangeMoveIterator implements Iterator<Move<DispatchSolution>> {
-        private final List<DeliveryRide> deliveryRides;
-        private final List<VisitOrVehicle> allDriversAndVisits;
+    private static class DeliveryRideChangeMoveIterator implements Iterator<DeliveryRideChangeMove> {
+        private final List<DeliveryRide> rides;
+        private final List<PlanningVehicle> vehicles;
         private final Random workingRandom;
 
-        public DeliveryRideChangeMoveIterator(List<DeliveryRide> deliveryRides, List<VisitOrVehicle> allDriversAndVisits, Random workingRandom) {
-            this.deliveryRides = deliveryRides;
-            this.allDriversAndVisits = allDriversAndVisits;
+        public DeliveryRideChangeMoveIterator(List<DeliveryRide> rides, List<PlanningVehicle> vehicles, Random workingRandom) {
+            this.rides = rides;
+            this.vehicles = vehicles;
             this.workingRandom = workingRandom;
         }
 
         @Override
         public boolean hasNext() {
-            return !deliveryRides.isEmpty() && allDriversAndVisits.size() >= 4;
+            return !rides.isEmpty() && !vehicles.isEmpty();
         }
 
         @Override
-        public Move<DispatchSolution> next() {
-            DeliveryRide deliveryRide = deliveryRides.get(workingRandom.nextInt(deliveryRides.size()));
-            PlanningVisit fromPickupVisit = deliveryRide.getPickupVisit();
-            PlanningVisit fromDropoffVisit = deliveryRide.getDropoffVisit();
-
-            // TODO: REVIEW THIS PART
-            // FOR SOME REASON WE GET AN ILLEGALSTATEEXCEPTION WHERE the shadow variables are not 100% updated. maybe need to implement a VariableListener for previousVisit/nextVisit
-            VisitOrVehicle toPickupVisit = allDriversAndVisits.get(workingRandom.nextInt(allDriversAndVisits.size()));
-            List<VisitOrVehicle> potentialToDropoffVisitList = new ArrayList<>();
-            potentialToDropoffVisitList.add(fromPickupVisit);
-
-            PlanningVisit visit = toPickupVisit.getNextPlanningVisit();
-            while (visit != null) {
-                if (visit != fromPickupVisit && visit != fromDropoffVisit) {
-                    potentialToDropoffVisitList.add(visit);
-                }
-                visit = visit.getNextPlanningVisit();
-            }
-
-            VisitOrVehicle toDropoffVisit = potentialToDropoffVisitList.get(workingRandom.nextInt(potentialToDropoffVisitList.size()));
-
-            ChainedChangeMove<DispatchSolution> pickupMove = new ChainedChangeMove<DispatchSolution>(
-                    variableDescriptor, fromPickupVisit, toPickupVisit, inverseVariableSupply);
-            ChainedChangeMove<DispatchSolution> dropoffMove = new ChainedChangeMove<DispatchSolution>(
-                    variableDescriptor, fromDropoffVisit, toDropoffVisit, inverseVariableSupply);
-
-            return new CompositeMove<>(pickupMove, dropoffMove);
+        public DeliveryRideChangeMove next() {
+            DeliveryRide ride = rides.get(workingRandom.nextInt(rides.size()));
+            PlanningVehicle toVehicle = vehicles.get(workingRandom.nextInt(vehicles.size()));
+
+            int chainLength = chainLengthWithout(toVehicle, ride);
+            int pickupIndex = workingRandom.nextInt(chainLength + 1);
+            int dropoffIndex = pickupIndex + 1 + workingRandom.nextInt(chainLength - pickupIndex + 1);
+            return new DeliveryRideChangeMove(ride, toVehicle, pickupIndex, dropoffIndex);
         }
     }
 }
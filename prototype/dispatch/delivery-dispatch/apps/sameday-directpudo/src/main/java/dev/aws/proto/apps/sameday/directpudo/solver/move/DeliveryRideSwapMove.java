@@ -0,0 +1,123 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.sameday.directpudo.solver.move;
+
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.DeliveryRide;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVehicle;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
+import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
+import lombok.Getter;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Swaps two rides: the pickup of each ride takes the place of the pickup of the other one, the same for the dropoffs.
+ * If the pickup of both rides is before the dropoff, it stays so after the swap.
+ */
+@Getter
+public class DeliveryRideSwapMove extends AbstractDeliveryRideMove {
+    private final DeliveryRide leftRide;
+    private final DeliveryRide rightRide;
+
+    public DeliveryRideSwapMove(DeliveryRide leftRide, DeliveryRide rightRide) {
+        this.leftRide = leftRide;
+        this.rightRide = rightRide;
+    }
+
+    @Override
+    public boolean isMoveDoable(ScoreDirector<DispatchSolution> scoreDirector) {
+        return leftRide != rightRide
+                && leftRide.getPickupVisit().getPlanningVehicle() != null && leftRide.getDropoffVisit().getPlanningVehicle() != null
+                && rightRide.getPickupVisit().getPlanningVehicle() != null && rightRide.getDropoffVisit().getPlanningVehicle() != null;
+    }
+
+    @Override
+    protected Set<PlanningVehicle> changedVehicles() {
+        Set<PlanningVehicle> vehicles = new LinkedHashSet<>();
+        vehicles.add(leftRide.getPickupVisit().getPlanningVehicle());
+        vehicles.add(leftRide.getDropoffVisit().getPlanningVehicle());
+        vehicles.add(rightRide.getPickupVisit().getPlanningVehicle());
+        vehicles.add(rightRide.getDropoffVisit().getPlanningVehicle());
+        return vehicles;
+    }
+
+    @Override
+    protected void changeChains(Map<PlanningVehicle, List<PlanningVisit>> chains) {
+        swap(chains, leftRide.getPickupVisit(), rightRide.getPickupVisit());
+        swap(chains, leftRide.getDropoffVisit(), rightRide.getDropoffVisit());
+    }
+
+    private static void swap(Map<PlanningVehicle, List<PlanningVisit>> chains, PlanningVisit left, PlanningVisit right) {
+        // the planning vehicles are not updated until the move is done, but a visit is only swapped once
+        List<PlanningVisit> leftChain = chains.get(left.getPlanningVehicle());
+        List<PlanningVisit> rightChain = chains.get(right.getPlanningVehicle());
+        int leftIdx = leftChain.indexOf(left);
+        int rightIdx = rightChain.indexOf(right);
+
+        leftChain.set(leftIdx, right);
+        rightChain.set(rightIdx, left);
+    }
+
+    @Override
+    public DeliveryRideSwapMove rebase(ScoreDirector<DispatchSolution> destinationScoreDirector) {
+        return new DeliveryRideSwapMove(
+                destinationScoreDirector.lookUpWorkingObject(leftRide),
+                destinationScoreDirector.lookUpWorkingObject(rightRide));
+    }
+
+    @Override
+    public Collection<?> getPlanningEntities() {
+        return Arrays.asList(leftRide.getPickupVisit(), leftRide.getDropoffVisit(), rightRide.getPickupVisit(), rightRide.getDropoffVisit());
+    }
+
+    @Override
+    public Collection<?> getPlanningValues() {
+        return Arrays.asList(
+                leftRide.getPickupVisit().getPreviousVisitOrVehicle(), leftRide.getDropoffVisit().getPreviousVisitOrVehicle(),
+                rightRide.getPickupVisit().getPreviousVisitOrVehicle(), rightRide.getDropoffVisit().getPreviousVisitOrVehicle());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DeliveryRideSwapMove other = (DeliveryRideSwapMove) o;
+        return leftRide == other.leftRide && rightRide == other.rightRide;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(leftRide.getId(), rightRide.getId());
+    }
+
+    @Override
+    public String toString() {
+        return "ride[" + leftRide.getOrderId() + "] <-> ride[" + rightRide.getOrderId() + "]";
+    }
+}
@@ -18,97 +18,92 @@
 package dev.aws.proto.apps.sameday.directpudo.solver.move;
 
 import dev.aws.proto.apps.sameday.directpudo.domain.planning.DeliveryRide;
-import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
 import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
-import dev.aws.proto.apps.sameday.directpudo.util.Constants;
-import lombok.AllArgsConstructor;
-import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
 import org.optaplanner.core.api.score.director.ScoreDirector;
-import org.optaplanner.core.impl.domain.variable.descriptor.GenuineVariableDescriptor;
-import org.optaplanner.core.impl.domain.variable.inverserelation.SingletonInverseVariableDemand;
-import org.optaplanner.core.impl.domain.variable.inverserelation.SingletonInverseVariableSupply;
-import org.optaplanner.core.impl.heuristic.move.CompositeMove;
-import org.optaplanner.core.impl.heuristic.move.Move;
 import org.optaplanner.core.impl.heuristic.selector.move.factory.MoveIteratorFactory;
-import org.optaplanner.core.impl.heuristic.selector.move.generic.chained.ChainedSwapMove;
-import org.optaplanner.core.impl.score.director.InnerScoreDirector;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
 
-public class DeliveryRideSwapMoveIteratorFactory implements MoveIteratorFactory<DispatchSolution, Move<DispatchSolution>> {
-    private static final Logger logger = LoggerFactory.getLogger(DeliveryRideSwapMoveIteratorFactory.class);
-
-    private List<GenuineVariableDescriptor<DispatchSolution>> variableDescriptorList;
-    private List<SingletonInverseVariableSupply> inverseVariableSupplyList = null;
+/**
+ * {@link DeliveryRideSwapMove}s of two different rides. In original order every pair of rides is swapped once, in
+ * random order a random pair.
+ * <p>
+ * The factory has no state, the moves are rebased to the working solutions of the move threads.
+ */
+public class DeliveryRideSwapMoveIteratorFactory implements MoveIteratorFactory<DispatchSolution, DeliveryRideSwapMove> {
 
     @Override
     public long getSize(ScoreDirector<DispatchSolution> scoreDirector) {
-        throw new UnsupportedOperationException();
+        long rideCnt = scoreDirector.getWorkingSolution().getRides().size();
+        return rideCnt * (rideCnt - 1) / 2;
     }
 
     @Override
-    public Iterator<Move<DispatchSolution>> createOriginalMoveIterator(ScoreDirector<DispatchSolution> scoreDirector) {
-        throw new UnsupportedOperationException();
+    public Iterator<DeliveryRideSwapMove> createOriginalMoveIterator(ScoreDirector<DispatchSolution> scoreDirector) {
+        return new OriginalDeliveryRideSwapMoveIterator(scoreDirector.getWorkingSolution().getRides());
     }
 
     @Override
-    public Iterator<Move<DispatchSolution>> createRandomMoveIterator(ScoreDirector<DispatchSolution> scoreDirector, Random workingRandom) {
-        // original comment from @ge0ffrey
-        // TODO DIRTY HACK due to lack of lifecycle methods
-        if (inverseVariableSupplyList == null) {
-            // original comment from @ge0ffrey
-            // TODO DO NOT USE InnerScoreDirector!
-            // No seriously, write a custom move instead of reusing ChainedSwapMove so you don't need any of this
-            // Yes, I know, chain correction like in ChainedSwapMove is a big pain to write yourself...
-            InnerScoreDirector<DispatchSolution, HardMediumSoftLongScore> innerScoreDirector = (InnerScoreDirector<DispatchSolution, HardMediumSoftLongScore>) scoreDirector;
-            GenuineVariableDescriptor<DispatchSolution> variableDescriptor = innerScoreDirector.getSolutionDescriptor().findEntityDescriptorOrFail(PlanningVisit.class).getGenuineVariableDescriptor(Constants.PreviousVisitOrVehicle);
-            variableDescriptorList = Collections.singletonList(variableDescriptor);
-            inverseVariableSupplyList = Collections.singletonList(innerScoreDirector.getSupplyManager().demand(new SingletonInverseVariableDemand<>(variableDescriptor)));
+    public Iterator<DeliveryRideSwapMove> createRandomMoveIterator(ScoreDirector<DispatchSolution> scoreDirector, Random workingRandom) {
+        return new DeliveryRideSwapMoveIterator(scoreDirector.getWorkingSolution().getRides(), workingRandom);
+    }
+
+    /**
+     * Iterates over the (left, right) pairs of rides with left before right.
+     */
+    private static class OriginalDeliveryRideSwapMoveIterator implements Iterator<DeliveryRideSwapMove> {
+        private final List<DeliveryRide> rides;
+
+        private int leftIdx = 0;
+        private int rightIdx = 1;
+
+        public OriginalDeliveryRideSwapMoveIterator(List<DeliveryRide> rides) {
+            this.rides = rides;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rightIdx < rides.size();
         }
 
-        logger.trace("Creating DeliveryRideSwapMoveIterator");
-        DispatchSolution solution = scoreDirector.getWorkingSolution();
-        DeliveryRideSwapMoveIterator deliveryRideSwapMoveIterator = new DeliveryRideSwapMoveIterator(solution.getRides(), workingRandom);
-        logger.debug("DeliveryRideSwapMoveIterator created");
+        @Override
+        public DeliveryRideSwapMove next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
 
-        return deliveryRideSwapMoveIterator;
+            DeliveryRideSwapMove move = new DeliveryRideSwapMove(rides.get(leftIdx), rides.get(rightIdx));
+            if (++rightIdx == rides.size()) {
+                leftIdx++;
+                rightIdx = leftIdx + 1;
+            }
+            return move;
+        }
     }
 
-    @AllArgsConstructor
-    private class DeliveryRideSwapMoveIterator implements Iterator<Move<DispatchSolution>> {
-
+    private static class DeliveryRideSwapMoveIterator implements Iterator<DeliveryRideSwapMove> {
         private final List<DeliveryRide> rides;
         private final Random workingRandom;
 
+        public DeliveryRideSwapMoveIterator(List<DeliveryRide> rides, Random workingRandom) {
+            this.rides = rides;
+            this.workingRandom = workingRandom;
+        }
+
         @Override
         public boolean hasNext() {
             return rides.size() >= 2;
         }
 
         @Override
-        public Move<DispatchSolution> next() {
+        public DeliveryRideSwapMove next() {
             int leftIdx = workingRandom.nextInt(rides.size());
-            DeliveryRide leftDeliveryRide = rides.get(leftIdx);
-
-            int rightIdx = workingRandom.nextInt(rides.size() - 1);
-            if (rightIdx >= leftIdx) {
-                rightIdx++;
-            }
-            DeliveryRide rightDeliveryRide = rides.get(rightIdx);
-
-            return new CompositeMove<>(
-                    new ChainedSwapMove<>(
-                            variableDescriptorList, inverseVariableSupplyList,
-                            leftDeliveryRide.getPickupVisit(), rightDeliveryRide.getPickupVisit()),
-                    new ChainedSwapMove<>(
-                            variableDescriptorList, inverseVariableSupplyList,
-                            leftDeliveryRide.getDropoffVisit(), rightDeliveryRide.getDropoffVisit())
-            );
+            // any other ride
+            int rightIdx = (leftIdx + 1 + workingRandom.nextInt(rides.size() - 1)) % rides.size();
+            return new DeliveryRideSwapMove(rides.get(leftIdx), rides.get(rightIdx));
         }
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.sameday.directpudo.solver.move;
+
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.VisitOrVehicle;
+import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.move.AbstractMove;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Undo move of the {@link AbstractDeliveryRideMove}s: sets the previous visit (or vehicle) of the visits of the
+ * changed chains back.
+ */
+public class VisitChainRestoreMove extends AbstractMove<DispatchSolution> {
+    private final Map<PlanningVisit, VisitOrVehicle> previousVisitOrVehicles;
+
+    /**
+     * @param previousVisitOrVehicles The previous visit (or vehicle) of every visit of the changed chains.
+     */
+    public VisitChainRestoreMove(Map<PlanningVisit, VisitOrVehicle> previousVisitOrVehicles) {
+        this.previousVisitOrVehicles = previousVisitOrVehicles;
+    }
+
+    @Override
+    public boolean isMoveDoable(ScoreDirector<DispatchSolution> scoreDirector) {
+        return true;
+    }
+
+    @Override
+    protected VisitChainRestoreMove createUndoMove(ScoreDirector<DispatchSolution> scoreDirector) {
+        Map<PlanningVisit, VisitOrVehicle> currentVisitOrVehicles = new LinkedHashMap<>();
+        for (PlanningVisit visit : previousVisitOrVehicles.keySet()) {
+            currentVisitOrVehicles.put(visit, visit.getPreviousVisitOrVehicle());
+        }
+        return new VisitChainRestoreMove(currentVisitOrVehicles);
+    }
+
+    @Override
+    protected void doMoveOnGenuineVariables(ScoreDirector<DispatchSolution> scoreDirector) {
+        previousVisitOrVehicles.forEach((visit, previousVisitOrVehicle) -> {
+            if (visit.getPreviousVisitOrVehicle() != previousVisitOrVehicle) {
+                AbstractDeliveryRideMove.changePreviousVisitOrVehicle(scoreDirector, visit, previousVisitOrVehicle);
+            }
+        });
+    }
+
+    @Override
+    public VisitChainRestoreMove rebase(ScoreDirector<DispatchSolution> destinationScoreDirector) {
+        Map<PlanningVisit, VisitOrVehicle> rebased = new LinkedHashMap<>();
+        previousVisitOrVehicles.forEach((visit, previousVisitOrVehicle) -> rebased.put(
+                destinationScoreDirector.lookUpWorkingObject(visit),
+                destinationScoreDirector.lookUpWorkingObject(previousVisitOrVehicle)));
+        return new VisitChainRestoreMove(rebased);
+    }
+
+    @Override
+    public Collection<?> getPlanningEntities() {
+        return previousVisitOrVehicles.keySet();
+    }
+
+    @Override
+    public Collection<?> getPlanningValues() {
+        return new ArrayList<>(previousVisitOrVehicles.values());
+    }
+
+    @Override
+    public String toString() {
+        return "restore " + previousVisitOrVehicles.size() + " visits";
+    }
+}
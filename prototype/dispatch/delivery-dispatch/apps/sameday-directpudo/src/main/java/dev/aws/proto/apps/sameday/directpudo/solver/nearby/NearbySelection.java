@@ -0,0 +1,194 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.sameday.directpudo.solver.nearby;
+
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
+import org.optaplanner.core.config.heuristic.selector.common.nearby.NearbySelectionConfig;
+import org.optaplanner.core.config.heuristic.selector.common.nearby.NearbySelectionDistributionType;
+import org.optaplanner.core.config.heuristic.selector.entity.EntitySelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.MoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.composite.UnionMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.ChangeMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.SwapMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.chained.SubChainChangeMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.chained.SubChainSwapMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.value.ValueSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.value.chained.SubChainSelectorConfig;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.phase.PhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adds nearby selection to the move selectors of the local search phases.
+ * <p>
+ * Without it the second visit of a move (the visit to insert after, to swap with, ...) is picked from all visits, so
+ * most moves pair visits kilometers apart and are rejected. With nearby selection it's picked from the nearest visits
+ * of the first one (see {@link VisitNearbyDistanceMeter}), with a parabolic distribution over the
+ * <code>distributionSizeMaximum</code> nearest ones.
+ * <p>
+ * Only the change, swap, sub chain change and sub chain swap selectors without explicit entity or value selectors
+ * are changed, the others are kept as configured in the solver config xml.
+ */
+public final class NearbySelection {
+    private static final Logger logger = LoggerFactory.getLogger(NearbySelection.class);
+
+    public static final int DEFAULT_DISTRIBUTION_SIZE_MAXIMUM = 40;
+
+    private NearbySelection() {
+    }
+
+    /**
+     * @param solverConfig            The solver config, it's modified in place.
+     * @param distributionSizeMaximum The max number of nearest visits to pick from.
+     * @return The solver config.
+     */
+    public static SolverConfig apply(SolverConfig solverConfig, int distributionSizeMaximum) {
+        if (distributionSizeMaximum <= 0) {
+            throw new IllegalArgumentException("Nearby distribution size maximum must be positive (" + distributionSizeMaximum + ")");
+        }
+        if (solverConfig.getPhaseConfigList() == null) {
+            return solverConfig;
+        }
+
+        int selectorCnt = 0;
+        for (PhaseConfig<?> phaseConfig : solverConfig.getPhaseConfigList()) {
+            if (!(phaseConfig instanceof LocalSearchPhaseConfig)) {
+                continue;
+            }
+
+            MoveSelectorConfig<?> moveSelectorConfig = ((LocalSearchPhaseConfig) phaseConfig).getMoveSelectorConfig();
+            if (moveSelectorConfig instanceof UnionMoveSelectorConfig) {
+                for (MoveSelectorConfig<?> childConfig : ((UnionMoveSelectorConfig) moveSelectorConfig).getMoveSelectorConfigList()) {
+                    selectorCnt += apply(childConfig, "nearby" + selectorCnt, distributionSizeMaximum) ? 1 : 0;
+                }
+            } else if (moveSelectorConfig != null) {
+                selectorCnt += apply(moveSelectorConfig, "nearby" + selectorCnt, distributionSizeMaximum) ? 1 : 0;
+            }
+        }
+
+        logger.info("Nearby selection :: move selectors = {} :: distribution size maximum = {}", selectorCnt, distributionSizeMaximum);
+        return solverConfig;
+    }
+
+    private static boolean apply(MoveSelectorConfig<?> moveSelectorConfig, String id, int distributionSizeMaximum) {
+        if (moveSelectorConfig instanceof ChangeMoveSelectorConfig) {
+            ChangeMoveSelectorConfig changeConfig = (ChangeMoveSelectorConfig) moveSelectorConfig;
+            if (changeConfig.getEntitySelectorConfig() != null || changeConfig.getValueSelectorConfig() != null) {
+                return false;
+            }
+
+            // insert the visit after one of its nearby visits (or vehicles)
+            changeConfig.setEntitySelectorConfig(originEntitySelector(id));
+            changeConfig.setValueSelectorConfig(nearbyValueSelector(originByEntity(id, distributionSizeMaximum)));
+            return true;
+        }
+
+        if (moveSelectorConfig instanceof SwapMoveSelectorConfig) {
+            SwapMoveSelectorConfig swapConfig = (SwapMoveSelectorConfig) moveSelectorConfig;
+            if (swapConfig.getEntitySelectorConfig() != null || swapConfig.getSecondaryEntitySelectorConfig() != null) {
+                return false;
+            }
+
+            // swap the visit with one of its nearby visits
+            EntitySelectorConfig secondaryEntitySelector = new EntitySelectorConfig(PlanningVisit.class);
+            secondaryEntitySelector.setNearbySelectionConfig(originByEntity(id, distributionSizeMaximum));
+
+            swapConfig.setEntitySelectorConfig(originEntitySelector(id));
+            swapConfig.setSecondaryEntitySelectorConfig(secondaryEntitySelector);
+            return true;
+        }
+
+        if (moveSelectorConfig instanceof SubChainChangeMoveSelectorConfig) {
+            SubChainChangeMoveSelectorConfig subChainChangeConfig = (SubChainChangeMoveSelectorConfig) moveSelectorConfig;
+            if (subChainChangeConfig.getSubChainSelectorConfig() != null || subChainChangeConfig.getValueSelectorConfig() != null) {
+                return false;
+            }
+
+            // move the sub chain after a visit (or vehicle) near its first visit
+            subChainChangeConfig.setSubChainSelectorConfig(originSubChainSelector(id));
+            subChainChangeConfig.setValueSelectorConfig(nearbyValueSelector(originByValue(id, distributionSizeMaximum)));
+            return true;
+        }
+
+        if (moveSelectorConfig instanceof SubChainSwapMoveSelectorConfig) {
+            SubChainSwapMoveSelectorConfig subChainSwapConfig = (SubChainSwapMoveSelectorConfig) moveSelectorConfig;
+            if (subChainSwapConfig.getSubChainSelectorConfig() != null || subChainSwapConfig.getSecondarySubChainSelectorConfig() != null) {
+                return false;
+            }
+
+            // swap the sub chain with a sub chain starting near its first visit
+            SubChainSelectorConfig secondarySubChainSelector = new SubChainSelectorConfig();
+            secondarySubChainSelector.setValueSelectorConfig(nearbyValueSelector(originByValue(id, distributionSizeMaximum)));
+
+            subChainSwapConfig.setSubChainSelectorConfig(originSubChainSelector(id));
+            subChainSwapConfig.setSecondarySubChainSelectorConfig(secondarySubChainSelector);
+            return true;
+        }
+
+        return false;
+    }
+
+    private static EntitySelectorConfig originEntitySelector(String id) {
+        EntitySelectorConfig entitySelector = new EntitySelectorConfig(PlanningVisit.class);
+        entitySelector.setId(id);
+        return entitySelector;
+    }
+
+    private static SubChainSelectorConfig originSubChainSelector(String id) {
+        ValueSelectorConfig valueSelector = new ValueSelectorConfig();
+        valueSelector.setId(id);
+
+        SubChainSelectorConfig subChainSelector = new SubChainSelectorConfig();
+        subChainSelector.setValueSelectorConfig(valueSelector);
+        return subChainSelector;
+    }
+
+    private static ValueSelectorConfig nearbyValueSelector(NearbySelectionConfig nearbySelectionConfig) {
+        ValueSelectorConfig valueSelector = new ValueSelectorConfig();
+        valueSelector.setNearbySelectionConfig(nearbySelectionConfig);
+        return valueSelector;
+    }
+
+    private static NearbySelectionConfig originByEntity(String id, int distributionSizeMaximum) {
+        EntitySelectorConfig origin = new EntitySelectorConfig();
+        origin.setMimicSelectorRef(id);
+
+        NearbySelectionConfig nearbySelectionConfig = nearbySelectionConfig(distributionSizeMaximum);
+        nearbySelectionConfig.setOriginEntitySelectorConfig(origin);
+        return nearbySelectionConfig;
+    }
+
+    private static NearbySelectionConfig originByValue(String id, int distributionSizeMaximum) {
+        ValueSelectorConfig origin = new ValueSelectorConfig();
+        origin.setMimicSelectorRef(id);
+
+        NearbySelectionConfig nearbySelectionConfig = nearbySelectionConfig(distributionSizeMaximum);
+        nearbySelectionConfig.setOriginValueSelectorConfig(origin);
+        return nearbySelectionConfig;
+    }
+
+    private static NearbySelectionConfig nearbySelectionConfig(int distributionSizeMaximum) {
+        NearbySelectionConfig nearbySelectionConfig = new NearbySelectionConfig();
+        nearbySelectionConfig.setNearbyDistanceMeterClass(VisitNearbyDistanceMeter.class);
+        nearbySelectionConfig.setNearbySelectionDistributionType(NearbySelectionDistributionType.PARABOLIC_DISTRIBUTION);
+        nearbySelectionConfig.setParabolicDistributionSizeMaximum(distributionSizeMaximum);
+        return nearbySelectionConfig;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.sameday.directpudo.solver.nearby;
+
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.VisitOrVehicle;
+import dev.aws.proto.core.routing.distance.Distance;
+import org.optaplanner.core.impl.heuristic.selector.common.nearby.NearbyDistanceMeter;
+
+/**
+ * Distance between visits (or a visit and a vehicle) for nearby selection, read from the H3 distance matrix of the
+ * problem.
+ * <p>
+ * A visit is moved after its destination, so the distance is measured from the destination to the origin. Pairs the
+ * matrix has no distance for, or that can't be routed ({@link Distance#UNREACHABLE_METERS}), are the farthest.
+ */
+public class VisitNearbyDistanceMeter implements NearbyDistanceMeter<VisitOrVehicle, VisitOrVehicle> {
+
+    @Override
+    public double getNearbyDistance(VisitOrVehicle origin, VisitOrVehicle destination) {
+        long meters = destination.getLocation().metersTo(origin.getLocation());
+        return meters >= Distance.UNREACHABLE_METERS ? Double.MAX_VALUE : meters;
+    }
+}
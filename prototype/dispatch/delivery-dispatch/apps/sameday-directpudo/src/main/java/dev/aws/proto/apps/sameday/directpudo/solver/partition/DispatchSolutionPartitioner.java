@@ -0,0 +1,304 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.sameday.directpudo.solver.partition;
+
+import com.uber.h3core.H3Core;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.DeliveryRide;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVehicle;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
+import dev.aws.proto.apps.sameday.directpudo.location.HubLocation;
+import dev.aws.proto.apps.sameday.directpudo.location.Location;
+import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
+import dev.aws.proto.core.routing.H3;
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.distance.Distance;
+import dev.aws.proto.core.routing.location.Coordinate;
+import lombok.Setter;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.partitionedsearch.partitioner.SolutionPartitioner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Splits the dispatch problem into parts that are solved in parallel by the partitioned search.
+ * <p>
+ * The vehicles belong to their hubs, and every ride (pickup and dropoff together) goes to the hub nearest to its
+ * pickup (by H3 distance if none of the hubs can be routed to). If there are more hubs than parts, the hubs are merged into parts with about the same number of rides. If
+ * there are fewer, the busiest hubs are split further: their rides are clustered by the H3 cell (in
+ * <code>h3Resolution</code>) of the pickup, the clusters and the vehicles of the hub are divided between the parts of
+ * the hub.
+ * <p>
+ * The parts are created with unassigned visits, so the partitioned search must be the first phase of the solver, its
+ * parts run the construction heuristic and the local search.
+ */
+public class DispatchSolutionPartitioner implements SolutionPartitioner<DispatchSolution> {
+    private static final Logger logger = LoggerFactory.getLogger(DispatchSolutionPartitioner.class);
+
+    public static final int DEFAULT_H3_RESOLUTION = 7;
+
+    /**
+     * Number of parts, by default the number of runnable part threads (or the number of processors).
+     */
+    @Setter
+    private Integer partCount;
+
+    /**
+     * Resolution of the H3 cells the rides of a hub are clustered by.
+     */
+    @Setter
+    private int h3Resolution = DEFAULT_H3_RESOLUTION;
+
+    private static class Part {
+        private final List<PlanningVehicle> vehicles = new ArrayList<>();
+        private final List<DeliveryRide> rides = new ArrayList<>();
+    }
+
+    @Override
+    public List<DispatchSolution> splitWorkingSolution(ScoreDirector<DispatchSolution> scoreDirector, Integer runnablePartThreadLimit) {
+        DispatchSolution solution = scoreDirector.getWorkingSolution();
+        for (PlanningVisit visit : solution.getPlanningVisits()) {
+            if (visit.getPreviousVisitOrVehicle() != null) {
+                throw new IllegalStateException("The partitioned search must be the first phase, visit " + visit.getId() + " is already assigned");
+            }
+        }
+
+        int targetPartCnt = partCount != null ? partCount :
+                runnablePartThreadLimit != null ? runnablePartThreadLimit : Runtime.getRuntime().availableProcessors();
+        if (targetPartCnt <= 0) {
+            throw new IllegalArgumentException("Part count must be positive (" + targetPartCnt + ")");
+        }
+
+        // the vehicles of the hubs
+        Map<String, Part> hubParts = new LinkedHashMap<>();
+        Map<String, Location> hubLocations = new LinkedHashMap<>();
+        for (PlanningVehicle vehicle : solution.getPlanningVehicles()) {
+            Location hubLocation = vehicle.getLocation();
+            hubLocations.putIfAbsent(hubLocation.getId(), hubLocation);
+            hubParts.computeIfAbsent(hubLocation.getId(), id -> new Part()).vehicles.add(vehicle);
+        }
+        if (hubParts.isEmpty()) {
+            throw new IllegalStateException("There are no vehicles to partition the problem by");
+        }
+
+        // every ride goes to the hub nearest to its pickup
+        for (DeliveryRide ride : solution.getRides()) {
+            String nearestHubId = nearestHubId(ride.getPickupVisit().getLocation(), hubLocations.values());
+            hubParts.get(nearestHubId).rides.add(ride);
+        }
+
+        List<Part> parts = targetPartCnt <= hubParts.size() ?
+                mergeHubs(new ArrayList<>(hubParts.values()), targetPartCnt) :
+                splitHubs(new ArrayList<>(hubParts.values()), targetPartCnt);
+        // vehicles of parts without rides have nothing to do
+        parts.removeIf(part -> part.rides.isEmpty());
+
+        List<DispatchSolution> partSolutions = new ArrayList<>(parts.size());
+        for (int partIdx = 0; partIdx < parts.size(); partIdx++) {
+            partSolutions.add(createPartSolution(solution, partIdx, parts.get(partIdx)));
+        }
+
+        logger.info("Partitioned dispatch problem :: hubs = {} :: parts = {} :: rides per part = {}", hubParts.size(), parts.size(),
+                parts.stream().map(part -> String.valueOf(part.rides.size())).collect(Collectors.joining(",")));
+        return partSolutions;
+    }
+
+    /**
+     * The hub nearest to the pickup by routed distance. If none of the hubs can be routed to, the nearest by H3
+     * distance (in <code>h3Resolution</code>). Ties are broken by the hub ID, so the parts are deterministic.
+     */
+    private String nearestHubId(Location pickup, Collection<Location> hubLocations) {
+        Comparator<Location> byId = Comparator.comparing(Location::getId);
+        Optional<Location> nearestRoutable = hubLocations.stream()
+                .filter(hub -> pickup.metersTo(hub) < Distance.UNREACHABLE_METERS)
+                .min(Comparator.comparingLong((Location hub) -> pickup.metersTo(hub)).thenComparing(byId));
+        if (nearestRoutable.isPresent()) {
+            return nearestRoutable.get().getId();
+        }
+
+        logger.warn("No route from pickup {} to any of the hubs, assigning it to the nearest hub by H3 distance", pickup.getId());
+        H3Core h3 = H3.h3();
+        long pickupCell = cellOf(h3, pickup);
+        return hubLocations.stream()
+                .min(Comparator.comparingInt((Location hub) -> {
+                    int h3Distance = H3DistanceCache.h3DistanceOf(h3, pickupCell, cellOf(h3, hub));
+                    return h3Distance < 0 ? Integer.MAX_VALUE : h3Distance;
+                }).thenComparing(byId))
+                .map(Location::getId)
+                .orElseThrow();
+    }
+
+    private long cellOf(H3Core h3, Location location) {
+        Coordinate coordinate = location.getCoordinate();
+        return h3.geoToH3(coordinate.getLatitude(), coordinate.getLongitude(), h3Resolution);
+    }
+
+    private List<Part> mergeHubs(List<Part> hubParts, int partCnt) {
+        List<Part> parts = new ArrayList<>();
+        for (List<Part> hubs : balance(hubParts, hub -> hub.rides.size(), partCnt)) {
+            Part part = new Part();
+            for (Part hub : hubs) {
+                part.vehicles.addAll(hub.vehicles);
+                part.rides.addAll(hub.rides);
+            }
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    private List<Part> splitHubs(List<Part> hubParts, int partCnt) {
+        H3Core h3 = H3.h3();
+
+        // clusters of rides by the H3 cell of the pickup, per hub
+        List<List<List<DeliveryRide>>> hubClusters = new ArrayList<>();
+        for (Part hub : hubParts) {
+            Map<Long, List<DeliveryRide>> clusters = new LinkedHashMap<>();
+            for (DeliveryRide ride : hub.rides) {
+                long cell = cellOf(h3, ride.getPickupVisit().getLocation());
+                clusters.computeIfAbsent(cell, c -> new ArrayList<>()).add(ride);
+            }
+            hubClusters.add(new ArrayList<>(clusters.values()));
+        }
+
+        // every hub has at least one part, the remaining parts go to the hubs with the most rides per part
+        // a hub can't have more parts than vehicles or clusters
+        int[] hubPartCnts = new int[hubParts.size()];
+        Arrays.fill(hubPartCnts, 1);
+        for (int extraPartCnt = partCnt - hubParts.size(); extraPartCnt > 0; extraPartCnt--) {
+            int busiestHubIdx = -1;
+            double busiestRidesPerPart = 0;
+            for (int h = 0; h < hubParts.size(); h++) {
+                int maxPartCnt = Math.min(hubParts.get(h).vehicles.size(), hubClusters.get(h).size());
+                double ridesPerPart = (double) hubParts.get(h).rides.size() / hubPartCnts[h];
+                if (hubPartCnts[h] < maxPartCnt && ridesPerPart > busiestRidesPerPart) {
+                    busiestHubIdx = h;
+                    busiestRidesPerPart = ridesPerPart;
+                }
+            }
+            if (busiestHubIdx < 0) {
+                break;
+            }
+            hubPartCnts[busiestHubIdx]++;
+        }
+
+        List<Part> parts = new ArrayList<>();
+        for (int h = 0; h < hubParts.size(); h++) {
+            List<PlanningVehicle> vehicles = hubParts.get(h).vehicles;
+            List<List<List<DeliveryRide>>> clustersOfParts = balance(hubClusters.get(h), List::size, hubPartCnts[h]);
+            for (int p = 0; p < hubPartCnts[h]; p++) {
+                Part part = new Part();
+                clustersOfParts.get(p).forEach(part.rides::addAll);
+                // the vehicles of the hub are dealt out evenly
+                for (int v = p; v < vehicles.size(); v += hubPartCnts[h]) {
+                    part.vehicles.add(vehicles.get(v));
+                }
+                parts.add(part);
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Divides the items into buckets with about the same weight: the heaviest items first, always into the lightest
+     * bucket.
+     */
+    private static <T> List<List<T>> balance(List<T> items, ToIntFunction<T> weight, int bucketCnt) {
+        List<T> sortedItems = new ArrayList<>(items);
+        sortedItems.sort(Comparator.comparingInt(weight).reversed());
+
+        List<List<T>> buckets = new ArrayList<>(bucketCnt);
+        int[] bucketWeights = new int[bucketCnt];
+        for (int b = 0; b < bucketCnt; b++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (T item : sortedItems) {
+            int lightestIdx = 0;
+            for (int b = 1; b < bucketCnt; b++) {
+                if (bucketWeights[b] < bucketWeights[lightestIdx]) {
+                    lightestIdx = b;
+                }
+            }
+            buckets.get(lightestIdx).add(item);
+            bucketWeights[lightestIdx] += weight.applyAsInt(item);
+        }
+        return buckets;
+    }
+
+    /**
+     * The part has its own copies of the vehicles, visits and rides, the locations and the hubs are shared.
+     */
+    private static DispatchSolution createPartSolution(DispatchSolution solution, int partIdx, Part part) {
+        List<PlanningVehicle> vehicles = new ArrayList<>(part.vehicles.size());
+        for (PlanningVehicle vehicle : part.vehicles) {
+            PlanningVehicle partVehicle = new PlanningVehicle();
+            partVehicle.setId(vehicle.getId());
+            partVehicle.setLocation((HubLocation) vehicle.getLocation());
+            partVehicle.setMaxCapacity(vehicle.getMaxCapacity());
+            vehicles.add(partVehicle);
+        }
+
+        List<PlanningVisit> visits = new ArrayList<>(part.rides.size() * 2);
+        List<DeliveryRide> rides = new ArrayList<>(part.rides.size());
+        for (DeliveryRide ride : part.rides) {
+            DeliveryRide partRide = new DeliveryRide();
+            partRide.setId(ride.getId());
+            partRide.setOrderId(ride.getOrderId());
+            partRide.setParcel(ride.getParcel());
+            partRide.setPickupVisit(createPartVisit(ride.getPickupVisit(), partRide));
+            partRide.setDropoffVisit(createPartVisit(ride.getDropoffVisit(), partRide));
+
+            visits.add(partRide.getPickupVisit());
+            visits.add(partRide.getDropoffVisit());
+            rides.add(partRide);
+        }
+
+        return DispatchSolution.builder()
+                .id(solution.getId())
+                .name(solution.getName() + "-part" + partIdx)
+                .createdAt(solution.getCreatedAt())
+                .executionId(solution.getExecutionId())
+                .locations(solution.getLocations())
+                .hubs(solution.getHubs())
+                .planningVehicles(vehicles)
+                .planningVisits(visits)
+                .rides(rides)
+                .build();
+    }
+
+    private static PlanningVisit createPartVisit(PlanningVisit visit, DeliveryRide partRide) {
+        PlanningVisit partVisit = new PlanningVisit();
+        partVisit.setId(visit.getId());
+        partVisit.setVisitType(visit.getVisitType());
+        partVisit.setLocation(visit.getLocation());
+        partVisit.setOrderId(visit.getOrderId());
+        partVisit.setReadyTimeInSec(visit.getReadyTimeInSec());
+        partVisit.setDueTimeInSec(visit.getDueTimeInSec());
+        partVisit.setRide(partRide);
+        return partVisit;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.sameday.directpudo.solver.partition;
+
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.partitionedsearch.PartitionedSearchPhaseConfig;
+import org.optaplanner.core.config.phase.PhaseConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Solves the parts of the problem in parallel (see {@link DispatchSolutionPartitioner}), then polishes the whole
+ * solution.
+ * <p>
+ * The phases of the solver config xml run in every part. The parts don't share vehicles, so rides are never moved
+ * between them: the polishing phase is a copy of the last local search phase on the whole solution, limited to
+ * <code>polishingSecondsSpentLimit</code>.
+ */
+public final class PartitionedSearch {
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedSearch.class);
+
+    public static final long DEFAULT_POLISHING_SECONDS_SPENT_LIMIT = 30;
+
+    private PartitionedSearch() {
+    }
+
+    /**
+     * @param solverConfig               The solver config, it's modified in place.
+     * @param partCount                  The number of parts, <code>null</code> for the number of part threads.
+     * @param h3Resolution               Resolution of the H3 cells the rides of a hub are clustered by.
+     * @param polishingSecondsSpentLimit Time limit of the polishing phase.
+     * @return The solver config.
+     */
+    public static SolverConfig apply(SolverConfig solverConfig, Integer partCount, int h3Resolution, long polishingSecondsSpentLimit) {
+        if (partCount != null && partCount <= 0) {
+            throw new IllegalArgumentException("Part count must be positive (" + partCount + ")");
+        }
+        if (polishingSecondsSpentLimit <= 0) {
+            throw new IllegalArgumentException("Polishing time limit must be positive (" + polishingSecondsSpentLimit + ")");
+        }
+
+        List<PhaseConfig> phaseConfigs = solverConfig.getPhaseConfigList();
+        LocalSearchPhaseConfig lastLocalSearch = null;
+        for (PhaseConfig<?> phaseConfig : phaseConfigs == null ? List.<PhaseConfig>of() : phaseConfigs) {
+            if (phaseConfig instanceof PartitionedSearchPhaseConfig) {
+                throw new IllegalArgumentException("The solver config already has a partitioned search phase");
+            }
+            if (phaseConfig instanceof LocalSearchPhaseConfig) {
+                lastLocalSearch = (LocalSearchPhaseConfig) phaseConfig;
+            }
+        }
+        if (lastLocalSearch == null) {
+            throw new IllegalArgumentException("The solver config has no local search phase to polish the solution with");
+        }
+
+        Map<String, String> partitionerProperties = new HashMap<>();
+        if (partCount != null) {
+            partitionerProperties.put("partCount", String.valueOf(partCount));
+        }
+        partitionerProperties.put("h3Resolution", String.valueOf(h3Resolution));
+
+        PartitionedSearchPhaseConfig partitionedSearch = new PartitionedSearchPhaseConfig();
+        partitionedSearch.setSolutionPartitionerClass(DispatchSolutionPartitioner.class);
+        partitionedSearch.setSolutionPartitionerCustomProperties(partitionerProperties);
+        partitionedSearch.setPhaseConfigList(new ArrayList<>(phaseConfigs));
+
+        TerminationConfig polishingTermination = new TerminationConfig();
+        polishingTermination.setSecondsSpentLimit(polishingSecondsSpentLimit);
+        LocalSearchPhaseConfig polishing = lastLocalSearch.copyConfig();
+        polishing.setTerminationConfig(polishingTermination);
+
+        solverConfig.setPhaseConfigList(Arrays.<PhaseConfig>asList(partitionedSearch, polishing));
+
+        logger.info("Partitioned search :: parts = {} :: h3 resolution = {} :: polishing = {}s",
+                partCount == null ? "AUTO" : partCount, h3Resolution, polishingSecondsSpentLimit);
+        return solverConfig;
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package dev.aws.proto.apps.sameday.directpudo.solver.move;
+
+import dev.aws.proto.apps.sameday.directpudo.data.Parcel;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.DeliveryRide;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVehicle;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.VisitOrVehicle;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.capacity.MaxCapacity;
+import dev.aws.proto.apps.sameday.directpudo.location.DropoffLocation;
+import dev.aws.proto.apps.sameday.directpudo.location.HubLocation;
+import dev.aws.proto.apps.sameday.directpudo.location.Location;
+import dev.aws.proto.apps.sameday.directpudo.location.PickupLocation;
+import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
+import dev.aws.proto.apps.sameday.directpudo.util.Constants;
+import dev.aws.proto.core.routing.cache.H3DistanceMatrix;
+import dev.aws.proto.core.routing.distance.MatrixLocationIndex;
+import dev.aws.proto.core.routing.location.Coordinate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.impl.heuristic.move.Move;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.score.director.InnerScoreDirectorFactory;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the ride moves, their undo moves and their rebased copies on a small chained solution (two vehicles, three
+ * rides), with the score director of the solver config, so the shadow variables are updated by the real listeners.
+ */
+class DeliveryRideMoveTest {
+    private static final InnerScoreDirectorFactory<DispatchSolution, ?> scoreDirectorFactory =
+            ((DefaultSolverFactory<DispatchSolution>) SolverFactory.<DispatchSolution>create(SolverConfig.createFromXmlResource("solver-config.xml")))
+                    .getScoreDirectorFactory();
+
+    private InnerScoreDirector<DispatchSolution, ?> scoreDirector;
+
+    @BeforeEach
+    void createSolution() {
+        scoreDirector = scoreDirectorFactory.buildScoreDirector();
+        DispatchSolution solution = createUnassignedSolution();
+        scoreDirector.setWorkingSolution(solution);
+
+        // vehicle-0: p0 d0 p1 d1, vehicle-1: p2 d2
+        List<PlanningVehicle> vehicles = solution.getPlanningVehicles();
+        List<DeliveryRide> rides = solution.getRides();
+        assignChain(vehicles.get(0), rides.get(0).getPickupVisit(), rides.get(0).getDropoffVisit(), rides.get(1).getPickupVisit(), rides.get(1).getDropoffVisit());
+        assignChain(vehicles.get(1), rides.get(2).getPickupVisit(), rides.get(2).getDropoffVisit());
+        scoreDirector.triggerVariableListeners();
+    }
+
+    @Test
+    void changeMovesAreUndone() {
+        Iterator<DeliveryRideChangeMove> moves = new DeliveryRideChangeMoveIteratorFactory().createOriginalMoveIterator(scoreDirector);
+        assertMovesAreUndone(moves);
+    }
+
+    @Test
+    void swapMovesAreUndone() {
+        Iterator<DeliveryRideSwapMove> moves = new DeliveryRideSwapMoveIteratorFactory().createOriginalMoveIterator(scoreDirector);
+        assertMovesAreUndone(moves);
+    }
+
+    @Test
+    void originalChangeMovesCoverEveryPosition() {
+        Set<DeliveryRideChangeMove> moves = new HashSet<>();
+        new DeliveryRideChangeMoveIteratorFactory().createOriginalMoveIterator(scoreDirector).forEachRemaining(moves::add);
+
+        // (n + 1) * (n + 2) / 2 positions in a chain of n other visits:
+        // ride 0 and 1 have n = 2 on both vehicles, ride 2 has n = 4 on vehicle-0 and n = 0 on vehicle-1
+        assertEquals(2 * (6 + 6) + 15 + 1, moves.size());
+    }
+
+    @Test
+    void originalSwapMovesCoverEveryPair() {
+        List<String> pairs = new ArrayList<>();
+        new DeliveryRideSwapMoveIteratorFactory().createOriginalMoveIterator(scoreDirector)
+                .forEachRemaining(move -> pairs.add(move.getLeftRide().getId() + "-" + move.getRightRide().getId()));
+
+        assertEquals(List.of("0-1", "0-2", "1-2"), pairs);
+    }
+
+    @Test
+    void rebasedMovesChangeTheClonedSolutionTheSameWay() {
+        DispatchSolution solution = scoreDirector.getWorkingSolution();
+        List<DeliveryRide> rides = solution.getRides();
+        List<AbstractDeliveryRideMove> moves = List.of(
+                new DeliveryRideChangeMove(rides.get(0), solution.getPlanningVehicles().get(1), 1, 3),
+                new DeliveryRideSwapMove(rides.get(1), rides.get(2)));
+
+        for (AbstractDeliveryRideMove move : moves) {
+            InnerScoreDirector<DispatchSolution, ?> moveThreadScoreDirector = scoreDirectorFactory.buildScoreDirector();
+            moveThreadScoreDirector.setWorkingSolution(scoreDirector.cloneWorkingSolution());
+
+            Move<DispatchSolution> rebasedMove = move.rebase(moveThreadScoreDirector);
+            assertTrue(rebasedMove.isMoveDoable(moveThreadScoreDirector));
+            // the rebased move only references the objects of the cloned solution
+            for (Object entity : rebasedMove.getPlanningEntities()) {
+                assertTrue(moveThreadScoreDirector.getWorkingSolution().getPlanningVisits().contains(entity));
+            }
+
+            move.doMove(scoreDirector);
+            rebasedMove.doMove(moveThreadScoreDirector);
+            assertEquals(snapshot(scoreDirector.getWorkingSolution()), snapshot(moveThreadScoreDirector.getWorkingSolution()));
+            assertEquals(scoreDirector.calculateScore(), moveThreadScoreDirector.calculateScore());
+
+            moveThreadScoreDirector.close();
+        }
+    }
+
+    private void assertMovesAreUndone(Iterator<? extends AbstractDeliveryRideMove> moves) {
+        List<String> original = snapshot(scoreDirector.getWorkingSolution());
+        Object originalScore = scoreDirector.calculateScore();
+
+        int doneCnt = 0;
+        while (moves.hasNext()) {
+            AbstractDeliveryRideMove move = moves.next();
+            if (!move.isMoveDoable(scoreDirector)) {
+                continue;
+            }
+
+            Move<DispatchSolution> undoMove = move.doMove(scoreDirector);
+            assertNotEquals(original, snapshot(scoreDirector.getWorkingSolution()), () -> move + " didn't change the chains");
+            assertChainsAreConsistent(scoreDirector.getWorkingSolution());
+
+            undoMove.doMove(scoreDirector);
+            assertEquals(original, snapshot(scoreDirector.getWorkingSolution()), () -> "undo of " + move);
+            assertEquals(originalScore, scoreDirector.calculateScore(), () -> "score after the undo of " + move);
+            doneCnt++;
+        }
+        assertTrue(doneCnt > 0);
+    }
+
+    /**
+     * Every pickup is before its dropoff, on the same vehicle, and the inverse relation matches the chains.
+     */
+    private static void assertChainsAreConsistent(DispatchSolution solution) {
+        for (DeliveryRide ride : solution.getRides()) {
+            PlanningVisit pickup = ride.getPickupVisit();
+            PlanningVisit dropoff = ride.getDropoffVisit();
+            assertEquals(pickup.getPlanningVehicle(), dropoff.getPlanningVehicle(), () -> "ride " + ride.getId());
+            assertTrue(pickup.getVisitIndex() < dropoff.getVisitIndex(), () -> "ride " + ride.getId());
+        }
+        for (PlanningVisit visit : solution.getPlanningVisits()) {
+            assertEquals(visit, visit.getPreviousVisitOrVehicle().getNextPlanningVisit(), () -> "next of the previous of " + visit.getId());
+        }
+    }
+
+    /**
+     * @return The chains (with the inverse relation) and the shadow variables of the visits, by id.
+     */
+    private static List<String> snapshot(DispatchSolution solution) {
+        List<String> snapshot = new ArrayList<>();
+        for (PlanningVehicle vehicle : solution.getPlanningVehicles()) {
+            snapshot.add(vehicle.getId() + " -> " + idOf(vehicle.getNextPlanningVisit()));
+        }
+        for (PlanningVisit visit : solution.getPlanningVisits()) {
+            snapshot.add(visit.getId()
+                    + " :: prev = " + idOf(visit.getPreviousVisitOrVehicle())
+                    + " :: next = " + idOf(visit.getNextPlanningVisit())
+                    + " :: vehicle = " + idOf(visit.getPlanningVehicle())
+                    + " :: index = " + visit.getVisitIndex()
+                    + " :: duration = " + visit.getDeliveryDurationUntilNow()
+                    + " :: height = " + visit.getHeightAfterVisit()
+                    + " :: weight = " + visit.getWeightAfterVisit());
+        }
+        return snapshot;
+    }
+
+    private static String idOf(VisitOrVehicle visitOrVehicle) {
+        if (visitOrVehicle == null) {
+            return "null";
+        }
+        return visitOrVehicle instanceof PlanningVehicle ? ((PlanningVehicle) visitOrVehicle).getId() : ((PlanningVisit) visitOrVehicle).getId();
+    }
+
+    private void assignChain(PlanningVehicle vehicle, PlanningVisit... visits) {
+        VisitOrVehicle previousVisitOrVehicle = vehicle;
+        for (PlanningVisit visit : visits) {
+            scoreDirector.beforeVariableChanged(visit, Constants.PreviousVisitOrVehicle);
+            visit.setPreviousVisitOrVehicle(previousVisitOrVehicle);
+            scoreDirector.afterVariableChanged(visit, Constants.PreviousVisitOrVehicle);
+            previousVisitOrVehicle = visit;
+        }
+    }
+
+    private static DispatchSolution createUnassignedSolution() {
+        HubLocation hub = new HubLocation("hub", new Coordinate(1.30, 103.80));
+        List<Location> locations = new ArrayList<>();
+        locations.add(hub);
+
+        List<PlanningVisit> visits = new ArrayList<>();
+        List<DeliveryRide> rides = new ArrayList<>();
+        for (long rideId = 0; rideId < 3; rideId++) {
+            PickupLocation pickupLocation = new PickupLocation("pickup-" + rideId, new Coordinate(1.31 + rideId * 0.01, 103.81));
+            DropoffLocation dropoffLocation = new DropoffLocation("dropoff-" + rideId, new Coordinate(1.31 + rideId * 0.01, 103.85));
+            locations.add(pickupLocation);
+            locations.add(dropoffLocation);
+
+            DeliveryRide ride = new DeliveryRide();
+            ride.setId(rideId);
+            ride.setOrderId("order-" + rideId);
+            ride.setParcel(Parcel.builder().length(10).height(10 + rideId).width(10).weight(1 + rideId).build());
+            ride.setPickupVisit(visit("order-" + rideId, PlanningVisit.VisitType.PICKUP, pickupLocation, ride));
+            ride.setDropoffVisit(visit("order-" + rideId, PlanningVisit.VisitType.DROPOFF, dropoffLocation, ride));
+            rides.add(ride);
+            visits.add(ride.getPickupVisit());
+            visits.add(ride.getDropoffVisit());
+        }
+
+        List<PlanningVehicle> vehicles = new ArrayList<>();
+        for (int v = 0; v < 2; v++) {
+            PlanningVehicle vehicle = new PlanningVehicle();
+            vehicle.setId("vehicle-" + v);
+            vehicle.setLocation(hub);
+            vehicle.setMaxCapacity(MaxCapacity.builder().length(50).height(60).width(50).weight(10).build());
+            vehicles.add(vehicle);
+        }
+
+        // |i - j| km, |i - j| * 2 minutes between the i-th and the j-th location
+        int dim = locations.size();
+        long[] meters = new long[dim * dim];
+        long[] seconds = new long[dim * dim];
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                meters[i * dim + j] = Math.abs(i - j) * 1000L;
+                seconds[i * dim + j] = Math.abs(i - j) * 120L;
+            }
+        }
+        H3DistanceMatrix<Location> distanceMatrix = new H3DistanceMatrix<>(null, new MatrixLocationIndex(locations), meters, seconds, new int[dim * dim]);
+        locations.forEach(location -> location.setDistanceMatrix(distanceMatrix));
+
+        return DispatchSolution.builder()
+                .id(UUID.randomUUID())
+                .name("DeliveryRideMoveTest")
+                .score(HardMediumSoftLongScore.ZERO)
+                .locations(locations)
+                .planningVisits(visits)
+                .planningVehicles(vehicles)
+                .rides(rides)
+                .hubs(Collections.emptyList())
+                .build();
+    }
+
+    private static PlanningVisit visit(String orderId, PlanningVisit.VisitType visitType, Location location, DeliveryRide ride) {
+        PlanningVisit visit = new PlanningVisit();
+        visit.setId(orderId + "-" + location.getId());
+        visit.setOrderId(orderId);
+        visit.setVisitType(visitType);
+        visit.setLocation(location);
+        visit.setRide(ride);
+        return visit;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.solver.benchmarks;
+
+import dev.aws.proto.apps.sameday.directpudo.solver.nearby.NearbySelection;
+import dev.aws.proto.apps.sameday.directpudo.solver.partition.DispatchSolutionPartitioner;
+import dev.aws.proto.apps.sameday.directpudo.solver.partition.PartitionedSearch;
+import org.optaplanner.benchmark.api.PlannerBenchmark;
+import org.optaplanner.benchmark.api.PlannerBenchmarkFactory;
+import org.optaplanner.benchmark.config.PlannerBenchmarkConfig;
+import org.optaplanner.benchmark.impl.DefaultPlannerBenchmark;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+@Command(
+        name = "solver-benchmarks", mixinStandardHelpOptions = true,
+        version = "1.0",
+        description = "Benchmarks the solver configurations of the dispatcher apps on generated datasets"
+)
+public class App implements Callable<Integer> {
+    private static final Logger logger = LoggerFactory.getLogger(App.class);
+
+    @CommandLine.Option(names = {"-a", "--apps"}, split = ",", description = "Apps to benchmark. Valid values: ${COMPLETION-CANDIDATES}. Default: all")
+    private DispatchApp[] apps = DispatchApp.values();
+
+    @CommandLine.Option(names = {"-s", "--sizes"}, split = ",", description = "Dataset sizes (number of orders). Default: 100,500,2000")
+    private int[] sizes = {100, 500, 2000};
+
+    @CommandLine.Option(names = {"--seed"}, description = "Random seed of the datasets and the solver. Default: 42")
+    private long seed = 42;
+
+    @CommandLine.Option(names = {"--steps"}, description = "Step count limit of the local search phases. Default: 2000")
+    private int stepCountLimit = 2000;
+
+    @CommandLine.Option(names = {"--move-threads"}, description = "Move thread count of the solver, NONE keeps the runs reproducible. Default: NONE")
+    private String moveThreadCount = "NONE";
+
+    @CommandLine.Option(names = {"--warmup"}, description = "Warm up time in seconds. Default: 30")
+    private long warmUpSeconds = 30;
+
+    @CommandLine.Option(names = {"--instant-config"}, description = "Additional instant-sequential solver config to compare with the app's config")
+    private List<File> instantConfigs = new ArrayList<>();
+
+    @CommandLine.Option(names = {"--sameday-config"}, description = "Additional sameday-directpudo solver config to compare with the app's config")
+    private List<File> samedayConfigs = new ArrayList<>();
+
+    @CommandLine.Option(names = {"--sameday-nearby"}, description = "Also benchmark the sameday-directpudo config with nearby selection, as enabled by the app (app.solver.nearby-selection)")
+    private boolean samedayNearby;
+
+    @CommandLine.Option(names = {"--nearby-size"}, description = "Nearby distribution size maximum of --sameday-nearby. Default: 40")
+    private int nearbyDistributionSizeMaximum = NearbySelection.DEFAULT_DISTRIBUTION_SIZE_MAXIMUM;
+
+    @CommandLine.Option(names = {"--sameday-without-ride-moves"}, description = "Also benchmark the sameday-directpudo config without the ride moves (pickup and dropoff moved together)")
+    private boolean samedayWithoutRideMoves;
+
+    @CommandLine.Option(names = {"--sameday-partitioned"}, description = "Also benchmark the sameday-directpudo config with partitioned search, as enabled by the app (app.solver.partitioned-search)")
+    private boolean samedayPartitioned;
+
+    @CommandLine.Option(names = {"--part-count"}, description = "Part count of --sameday-partitioned. Default: number of part threads")
+    private Integer partCount;
+
+    @CommandLine.Option(names = {"-o", "--output"}, description = "Output directory. Default: target/solver-benchmarks")
+    private File outputDir = new File("target/solver-benchmarks");
+
+    public static void main(String[] args) {
+        int exitCode = new CommandLine(new App()).execute(args);
+        System.exit(exitCode);
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        Path datasetDir = outputDir.toPath().resolve("datasets");
+        Files.createDirectories(datasetDir);
+
+        for (DispatchApp app : apps) {
+            List<File> datasetFiles = new ArrayList<>();
+            for (int size : sizes) {
+                Dataset dataset = Dataset.of(app, size, seed);
+                logger.info("Dataset {} :: hubs = {} :: vehicles = {}", dataset.getName(), dataset.getHubCnt(), dataset.getVehicleCnt());
+                datasetFiles.add(dataset.write(datasetDir));
+            }
+
+            Map<String, SolverConfig> solverConfigs = new LinkedHashMap<>();
+            solverConfigs.put("default", app.defaultSolverConfig());
+            if (app == DispatchApp.SAMEDAY_DIRECTPUDO && samedayNearby) {
+                solverConfigs.put("default-nearby", NearbySelection.apply(app.defaultSolverConfig(), nearbyDistributionSizeMaximum));
+            }
+            if (app == DispatchApp.SAMEDAY_DIRECTPUDO && samedayWithoutRideMoves) {
+                solverConfigs.put("without-ride-moves", BenchmarkConfigs.withoutMoveIteratorFactories(app.defaultSolverConfig()));
+            }
+            if (app == DispatchApp.SAMEDAY_DIRECTPUDO && samedayPartitioned) {
+                solverConfigs.put("default-partitioned", PartitionedSearch.apply(app.defaultSolverConfig(), partCount,
+                        DispatchSolutionPartitioner.DEFAULT_H3_RESOLUTION, PartitionedSearch.DEFAULT_POLISHING_SECONDS_SPENT_LIMIT));
+            }
+            for (File configFile : app == DispatchApp.INSTANT_SEQUENTIAL ? instantConfigs : samedayConfigs) {
+                String name = configFile.getName().replaceFirst("\\.xml$", "");
+                if (solverConfigs.containsKey(name)) {
+                    throw new IllegalArgumentException("Duplicate solver config name " + name + " (" + configFile + ")");
+                }
+                solverConfigs.put(name, SolverConfig.createFromXmlFile(configFile));
+            }
+            solverConfigs.replaceAll((name, solverConfig) -> BenchmarkConfigs.reproducible(solverConfig, stepCountLimit, moveThreadCount, seed));
+
+            PlannerBenchmarkConfig benchmarkConfig = BenchmarkConfigs.plannerBenchmarkConfig(app, solverConfigs, datasetFiles,
+                    new File(outputDir, app.getAppName()), warmUpSeconds);
+            PlannerBenchmark benchmark = PlannerBenchmarkFactory.create(benchmarkConfig).buildPlannerBenchmark();
+
+            logger.info("Benchmarking {} :: solver configs = {} :: datasets = {}", app.getAppName(), solverConfigs.keySet(), datasetFiles.size());
+            File reportDir = benchmark.benchmark();
+
+            Path summaryFile = outputDir.toPath().resolve(app.getAppName() + "-summary.csv");
+            BenchmarkSummary.write(((DefaultPlannerBenchmark) benchmark).getPlannerBenchmarkResult(), summaryFile);
+            logger.info("Benchmark of {} done :: report = {} :: summary = {}", app.getAppName(), reportDir, summaryFile);
+        }
+
+        return 0;
+    }
+}
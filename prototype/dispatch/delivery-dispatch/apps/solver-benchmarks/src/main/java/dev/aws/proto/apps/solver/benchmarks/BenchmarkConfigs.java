@@ -0,0 +1,203 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.solver.benchmarks;
+
+import org.optaplanner.benchmark.config.PlannerBenchmarkConfig;
+import org.optaplanner.benchmark.config.ProblemBenchmarksConfig;
+import org.optaplanner.benchmark.config.SolverBenchmarkConfig;
+import org.optaplanner.benchmark.config.report.BenchmarkReportConfig;
+import org.optaplanner.benchmark.config.statistic.ProblemStatisticType;
+import org.optaplanner.benchmark.config.statistic.SingleStatisticType;
+import org.optaplanner.core.config.heuristic.selector.move.MoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.composite.UnionMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.factory.MoveIteratorFactoryConfig;
+import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.partitionedsearch.PartitionedSearchPhaseConfig;
+import org.optaplanner.core.config.phase.PhaseConfig;
+import org.optaplanner.core.config.solver.EnvironmentMode;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.config.solver.termination.TerminationConfig;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds the benchmark configuration of an app.
+ * <p>
+ * The solver configs of the apps terminate on time, so the results depend on the machine and its load. For the
+ * benchmarks the time limits are removed and the local search phases stop after a fixed number of steps, the solver
+ * runs in {@link EnvironmentMode#REPRODUCIBLE} mode with a fixed seed: with the same move thread count, the scores of
+ * two runs are the same, only the speed and memory numbers change.
+ */
+public final class BenchmarkConfigs {
+
+    private BenchmarkConfigs() {
+    }
+
+    /**
+     * Makes the solver config reproducible.
+     *
+     * @param solverConfig    The solver config, it's modified in place.
+     * @param stepCountLimit  The number of steps of every local search phase.
+     * @param moveThreadCount The move thread count (<code>NONE</code> to solve in the solver thread).
+     * @param seed            The random seed.
+     * @return The solver config.
+     */
+    public static SolverConfig reproducible(SolverConfig solverConfig, int stepCountLimit, String moveThreadCount, long seed) {
+        if (stepCountLimit <= 0) {
+            throw new IllegalArgumentException("Step count limit must be positive (" + stepCountLimit + ")");
+        }
+        if (solverConfig.getPhaseConfigList() == null || solverConfig.getPhaseConfigList().isEmpty()) {
+            throw new IllegalArgumentException("Solver config has no phases, the benchmark can't limit the local search steps");
+        }
+
+        solverConfig.setEnvironmentMode(EnvironmentMode.REPRODUCIBLE);
+        solverConfig.setRandomSeed(seed);
+        solverConfig.setMoveThreadCount(moveThreadCount);
+        solverConfig.setTerminationConfig(withoutTimeLimits(solverConfig.getTerminationConfig()));
+        withStepCountLimits(solverConfig.getPhaseConfigList(), stepCountLimit);
+
+        return solverConfig;
+    }
+
+    private static void withStepCountLimits(List<PhaseConfig> phaseConfigs, int stepCountLimit) {
+        for (PhaseConfig<?> phaseConfig : phaseConfigs) {
+            TerminationConfig terminationConfig = withoutTimeLimits(phaseConfig.getTerminationConfig());
+            if (phaseConfig instanceof LocalSearchPhaseConfig) {
+                terminationConfig = terminationConfig == null ? new TerminationConfig() : terminationConfig;
+                terminationConfig.setStepCountLimit(stepCountLimit);
+            }
+            // the phases of the parts
+            if (phaseConfig instanceof PartitionedSearchPhaseConfig && ((PartitionedSearchPhaseConfig) phaseConfig).getPhaseConfigList() != null) {
+                withStepCountLimits(((PartitionedSearchPhaseConfig) phaseConfig).getPhaseConfigList(), stepCountLimit);
+            }
+            phaseConfig.setTerminationConfig(terminationConfig);
+        }
+    }
+
+    private static TerminationConfig withoutTimeLimits(TerminationConfig terminationConfig) {
+        if (terminationConfig == null) {
+            return null;
+        }
+
+        terminationConfig.setSpentLimit(null);
+        terminationConfig.setMillisecondsSpentLimit(null);
+        terminationConfig.setSecondsSpentLimit(null);
+        terminationConfig.setMinutesSpentLimit(null);
+        terminationConfig.setHoursSpentLimit(null);
+        terminationConfig.setDaysSpentLimit(null);
+
+        terminationConfig.setUnimprovedSpentLimit(null);
+        terminationConfig.setUnimprovedMillisecondsSpentLimit(null);
+        terminationConfig.setUnimprovedSecondsSpentLimit(null);
+        terminationConfig.setUnimprovedMinutesSpentLimit(null);
+        terminationConfig.setUnimprovedHoursSpentLimit(null);
+        terminationConfig.setUnimprovedDaysSpentLimit(null);
+
+        if (terminationConfig.getTerminationConfigList() != null) {
+            terminationConfig.getTerminationConfigList().forEach(BenchmarkConfigs::withoutTimeLimits);
+        }
+        return terminationConfig;
+    }
+
+    /**
+     * Removes the custom moves ({@link MoveIteratorFactoryConfig}) from the local search phases, to compare them with
+     * the generic moves only.
+     *
+     * @param solverConfig The solver config, it's modified in place.
+     * @return The solver config.
+     */
+    public static SolverConfig withoutMoveIteratorFactories(SolverConfig solverConfig) {
+        if (solverConfig.getPhaseConfigList() == null) {
+            return solverConfig;
+        }
+
+        for (PhaseConfig<?> phaseConfig : solverConfig.getPhaseConfigList()) {
+            if (!(phaseConfig instanceof LocalSearchPhaseConfig)) {
+                continue;
+            }
+
+            MoveSelectorConfig<?> moveSelectorConfig = ((LocalSearchPhaseConfig) phaseConfig).getMoveSelectorConfig();
+            if (moveSelectorConfig instanceof UnionMoveSelectorConfig) {
+                ((UnionMoveSelectorConfig) moveSelectorConfig).getMoveSelectorConfigList()
+                        .removeIf(childConfig -> childConfig instanceof MoveIteratorFactoryConfig);
+            } else if (moveSelectorConfig instanceof MoveIteratorFactoryConfig) {
+                throw new IllegalArgumentException("The local search phase only has custom moves, they can't be removed");
+            }
+        }
+
+        return solverConfig;
+    }
+
+    /**
+     * Benchmark of every solver config on every dataset of the app.
+     *
+     * @param app                The app.
+     * @param solverConfigs      The solver configs by name, already made {@link #reproducible}.
+     * @param datasetFiles       The dataset files (see {@link Dataset#write}).
+     * @param benchmarkDirectory The directory of the report.
+     * @param warmUpSeconds      The warm up time before the benchmarks.
+     * @return The benchmark config.
+     */
+    public static PlannerBenchmarkConfig plannerBenchmarkConfig(DispatchApp app, Map<String, SolverConfig> solverConfigs,
+                                                                List<File> datasetFiles, File benchmarkDirectory, long warmUpSeconds) {
+        ProblemBenchmarksConfig problemBenchmarksConfig = new ProblemBenchmarksConfig();
+        problemBenchmarksConfig.setSolutionFileIOClass(app.getDatasetFileIOClass());
+        problemBenchmarksConfig.setInputSolutionFileList(datasetFiles);
+        problemBenchmarksConfig.setProblemStatisticTypeList(Arrays.asList(
+                ProblemStatisticType.BEST_SCORE,
+                ProblemStatisticType.STEP_SCORE,
+                ProblemStatisticType.SCORE_CALCULATION_SPEED,
+                ProblemStatisticType.MOVE_COUNT_PER_STEP,
+                ProblemStatisticType.MEMORY_USE
+        ));
+        problemBenchmarksConfig.setSingleStatisticTypeList(Arrays.asList(
+                SingleStatisticType.CONSTRAINT_MATCH_TOTAL_BEST_SCORE,
+                SingleStatisticType.PICKED_MOVE_TYPE_BEST_SCORE_DIFF
+        ));
+
+        SolverBenchmarkConfig inheritedSolverBenchmarkConfig = new SolverBenchmarkConfig();
+        inheritedSolverBenchmarkConfig.setProblemBenchmarksConfig(problemBenchmarksConfig);
+
+        List<SolverBenchmarkConfig> solverBenchmarkConfigs = new ArrayList<>();
+        solverConfigs.forEach((name, solverConfig) -> {
+            SolverBenchmarkConfig solverBenchmarkConfig = new SolverBenchmarkConfig();
+            solverBenchmarkConfig.setName(name);
+            solverBenchmarkConfig.setSolverConfig(solverConfig);
+            solverBenchmarkConfigs.add(solverBenchmarkConfig);
+        });
+
+        BenchmarkReportConfig reportConfig = new BenchmarkReportConfig();
+        reportConfig.setLocale(Locale.ROOT);
+
+        PlannerBenchmarkConfig plannerBenchmarkConfig = new PlannerBenchmarkConfig();
+        plannerBenchmarkConfig.setName(app.getAppName());
+        plannerBenchmarkConfig.setBenchmarkDirectory(benchmarkDirectory);
+        // one benchmark at a time, so they don't compete for the CPU
+        plannerBenchmarkConfig.setParallelBenchmarkCount("1");
+        plannerBenchmarkConfig.setWarmUpSecondsSpentLimit(warmUpSeconds);
+        plannerBenchmarkConfig.setBenchmarkReportConfig(reportConfig);
+        plannerBenchmarkConfig.setInheritedSolverBenchmarkConfig(inheritedSolverBenchmarkConfig);
+        plannerBenchmarkConfig.setSolverBenchmarkConfigList(solverBenchmarkConfigs);
+        return plannerBenchmarkConfig;
+    }
+}
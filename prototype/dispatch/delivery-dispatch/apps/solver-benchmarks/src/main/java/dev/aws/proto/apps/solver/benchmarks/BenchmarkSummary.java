@@ -0,0 +1,64 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.solver.benchmarks;
+
+import org.optaplanner.benchmark.impl.result.PlannerBenchmarkResult;
+import org.optaplanner.benchmark.impl.result.SingleBenchmarkResult;
+import org.optaplanner.benchmark.impl.result.SolverBenchmarkResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Summary of a benchmark run as a CSV file, one line per solver config and dataset.
+ * <p>
+ * The HTML report of the benchmarker is written to a timestamped directory and contains charts, it can't be diffed.
+ * The summary has a fixed path and order. The first columns (best score, score calculation count) only depend on the
+ * code, the configs and the datasets; the last ones (time, speed, memory) depend on the machine.
+ */
+public final class BenchmarkSummary {
+    private static final String HEADER = "solverConfig,dataset,bestScore,scoreCalculationCount,timeMillisSpent,scoreCalculationSpeed,usedMemoryAfterInputSolution";
+
+    private BenchmarkSummary() {
+    }
+
+    public static void write(PlannerBenchmarkResult result, Path summaryFile) {
+        try (Writer writer = Files.newBufferedWriter(summaryFile, StandardCharsets.UTF_8)) {
+            writer.write(HEADER + "\n");
+            for (SolverBenchmarkResult solverResult : result.getSolverBenchmarkResultList()) {
+                for (SingleBenchmarkResult singleResult : solverResult.getSingleBenchmarkResultList()) {
+                    writer.write(String.join(",",
+                            solverResult.getName(),
+                            singleResult.getProblemBenchmarkResult().getName(),
+                            singleResult.getAverageScore() == null ? "FAILED" : "\"" + singleResult.getAverageScore() + "\"",
+                            String.valueOf(singleResult.getScoreCalculationCount()),
+                            String.valueOf(singleResult.getTimeMillisSpent()),
+                            String.valueOf(singleResult.getScoreCalculationSpeed()),
+                            String.valueOf(singleResult.getUsedMemoryAfterInputSolution())
+                    ) + "\n");
+                }
+            }
+        } catch (IOException ioEx) {
+            throw new UncheckedIOException("Can't write benchmark summary " + summaryFile, ioEx);
+        }
+    }
+}
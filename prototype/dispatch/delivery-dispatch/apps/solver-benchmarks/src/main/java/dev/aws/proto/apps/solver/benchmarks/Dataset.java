@@ -0,0 +1,154 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.solver.benchmarks;
+
+import dev.aws.proto.core.routing.location.Coordinate;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Descriptor of a generated benchmark dataset.
+ * <p>
+ * The benchmarker reads its problems from files, so every dataset is written as a small properties file (app, size,
+ * seed) and the problem is re-generated from it by the app's {@link org.optaplanner.persistence.common.api.domain.solution.SolutionFileIO}.
+ * The same descriptor always generates the same problem.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Dataset {
+    public static final String FILE_EXTENSION = "dataset";
+
+    /**
+     * Center of the generated area (Singapore).
+     */
+    public static final Coordinate AREA_CENTER = new Coordinate(1.3521, 103.8198);
+    public static final double AREA_RADIUS_IN_METERS = 12000;
+
+    /**
+     * Created at timestamp of the generated problems, fixed so the problems don't depend on the clock.
+     */
+    public static final long CREATED_AT = 1650000000000L;
+
+    private static final double METERS_PER_DEGREE = 111320;
+
+    private DispatchApp app;
+    private int orderCnt;
+    private int hubCnt;
+    private int vehicleCnt;
+    private long seed;
+
+    /**
+     * Dataset of the given size, the number of hubs and vehicles (drivers) grows with the number of orders.
+     *
+     * @param app      The app.
+     * @param orderCnt The number of orders.
+     * @param seed     The random seed of the generator.
+     * @return The dataset.
+     */
+    public static Dataset of(DispatchApp app, int orderCnt, long seed) {
+        if (orderCnt <= 0) {
+            throw new IllegalArgumentException("Dataset size must be positive (orders = " + orderCnt + ")");
+        }
+
+        switch (app) {
+            case INSTANT_SEQUENTIAL:
+                // drivers pick up orders one after the other, so some of them get a chain of orders
+                return new Dataset(app, orderCnt, 0, Math.max(1, orderCnt / 2), seed);
+            case SAMEDAY_DIRECTPUDO:
+                // ~7 orders per vehicle keeps the routes under the visits limit of the constraint provider
+                int hubCnt = (int) Math.max(2, Math.round(Math.sqrt(orderCnt) / 5));
+                int vehicleCnt = Math.max(hubCnt, (orderCnt + 6) / 7);
+                return new Dataset(app, orderCnt, hubCnt, vehicleCnt, seed);
+            default:
+                throw new IllegalArgumentException("Unknown app " + app);
+        }
+    }
+
+    public String getName() {
+        return String.format("%s-%d-orders", app.getAppName(), orderCnt);
+    }
+
+    /**
+     * Writes the descriptor to <code>{directory}/{name}.dataset</code>. The content only depends on the descriptor.
+     *
+     * @param directory The directory.
+     * @return The dataset file.
+     */
+    public File write(Path directory) {
+        Path file = directory.resolve(getName() + "." + FILE_EXTENSION);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("app=" + app.name() + "\n");
+            writer.write("orders=" + orderCnt + "\n");
+            writer.write("hubs=" + hubCnt + "\n");
+            writer.write("vehicles=" + vehicleCnt + "\n");
+            writer.write("seed=" + seed + "\n");
+        } catch (IOException ioEx) {
+            throw new UncheckedIOException("Can't write dataset " + file, ioEx);
+        }
+        return file.toFile();
+    }
+
+    public static Dataset read(File file) {
+        Properties props = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            props.load(reader);
+        } catch (IOException ioEx) {
+            throw new UncheckedIOException("Can't read dataset " + file, ioEx);
+        }
+
+        try {
+            return new Dataset(
+                    DispatchApp.valueOf(props.getProperty("app")),
+                    Integer.parseInt(props.getProperty("orders")),
+                    Integer.parseInt(props.getProperty("hubs")),
+                    Integer.parseInt(props.getProperty("vehicles")),
+                    Long.parseLong(props.getProperty("seed"))
+            );
+        } catch (NullPointerException | IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid dataset file " + file, ex);
+        }
+    }
+
+    /**
+     * Uniformly distributed coordinate within {@link #AREA_RADIUS_IN_METERS} of the {@link #AREA_CENTER}.
+     *
+     * @param random The random generator of the dataset.
+     * @return The coordinate.
+     */
+    public static Coordinate randomCoordinate(Random random) {
+        double distance = AREA_RADIUS_IN_METERS * Math.sqrt(random.nextDouble());
+        double bearing = 2 * Math.PI * random.nextDouble();
+
+        double latOffset = distance * Math.cos(bearing) / METERS_PER_DEGREE;
+        double lonOffset = distance * Math.sin(bearing) / (METERS_PER_DEGREE * Math.cos(Math.toRadians(AREA_CENTER.getLatitude())));
+        return new Coordinate(AREA_CENTER.getLatitude() + latOffset, AREA_CENTER.getLongitude() + lonOffset);
+    }
+}
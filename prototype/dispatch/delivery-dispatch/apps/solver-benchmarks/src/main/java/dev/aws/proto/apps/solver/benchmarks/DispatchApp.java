@@ -0,0 +1,53 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.solver.benchmarks;
+
+import dev.aws.proto.apps.solver.benchmarks.instant.InstantDatasetFileIO;
+import dev.aws.proto.apps.solver.benchmarks.sameday.SamedayDatasetFileIO;
+import lombok.Getter;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.persistence.common.api.domain.solution.SolutionFileIO;
+
+/**
+ * The dispatcher apps that can be benchmarked.
+ */
+public enum DispatchApp {
+    INSTANT_SEQUENTIAL("instant-sequential", InstantDatasetFileIO.class),
+    SAMEDAY_DIRECTPUDO("sameday-directpudo", SamedayDatasetFileIO.class);
+
+    @Getter
+    private final String appName;
+
+    @Getter
+    private final Class<? extends SolutionFileIO<?>> datasetFileIOClass;
+
+    DispatchApp(String appName, Class<? extends SolutionFileIO<?>> datasetFileIOClass) {
+        this.appName = appName;
+        this.datasetFileIOClass = datasetFileIOClass;
+    }
+
+    /**
+     * The solver configuration shipped with the app. The build copies it from the app's resources to
+     * <code>solver-configs/{appName}/solver-config.xml</code>.
+     *
+     * @return A new instance of the app's solver config.
+     */
+    public SolverConfig defaultSolverConfig() {
+        return SolverConfig.createFromXmlResource("solver-configs/" + appName + "/solver-config.xml");
+    }
+}
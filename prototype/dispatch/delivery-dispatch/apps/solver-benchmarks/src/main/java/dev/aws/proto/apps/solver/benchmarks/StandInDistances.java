@@ -0,0 +1,110 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.solver.benchmarks;
+
+import dev.aws.proto.core.routing.cache.H3DistanceMatrix;
+import dev.aws.proto.core.routing.distance.DistanceMatrix;
+import dev.aws.proto.core.routing.distance.MatrixLocationIndex;
+import dev.aws.proto.core.routing.location.Coordinate;
+import dev.aws.proto.core.routing.location.ILocation;
+
+import java.util.List;
+
+/**
+ * Stand-in for the routed distance matrices of the apps, so the benchmarks need neither an OSM extract nor a
+ * distance cache.
+ * <p>
+ * Distances are the great-circle distance with a fixed detour factor, travel times assume a constant speed. The
+ * numbers don't match a road network, but they are deterministic and have the same triangle-ish structure, which is
+ * what the solver cares about.
+ */
+public final class StandInDistances {
+    public static final double DETOUR_FACTOR = 1.3;
+
+    /**
+     * ~25 km/h, average urban speed of a motorbike.
+     */
+    public static final double SPEED_IN_METERS_PER_SECOND = 7.0;
+
+    /**
+     * Approximate distance between the centers of two neighbouring H3 cells at resolution 9.
+     */
+    public static final double H3_CELL_DISTANCE_IN_METERS = 350;
+
+    private static final double EARTH_RADIUS_IN_METERS = 6371000;
+
+    private StandInDistances() {
+    }
+
+    /**
+     * Distance matrix for the instant-sequential app.
+     *
+     * @param locations The locations.
+     * @return The matrix.
+     */
+    public static DistanceMatrix distanceMatrix(List<? extends ILocation> locations) {
+        int dim = locations.size();
+        long[] meters = new long[dim * dim];
+        long[] seconds = new long[dim * dim];
+        fill(locations, meters, seconds, null);
+
+        return DistanceMatrix.fromArrays(locations.toArray(new ILocation[0]), meters, seconds);
+    }
+
+    /**
+     * H3 distance matrix for the sameday-directpudo app, without a distance cache behind it.
+     *
+     * @param locations   The locations.
+     * @param <TLocation> The location type.
+     * @return The matrix.
+     */
+    public static <TLocation extends ILocation> H3DistanceMatrix<TLocation> h3DistanceMatrix(List<TLocation> locations) {
+        int dim = locations.size();
+        long[] meters = new long[dim * dim];
+        long[] seconds = new long[dim * dim];
+        int[] h3Distances = new int[dim * dim];
+        fill(locations, meters, seconds, h3Distances);
+
+        return new H3DistanceMatrix<>(null, new MatrixLocationIndex(locations), meters, seconds, h3Distances);
+    }
+
+    private static void fill(List<? extends ILocation> locations, long[] meters, long[] seconds, int[] h3Distances) {
+        int dim = locations.size();
+        for (int i = 0; i < dim; i++) {
+            Coordinate origin = locations.get(i).coordinate();
+            for (int j = 0; j < dim; j++) {
+                int cell = i * dim + j;
+                double distance = i == j ? 0 : greatCircleDistance(origin, locations.get(j).coordinate()) * DETOUR_FACTOR;
+
+                meters[cell] = Math.round(distance);
+                seconds[cell] = Math.round(distance / SPEED_IN_METERS_PER_SECOND);
+                if (h3Distances != null) {
+                    h3Distances[cell] = (int) Math.round(distance / DETOUR_FACTOR / H3_CELL_DISTANCE_IN_METERS);
+                }
+            }
+        }
+    }
+
+    private static double greatCircleDistance(Coordinate from, Coordinate to) {
+        double dLat = Math.toRadians(to.getLatitude() - from.getLatitude());
+        double dLon = Math.toRadians(to.getLongitude() - from.getLongitude());
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(from.getLatitude())) * Math.cos(Math.toRadians(to.getLatitude())) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_IN_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.solver.benchmarks.instant;
+
+import dev.aws.proto.apps.instant.sequential.planner.solution.DispatchSolution;
+import dev.aws.proto.apps.solver.benchmarks.Dataset;
+import org.optaplanner.persistence.common.api.domain.solution.SolutionFileIO;
+
+import java.io.File;
+
+/**
+ * Reads an instant-sequential problem from a {@link Dataset} descriptor.
+ */
+public class InstantDatasetFileIO implements SolutionFileIO<DispatchSolution> {
+    @Override
+    public String getInputFileExtension() {
+        return Dataset.FILE_EXTENSION;
+    }
+
+    @Override
+    public DispatchSolution read(File inputSolutionFile) {
+        return InstantDatasetGenerator.generate(Dataset.read(inputSolutionFile));
+    }
+
+    @Override
+    public void write(DispatchSolution solution, File outputSolutionFile) {
+        throw new UnsupportedOperationException("Generated datasets are not written back");
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.solver.benchmarks.instant;
+
+import dev.aws.proto.apps.instant.sequential.Order;
+import dev.aws.proto.apps.instant.sequential.domain.planning.PlanningDelivery;
+import dev.aws.proto.apps.instant.sequential.domain.planning.PlanningDriver;
+import dev.aws.proto.apps.instant.sequential.location.DestinationLocation;
+import dev.aws.proto.apps.instant.sequential.location.DriverLocation;
+import dev.aws.proto.apps.instant.sequential.location.Location;
+import dev.aws.proto.apps.instant.sequential.location.OriginLocation;
+import dev.aws.proto.apps.instant.sequential.planner.solution.DispatchSolution;
+import dev.aws.proto.apps.solver.benchmarks.Dataset;
+import dev.aws.proto.apps.solver.benchmarks.StandInDistances;
+import dev.aws.proto.core.routing.distance.DistanceMatrix;
+import dev.aws.proto.core.routing.location.Coordinate;
+import dev.aws.proto.core.routing.location.CoordinateWithId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates instant-sequential problems the same way <code>DispatchService#solveDispatchProblem</code> builds them
+ * from a request, with random orders and drivers instead of the request and the driver query.
+ */
+public final class InstantDatasetGenerator {
+
+    /**
+     * Orders are picked up from a smaller set of merchants.
+     */
+    private static final int ORDERS_PER_MERCHANT = 5;
+
+    private InstantDatasetGenerator() {
+    }
+
+    public static DispatchSolution generate(Dataset dataset) {
+        Random random = new Random(dataset.getSeed());
+        List<Location> locations = new ArrayList<>();
+
+        int merchantCnt = Math.max(1, dataset.getOrderCnt() / ORDERS_PER_MERCHANT);
+        List<Coordinate> merchants = new ArrayList<>(merchantCnt);
+        for (int m = 0; m < merchantCnt; m++) {
+            merchants.add(Dataset.randomCoordinate(random));
+        }
+
+        List<PlanningDelivery> planningDeliveries = new ArrayList<>();
+        for (int o = 0; o < dataset.getOrderCnt(); o++) {
+            int merchantIdx = random.nextInt(merchantCnt);
+            Coordinate merchant = merchants.get(merchantIdx);
+
+            Order.Origin origin = new Order.Origin();
+            origin.setId("merchant-" + merchantIdx);
+            origin.setLatitude(merchant.getLatitude());
+            origin.setLongitude(merchant.getLongitude());
+            origin.setPreparationTimeInMins(5 + random.nextInt(16));
+
+            Coordinate customer = Dataset.randomCoordinate(random);
+            CoordinateWithId destination = new CoordinateWithId();
+            destination.setId("customer-" + o);
+            destination.setLatitude(customer.getLatitude());
+            destination.setLongitude(customer.getLongitude());
+
+            Order order = new Order();
+            order.setOrderId(String.format("order-%05d", o));
+            order.setCreatedAt(Dataset.CREATED_AT + o * 1000L);
+            order.setState("NEW");
+            order.setOrigin(origin);
+            order.setDestination(destination);
+
+            // explicit leave delays, the default ones are not seeded
+            OriginLocation originLocation = new OriginLocation(origin.getId(), merchant, 120000L + random.nextInt(300000));
+            DestinationLocation destinationLocation = new DestinationLocation(destination.getId(), customer, 60000L + random.nextInt(120000));
+
+            planningDeliveries.add(new PlanningDelivery(order, originLocation, destinationLocation));
+            locations.add(originLocation);
+            locations.add(destinationLocation);
+        }
+
+        List<PlanningDriver> planningDrivers = new ArrayList<>();
+        for (int d = 0; d < dataset.getVehicleCnt(); d++) {
+            String driverId = UUID.nameUUIDFromBytes(("driver-" + d).getBytes(StandardCharsets.UTF_8)).toString();
+            DriverLocation driverLocation = new DriverLocation(driverId, Dataset.randomCoordinate(random), Dataset.CREATED_AT);
+
+            planningDrivers.add(PlanningDriver.builder()
+                    .id(driverId)
+                    .driverIdentity("driver-" + d)
+                    .location(driverLocation)
+                    .status("IDLE")
+                    .build());
+            locations.add(driverLocation);
+        }
+
+        DistanceMatrix distanceMatrix = StandInDistances.distanceMatrix(locations);
+        for (Location loc : locations) {
+            loc.setDistanceMatrix(distanceMatrix);
+        }
+
+        return new DispatchSolution(
+                UUID.nameUUIDFromBytes(dataset.getName().getBytes(StandardCharsets.UTF_8)),
+                dataset.getName(),
+                Dataset.CREATED_AT,
+                dataset.getName(),
+                planningDrivers,
+                planningDeliveries
+        );
+    }
+}
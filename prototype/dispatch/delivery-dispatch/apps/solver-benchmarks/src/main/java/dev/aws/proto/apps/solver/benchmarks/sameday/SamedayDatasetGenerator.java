@@ -0,0 +1,175 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.apps.solver.benchmarks.sameday;
+
+import dev.aws.proto.apps.sameday.directpudo.data.Parcel;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.DeliveryRide;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningHub;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVehicle;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.PlanningVisit;
+import dev.aws.proto.apps.sameday.directpudo.domain.planning.capacity.MaxCapacity;
+import dev.aws.proto.apps.sameday.directpudo.location.DropoffLocation;
+import dev.aws.proto.apps.sameday.directpudo.location.HubLocation;
+import dev.aws.proto.apps.sameday.directpudo.location.Location;
+import dev.aws.proto.apps.sameday.directpudo.location.PickupLocation;
+import dev.aws.proto.apps.sameday.directpudo.planner.solution.DispatchSolution;
+import dev.aws.proto.apps.solver.benchmarks.Dataset;
+import dev.aws.proto.apps.solver.benchmarks.StandInDistances;
+import dev.aws.proto.core.routing.cache.H3DistanceMatrix;
+import org.optaplanner.core.api.score.buildin.hardmediumsoftlong.HardMediumSoftLongScore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Generates sameday-directpudo problems the same way <code>DispatchService#solveDispatchProblem</code> builds them from
+ * a request, with random orders and hubs instead of the request and the hubs table. The preparation times and
+ * timeframes are random too.
+ */
+public final class SamedayDatasetGenerator {
+
+    /**
+     * The default max capacity of the app (smallest motorbike).
+     */
+    private static final MaxCapacity MOTORBIKE_MAXCAPACITY = MaxCapacity.builder().length(50).height(60).width(50).weight(10).build();
+
+    /**
+     * Orders are picked up from a smaller set of merchants, so pickup locations are shared between orders.
+     */
+    private static final int ORDERS_PER_MERCHANT = 5;
+
+    private static final int MAX_PREPARATION_TIME_IN_MINS = 30;
+
+    /**
+     * Pickups are due in 1.5 - 3 hours, drop-offs an hour after the pickups.
+     */
+    private static final int MIN_PICKUP_DUE_TIME_IN_MINS = 90;
+    private static final int MAX_PICKUP_DUE_TIME_IN_MINS = 180;
+    private static final int DROPOFF_DUE_TIME_AFTER_PICKUP_IN_MINS = 60;
+
+    private SamedayDatasetGenerator() {
+    }
+
+    public static DispatchSolution generate(Dataset dataset) {
+        Random random = new Random(dataset.getSeed());
+        List<Location> locations = new ArrayList<>();
+
+        List<PlanningHub> hubs = new ArrayList<>();
+        List<HubLocation> hubLocations = new ArrayList<>();
+        for (int h = 0; h < dataset.getHubCnt(); h++) {
+            // spread the vehicles evenly, the first hubs get the remainder
+            int vehicleCnt = dataset.getVehicleCnt() / dataset.getHubCnt() + (h < dataset.getVehicleCnt() % dataset.getHubCnt() ? 1 : 0);
+            PlanningHub hub = new PlanningHub("hub-" + h, "Hub " + h, Dataset.randomCoordinate(random), vehicleCnt);
+            HubLocation hubLocation = new HubLocation(hub.getId(), hub.getCoordinate());
+
+            hubs.add(hub);
+            hubLocations.add(hubLocation);
+            locations.add(hubLocation);
+        }
+
+        int merchantCnt = Math.max(1, dataset.getOrderCnt() / ORDERS_PER_MERCHANT);
+        List<PickupLocation> merchants = new ArrayList<>(merchantCnt);
+        for (int m = 0; m < merchantCnt; m++) {
+            PickupLocation merchant = new PickupLocation("merchant-" + m, Dataset.randomCoordinate(random));
+            merchants.add(merchant);
+            locations.add(merchant);
+        }
+
+        List<PlanningVisit> planningVisits = new ArrayList<>();
+        List<DeliveryRide> rides = new ArrayList<>();
+        for (int o = 0; o < dataset.getOrderCnt(); o++) {
+            String orderId = String.format("order-%05d", o);
+            PickupLocation pickupLocation = merchants.get(random.nextInt(merchantCnt));
+            DropoffLocation dropoffLocation = new DropoffLocation("customer-" + o, Dataset.randomCoordinate(random));
+            locations.add(dropoffLocation);
+
+            PlanningVisit pickupVisit = new PlanningVisit();
+            pickupVisit.setId(orderId + "-" + pickupLocation.getId());
+            pickupVisit.setOrderId(orderId);
+            pickupVisit.setVisitType(PlanningVisit.VisitType.PICKUP);
+            pickupVisit.setLocation(pickupLocation);
+
+            PlanningVisit dropoffVisit = new PlanningVisit();
+            dropoffVisit.setId(orderId + "-" + dropoffLocation.getId());
+            dropoffVisit.setOrderId(orderId);
+            dropoffVisit.setVisitType(PlanningVisit.VisitType.DROPOFF);
+            dropoffVisit.setLocation(dropoffLocation);
+
+            DeliveryRide ride = new DeliveryRide();
+            ride.setId((long) o + 1);
+            ride.setOrderId(orderId);
+            ride.setPickupVisit(pickupVisit);
+            ride.setDropoffVisit(dropoffVisit);
+            ride.setParcel(randomParcel(random));
+
+            pickupVisit.setRide(ride);
+            dropoffVisit.setRide(ride);
+
+            long pickupDueTimeInMins = MIN_PICKUP_DUE_TIME_IN_MINS + random.nextInt(MAX_PICKUP_DUE_TIME_IN_MINS - MIN_PICKUP_DUE_TIME_IN_MINS + 1);
+            pickupVisit.setReadyTimeInSec(random.nextInt(MAX_PREPARATION_TIME_IN_MINS + 1) * 60L);
+            pickupVisit.setDueTimeInSec(pickupDueTimeInMins * 60);
+            dropoffVisit.setDueTimeInSec((pickupDueTimeInMins + DROPOFF_DUE_TIME_AFTER_PICKUP_IN_MINS) * 60);
+
+            planningVisits.add(pickupVisit);
+            planningVisits.add(dropoffVisit);
+            rides.add(ride);
+        }
+
+        List<PlanningVehicle> vehicles = new ArrayList<>();
+        for (int h = 0; h < hubs.size(); h++) {
+            for (int v = 0; v < hubs.get(h).getNumOfVehicles(); v++) {
+                PlanningVehicle vehicle = new PlanningVehicle();
+                vehicle.setMaxCapacity(MOTORBIKE_MAXCAPACITY);
+                vehicle.setLocation(hubLocations.get(h));
+                vehicle.setId("vehicle-" + h + "-" + v);
+                vehicles.add(vehicle);
+            }
+        }
+
+        H3DistanceMatrix<Location> distanceMatrix = StandInDistances.h3DistanceMatrix(locations);
+        for (Location loc : locations) {
+            loc.setDistanceMatrix(distanceMatrix);
+        }
+
+        return DispatchSolution.builder()
+                .id(UUID.nameUUIDFromBytes(dataset.getName().getBytes(StandardCharsets.UTF_8)))
+                .name(dataset.getName())
+                .createdAt(Dataset.CREATED_AT)
+                .executionId(dataset.getName())
+                .score(HardMediumSoftLongScore.ZERO)
+                .locations(locations)
+                .planningVisits(planningVisits)
+                .planningVehicles(vehicles)
+                .rides(rides)
+                .hubs(hubs)
+                .build();
+    }
+
+    private static Parcel randomParcel(Random random) {
+        return Parcel.builder()
+                .type("SMALL")
+                .length(10 + random.nextInt(21))
+                .height(10 + random.nextInt(21))
+                .width(10 + random.nextInt(21))
+                .weight(0.5f + random.nextInt(8) * 0.5f)
+                .build();
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.util.aws;
+
+import dev.aws.proto.core.exception.DispatcherException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * Chunked S3 file transfer.
+ * <p>
+ * Uploads store a CRC32 checksum manifest next to the object (<code>key + ".crc32"</code>: the chunk size, the ETag
+ * of the object it was calculated for, then one checksum per chunk). Downloads fetch the object with parallel ranged
+ * GETs and write every chunk straight to its position in the local file, verifying its checksum (and retrying it) if
+ * the manifest exists and belongs to the downloaded version of the object.
+ * <p>
+ * Every ranged GET is pinned to the ETag read together with the size, so an object that is re-uploaded while it is
+ * downloaded is never assembled from two versions: the download restarts with the new version instead.
+ */
+public class S3ChunkedTransfer {
+    private static final Logger logger = LoggerFactory.getLogger(S3ChunkedTransfer.class);
+
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_PARALLELISM = 8;
+    public static final String CHECKSUM_SUFFIX = ".crc32";
+
+    static final String ETAG_PREFIX = "etag ";
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int PRECONDITION_FAILED = 412;
+
+    private S3ChunkedTransfer() {
+        // don't allow to instantiate this class
+    }
+
+    /**
+     * Uploads the file, then its checksum manifest, which records the ETag of the uploaded object. A reader that
+     * pairs the object with a manifest of another upload skips the verification instead of failing.
+     *
+     * @param bucketName    The bucket name.
+     * @param keyPath       The key.
+     * @param localFilePath The file.
+     */
+    public static void upload(String bucketName, String keyPath, Path localFilePath) {
+        Optional<String> eTag = S3Utility.uploadFile(bucketName, keyPath, localFilePath);
+        if (eTag.isEmpty()) {
+            logger.error("Upload of {} to s3://{}/{} failed, the checksum manifest is not uploaded", localFilePath, bucketName, keyPath);
+            return;
+        }
+
+        try {
+            S3Utility.uploadString(bucketName, keyPath + CHECKSUM_SUFFIX, checksumManifest(localFilePath, DEFAULT_CHUNK_SIZE, eTag.get()));
+        } catch (IOException ioEx) {
+            throw new DispatcherException("Error calculating chunk checksums of " + localFilePath, ioEx);
+        }
+    }
+
+    /**
+     * Downloads the object with parallel ranged GETs. If the object changes during the download, the download is
+     * restarted (at most {@value MAX_ATTEMPTS} times).
+     *
+     * @param bucketName    The bucket name.
+     * @param keyPath       The key.
+     * @param localFilePath The target file (overwritten).
+     * @param parallelism   The number of concurrent ranged GETs.
+     */
+    public static void download(String bucketName, String keyPath, Path localFilePath, int parallelism) {
+        long start = System.currentTimeMillis();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                long size = downloadVersion(bucketName, keyPath, localFilePath, parallelism);
+
+                long duration = System.currentTimeMillis() - start;
+                logger.info("{} from {} was downloaded to {} ({} bytes in {}ms, {} MB/s)", keyPath, bucketName, localFilePath, size, duration,
+                        String.format("%.1f", duration == 0 ? 0.0 : (size / 1024.0 / 1024.0) / (duration / 1000.0)));
+                return;
+            } catch (ObjectChangedException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw new DispatcherException("s3://" + bucketName + "/" + keyPath + " changed during " + MAX_ATTEMPTS + " download attempts");
+                }
+                logger.warn("s3://{}/{} changed during the download, restarting (attempt {}/{})", bucketName, keyPath, attempt, MAX_ATTEMPTS);
+            }
+        }
+    }
+
+    /**
+     * Downloads the current version of the object.
+     *
+     * @return The size of the object.
+     * @throws ObjectChangedException if the object changes during the download.
+     */
+    private static long downloadVersion(String bucketName, String keyPath, Path localFilePath, int parallelism) {
+        // size and ETag come from the same response, so they describe the same version
+        HeadObjectResponse head = S3Utility.headObject(bucketName, keyPath);
+        long size = head.contentLength();
+        String eTag = head.eTag();
+
+        int chunkSize = DEFAULT_CHUNK_SIZE;
+        long[] checksums = null;
+        String manifestETag = null;
+        Optional<String> manifest = S3Utility.getObjectAsString(bucketName, keyPath + CHECKSUM_SUFFIX);
+        if (manifest.isPresent()) {
+            String[] lines = manifest.get().trim().split("\n");
+            chunkSize = Integer.parseInt(lines[0].trim());
+            int firstChecksumLine = 1;
+            if (lines.length > 1 && lines[1].startsWith(ETAG_PREFIX)) {
+                manifestETag = lines[1].substring(ETAG_PREFIX.length()).trim();
+                firstChecksumLine = 2;
+            }
+            checksums = new long[lines.length - firstChecksumLine];
+            for (int i = firstChecksumLine; i < lines.length; i++) {
+                checksums[i - firstChecksumLine] = Long.parseLong(lines[i].trim(), 16);
+            }
+        }
+
+        int chunkCnt = (int) ((size + chunkSize - 1) / chunkSize);
+        if (checksums == null) {
+            logger.warn("No checksum manifest for s3://{}/{}, chunks are not verified", bucketName, keyPath);
+        } else if (manifestETag != null && !manifestETag.equals(eTag)) {
+            logger.warn("Checksum manifest of s3://{}/{} belongs to another version of the object ({} vs {}), chunks are not verified", bucketName, keyPath, manifestETag, eTag);
+            checksums = null;
+            chunkSize = DEFAULT_CHUNK_SIZE;
+            chunkCnt = (int) ((size + chunkSize - 1) / chunkSize);
+        } else if (checksums.length != chunkCnt) {
+            logger.warn("Checksum manifest of s3://{}/{} doesn't match the object ({} vs {} chunks), chunks are not verified", bucketName, keyPath, checksums.length, chunkCnt);
+            checksums = null;
+        }
+
+        logger.debug("Downloading s3://{}/{} ({} bytes, ETag {}) in {} chunks, parallelism = {}", bucketName, keyPath, size, eTag, chunkCnt, parallelism);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try (FileChannel channel = FileChannel.open(localFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            List<Future<?>> futures = new ArrayList<>(chunkCnt);
+            for (int chunkIdx = 0; chunkIdx < chunkCnt; chunkIdx++) {
+                long chunkStart = (long) chunkIdx * chunkSize;
+                long chunkEnd = Math.min(size, chunkStart + chunkSize) - 1;
+                Long checksum = checksums == null ? null : checksums[chunkIdx];
+                int idx = chunkIdx;
+
+                futures.add(executor.submit(() -> {
+                    downloadChunk(bucketName, keyPath, eTag, channel, idx, chunkStart, chunkEnd, checksum);
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (IOException ioEx) {
+            throw new DispatcherException("Error writing s3://" + bucketName + "/" + keyPath + " to " + localFilePath, ioEx);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ObjectChangedException) {
+                throw (ObjectChangedException) e.getCause();
+            }
+            throw new DispatcherException("Error downloading s3://" + bucketName + "/" + keyPath, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DispatcherException("Interrupted while downloading s3://" + bucketName + "/" + keyPath, e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return size;
+    }
+
+    private static void downloadChunk(String bucketName, String keyPath, String eTag, FileChannel channel, int chunkIdx,
+                                      long chunkStart, long chunkEnd, Long checksum) throws IOException {
+        long expectedLength = chunkEnd - chunkStart + 1;
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            byte[] bytes;
+            try {
+                bytes = S3Utility.getObjectRange(bucketName, keyPath, chunkStart, chunkEnd, eTag);
+            } catch (SdkException e) {
+                if (e instanceof SdkServiceException && ((SdkServiceException) e).statusCode() == PRECONDITION_FAILED) {
+                    throw new ObjectChangedException();
+                }
+                logger.warn("Chunk {} of s3://{}/{} failed (attempt {}/{}): {}", chunkIdx, bucketName, keyPath, attempt, MAX_ATTEMPTS, e.getMessage());
+                continue;
+            }
+
+            if (bytes.length != expectedLength) {
+                logger.warn("Chunk {} of s3://{}/{} is {} bytes instead of {} (attempt {}/{})", chunkIdx, bucketName, keyPath, bytes.length, expectedLength, attempt, MAX_ATTEMPTS);
+                continue;
+            }
+
+            if (checksum != null) {
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                if (crc.getValue() != checksum) {
+                    logger.warn("Checksum mismatch of chunk {} of s3://{}/{} (attempt {}/{})", chunkIdx, bucketName, keyPath, attempt, MAX_ATTEMPTS);
+                    continue;
+                }
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long position = chunkStart;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            return;
+        }
+
+        throw new DispatcherException("Chunk " + chunkIdx + " of s3://" + bucketName + "/" + keyPath + " failed after " + MAX_ATTEMPTS + " attempts");
+    }
+
+    /**
+     * @return The checksum manifest of the file: the chunk size, the ETag of the object, then the hex CRC32 of every
+     * chunk, one per line.
+     */
+    static String checksumManifest(Path localFilePath, int chunkSize, String eTag) throws IOException {
+        StringBuilder manifest = new StringBuilder()
+                .append(chunkSize).append('\n')
+                .append(ETAG_PREFIX).append(eTag).append('\n');
+
+        try (FileChannel channel = FileChannel.open(localFilePath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+            boolean eof = false;
+            while (!eof) {
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        eof = true;
+                        break;
+                    }
+                }
+                if (buffer.position() == 0) {
+                    break;
+                }
+
+                buffer.flip();
+                CRC32 crc = new CRC32();
+                crc.update(buffer);
+                manifest.append(Long.toHexString(crc.getValue())).append('\n');
+            }
+        }
+
+        return manifest.toString();
+    }
+
+    /**
+     * The object was replaced during the download (a ranged GET failed its ETag precondition).
+     */
+    private static class ObjectChangedException extends RuntimeException {
+        ObjectChangedException() {
+            super(null, null, false, false);
+        }
+    }
+}
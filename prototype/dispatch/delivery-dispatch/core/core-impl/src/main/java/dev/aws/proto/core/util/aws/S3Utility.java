@@ -16,27 +16,61 @@
  */
 package dev.aws.proto.core.util.aws;
 
+import org.eclipse.microprofile.config.ConfigProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.model.*;
 
+import java.net.URI;
 import java.nio.file.Path;
+import java.util.Optional;
 
 public class S3Utility {
     private static final Logger logger = LoggerFactory.getLogger(S3Utility.class);
 
-    public static void downloadFile(String bucketName, String keyPath, Path localFilePath) {
-        AwsCredentialsProvider credentialsProvider = CredentialsHelper.getCredentialsProvider();
+    /**
+     * Config key of an optional endpoint override (e.g. a local S3-compatible stand-in).
+     */
+    public static final String ENDPOINT_OVERRIDE_CONFIG_KEY = "aws.s3.endpoint-override";
 
-        S3Client s3Client = S3Client.builder()
-                .credentialsProvider(credentialsProvider)
-                .region(CredentialsHelper.getRegion())
-                .build();
+    private static volatile S3Client s3Client;
+
+    /**
+     * The shared S3 client. S3 clients are thread-safe and hold a connection pool, so one is reused across calls.
+     * <p>
+     * If <code>aws.s3.endpoint-override</code> is set, the client connects to that endpoint with path-style access.
+     *
+     * @return The S3 client.
+     */
+    public static S3Client getS3Client() {
+        if (s3Client == null) {
+            synchronized (S3Utility.class) {
+                if (s3Client == null) {
+                    S3ClientBuilder builder = S3Client.builder()
+                            .credentialsProvider(CredentialsHelper.getCredentialsProvider())
+                            .region(CredentialsHelper.getRegion());
+
+                    Optional<String> endpointOverride = ConfigProvider.getConfig().getOptionalValue(ENDPOINT_OVERRIDE_CONFIG_KEY, String.class);
+                    if (endpointOverride.isPresent()) {
+                        logger.info("Using S3 endpoint override: {}", endpointOverride.get());
+                        builder.endpointOverride(URI.create(endpointOverride.get()))
+                                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build());
+                    }
+
+                    s3Client = builder.build();
+                }
+            }
+        }
+        return s3Client;
+    }
 
+    public static void downloadFile(String bucketName, String keyPath, Path localFilePath) {
         GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(bucketName)
                 .key(keyPath)
@@ -44,7 +78,7 @@ public class S3Utility {
 
         try {
             logger.debug("Downloading s3://{}/{} to {}", bucketName, keyPath, localFilePath);
-            GetObjectResponse getObjectResponse = s3Client.getObject(getObjectRequest, localFilePath);
+            GetObjectResponse getObjectResponse = getS3Client().getObject(getObjectRequest, localFilePath);
             logger.info("{} from {} was downloaded to {} ({} bytes)", keyPath, bucketName, localFilePath, getObjectResponse.contentLength());
         } catch (NoSuchKeyException e) {
             logger.error("Key ({}) doesn't exist in S3 Bucket: {}", getObjectRequest.key(), e.getMessage());
@@ -55,14 +89,10 @@ public class S3Utility {
         }
     }
 
-    public static void uploadFile(String bucketName, String keyPath, Path localFilePath) {
-        AwsCredentialsProvider credentialsProvider = CredentialsHelper.getCredentialsProvider();
-
-        S3Client s3Client = S3Client.builder()
-                .credentialsProvider(credentialsProvider)
-                .region(CredentialsHelper.getRegion())
-                .build();
-
+    /**
+     * @return The ETag of the uploaded object, or empty if the upload failed.
+     */
+    public static Optional<String> uploadFile(String bucketName, String keyPath, Path localFilePath) {
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                 .bucket(bucketName)
                 .key(keyPath)
@@ -70,10 +100,96 @@ public class S3Utility {
 
         try {
             logger.debug("Uploading {} to s3://{}/{}", localFilePath, putObjectRequest.bucket(), putObjectRequest.key());
-            PutObjectResponse putObjectResponse = s3Client.putObject(putObjectRequest, localFilePath);
+            PutObjectResponse putObjectResponse = getS3Client().putObject(putObjectRequest, localFilePath);
             logger.info("{} was uploaded to {}/{}", localFilePath.getFileName(), putObjectRequest.bucket(), putObjectRequest.key());
+            return Optional.ofNullable(putObjectResponse.eTag());
         } catch (AwsServiceException | SdkClientException e) {
             logger.error("Error while uploading file {} to S3 bucket '{}/{}': {}", localFilePath.getFileName(), bucketName, putObjectRequest.key(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public static void uploadString(String bucketName, String keyPath, String content) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(keyPath)
+                .build();
+
+        try {
+            getS3Client().putObject(putObjectRequest, RequestBody.fromString(content));
+            logger.debug("Content was uploaded to s3://{}/{}", bucketName, keyPath);
+        } catch (AwsServiceException | SdkClientException e) {
+            logger.error("Error while uploading content to S3 bucket '{}/{}': {}", bucketName, keyPath, e.getMessage());
+        }
+    }
+
+    /**
+     * @return The content of the object, or empty if the key doesn't exist.
+     */
+    public static Optional<String> getObjectAsString(String bucketName, String keyPath) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(keyPath)
+                .build();
+
+        try {
+            return Optional.of(getS3Client().getObjectAsBytes(getObjectRequest).asUtf8String());
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
         }
     }
+
+    /**
+     * @return The size of the object in bytes.
+     */
+    public static long getObjectSize(String bucketName, String keyPath) {
+        return headObject(bucketName, keyPath).contentLength();
+    }
+
+    /**
+     * @return The metadata of the object (size, ETag, ...), read in one request.
+     */
+    public static HeadObjectResponse headObject(String bucketName, String keyPath) {
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(keyPath)
+                .build();
+
+        return getS3Client().headObject(headObjectRequest);
+    }
+
+    /**
+     * Downloads a byte range of an object.
+     *
+     * @param bucketName The bucket name.
+     * @param keyPath    The key.
+     * @param start      First byte (inclusive).
+     * @param end        Last byte (inclusive).
+     * @return The bytes.
+     */
+    public static byte[] getObjectRange(String bucketName, String keyPath, long start, long end) {
+        return getObjectRange(bucketName, keyPath, start, end, null);
+    }
+
+    /**
+     * Downloads a byte range of a given version of an object.
+     *
+     * @param bucketName The bucket name.
+     * @param keyPath    The key.
+     * @param start      First byte (inclusive).
+     * @param end        Last byte (inclusive).
+     * @param eTag       The expected ETag of the object (no check if null). S3 fails the request with status 412
+     *                   (precondition failed) if the object has changed.
+     * @return The bytes.
+     */
+    public static byte[] getObjectRange(String bucketName, String keyPath, long start, long end, String eTag) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(keyPath)
+                .range("bytes=" + start + "-" + end)
+                .ifMatch(eTag)
+                .build();
+
+        return getS3Client().getObjectAsBytes(getObjectRequest).asByteArray();
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package dev.aws.proto.core.util.aws;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Minimal in-process S3 stand-in for the S3 client with path-style access: HEAD and (ranged) GET of objects kept in
+ * memory, with ETags (MD5 of the content) and <code>If-Match</code>. Ranges can be corrupted once, to simulate a bad
+ * transfer, and an object can be replaced right after a range is served, to simulate a concurrent upload.
+ */
+class InProcessS3 implements AutoCloseable {
+    private final HttpServer server;
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Set<String> rangesToCorrupt = ConcurrentHashMap.newKeySet();
+    private final Map<String, Queue<byte[]>> replacementsAfterRange = new ConcurrentHashMap<>();
+    private final List<String> rangeRequests = new CopyOnWriteArrayList<>();
+
+    InProcessS3() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    void putObject(String bucketName, String keyPath, byte[] content) {
+        objects.put(bucketName + "/" + keyPath, content);
+    }
+
+    /**
+     * The next GET of the range (e.g. <code>bytes=0-1023</code>) returns the content with its first byte flipped.
+     */
+    void corruptOnce(String range) {
+        rangesToCorrupt.add(range);
+    }
+
+    /**
+     * After the next GET of the range, the object is replaced with the content. Replacements of the same range are
+     * applied one per GET, in order.
+     */
+    void replaceAfter(String range, byte[] content) {
+        replacementsAfterRange.computeIfAbsent(range, r -> new ConcurrentLinkedQueue<>()).add(content);
+    }
+
+    /**
+     * @return The ETag of the object, as S3 returns it (quoted).
+     */
+    String eTagOf(String bucketName, String keyPath) {
+        return eTag(objects.get(bucketName + "/" + keyPath));
+    }
+
+    /**
+     * @return The Range headers of the ranged GETs served so far (including the ones that failed their precondition).
+     */
+    List<String> getRangeRequests() {
+        return rangeRequests;
+    }
+
+    void reset() {
+        objects.clear();
+        rangesToCorrupt.clear();
+        replacementsAfterRange.clear();
+        rangeRequests.clear();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            // path-style: /bucket/key
+            String objectPath = exchange.getRequestURI().getPath().substring(1);
+            byte[] content = objects.get(objectPath);
+            if (content == null) {
+                this.sendNoSuchKey(exchange);
+                return;
+            }
+
+            String eTag = eTag(content);
+            exchange.getResponseHeaders().set("ETag", eTag);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range != null) {
+                rangeRequests.add(range);
+            }
+
+            String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+            if (ifMatch != null && !ifMatch.equals(eTag)) {
+                this.sendError(exchange, 412, "PreconditionFailed", "At least one of the pre-conditions you specified did not hold");
+                return;
+            }
+
+            if (range == null) {
+                this.send(exchange, 200, content);
+                return;
+            }
+
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+            byte[] part = Arrays.copyOfRange(content, start, end + 1);
+            if (rangesToCorrupt.remove(range)) {
+                part[0] ^= 0xFF;
+            }
+
+            Queue<byte[]> replacements = replacementsAfterRange.get(range);
+            byte[] replacement = replacements == null ? null : replacements.poll();
+            if (replacement != null) {
+                objects.put(objectPath, replacement);
+            }
+
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            this.send(exchange, 206, part);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendNoSuchKey(HttpExchange exchange) throws IOException {
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+
+        this.sendError(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+    }
+
+    private void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        String error = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<Error><Code>" + code + "</Code><Message>" + message + "</Message></Error>";
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        this.send(exchange, status, error.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String eTag(byte[] content) {
+        try {
+            StringBuilder eTag = new StringBuilder("\"");
+            for (byte b : MessageDigest.getInstance("MD5").digest(content)) {
+                eTag.append(String.format("%02x", b));
+            }
+            return eTag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
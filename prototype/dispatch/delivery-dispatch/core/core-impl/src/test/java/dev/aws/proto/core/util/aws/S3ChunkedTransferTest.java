@@ -0,0 +1,184 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package dev.aws.proto.core.util.aws;
+
+import dev.aws.proto.core.exception.DispatcherException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class S3ChunkedTransferTest {
+    private static final String BUCKET = "test-bucket";
+    private static final String KEY = "caches/distance.cache";
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static InProcessS3 s3;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void startS3() throws IOException {
+        s3 = new InProcessS3();
+
+        // read by S3Utility / CredentialsHelper when the shared client is created
+        System.setProperty(S3Utility.ENDPOINT_OVERRIDE_CONFIG_KEY, s3.endpoint().toString());
+        System.setProperty("aws.region", "us-east-1");
+        System.setProperty("aws.accessKeyId", "test");
+        System.setProperty("aws.secretAccessKey", "test");
+    }
+
+    @AfterEach
+    void resetS3() {
+        s3.reset();
+    }
+
+    @AfterAll
+    static void stopS3() {
+        s3.close();
+    }
+
+    @Test
+    void reassemblesRangedGets() throws IOException {
+        byte[] content = randomBytes(5 * CHUNK_SIZE - 123);
+        this.putWithManifest(content, CHUNK_SIZE);
+
+        Path target = tempDir.resolve("downloaded.cache");
+        S3ChunkedTransfer.download(BUCKET, KEY, target, 4);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(Set.of(
+                range(0, CHUNK_SIZE - 1),
+                range(CHUNK_SIZE, 2 * CHUNK_SIZE - 1),
+                range(2 * CHUNK_SIZE, 3 * CHUNK_SIZE - 1),
+                range(3 * CHUNK_SIZE, 4 * CHUNK_SIZE - 1),
+                range(4 * CHUNK_SIZE, content.length - 1)
+        ), Set.copyOf(s3.getRangeRequests()));
+        assertEquals(5, s3.getRangeRequests().size());
+    }
+
+    @Test
+    void retriesChunkWithChecksumMismatch() throws IOException {
+        byte[] content = randomBytes(3 * CHUNK_SIZE);
+        this.putWithManifest(content, CHUNK_SIZE);
+        String corruptedRange = range(CHUNK_SIZE, 2 * CHUNK_SIZE - 1);
+        s3.corruptOnce(corruptedRange);
+
+        Path target = tempDir.resolve("downloaded.cache");
+        S3ChunkedTransfer.download(BUCKET, KEY, target, 2);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        List<String> requests = s3.getRangeRequests();
+        assertEquals(2, requests.stream().filter(corruptedRange::equals).count());
+        assertEquals(4, requests.size());
+    }
+
+    @Test
+    void downloadsWithoutManifest() throws IOException {
+        // without a manifest the chunks are DEFAULT_CHUNK_SIZE long
+        byte[] content = randomBytes(S3ChunkedTransfer.DEFAULT_CHUNK_SIZE + 1000);
+        s3.putObject(BUCKET, KEY, content);
+
+        Path target = tempDir.resolve("downloaded.cache");
+        S3ChunkedTransfer.download(BUCKET, KEY, target, 2);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(Set.of(
+                range(0, S3ChunkedTransfer.DEFAULT_CHUNK_SIZE - 1),
+                range(S3ChunkedTransfer.DEFAULT_CHUNK_SIZE, content.length - 1)
+        ), Set.copyOf(s3.getRangeRequests()));
+    }
+
+    @Test
+    void restartsWhenObjectChangesDuringDownload() throws IOException {
+        byte[] oldContent = randomBytes(3 * CHUNK_SIZE);
+        byte[] newContent = randomBytes(3 * CHUNK_SIZE + 1);
+        this.putWithManifest(oldContent, CHUNK_SIZE);
+        // re-uploaded after the first chunk is served, before its manifest
+        s3.replaceAfter(range(0, CHUNK_SIZE - 1), newContent);
+
+        Path target = tempDir.resolve("downloaded.cache");
+        S3ChunkedTransfer.download(BUCKET, KEY, target, 1);
+
+        // the old manifest isn't used for the new version, which is downloaded in one DEFAULT_CHUNK_SIZE chunk
+        assertArrayEquals(newContent, Files.readAllBytes(target));
+        List<String> requests = s3.getRangeRequests();
+        assertEquals(range(0, CHUNK_SIZE - 1), requests.get(0));
+        assertEquals(range(CHUNK_SIZE, 2 * CHUNK_SIZE - 1), requests.get(1));
+        assertEquals(1, requests.stream().filter(range(0, newContent.length - 1)::equals).count());
+    }
+
+    @Test
+    void skipsVerificationWithManifestOfAnotherVersion() throws IOException {
+        byte[] content = randomBytes(3 * CHUNK_SIZE);
+        this.putWithManifest(randomBytes(3 * CHUNK_SIZE + 7), CHUNK_SIZE);
+        s3.putObject(BUCKET, KEY, content);
+
+        Path target = tempDir.resolve("downloaded.cache");
+        S3ChunkedTransfer.download(BUCKET, KEY, target, 2);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(List.of(range(0, content.length - 1)), s3.getRangeRequests());
+    }
+
+    @Test
+    void failsWhenObjectKeepsChanging() throws IOException {
+        byte[] content = randomBytes(2 * CHUNK_SIZE);
+        this.putWithManifest(content, CHUNK_SIZE);
+        s3.replaceAfter(range(0, CHUNK_SIZE - 1), randomBytes(S3ChunkedTransfer.DEFAULT_CHUNK_SIZE + 1));
+        s3.replaceAfter(range(0, S3ChunkedTransfer.DEFAULT_CHUNK_SIZE - 1), randomBytes(S3ChunkedTransfer.DEFAULT_CHUNK_SIZE + 2));
+        s3.replaceAfter(range(0, S3ChunkedTransfer.DEFAULT_CHUNK_SIZE - 1), randomBytes(S3ChunkedTransfer.DEFAULT_CHUNK_SIZE + 3));
+
+        Path target = tempDir.resolve("downloaded.cache");
+        assertThrows(DispatcherException.class, () -> S3ChunkedTransfer.download(BUCKET, KEY, target, 1));
+    }
+
+    private void putWithManifest(byte[] content, int chunkSize) throws IOException {
+        Path source = tempDir.resolve("source.cache");
+        Files.write(source, content);
+
+        s3.putObject(BUCKET, KEY, content);
+        s3.putObject(BUCKET, KEY + S3ChunkedTransfer.CHECKSUM_SUFFIX,
+                S3ChunkedTransfer.checksumManifest(source, chunkSize, s3.eTagOf(BUCKET, KEY)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String range(long start, long end) {
+        return "bytes=" + start + "-" + end;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.benchmarks;
+
+import com.uber.h3core.H3Core;
+import com.uber.h3core.util.GeoCoord;
+import dev.aws.proto.core.routing.H3;
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.location.Coordinate;
+import dev.aws.proto.core.routing.location.ILocation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Deterministic inputs shared by the benchmarks, so the runs are comparable with each other.
+ */
+public final class BenchmarkData {
+    public static final long SEED = 42;
+
+    /**
+     * Center of the synthetic caches (Singapore).
+     */
+    public static final double CENTER_LAT = 1.3161;
+    public static final double CENTER_LNG = 103.8561;
+    public static final int H3_RESOLUTION = 7;
+
+    /**
+     * The bundled OSM extract: a synthetic 30x30 street grid with 200m blocks, every 5th street is a secondary road.
+     */
+    public static final String OSM_RESOURCE = "/osm/benchmark-grid.osm";
+    public static final String OSM_FILE = "benchmark-grid.osm";
+    public static final double OSM_MIN_LAT = 1.2900;
+    public static final double OSM_MIN_LNG = 103.8300;
+    public static final double OSM_MAX_LAT = 1.3422;
+    public static final double OSM_MAX_LNG = 103.8822;
+
+    private BenchmarkData() {
+    }
+
+    public static class Location implements ILocation {
+        private final Coordinate coordinate;
+
+        public Location(double lat, double lng) {
+            this.coordinate = new Coordinate(lat, lng);
+        }
+
+        @Override
+        public Coordinate coordinate() {
+            return this.coordinate;
+        }
+    }
+
+    /**
+     * Builds a cache of the hexagons within <code>ringRadius</code> of the center, without a router. The distances
+     * grow with the h3 distance of the hexagons, with some jitter so the values don't compress unrealistically well.
+     *
+     * @param ringRadius The k-ring radius (12 = 469 hexagons, 25 = 1951 hexagons).
+     * @return The cache.
+     */
+    public static H3DistanceCache syntheticCache(int ringRadius) {
+        H3Core h3 = H3.h3();
+        long center = h3.geoToH3(CENTER_LAT, CENTER_LNG, H3_RESOLUTION);
+        long[] hexagons = h3.kRing(center, ringRadius).stream().mapToLong(Long::longValue).sorted().toArray();
+
+        int dim = hexagons.length;
+        int[] meters = new int[dim * dim];
+        int[] seconds = new int[dim * dim];
+        short[] h3Distances = new short[dim * dim];
+        Random random = new Random(SEED);
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                int idx = i * dim + j;
+                int h3Distance = H3DistanceCache.h3DistanceOf(h3, hexagons[i], hexagons[j]);
+                meters[idx] = i == j ? 0 : h3Distance * 1200 + random.nextInt(600);
+                // ~30km/h
+                seconds[idx] = meters[idx] * 3 / 25;
+                h3Distances[idx] = (short) h3Distance;
+            }
+        }
+
+        return new H3DistanceCache(hexagons, IntBuffer.wrap(meters), IntBuffer.wrap(seconds), ShortBuffer.wrap(h3Distances), H3_RESOLUTION);
+    }
+
+    /**
+     * @param cache The cache.
+     * @param count The number of locations.
+     * @param seed  The random seed.
+     * @return Locations around the centers of random hexagons of the cache.
+     */
+    public static List<ILocation> locationsInCache(H3DistanceCache cache, int count, long seed) {
+        H3Core h3 = H3.h3();
+        long[] hexagons = cache.getH3Hexagons();
+        Random random = new Random(seed);
+        List<ILocation> locations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            GeoCoord center = h3.h3ToGeo(hexagons[random.nextInt(hexagons.length)]);
+            // stay well inside the hexagon (~1.2km edge length at resolution 7)
+            locations.add(new Location(center.lat + jitter(random, 0.002), center.lng + jitter(random, 0.002)));
+        }
+        return locations;
+    }
+
+    /**
+     * @param count The number of locations.
+     * @param seed  The random seed.
+     * @return Random locations within the bounds of the bundled OSM extract.
+     */
+    public static List<ILocation> locationsInOsmExtract(int count, long seed) {
+        Random random = new Random(seed);
+        List<ILocation> locations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            locations.add(new Location(
+                    OSM_MIN_LAT + random.nextDouble() * (OSM_MAX_LAT - OSM_MIN_LAT),
+                    OSM_MIN_LNG + random.nextDouble() * (OSM_MAX_LNG - OSM_MIN_LNG)));
+        }
+        return locations;
+    }
+
+    /**
+     * Copies the bundled OSM extract into the directory, so the Graphhopper loader can import it.
+     *
+     * @param dir The target directory.
+     * @return The path of the OSM file.
+     * @throws IOException If the file can't be written.
+     */
+    public static Path extractOsmFile(Path dir) throws IOException {
+        Path osmFile = dir.resolve(OSM_FILE);
+        try (InputStream in = BenchmarkData.class.getResourceAsStream(OSM_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("OSM extract not found on the classpath (" + OSM_RESOURCE + ")");
+            }
+            Files.copy(in, osmFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return osmFile;
+    }
+
+    /**
+     * Removes the directory and its content.
+     *
+     * @param dir The directory.
+     * @throws IOException If a file can't be deleted.
+     */
+    public static void deleteRecursively(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            paths = walk.collect(Collectors.toList());
+        }
+        // children first
+        for (int i = paths.size() - 1; i >= 0; i--) {
+            Files.delete(paths.get(i));
+        }
+    }
+
+    private static double jitter(Random random, double max) {
+        return (random.nextDouble() * 2 - 1) * max;
+    }
+}
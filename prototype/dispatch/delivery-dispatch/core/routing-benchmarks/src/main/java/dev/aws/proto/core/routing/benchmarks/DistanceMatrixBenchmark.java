@@ -0,0 +1,97 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.benchmarks;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.util.FlagEncoderFactory;
+import dev.aws.proto.core.routing.distance.DistanceMatrix;
+import dev.aws.proto.core.routing.location.ILocation;
+import dev.aws.proto.core.routing.route.GraphhopperLoader;
+import dev.aws.proto.core.routing.route.GraphhopperMatrixRouter;
+import dev.aws.proto.core.routing.route.GraphhopperRouter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matrix generation with Graphhopper on the bundled OSM extract, point-to-point and one-to-many.
+ * <p>
+ * The graph is imported into a temporary directory once per fork, the import is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DistanceMatrixBenchmark {
+    @Param({"25", "100"})
+    public int locationCnt;
+
+    private Path workDir;
+    private GraphHopper hopper;
+    private GraphhopperRouter router;
+    private GraphhopperMatrixRouter matrixRouter;
+    private List<ILocation> locations;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        workDir = Files.createTempDirectory("routing-benchmarks-");
+        BenchmarkData.extractOsmFile(workDir);
+
+        GraphhopperLoader loader = new GraphhopperLoader(workDir.toString(), workDir.resolve("graphhopper").toString(), BenchmarkData.OSM_FILE);
+        loader.initAndLoad();
+        hopper = loader.getHopper();
+
+        router = new GraphhopperRouter(hopper, FlagEncoderFactory.CAR);
+        matrixRouter = new GraphhopperMatrixRouter(hopper, FlagEncoderFactory.CAR);
+        locations = BenchmarkData.locationsInOsmExtract(locationCnt, BenchmarkData.SEED);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        hopper.close();
+        BenchmarkData.deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public DistanceMatrix pointToPoint() {
+        return DistanceMatrix.generate(locations, router);
+    }
+
+    @Benchmark
+    public DistanceMatrix oneToMany() {
+        return DistanceMatrix.generate(locations, matrixRouter);
+    }
+}
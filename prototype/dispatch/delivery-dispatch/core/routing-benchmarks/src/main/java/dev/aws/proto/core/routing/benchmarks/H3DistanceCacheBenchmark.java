@@ -0,0 +1,87 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.benchmarks;
+
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single pair lookups of {@link H3DistanceCache}, the path every uncached distance of the solver goes through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class H3DistanceCacheBenchmark {
+    private static final int PAIR_CNT = 1024;
+
+    @Param({"12", "25"})
+    public int ringRadius;
+
+    private H3DistanceCache cache;
+    private long[] fromHexagons;
+    private long[] toHexagons;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cache = BenchmarkData.syntheticCache(ringRadius);
+
+        long[] hexagons = cache.getH3Hexagons();
+        Random random = new Random(BenchmarkData.SEED);
+        fromHexagons = new long[PAIR_CNT];
+        toHexagons = new long[PAIR_CNT];
+        for (int i = 0; i < PAIR_CNT; i++) {
+            fromHexagons[i] = hexagons[random.nextInt(hexagons.length)];
+            toHexagons[i] = hexagons[random.nextInt(hexagons.length)];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_CNT)
+    public void getDistance(Blackhole bh) {
+        for (int i = 0; i < PAIR_CNT; i++) {
+            bh.consume(cache.getDistance(fromHexagons[i], toHexagons[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIR_CNT)
+    public void getDistanceTrusted(Blackhole bh) {
+        for (int i = 0; i < PAIR_CNT; i++) {
+            bh.consume(cache.getDistanceTrusted(fromHexagons[i], toHexagons[i]));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.benchmarks;
+
+import dev.aws.proto.core.routing.location.Coordinate;
+import dev.aws.proto.core.routing.route.PolylineHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polyline encoding of a driver's route, and concatenation of the per-segment polylines into the route polyline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PolylineHelperBenchmark {
+    private static final int SEGMENT_CNT = 20;
+
+    @Param({"50", "500"})
+    public int pointsPerSegment;
+
+    private List<Coordinate> points;
+    private List<String> encodedSegments;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(BenchmarkData.SEED);
+        points = new ArrayList<>(SEGMENT_CNT * pointsPerSegment);
+        encodedSegments = new ArrayList<>(SEGMENT_CNT);
+
+        // random walk with ~10m steps, like the points of a routed path
+        double lat = BenchmarkData.CENTER_LAT;
+        double lng = BenchmarkData.CENTER_LNG;
+        for (int s = 0; s < SEGMENT_CNT; s++) {
+            List<Coordinate> segment = new ArrayList<>(pointsPerSegment);
+            for (int p = 0; p < pointsPerSegment; p++) {
+                lat += (random.nextDouble() - 0.5) * 0.0002;
+                lng += (random.nextDouble() - 0.5) * 0.0002;
+                segment.add(new Coordinate(lat, lng));
+            }
+            points.addAll(segment);
+            encodedSegments.add(PolylineHelper.encodePointsToPolyline(segment));
+        }
+    }
+
+    @Benchmark
+    public String encode() {
+        return PolylineHelper.encodePointsToPolyline(points);
+    }
+
+    @Benchmark
+    public String concat() {
+        return PolylineHelper.concatEncodedPolylines(encodedSegments);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache;
+
+/**
+ * Storage layout of the distances in a {@link H3DistanceCache}.
+ */
+public enum H3CacheStorageMode {
+    /**
+     * The full dim x dim matrix, row-major.
+     */
+    FULL(0),
+
+    /**
+     * Upper triangle only (including the diagonal): the distance between two hexagons is assumed to be the same in
+     * both directions. Approximation, the asymmetry error is reported in {@link dev.aws.proto.core.routing.cache.inspection.AsymmetryStats}.
+     */
+    SYMMETRIC(1),
+
+    /**
+     * Upper triangle, plus the deviation from symmetry of the lower triangle as short deltas.
+     * Exact, unless a delta doesn't fit in a short (those are clamped and counted).
+     */
+    SYMMETRIC_DELTA(2);
+
+    private final int code;
+
+    H3CacheStorageMode(int code) {
+        this.code = code;
+    }
+
+    /**
+     * @return The code of the mode in the cache file header.
+     */
+    public int code() {
+        return code;
+    }
+
+    public static H3CacheStorageMode ofCode(int code) {
+        for (H3CacheStorageMode mode : values()) {
+            if (mode.code == code) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown H3DistanceCache storage mode: " + code);
+    }
+
+    public boolean isTriangular() {
+        return this != FULL;
+    }
+
+    /**
+     * @param dim The number of hexagons.
+     * @return The number of cells stored for the distance columns in this mode.
+     */
+    public long cellCount(int dim) {
+        return this == FULL ? (long) dim * dim : triangularCellCount(dim);
+    }
+
+    /**
+     * @param dim The number of hexagons.
+     * @return The number of cells in the upper triangle (including the diagonal).
+     */
+    public static long triangularCellCount(int dim) {
+        return (long) dim * (dim + 1) / 2;
+    }
+
+    /**
+     * Index of the (i, j) cell in the upper-triangular, row-major layout. Requires <code>i &lt;= j</code>.
+     *
+     * @param dim The number of hexagons.
+     * @param i   Row index.
+     * @param j   Column index.
+     * @return The cell index.
+     */
+    public static int triangularIndex(int dim, int i, int j) {
+        return (int) ((long) i * dim - (long) i * (i - 1) / 2 + (j - i));
+    }
+}
@@ -21,19 +21,27 @@ import com.uber.h3core.H3Core;
 import com.uber.h3core.exceptions.DistanceUndefinedException;
 import com.uber.h3core.util.GeoCoord;
 import dev.aws.proto.core.routing.H3;
+import dev.aws.proto.core.routing.cache.encoding.CellEncoding;
+import dev.aws.proto.core.routing.cache.encoding.DistanceColumn;
+import dev.aws.proto.core.routing.cache.encoding.Int32Column;
+import dev.aws.proto.core.routing.cache.inspection.AsymmetryStats;
 import dev.aws.proto.core.routing.cache.inspection.ResolutionChecker;
 import dev.aws.proto.core.routing.distance.Distance;
+import dev.aws.proto.core.routing.distance.MatrixTiles;
 import dev.aws.proto.core.routing.distance.TravelDistance;
+import dev.aws.proto.core.routing.route.GraphhopperMatrixRouter;
 import dev.aws.proto.core.routing.route.GraphhopperRouter;
+import dev.aws.proto.core.routing.route.RoutingExecutor;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.IntStream;
 
 /**
  * H3 hexagon distance cache.
@@ -44,36 +52,333 @@ import java.util.stream.IntStream;
  * <p>
  * Distances are calculated with Graphhopper, using offline OpenStreetMap files (osm.pbf).
  * <p>
- * It can perform a O(1) lookup between two hexagons.
+ * It can perform a O(1) lookup between two hexagons. The primitive lookups ({@link #metersBetween(long, long)},
+ * {@link #secondsBetween(long, long)}, {@link #metersAt(int, int)}, ...) don't allocate and return
+ * {@link #MISSING_DISTANCE} for hexagons outside of the cache. The <code>*Trusted</code> variants skip the resolution
+ * check, use them when the hexagons were computed at {@link #getH3Resolution()}.
+ * <p>
+ * The distances are stored column-packed, in row-major order: one column for meters, one column for seconds
+ * and one short buffer for the h3 distances. The meters/seconds columns are either plain ints or compact 3 byte
+ * values (see {@link CellEncoding}). The buffers are either heap buffers (generated or legacy-imported caches)
+ * or views over a memory-mapped cache file (see {@link dev.aws.proto.core.routing.cache.persistence.h3.MappedFilePersistence}),
+ * in which case lookups read straight from the page cache.
+ * <p>
+ * In the triangular storage modes (see {@link H3CacheStorageMode}) only the upper triangle of the matrix is stored,
+ * optionally with the deviation from symmetry of the lower triangle. The lookups hide the layout.
  */
 @Getter
-public class H3DistanceCache {
+public class H3DistanceCache implements IH3DistanceLookup {
     private static final Logger logger = LoggerFactory.getLogger(H3DistanceCache.class);
 
+    /**
+     * Sentinel returned by the primitive lookups if one of the hexagons is not in the cache.
+     */
+    public static final int MISSING_DISTANCE = Integer.MIN_VALUE;
+
     private final long[] h3Hexagons;
-    private final TravelDistance[][] distances;
+    private final DistanceColumn meters;
+    private final DistanceColumn seconds;
+    private final ShortBuffer h3Distances;
     private final int h3Resolution;
-    private final Map<Long, Integer> indexLookup;
+    private final H3HexagonIndex hexagonIndex;
+
+    private final H3CacheStorageMode storageMode;
+
+    /**
+     * Deviation from symmetry of the lower triangle (<code>value(j, i) - value(i, j)</code> for <code>i &lt; j</code>),
+     * stored at the index of the (i, j) upper cell. Only set in {@link H3CacheStorageMode#SYMMETRIC_DELTA} mode.
+     */
+    private final ShortBuffer metersDelta;
+    private final ShortBuffer secondsDelta;
+
+    /**
+     * The asymmetry error of the cache, <code>null</code> if it was not measured.
+     */
+    private final AsymmetryStats asymmetryStats;
 
     public H3DistanceCache(long[] h3Hexagons, TravelDistance[][] distances, int h3Resolution) {
+        this(h3Hexagons, packMeters(distances), packSeconds(distances), packH3Distances(distances), h3Resolution);
+    }
+
+    public H3DistanceCache(long[] h3Hexagons, IntBuffer meters, IntBuffer seconds, ShortBuffer h3Distances, int h3Resolution) {
+        this(h3Hexagons, H3CacheStorageMode.FULL, new Int32Column(meters), new Int32Column(seconds), h3Distances, null, null, h3Resolution, null);
+    }
+
+    public H3DistanceCache(long[] h3Hexagons, H3CacheStorageMode storageMode,
+                           DistanceColumn meters, DistanceColumn seconds, ShortBuffer h3Distances,
+                           ShortBuffer metersDelta, ShortBuffer secondsDelta,
+                           int h3Resolution, AsymmetryStats asymmetryStats) {
+        long cellCnt = storageMode.cellCount(h3Hexagons.length);
+        if (meters.size() != cellCnt || seconds.size() != cellCnt || h3Distances.limit() != cellCnt) {
+            throw new IllegalArgumentException("Distance buffers don't match the number of hexagons (dim = " + h3Hexagons.length + ", mode = " + storageMode + ")");
+        }
+        if (storageMode == H3CacheStorageMode.SYMMETRIC_DELTA
+                && (metersDelta == null || secondsDelta == null || metersDelta.limit() != cellCnt || secondsDelta.limit() != cellCnt)) {
+            throw new IllegalArgumentException("Delta buffers don't match the number of hexagons (dim = " + h3Hexagons.length + ")");
+        }
+
         this.h3Hexagons = h3Hexagons;
-        this.distances = distances;
+        this.storageMode = storageMode;
+        this.meters = meters;
+        this.seconds = seconds;
+        this.h3Distances = h3Distances;
+        this.metersDelta = storageMode == H3CacheStorageMode.SYMMETRIC_DELTA ? metersDelta : null;
+        this.secondsDelta = storageMode == H3CacheStorageMode.SYMMETRIC_DELTA ? secondsDelta : null;
         this.h3Resolution = h3Resolution;
+        this.asymmetryStats = asymmetryStats;
 
-        this.indexLookup = new HashMap<>();
-        for (int i = 0; i < h3Hexagons.length; i++) {
-            indexLookup.put(h3Hexagons[i], i);
-        }
+        this.hexagonIndex = new H3HexagonIndex(h3Hexagons);
     }
 
     public TravelDistance getDistance(long hexaFrom, long hexaTo) {
         this.validateResolution(hexaFrom, hexaTo);
+        return this.getDistanceTrusted(hexaFrom, hexaTo);
+    }
+
+    /**
+     * Same as {@link #getDistance(long, long)}, without validating the resolution of the hexagons.
+     *
+     * @param hexaFrom Origin hexagon, in the cache's resolution.
+     * @param hexaTo   Destination hexagon, in the cache's resolution.
+     * @return The travel distance, or <code>null</code> if any of the hexagons is not in the cache.
+     */
+    @Override
+    public TravelDistance getDistanceTrusted(long hexaFrom, long hexaTo) {
+        int fromIdx = hexagonIndex.indexOf(hexaFrom);
+        int toIdx = hexagonIndex.indexOf(hexaTo);
 
-        if (!indexLookup.containsKey(hexaFrom) || !indexLookup.containsKey(hexaTo)) {
+        if (fromIdx == H3HexagonIndex.NOT_FOUND || toIdx == H3HexagonIndex.NOT_FOUND) {
             return null;
         }
 
-        return distances[indexLookup.get(hexaFrom)][indexLookup.get(hexaTo)];
+        return this.getDistanceAt(fromIdx, toIdx);
+    }
+
+    /**
+     * @param hexa The hexagon.
+     * @return The index of the hexagon in {@link #getH3Hexagons()}, or {@link H3HexagonIndex#NOT_FOUND}.
+     */
+    public int indexOf(long hexa) {
+        return hexagonIndex.indexOf(hexa);
+    }
+
+    public int metersBetween(long hexaFrom, long hexaTo) {
+        this.validateResolution(hexaFrom, hexaTo);
+        return this.metersBetweenTrusted(hexaFrom, hexaTo);
+    }
+
+    @Override
+    public int metersBetweenTrusted(long hexaFrom, long hexaTo) {
+        int fromIdx = hexagonIndex.indexOf(hexaFrom);
+        int toIdx = hexagonIndex.indexOf(hexaTo);
+
+        if (fromIdx == H3HexagonIndex.NOT_FOUND || toIdx == H3HexagonIndex.NOT_FOUND) {
+            return MISSING_DISTANCE;
+        }
+        return this.metersAt(fromIdx, toIdx);
+    }
+
+    public int secondsBetween(long hexaFrom, long hexaTo) {
+        this.validateResolution(hexaFrom, hexaTo);
+        return this.secondsBetweenTrusted(hexaFrom, hexaTo);
+    }
+
+    public int secondsBetweenTrusted(long hexaFrom, long hexaTo) {
+        int fromIdx = hexagonIndex.indexOf(hexaFrom);
+        int toIdx = hexagonIndex.indexOf(hexaTo);
+
+        if (fromIdx == H3HexagonIndex.NOT_FOUND || toIdx == H3HexagonIndex.NOT_FOUND) {
+            return MISSING_DISTANCE;
+        }
+        return this.secondsAt(fromIdx, toIdx);
+    }
+
+    @Override
+    public void fill(long[] hexagons, long[] meters, long[] seconds, int[] h3Distances, RoutingExecutor executor) {
+        int dim = hexagons.length;
+        int[] cacheIdx = new int[dim];
+        for (int i = 0; i < dim; i++) {
+            cacheIdx[i] = hexagonIndex.indexOf(hexagons[i]);
+        }
+
+        MatrixTiles.forEachTile(executor, dim, dim, (rowFrom, rowTo, colFrom, colTo) -> {
+            for (int i = rowFrom; i < rowTo; i++) {
+                int fromIdx = cacheIdx[i];
+                for (int j = colFrom; j < colTo; j++) {
+                    int idx = i * dim + j;
+                    int toIdx = cacheIdx[j];
+
+                    if (fromIdx == H3HexagonIndex.NOT_FOUND || toIdx == H3HexagonIndex.NOT_FOUND) {
+                        meters[idx] = MISSING_DISTANCE;
+                        seconds[idx] = MISSING_DISTANCE;
+                        h3Distances[idx] = MISSING_DISTANCE;
+                        continue;
+                    }
+
+                    meters[idx] = this.metersAt(fromIdx, toIdx);
+                    seconds[idx] = this.secondsAt(fromIdx, toIdx);
+                    h3Distances[idx] = this.h3DistanceAt(fromIdx, toIdx);
+                }
+            }
+        });
+    }
+
+    public int metersAt(int fromIdx, int toIdx) {
+        return valueAt(meters, metersDelta, fromIdx, toIdx);
+    }
+
+    public int secondsAt(int fromIdx, int toIdx) {
+        return valueAt(seconds, secondsDelta, fromIdx, toIdx);
+    }
+
+    public short h3DistanceAt(int fromIdx, int toIdx) {
+        return h3Distances.get(this.storageIndexOf(fromIdx, toIdx));
+    }
+
+    private int valueAt(DistanceColumn values, ShortBuffer deltas, int fromIdx, int toIdx) {
+        int cellIdx = this.storageIndexOf(fromIdx, toIdx);
+        int value = values.get(cellIdx);
+        if (deltas != null && fromIdx > toIdx) {
+            value += deltas.get(cellIdx);
+        }
+        return value;
+    }
+
+    /**
+     * @return The index of the (fromIdx, toIdx) cell in the distance buffers (the mirrored upper cell in the triangular modes).
+     */
+    private int storageIndexOf(int fromIdx, int toIdx) {
+        int dim = h3Hexagons.length;
+        if (storageMode == H3CacheStorageMode.FULL) {
+            return fromIdx * dim + toIdx;
+        }
+        return fromIdx <= toIdx
+                ? H3CacheStorageMode.triangularIndex(dim, fromIdx, toIdx)
+                : H3CacheStorageMode.triangularIndex(dim, toIdx, fromIdx);
+    }
+
+    /**
+     * Looks up the distance between two hexagons by their index in {@link #getH3Hexagons()}.
+     *
+     * @param fromIdx Index of the origin hexagon.
+     * @param toIdx   Index of the destination hexagon.
+     * @return The travel distance.
+     */
+    public TravelDistance getDistanceAt(int fromIdx, int toIdx) {
+        return new TravelDistance(this.metersAt(fromIdx, toIdx), this.secondsAt(fromIdx, toIdx), this.h3DistanceAt(fromIdx, toIdx));
+    }
+
+    /**
+     * Converts the cache to another storage mode. Converting from {@link H3CacheStorageMode#FULL} or
+     * {@link H3CacheStorageMode#SYMMETRIC_DELTA} measures the asymmetry of every pair.
+     *
+     * @param mode The storage mode.
+     * @return The converted (heap-backed) cache, or this cache if it's already in the requested mode.
+     */
+    public H3DistanceCache withStorageMode(H3CacheStorageMode mode) {
+        if (mode == this.storageMode) {
+            return this;
+        }
+
+        int dim = h3Hexagons.length;
+        int cellCnt = (int) mode.cellCount(dim);
+        int[] packedMeters = new int[cellCnt];
+        int[] packedSeconds = new int[cellCnt];
+        short[] packedH3Distances = new short[cellCnt];
+        short[] packedMetersDelta = mode == H3CacheStorageMode.SYMMETRIC_DELTA ? new short[cellCnt] : null;
+        short[] packedSecondsDelta = mode == H3CacheStorageMode.SYMMETRIC_DELTA ? new short[cellCnt] : null;
+        AsymmetryStats.Accumulator asymmetry = new AsymmetryStats.Accumulator();
+
+        for (int i = 0; i < dim; i++) {
+            for (int j = mode.isTriangular() ? i : 0; j < dim; j++) {
+                int idx = mode.isTriangular() ? H3CacheStorageMode.triangularIndex(dim, i, j) : i * dim + j;
+                packedMeters[idx] = this.metersAt(i, j);
+                packedSeconds[idx] = this.secondsAt(i, j);
+                packedH3Distances[idx] = this.h3DistanceAt(i, j);
+
+                if (mode.isTriangular() && i < j) {
+                    int metersBackward = this.metersAt(j, i);
+                    int secondsBackward = this.secondsAt(j, i);
+                    asymmetry.add(packedMeters[idx], metersBackward, packedSeconds[idx], secondsBackward);
+
+                    if (packedMetersDelta != null) {
+                        packedMetersDelta[idx] = toDelta((long) metersBackward - packedMeters[idx], asymmetry);
+                        packedSecondsDelta[idx] = toDelta((long) secondsBackward - packedSeconds[idx], asymmetry);
+                    }
+                }
+            }
+        }
+
+        // a symmetric cache doesn't know its asymmetry anymore, keep the stats measured when it was built
+        AsymmetryStats stats = (this.storageMode == H3CacheStorageMode.SYMMETRIC || !mode.isTriangular())
+                ? this.asymmetryStats
+                : asymmetry.build();
+
+        return new H3DistanceCache(h3Hexagons, mode,
+                this.getCellEncoding().encode(new Int32Column(IntBuffer.wrap(packedMeters))),
+                this.getCellEncoding().encode(new Int32Column(IntBuffer.wrap(packedSeconds))),
+                ShortBuffer.wrap(packedH3Distances),
+                packedMetersDelta == null ? null : ShortBuffer.wrap(packedMetersDelta),
+                packedSecondsDelta == null ? null : ShortBuffer.wrap(packedSecondsDelta),
+                h3Resolution, stats);
+    }
+
+    /**
+     * @return The size of the distance buffers (meters, seconds, h3 distances and deltas) in bytes, whether they are
+     * on the heap or mapped from the cache file.
+     */
+    public long getDistanceBytes() {
+        long cellCnt = h3Distances.limit();
+        long bytes = cellCnt * (2L * this.getCellEncoding().bytes() + Short.BYTES);
+        if (metersDelta != null) {
+            bytes += cellCnt * 2L * Short.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The encoding of the meters/seconds columns.
+     */
+    public CellEncoding getCellEncoding() {
+        return meters.encoding();
+    }
+
+    /**
+     * Re-encodes the meters/seconds columns.
+     *
+     * @param encoding The cell encoding.
+     * @return The re-encoded (heap-backed) cache, or this cache if it's already in the requested encoding.
+     */
+    public H3DistanceCache withCellEncoding(CellEncoding encoding) {
+        if (encoding == this.getCellEncoding()) {
+            return this;
+        }
+
+        return new H3DistanceCache(h3Hexagons, storageMode, encoding.encode(meters), encoding.encode(seconds),
+                h3Distances, metersDelta, secondsDelta, h3Resolution, asymmetryStats);
+    }
+
+    /**
+     * Narrows an asymmetry delta to a short. Deltas that don't fit are clamped and counted.
+     */
+    private static short toDelta(long delta, AsymmetryStats.Accumulator asymmetry) {
+        if (delta > Short.MAX_VALUE || delta < Short.MIN_VALUE) {
+            asymmetry.addClamped();
+            return delta > 0 ? Short.MAX_VALUE : Short.MIN_VALUE;
+        }
+        return (short) delta;
+    }
+
+    /**
+     * @return <code>true</code> if the hexagons are in ascending order.
+     */
+    public boolean isSorted() {
+        for (int i = 1; i < h3Hexagons.length; i++) {
+            if (h3Hexagons[i - 1] > h3Hexagons[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -87,77 +392,252 @@ public class H3DistanceCache {
         ResolutionChecker.validate(hexa2, this.h3Resolution);
     }
 
+    /**
+     * Narrows a long distance value to an int column value. Negative values (router errors) are kept as-is.
+     *
+     * @param value The value.
+     * @return The clamped value.
+     */
+    public static int clampToInt(long value) {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Narrows an h3 distance to a short column value. Negative values (undefined distance) are kept as-is.
+     *
+     * @param value The value.
+     * @return The clamped value.
+     */
+    public static short clampToShort(int value) {
+        return (short) Math.min(value, Short.MAX_VALUE);
+    }
+
+    private static IntBuffer packMeters(TravelDistance[][] distances) {
+        int dim = distances.length;
+        int[] packed = new int[dim * dim];
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                packed[i * dim + j] = clampToInt(distances[i][j].getDistanceInMeters());
+            }
+        }
+        return IntBuffer.wrap(packed);
+    }
+
+    private static IntBuffer packSeconds(TravelDistance[][] distances) {
+        int dim = distances.length;
+        int[] packed = new int[dim * dim];
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                packed[i * dim + j] = clampToInt(distances[i][j].getDistanceInSeconds());
+            }
+        }
+        return IntBuffer.wrap(packed);
+    }
+
+    private static ShortBuffer packH3Distances(TravelDistance[][] distances) {
+        int dim = distances.length;
+        short[] packed = new short[dim * dim];
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                packed[i * dim + j] = clampToShort(distances[i][j].getH3Distance());
+            }
+        }
+        return ShortBuffer.wrap(packed);
+    }
+
     /**
      * The cache builder.
      */
     public static class Builder {
+        /**
+         * Number of lower-triangle pairs routed to estimate the asymmetry of an upper-triangle-only build.
+         */
+        static final int ASYMMETRY_SAMPLE_SIZE = 10_000;
+
         final GraphhopperRouter router;
         final long[] hexagons;
         final int h3Resolution;
+        final boolean upperOnly;
+
+        /**
+         * Distances in the layout of the storage mode (row-major, or upper-triangular row-major), -1 for the pairs
+         * that can't be routed.
+         */
+        @Getter
+        final int[] meters;
+        @Getter
+        final int[] seconds;
+        @Getter
+        final short[] h3Distances;
         @Getter
-        final TravelDistance[][] distances;
+        AsymmetryStats sampledAsymmetry;
 
         Builder(GraphhopperRouter router, long[] hexagons, int h3Resolution) {
+            this(router, hexagons, h3Resolution, H3CacheStorageMode.FULL);
+        }
+
+        /**
+         * @param storageMode {@link H3CacheStorageMode#FULL} or {@link H3CacheStorageMode#SYMMETRIC}. In symmetric mode
+         *                    only the upper triangle is routed and stored.
+         */
+        Builder(GraphhopperRouter router, long[] hexagons, int h3Resolution, H3CacheStorageMode storageMode) {
+            if (storageMode == H3CacheStorageMode.SYMMETRIC_DELTA) {
+                throw new IllegalArgumentException("The builder routes the FULL or the SYMMETRIC layout, convert the cache for " + storageMode);
+            }
+
             this.router = router;
             this.hexagons = hexagons;
             this.h3Resolution = h3Resolution;
+            this.upperOnly = storageMode.isTriangular();
+
+            int cellCnt = (int) storageMode.cellCount(hexagons.length);
+            this.meters = new int[cellCnt];
+            this.seconds = new int[cellCnt];
+            this.h3Distances = new short[cellCnt];
+        }
 
-            int dim = hexagons.length;
-            distances = new TravelDistance[dim][dim];
+        /**
+         * @return The index of the (i, j) cell in the arrays, requires <code>i &lt;= j</code> in the triangular layout.
+         */
+        private int cellIndexOf(int i, int j) {
+            return upperOnly ? H3CacheStorageMode.triangularIndex(hexagons.length, i, j) : i * hexagons.length + j;
         }
 
         void build() {
             int dim = this.hexagons.length;
-            int cellCnt = dim * dim;
+            int cellCnt = meters.length;
+
+            // resolve every hexagon center once, cells of centers that can't be snapped are not routed
+            H3Core h3 = H3.h3();
+            GeoCoord[] centers = new GeoCoord[dim];
+            boolean[] snappable = new boolean[dim];
+            router.getExecutor().forEach(dim, i -> {
+                centers[i] = h3.h3ToGeo(hexagons[i]);
+                snappable[i] = router.isSnappable(centers[i]);
+            });
 
             AtomicInteger ctr = new AtomicInteger(0);
             int onePercentOr1000 = Math.max((cellCnt / 100), 1000);
 
-            IntStream.range(0, cellCnt)
-                    .parallel()
-                    .forEach(idx -> {
-                        int i = idx / dim;
-                        int j = idx % dim;
+            MatrixTiles.forEachTile(router.getExecutor(), dim, dim, MatrixTiles.ROUTED_TILE_ROWS, MatrixTiles.ROUTED_TILE_COLS, (rowFrom, rowTo, colFrom, colTo) -> {
+                int routedCnt = 0;
+                for (int i = rowFrom; i < rowTo; i++) {
+                    // the upper triangle starts at the diagonal
+                    for (int j = upperOnly ? Math.max(colFrom, i) : colFrom; j < colTo; j++) {
+                        int idx = this.cellIndexOf(i, j);
+                        h3Distances[idx] = clampToShort(h3DistanceOf(h3, hexagons[i], hexagons[j]));
+                        if (snappable[i] && snappable[j]) {
+                            Distance distance = router.travelDistance(centers[i], centers[j]);
+                            meters[idx] = clampToInt(distance.getDistanceInMeters());
+                            seconds[idx] = clampToInt(distance.getDistanceInSeconds());
+                        } else {
+                            meters[idx] = -1;
+                            seconds[idx] = -1;
+                        }
+                        routedCnt++;
+                    }
+                }
 
-                        distances[i][j] = calculateTravelDistance(hexagons[i], hexagons[j]);
+                int before = ctr.getAndAdd(routedCnt);
+                if (before / onePercentOr1000 != (before + routedCnt) / onePercentOr1000) {
+                    logger.debug("Processing {}/{} ({}%)", before + routedCnt, cellCnt, ((double) (before + routedCnt) / cellCnt) * 100);
+                }
+            });
 
-                        int localCtr = ctr.incrementAndGet();
-                        if (localCtr % onePercentOr1000 == 0) {
-                            logger.debug("Processing {}/{} ({}%)", localCtr, cellCnt, ((double) localCtr / cellCnt) * 100);
-                        }
-                    });
+            if (upperOnly) {
+                this.sampledAsymmetry = this.sampleAsymmetry(centers, snappable);
+            }
         }
 
-        private TravelDistance calculateTravelDistance(long hexa1, long hexa2) {
-            H3Core h3 = H3.h3();
-            GeoCoord hexa1Geo = h3.h3ToGeo(hexa1);
-            GeoCoord hexa2Geo = h3.h3ToGeo(hexa2);
-
-            int h3Distance;
-            try {
-                h3Distance = h3.h3Distance(hexa1, hexa2);
-            } catch (DistanceUndefinedException e) {
-                h3Distance = -1;
+        /**
+         * Routes a random sample of lower-triangle pairs and compares them with the upper triangle.
+         */
+        private AsymmetryStats sampleAsymmetry(GeoCoord[] centers, boolean[] snappable) {
+            int dim = this.hexagons.length;
+            AsymmetryStats.Accumulator asymmetry = new AsymmetryStats.Accumulator();
+            if (dim < 2) {
+                return asymmetry.build();
+            }
+
+            Random random = new Random(dim);
+            for (int k = 0; k < ASYMMETRY_SAMPLE_SIZE; k++) {
+                int i = random.nextInt(dim);
+                int j = random.nextInt(dim);
+                if (i == j || !snappable[i] || !snappable[j]) {
+                    continue;
+                }
+
+                int upperIdx = this.cellIndexOf(Math.min(i, j), Math.max(i, j));
+                Distance backward = router.travelDistance(centers[Math.max(i, j)], centers[Math.min(i, j)]);
+                asymmetry.add(meters[upperIdx], clampToInt(backward.getDistanceInMeters()),
+                        seconds[upperIdx], clampToInt(backward.getDistanceInSeconds()));
             }
 
-            Distance dist = router.travelDistance(hexa1Geo, hexa2Geo);
-            return new TravelDistance(dist.getDistanceInMeters(), dist.getDistanceInSeconds(), h3Distance);
+            AsymmetryStats stats = asymmetry.build();
+            logger.info(":: H3DistanceCache :: sampled asymmetry :: {}", stats);
+            return stats;
+        }
+    }
+
+    /**
+     * Calculates the travel distance between the centers of two hexagons with Graphhopper.
+     *
+     * @param router The router.
+     * @param hexa1  Origin hexagon.
+     * @param hexa2  Destination hexagon.
+     * @return The travel distance, with -1 h3Distance if it's undefined between the hexagons.
+     */
+    public static TravelDistance calculateTravelDistance(GraphhopperRouter router, long hexa1, long hexa2) {
+        H3Core h3 = H3.h3();
+        GeoCoord hexa1Geo = h3.h3ToGeo(hexa1);
+        GeoCoord hexa2Geo = h3.h3ToGeo(hexa2);
+
+        int h3Distance = h3DistanceOf(h3, hexa1, hexa2);
+
+        Distance dist = router.travelDistance(hexa1Geo, hexa2Geo);
+        return new TravelDistance(dist.getDistanceInMeters(), dist.getDistanceInSeconds(), h3Distance);
+    }
+
+    /**
+     * @return The h3 distance between the hexagons, or -1 if it's undefined.
+     */
+    public static int h3DistanceOf(H3Core h3, long hexa1, long hexa2) {
+        try {
+            return h3.h3Distance(hexa1, hexa2);
+        } catch (DistanceUndefinedException e) {
+            return -1;
         }
     }
 
     public static H3DistanceCache generate(List<Long> hexagonList, int h3Resolution, GraphhopperRouter router) {
+        return generate(hexagonList, h3Resolution, router, H3CacheStorageMode.FULL);
+    }
+
+    /**
+     * Generates the cache with point-to-point routing. In {@link H3CacheStorageMode#SYMMETRIC} mode only the upper
+     * triangle is routed, and the asymmetry error is estimated from a sample of the lower triangle.
+     *
+     * @param hexagonList  The hexagons.
+     * @param h3Resolution The resolution of the hexagons.
+     * @param router       The router.
+     * @param storageMode  The storage mode of the generated cache.
+     * @return The distance cache.
+     */
+    public static H3DistanceCache generate(List<Long> hexagonList, int h3Resolution, GraphhopperRouter router, H3CacheStorageMode storageMode) {
         long start = System.currentTimeMillis();
         int dim = hexagonList.size();
         long[] hexagons = new long[dim];
         for (int i = 0; i < dim; i++) {
             hexagons[i] = hexagonList.get(i);
         }
+        // keep the hexagon index sorted, so persisted caches can be searched without rebuilding a lookup
+        Arrays.sort(hexagons);
 
-        Builder builder = new Builder(router, hexagons, h3Resolution);
+        // the delta mode needs the lower triangle, it's routed in full and converted
+        H3CacheStorageMode builderMode = storageMode == H3CacheStorageMode.SYMMETRIC ? storageMode : H3CacheStorageMode.FULL;
+        Builder builder = new Builder(router, hexagons, h3Resolution, builderMode);
         builder.build();
 
-        TravelDistance[][] distances = builder.getDistances();
-
         long generatedTime = System.currentTimeMillis() - start;
         long sec = generatedTime / 1000;
         long min = sec / 60;
@@ -168,7 +648,79 @@ public class H3DistanceCache {
         logger.debug(":: H3DistanceCache :: router errors: {}", router.getErrorCnt().get());
         router.getErrorCnt().set(0);
 
-        return new H3DistanceCache(hexagons, distances, h3Resolution);
+        // the lower triangle of a symmetric build is not routed, its asymmetry is the sampled one
+        return new H3DistanceCache(hexagons, builderMode,
+                new Int32Column(IntBuffer.wrap(builder.getMeters())), new Int32Column(IntBuffer.wrap(builder.getSeconds())),
+                ShortBuffer.wrap(builder.getH3Distances()), null, null, h3Resolution, builder.getSampledAsymmetry())
+                .withStorageMode(storageMode);
     }
 
+    /**
+     * Generates the cache with one-to-many routing: one shortest-path-tree search per hexagon center fills a whole row.
+     *
+     * @param hexagonList  The hexagons.
+     * @param h3Resolution The resolution of the hexagons.
+     * @param matrixRouter The matrix router.
+     * @return The distance cache.
+     */
+    public static H3DistanceCache generate(List<Long> hexagonList, int h3Resolution, GraphhopperMatrixRouter matrixRouter) {
+        return generate(hexagonList, h3Resolution, matrixRouter, H3CacheStorageMode.FULL);
+    }
+
+    /**
+     * Generates the cache with one-to-many routing, then converts it to the storage mode (measuring the asymmetry of
+     * every pair).
+     *
+     * @param hexagonList  The hexagons.
+     * @param h3Resolution The resolution of the hexagons.
+     * @param matrixRouter The matrix router.
+     * @param storageMode  The storage mode of the generated cache.
+     * @return The distance cache.
+     */
+    public static H3DistanceCache generate(List<Long> hexagonList, int h3Resolution, GraphhopperMatrixRouter matrixRouter, H3CacheStorageMode storageMode) {
+        long start = System.currentTimeMillis();
+        int dim = hexagonList.size();
+        long[] hexagons = new long[dim];
+        for (int i = 0; i < dim; i++) {
+            hexagons[i] = hexagonList.get(i);
+        }
+        Arrays.sort(hexagons);
+
+        H3Core h3 = H3.h3();
+        GeoCoord[] centers = new GeoCoord[dim];
+        for (int i = 0; i < dim; i++) {
+            centers[i] = h3.h3ToGeo(hexagons[i]);
+        }
+
+        int cellCnt = dim * dim;
+        long[] meters = new long[cellCnt];
+        long[] seconds = new long[cellCnt];
+        matrixRouter.fill(centers, meters, seconds);
+
+        int[] packedMeters = new int[cellCnt];
+        int[] packedSeconds = new int[cellCnt];
+        short[] packedH3Distances = new short[cellCnt];
+        matrixRouter.getExecutor().forEach(dim, i -> {
+            for (int j = 0; j < dim; j++) {
+                int idx = i * dim + j;
+                packedMeters[idx] = clampToInt(meters[idx]);
+                packedSeconds[idx] = clampToInt(seconds[idx]);
+
+                packedH3Distances[idx] = clampToShort(h3DistanceOf(h3, hexagons[i], hexagons[j]));
+            }
+        });
+
+        long generatedTime = System.currentTimeMillis() - start;
+        long sec = generatedTime / 1000;
+        long min = sec / 60;
+
+        logger.debug(":: H3DistanceCache :: calculation time = {}ms (~{}m {}s)", generatedTime, min, sec);
+        logger.debug(":: H3DistanceCache :: dimension = {} :: cells = {}", dim, cellCnt);
+        logger.debug(":: H3DistanceCache :: calc time PER CELL = {}ms", ((double) generatedTime / cellCnt));
+        logger.debug(":: H3DistanceCache :: router errors: {}", matrixRouter.getErrorCnt().get());
+        matrixRouter.getErrorCnt().set(0);
+
+        return new H3DistanceCache(hexagons, IntBuffer.wrap(packedMeters), IntBuffer.wrap(packedSeconds), ShortBuffer.wrap(packedH3Distances), h3Resolution)
+                .withStorageMode(storageMode);
+    }
 }
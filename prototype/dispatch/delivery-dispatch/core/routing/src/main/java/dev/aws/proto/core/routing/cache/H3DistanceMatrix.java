@@ -20,85 +20,130 @@ package dev.aws.proto.core.routing.cache;
 import com.uber.h3core.H3Core;
 import dev.aws.proto.core.routing.H3;
 import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
+import dev.aws.proto.core.routing.distance.Distance;
 import dev.aws.proto.core.routing.distance.IDistanceMatrix;
+import dev.aws.proto.core.routing.distance.MatrixLocationIndex;
 import dev.aws.proto.core.routing.distance.TravelDistance;
 import dev.aws.proto.core.routing.location.Coordinate;
 import dev.aws.proto.core.routing.location.ILocation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.IntStream;
 
+/**
+ * Distance matrix between a list of locations, looked up from an {@link IH3DistanceLookup}.
+ * <p>
+ * The lookup picks where a pair is read from, e.g. a {@link HierarchicalH3DistanceCache} chooses the resolution per
+ * pair by the h3 distance of the hexagons.
+ * <p>
+ * Distances are stored in contiguous row-major arrays (row = origin, column = destination). Cells whose hexagons are
+ * not in the cache hold {@link H3DistanceCache#MISSING_DISTANCE}.
+ */
 public class H3DistanceMatrix<TLocation extends ILocation> implements IDistanceMatrix<TravelDistance> {
     private static final Logger logger = LoggerFactory.getLogger(H3DistanceMatrix.class);
 
-    private final H3DistanceCache distanceCache;
-    private final TravelDistance[][] matrix;
-    private final Map<TLocation, Integer> locIdxLookup;
+    private final IH3DistanceLookup distanceCache;
+    private final MatrixLocationIndex locationIndex;
+    private final long[] meters;
+    private final long[] seconds;
+    private final int[] h3Distances;
+    private final int dimension;
 
-    public H3DistanceMatrix(H3DistanceCache h3DistanceCache, TravelDistance[][] matrix, Map<TLocation, Integer> locIdxLookup) {
+    public H3DistanceMatrix(IH3DistanceLookup h3DistanceCache, MatrixLocationIndex locationIndex, long[] meters, long[] seconds, int[] h3Distances) {
         this.distanceCache = h3DistanceCache;
-        this.matrix = matrix;
-        this.locIdxLookup = locIdxLookup;
+        this.locationIndex = locationIndex;
+        this.meters = meters;
+        this.seconds = seconds;
+        this.h3Distances = h3Distances;
+        this.dimension = locationIndex.size();
     }
 
     @Override
     public TravelDistance distanceBetween(ILocation origin, ILocation destination) {
         logger.trace("Calculating distance between {} and {}", origin, destination);
 
-        int indexFrom = this.locIdxLookup.get(origin);
-        int indexTo = this.locIdxLookup.get(destination);
+        int indexFrom = this.locationIndex.indexOf(origin);
+        int indexTo = this.locationIndex.indexOf(destination);
+
+        if (indexFrom < 0 || indexTo < 0) {
+            return null;
+        }
+
+        int cellIdx = indexFrom * dimension + indexTo;
+        if (meters[cellIdx] == H3DistanceCache.MISSING_DISTANCE) {
+            return null;
+        }
 
-        return this.matrix[indexFrom][indexTo];
+        return new TravelDistance(meters[cellIdx], seconds[cellIdx], h3Distances[cellIdx]);
     }
 
-    public static <TLocation extends ILocation> H3DistanceMatrix<TLocation> generate(H3DistanceCache h3DistanceCache, List<TLocation> locationList) {
-        long start = System.currentTimeMillis();
-        H3Core h3 = H3.h3();
-        Map<TLocation, Integer> locIdxLookup = new HashMap<>();
-        int dim = locationList.size();
+    @Override
+    public long metersBetween(int originIdx, int destinationIdx) {
+        long value = meters[originIdx * dimension + destinationIdx];
+        // missing cells (MISSING_DISTANCE) and unroutable pairs (-1) are both negative
+        return value < 0 ? Distance.UNREACHABLE_METERS : value;
+    }
 
-        for (int i = 0; i < dim; i++) {
-            locIdxLookup.put(locationList.get(i), i);
-        }
+    @Override
+    public long secondsBetween(int originIdx, int destinationIdx) {
+        long value = seconds[originIdx * dimension + destinationIdx];
+        return value < 0 ? Distance.UNREACHABLE_SECONDS : value;
+    }
 
-        TravelDistance[][] distances = new TravelDistance[dim][dim];
-        int cellCnt = dim*dim;
-        IntStream.range(0, cellCnt)
-                .parallel()
-                .forEach(idx -> {
-                    int i = idx / dim;
-                    int j = idx % dim;
+    /**
+     * @return <code>false</code> if the pair is missing from the cache or couldn't be routed.
+     */
+    public boolean isRoutable(int originIdx, int destinationIdx) {
+        return meters[originIdx * dimension + destinationIdx] >= 0;
+    }
 
-                    Coordinate coord1 = locationList.get(i).coordinate();
-                    Coordinate coord2 = locationList.get(j).coordinate();
+    public int h3DistanceBetween(int originIdx, int destinationIdx) {
+        return h3Distances[originIdx * dimension + destinationIdx];
+    }
 
-                    long hexa1 = h3.geoToH3(coord1.getLatitude(), coord1.getLongitude(), h3DistanceCache.getH3Resolution());
-                    long hexa2 = h3.geoToH3(coord2.getLatitude(), coord2.getLongitude(), h3DistanceCache.getH3Resolution());
+    /**
+     * Generates the matrix from the cache only. Pairs missing from the cache hold {@link H3DistanceCache#MISSING_DISTANCE}.
+     */
+    public static <TLocation extends ILocation> H3DistanceMatrix<TLocation> generate(IH3DistanceLookup h3DistanceCache, List<TLocation> locationList) {
+        return generate(new TieredH3DistanceProvider(h3DistanceCache, null), locationList);
+    }
 
-                    TravelDistance distance = h3DistanceCache.getDistance(hexa1, hexa2);
+    /**
+     * Generates the matrix with a tiered provider: pairs missing from the cache are routed with Graphhopper.
+     */
+    public static <TLocation extends ILocation> H3DistanceMatrix<TLocation> generate(TieredH3DistanceProvider provider, List<TLocation> locationList) {
+        long start = System.currentTimeMillis();
+        H3Core h3 = H3.h3();
+        IH3DistanceLookup h3DistanceCache = provider.getDistanceCache();
+        MatrixLocationIndex locationIndex = new MatrixLocationIndex(locationList);
+        int dim = locationList.size();
 
-                    if (distance == null) {
-                        // TODO: calculate with graphhopper
-                        logger.warn("No distance found between {} -- {}", locationList.get(i), locationList.get(j));
-                    }
+        // hexagons are computed in the cache's resolution, no need to validate them later
+        long[] hexagons = new long[dim];
+        for (int i = 0; i < dim; i++) {
+            Coordinate coord = locationList.get(i).coordinate();
+            hexagons[i] = h3.geoToH3(coord.getLatitude(), coord.getLongitude(), h3DistanceCache.getH3Resolution());
+        }
 
-                    distances[i][j] = distance;
-                });
+        int cellCnt = dim * dim;
+        long[] meters = new long[cellCnt];
+        long[] seconds = new long[cellCnt];
+        int[] h3Distances = new int[cellCnt];
+        provider.fill(hexagons, meters, seconds, h3Distances);
 
         long generatedTime = System.currentTimeMillis() - start;
 
         logger.debug("H3DistanceMatrix :: calc time = {}ms :: dim = {}x{} :: per cell = {}ms", generatedTime, dim, dim, ((double) generatedTime / (dim * dim)));
+        logger.debug("H3DistanceMatrix :: distance provider metrics :: {}", provider.getMetrics());
+        logger.debug("H3DistanceMatrix :: routing executor metrics :: {}", provider.getExecutor().getMetrics());
 
-        return new H3DistanceMatrix<>(h3DistanceCache, distances, locIdxLookup);
+        return new H3DistanceMatrix<>(h3DistanceCache, locationIndex, meters, seconds, h3Distances);
     }
 
-    public static <TLocation extends ILocation> H3DistanceMatrix<TLocation> generate(ICachePersistence<H3DistanceCache> persistence, List<TLocation> locationList) {
+    public static <TLocation extends ILocation> H3DistanceMatrix<TLocation> generate(ICachePersistence<? extends IH3DistanceLookup> persistence, List<TLocation> locationList) {
         long start = System.currentTimeMillis();
-        H3DistanceCache h3DistanceCache = persistence.importCache();
+        IH3DistanceLookup h3DistanceCache = persistence.importCache();
         long importTime = System.currentTimeMillis() - start;
         logger.debug("H3DistanceMatrix :: cache import time = {}ms", importTime);
 
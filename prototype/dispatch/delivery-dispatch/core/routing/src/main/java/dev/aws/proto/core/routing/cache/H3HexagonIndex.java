@@ -0,0 +1,95 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache;
+
+/**
+ * Primitive <code>long -> int</code> open-addressing index from h3 hexagons to their position in a distance cache.
+ * <p>
+ * Uses linear probing over a power-of-two table with a load factor of at most 0.5. No boxing, no allocation on lookup.
+ * The value <code>0</code> is never a valid h3 index, so it marks an empty slot.
+ */
+public class H3HexagonIndex {
+    /**
+     * Returned by {@link #indexOf(long)} when the hexagon is not in the index.
+     */
+    public static final int NOT_FOUND = -1;
+
+    private static final long EMPTY = 0L;
+
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+    private final int size;
+
+    public H3HexagonIndex(long[] hexagons) {
+        int capacity = Integer.highestOneBit(Math.max(hexagons.length, 1) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.size = hexagons.length;
+
+        for (int i = 0; i < hexagons.length; i++) {
+            long hexa = hexagons[i];
+            if (hexa == EMPTY) {
+                throw new IllegalArgumentException("0 is not a valid h3 index");
+            }
+
+            int slot = slotOf(hexa);
+            while (keys[slot] != EMPTY && keys[slot] != hexa) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = hexa;
+            values[slot] = i;
+        }
+    }
+
+    /**
+     * @param hexa The hexagon.
+     * @return The position of the hexagon, or {@link #NOT_FOUND}.
+     */
+    public int indexOf(long hexa) {
+        int slot = slotOf(hexa);
+        long key;
+        while ((key = keys[slot]) != EMPTY) {
+            if (key == hexa) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    public boolean contains(long hexa) {
+        return indexOf(hexa) != NOT_FOUND;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slotOf(long hexa) {
+        // h3 indexes share most of their high bits within an area, mix them before masking (murmur3 finalizer)
+        long h = hexa;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache;
+
+import com.uber.h3core.H3Core;
+import com.uber.h3core.LengthUnit;
+import com.uber.h3core.util.GeoCoord;
+import dev.aws.proto.core.routing.H3;
+import dev.aws.proto.core.routing.distance.Distance;
+import dev.aws.proto.core.routing.distance.MatrixTiles;
+import dev.aws.proto.core.routing.distance.TravelDistance;
+import dev.aws.proto.core.routing.route.GraphhopperMatrixRouter;
+import dev.aws.proto.core.routing.route.GraphhopperRouter;
+import dev.aws.proto.core.routing.route.RoutingExecutor;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Two-level H3 distance cache: fine-resolution distances for nearby hexagon pairs, coarse-resolution distances for
+ * the rest.
+ * <p>
+ * Contains
+ * - a list of h3 hexagons in the fine resolution
+ * - a sparse table with the distances from every hexagon to the covered hexagons within <code>rings</code> rings
+ * - a coarse {@link H3DistanceCache} between the parents of the hexagons in the coarse resolution.
+ * <p>
+ * The lookup picks the level by the h3 distance of the pair: pairs within <code>rings</code> are looked up in the
+ * table, the others are approximated with the distance between the centers of their coarse parents. Memory is
+ * O(n * rings^2 + m^2) (n fine hexagons, m coarse cells) instead of O(n^2).
+ * <p>
+ * The coarse matrix can't tell distances within one coarse cell: pairs in the same coarse cell that are further than
+ * <code>rings</code> apart are reported missing. {@link #defaultRings(int, int)} returns a number of rings that
+ * covers the diameter of a coarse cell.
+ */
+public class HierarchicalH3DistanceCache implements IH3DistanceLookup {
+    private static final Logger logger = LoggerFactory.getLogger(HierarchicalH3DistanceCache.class);
+
+    /**
+     * Ratio of the road distance to the straight line distance the nearby searches are bounded by.
+     */
+    public static final double DETOUR_FACTOR = 3.0;
+
+    @Getter
+    private final int h3Resolution;
+    @Getter
+    private final int rings;
+    @Getter
+    private final long[] h3Hexagons;
+
+    /**
+     * The nearby pairs of hexagon <code>i</code> are at <code>[rowOffsets[i], rowOffsets[i + 1])</code> of
+     * {@link #neighbors}, {@link #nearMeters} and {@link #nearSeconds}.
+     */
+    @Getter
+    private final int[] rowOffsets;
+
+    /**
+     * Index of the nearby hexagons in {@link #h3Hexagons}, sorted ascending within a row.
+     */
+    @Getter
+    private final int[] neighbors;
+    @Getter
+    private final int[] nearMeters;
+    @Getter
+    private final int[] nearSeconds;
+
+    @Getter
+    private final H3DistanceCache coarseCache;
+    private final H3HexagonIndex hexagonIndex;
+
+    private final LongAdder nearLookups = new LongAdder();
+    private final LongAdder coarseLookups = new LongAdder();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Metrics {
+        private long nearLookups;
+        private long coarseLookups;
+    }
+
+    public HierarchicalH3DistanceCache(int h3Resolution, int rings, long[] h3Hexagons, int[] rowOffsets,
+                                       int[] neighbors, int[] nearMeters, int[] nearSeconds, H3DistanceCache coarseCache) {
+        if (coarseCache.getH3Resolution() >= h3Resolution) {
+            throw new IllegalArgumentException("The coarse resolution (" + coarseCache.getH3Resolution() + ") must be coarser than the cache resolution (" + h3Resolution + ")");
+        }
+        if (rowOffsets.length != h3Hexagons.length + 1) {
+            throw new IllegalArgumentException("The row offsets don't match the number of hexagons");
+        }
+
+        this.h3Resolution = h3Resolution;
+        this.rings = rings;
+        this.h3Hexagons = h3Hexagons;
+        this.rowOffsets = rowOffsets;
+        this.neighbors = neighbors;
+        this.nearMeters = nearMeters;
+        this.nearSeconds = nearSeconds;
+        this.coarseCache = coarseCache;
+        this.hexagonIndex = new H3HexagonIndex(h3Hexagons);
+    }
+
+    /**
+     * @param h3Resolution     The fine resolution.
+     * @param coarseResolution The coarse resolution.
+     * @return The number of rings that covers the diameter of a coarse cell (~sqrt(7) times per resolution).
+     */
+    public static int defaultRings(int h3Resolution, int coarseResolution) {
+        return (int) Math.ceil(Math.pow(Math.sqrt(7), h3Resolution - coarseResolution));
+    }
+
+    public int getCoarseResolution() {
+        return coarseCache.getH3Resolution();
+    }
+
+    /**
+     * @return The memory used by the distances, in bytes.
+     */
+    public long sizeInBytes() {
+        long coarseDim = coarseCache.getH3Hexagons().length;
+        return (long) h3Hexagons.length * Long.BYTES
+                + (long) rowOffsets.length * Integer.BYTES
+                + (long) neighbors.length * 3 * Integer.BYTES
+                + coarseDim * Long.BYTES
+                + coarseCache.getStorageMode().cellCount((int) coarseDim) * (2L * coarseCache.getCellEncoding().bytes() + Short.BYTES);
+    }
+
+    @Override
+    public TravelDistance getDistanceTrusted(long hexaFrom, long hexaTo) {
+        long[] meters = new long[1];
+        long[] seconds = new long[1];
+        int[] h3Distances = new int[1];
+        H3Core h3 = H3.h3();
+        this.lookup(h3, this.resolve(h3, new long[]{hexaFrom, hexaTo}), 0, 1, meters, seconds, h3Distances, 0);
+        if (meters[0] == H3DistanceCache.MISSING_DISTANCE) {
+            return null;
+        }
+        return new TravelDistance(meters[0], seconds[0], h3Distances[0]);
+    }
+
+    @Override
+    public int metersBetweenTrusted(long hexaFrom, long hexaTo) {
+        long[] meters = new long[1];
+        H3Core h3 = H3.h3();
+        this.lookup(h3, this.resolve(h3, new long[]{hexaFrom, hexaTo}), 0, 1, meters, new long[1], new int[1], 0);
+        return (int) meters[0];
+    }
+
+    @Override
+    public void fill(long[] hexagons, long[] meters, long[] seconds, int[] h3Distances, RoutingExecutor executor) {
+        H3Core h3 = H3.h3();
+        int dim = hexagons.length;
+        ResolvedHexagons resolved = this.resolve(h3, hexagons);
+        MatrixTiles.forEachTile(executor, dim, dim, (rowFrom, rowTo, colFrom, colTo) -> {
+            for (int i = rowFrom; i < rowTo; i++) {
+                for (int j = colFrom; j < colTo; j++) {
+                    this.lookup(h3, resolved, i, j, meters, seconds, h3Distances, i * dim + j);
+                }
+            }
+        });
+    }
+
+    /**
+     * The hexagons of a lookup with their indices in both levels, resolved once per hexagon (not once per pair).
+     */
+    @AllArgsConstructor
+    private static class ResolvedHexagons {
+        private final long[] hexagons;
+        private final int[] fineIdx;
+        private final long[] coarseCells;
+        private final int[] coarseIdx;
+    }
+
+    private ResolvedHexagons resolve(H3Core h3, long[] hexagons) {
+        int coarseResolution = coarseCache.getH3Resolution();
+        int[] fineIdx = new int[hexagons.length];
+        long[] coarseCells = new long[hexagons.length];
+        int[] coarseIdx = new int[hexagons.length];
+        for (int i = 0; i < hexagons.length; i++) {
+            fineIdx[i] = hexagonIndex.indexOf(hexagons[i]);
+            coarseCells[i] = h3.h3ToParent(hexagons[i], coarseResolution);
+            coarseIdx[i] = coarseCache.indexOf(coarseCells[i]);
+        }
+        return new ResolvedHexagons(hexagons, fineIdx, coarseCells, coarseIdx);
+    }
+
+    /**
+     * Looks up the (i, j) pair of the resolved hexagons into the <code>idx</code> cell of the output arrays, choosing
+     * the level by the h3 distance.
+     */
+    private void lookup(H3Core h3, ResolvedHexagons resolved, int i, int j, long[] meters, long[] seconds, int[] h3Distances, int idx) {
+        int h3Distance = H3DistanceCache.h3DistanceOf(h3, resolved.hexagons[i], resolved.hexagons[j]);
+
+        if (h3Distance >= 0 && h3Distance <= rings) {
+            int nearIdx = this.nearIndexOf(resolved.fineIdx[i], resolved.fineIdx[j]);
+            if (nearIdx >= 0) {
+                meters[idx] = nearMeters[nearIdx];
+                seconds[idx] = nearSeconds[nearIdx];
+                h3Distances[idx] = h3Distance;
+                nearLookups.increment();
+                return;
+            }
+        }
+
+        int coarseFromIdx = resolved.coarseIdx[i];
+        int coarseToIdx = resolved.coarseIdx[j];
+        if (resolved.coarseCells[i] == resolved.coarseCells[j] || coarseFromIdx == H3HexagonIndex.NOT_FOUND || coarseToIdx == H3HexagonIndex.NOT_FOUND) {
+            meters[idx] = H3DistanceCache.MISSING_DISTANCE;
+            seconds[idx] = H3DistanceCache.MISSING_DISTANCE;
+            h3Distances[idx] = H3DistanceCache.MISSING_DISTANCE;
+            return;
+        }
+
+        meters[idx] = coarseCache.metersAt(coarseFromIdx, coarseToIdx);
+        seconds[idx] = coarseCache.secondsAt(coarseFromIdx, coarseToIdx);
+        h3Distances[idx] = h3Distance;
+        coarseLookups.increment();
+    }
+
+    /**
+     * @return The index of the (fromIdx, toIdx) pair in the nearby table, or -1 if it's not in the table.
+     */
+    private int nearIndexOf(int fromIdx, int toIdx) {
+        if (fromIdx == H3HexagonIndex.NOT_FOUND || toIdx == H3HexagonIndex.NOT_FOUND) {
+            return -1;
+        }
+        int pos = Arrays.binarySearch(neighbors, rowOffsets[fromIdx], rowOffsets[fromIdx + 1], toIdx);
+        return pos >= 0 ? pos : -1;
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(nearLookups.sum(), coarseLookups.sum());
+    }
+
+    /**
+     * Generates the cache with one-to-many routing: one distance-bounded search per hexagon for the nearby pairs, and
+     * a full matrix for the coarse cells.
+     *
+     * @param hexagonList      The hexagons.
+     * @param h3Resolution     The resolution of the hexagons.
+     * @param rings            The number of rings looked up in the fine resolution.
+     * @param coarseResolution The resolution of the coarse matrix.
+     * @param matrixRouter     The matrix router.
+     * @return The distance cache.
+     */
+    public static HierarchicalH3DistanceCache generate(List<Long> hexagonList, int h3Resolution, int rings, int coarseResolution, GraphhopperMatrixRouter matrixRouter) {
+        long start = System.currentTimeMillis();
+        H3Core h3 = H3.h3();
+        long[] hexagons = sortedHexagons(hexagonList);
+        int[][] targets = nearbyTargets(h3, hexagons, rings, matrixRouter.getExecutor());
+
+        GeoCoord[] centers = new GeoCoord[hexagons.length];
+        for (int i = 0; i < hexagons.length; i++) {
+            centers[i] = h3.h3ToGeo(hexagons[i]);
+        }
+
+        long[][] meters = new long[hexagons.length][];
+        long[][] seconds = new long[hexagons.length][];
+        for (int i = 0; i < hexagons.length; i++) {
+            meters[i] = new long[targets[i].length];
+            seconds[i] = new long[targets[i].length];
+        }
+        double distanceLimit = h3.edgeLength(h3Resolution, LengthUnit.m) * 2 * (rings + 1) * DETOUR_FACTOR;
+        matrixRouter.fillSparse(centers, targets, distanceLimit, meters, seconds);
+        logger.debug(":: HierarchicalH3DistanceCache :: nearby pairs calculation time = {}ms", System.currentTimeMillis() - start);
+
+        H3DistanceCache coarseCache = H3DistanceCache.generate(coarseHexagons(h3, hexagons, coarseResolution), coarseResolution, matrixRouter);
+        return pack(h3Resolution, rings, hexagons, targets, meters, seconds, coarseCache, start);
+    }
+
+    /**
+     * Generates the cache with point-to-point routing.
+     *
+     * @param hexagonList      The hexagons.
+     * @param h3Resolution     The resolution of the hexagons.
+     * @param rings            The number of rings looked up in the fine resolution.
+     * @param coarseResolution The resolution of the coarse matrix.
+     * @param router           The router.
+     * @return The distance cache.
+     */
+    public static HierarchicalH3DistanceCache generate(List<Long> hexagonList, int h3Resolution, int rings, int coarseResolution, GraphhopperRouter router) {
+        long start = System.currentTimeMillis();
+        H3Core h3 = H3.h3();
+        long[] hexagons = sortedHexagons(hexagonList);
+        int[][] targets = nearbyTargets(h3, hexagons, rings, router.getExecutor());
+
+        GeoCoord[] centers = new GeoCoord[hexagons.length];
+        for (int i = 0; i < hexagons.length; i++) {
+            centers[i] = h3.h3ToGeo(hexagons[i]);
+        }
+
+        long[][] meters = new long[hexagons.length][];
+        long[][] seconds = new long[hexagons.length][];
+        router.getExecutor().forEach(hexagons.length, i -> {
+            meters[i] = new long[targets[i].length];
+            seconds[i] = new long[targets[i].length];
+            for (int t = 0; t < targets[i].length; t++) {
+                Distance distance = router.travelDistance(centers[i], centers[targets[i][t]]);
+                meters[i][t] = distance.getDistanceInMeters();
+                seconds[i][t] = distance.getDistanceInSeconds();
+            }
+        });
+        logger.debug(":: HierarchicalH3DistanceCache :: nearby pairs calculation time = {}ms", System.currentTimeMillis() - start);
+
+        H3DistanceCache coarseCache = H3DistanceCache.generate(coarseHexagons(h3, hexagons, coarseResolution), coarseResolution, router);
+        return pack(h3Resolution, rings, hexagons, targets, meters, seconds, coarseCache, start);
+    }
+
+    private static long[] sortedHexagons(List<Long> hexagonList) {
+        long[] hexagons = hexagonList.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(hexagons);
+        return hexagons;
+    }
+
+    /**
+     * @return The indices of the covered hexagons within the rings of each hexagon, sorted ascending.
+     */
+    private static int[][] nearbyTargets(H3Core h3, long[] hexagons, int rings, RoutingExecutor executor) {
+        H3HexagonIndex index = new H3HexagonIndex(hexagons);
+        int[][] targets = new int[hexagons.length][];
+        executor.forEach(hexagons.length, i -> targets[i] = h3.kRing(hexagons[i], rings).stream()
+                .mapToInt(index::indexOf)
+                .filter(idx -> idx != H3HexagonIndex.NOT_FOUND)
+                .sorted()
+                .toArray());
+        return targets;
+    }
+
+    private static List<Long> coarseHexagons(H3Core h3, long[] hexagons, int coarseResolution) {
+        return Arrays.stream(hexagons)
+                .map(hexa -> h3.h3ToParent(hexa, coarseResolution))
+                .distinct()
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    private static HierarchicalH3DistanceCache pack(int h3Resolution, int rings, long[] hexagons, int[][] targets,
+                                                   long[][] meters, long[][] seconds, H3DistanceCache coarseCache, long start) {
+        int dim = hexagons.length;
+        int[] rowOffsets = new int[dim + 1];
+        for (int i = 0; i < dim; i++) {
+            rowOffsets[i + 1] = rowOffsets[i] + targets[i].length;
+        }
+
+        int nearCnt = rowOffsets[dim];
+        int[] neighbors = new int[nearCnt];
+        int[] nearMeters = new int[nearCnt];
+        int[] nearSeconds = new int[nearCnt];
+        for (int i = 0; i < dim; i++) {
+            for (int t = 0; t < targets[i].length; t++) {
+                int nearIdx = rowOffsets[i] + t;
+                neighbors[nearIdx] = targets[i][t];
+                nearMeters[nearIdx] = H3DistanceCache.clampToInt(meters[i][t]);
+                nearSeconds[nearIdx] = H3DistanceCache.clampToInt(seconds[i][t]);
+            }
+        }
+
+        HierarchicalH3DistanceCache cache = new HierarchicalH3DistanceCache(h3Resolution, rings, hexagons, rowOffsets,
+                neighbors, nearMeters, nearSeconds, coarseCache);
+
+        logger.debug(":: HierarchicalH3DistanceCache :: calculation time = {}ms", System.currentTimeMillis() - start);
+        logger.debug(":: HierarchicalH3DistanceCache :: dimension = {} :: nearby pairs = {} :: coarse dimension = {}", dim, nearCnt, coarseCache.getH3Hexagons().length);
+        return cache;
+    }
+}
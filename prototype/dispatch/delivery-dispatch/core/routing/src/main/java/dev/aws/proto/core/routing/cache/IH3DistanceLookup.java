@@ -0,0 +1,61 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache;
+
+import dev.aws.proto.core.routing.distance.TravelDistance;
+import dev.aws.proto.core.routing.route.RoutingExecutor;
+
+/**
+ * Read access to precalculated distances between h3 hexagons of one resolution.
+ * <p>
+ * Implemented by the single-matrix {@link H3DistanceCache}, the {@link ShardedH3DistanceCache} and the
+ * {@link HierarchicalH3DistanceCache}, so the {@link TieredH3DistanceProvider} and the {@link H3DistanceMatrix}
+ * don't depend on how the distances are laid out.
+ */
+public interface IH3DistanceLookup {
+    /**
+     * @return The resolution the hexagons are looked up in.
+     */
+    int getH3Resolution();
+
+    /**
+     * @param hexaFrom Origin hexagon, in {@link #getH3Resolution()}.
+     * @param hexaTo   Destination hexagon, in {@link #getH3Resolution()}.
+     * @return The travel distance, or <code>null</code> if the pair is not covered.
+     */
+    TravelDistance getDistanceTrusted(long hexaFrom, long hexaTo);
+
+    /**
+     * @param hexaFrom Origin hexagon, in {@link #getH3Resolution()}.
+     * @param hexaTo   Destination hexagon, in {@link #getH3Resolution()}.
+     * @return The distance in meters, or {@link H3DistanceCache#MISSING_DISTANCE} if the pair is not covered.
+     */
+    int metersBetweenTrusted(long hexaFrom, long hexaTo);
+
+    /**
+     * Fills row-major distance arrays for the given hexagons. Pairs that are not covered hold
+     * {@link H3DistanceCache#MISSING_DISTANCE} in all three arrays.
+     *
+     * @param hexagons    The hexagons, in {@link #getH3Resolution()}.
+     * @param meters      Output: meters.
+     * @param seconds     Output: seconds.
+     * @param h3Distances Output: h3 distances.
+     * @param executor    The executor the cells are filled on.
+     */
+    void fill(long[] hexagons, long[] meters, long[] seconds, int[] h3Distances, RoutingExecutor executor);
+}
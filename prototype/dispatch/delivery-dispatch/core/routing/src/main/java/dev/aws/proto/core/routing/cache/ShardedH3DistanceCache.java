@@ -0,0 +1,359 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache;
+
+import com.uber.h3core.H3Core;
+import dev.aws.proto.core.routing.H3;
+import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
+import dev.aws.proto.core.routing.distance.MatrixTiles;
+import dev.aws.proto.core.routing.distance.TravelDistance;
+import dev.aws.proto.core.routing.route.RoutingExecutor;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * H3 distance cache split into shards, for coverage areas (e.g. multiple metro areas) where a single dim x dim matrix
+ * doesn't scale.
+ * <p>
+ * Contains
+ * - shards: one {@link H3DistanceCache} per h3 parent cell (in the shard resolution), with the distances between the
+ * hexagons inside the parent cell
+ * - a border cache: one coarser {@link H3DistanceCache} (in the border resolution) between all the covered cells,
+ * used for the pairs that span two shards.
+ * <p>
+ * The lookup picks the shard by the parent of the hexagons. Shards are imported lazily on first use, and the least
+ * recently used shards are evicted when more than <code>maxLoadedShards</code> are loaded, or when the distance
+ * buffers of the loaded shards take more than <code>maxLoadedBytes</code>. Evicted shards are imported again on their
+ * next use.
+ * <p>
+ * NOTE: shards imported from files are memory-mapped, their buffers live in the page cache, not on the heap. The
+ * byte budget counts those buffers (see {@link H3DistanceCache#getDistanceBytes()}), size it for the memory available
+ * to the process besides the heap.
+ * <p>
+ * Cross-shard distances are approximated with the distances between the centers of the border cells of the hexagons,
+ * the h3 distance is still calculated in the cache's resolution.
+ */
+public class ShardedH3DistanceCache implements IH3DistanceLookup {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedH3DistanceCache.class);
+
+    public static final int DEFAULT_MAX_LOADED_SHARDS = 16;
+    public static final long DEFAULT_MAX_LOADED_BYTES = Long.MAX_VALUE;
+
+    @Getter
+    private final int h3Resolution;
+    @Getter
+    private final int shardResolution;
+    @Getter
+    private final H3DistanceCache borderCache;
+    private final Map<Long, Shard> shards;
+    private final int maxLoadedShards;
+    private final long maxLoadedBytes;
+
+    private final Object loadLock = new Object();
+    private int loadedShardCnt;
+    private long loadedBytes;
+
+    private final LongAdder shardLookups = new LongAdder();
+    private final LongAdder borderLookups = new LongAdder();
+    private final LongAdder shardLoads = new LongAdder();
+    private final LongAdder shardEvictions = new LongAdder();
+
+    /**
+     * One shard: the cache of the hexagons under one parent cell.
+     */
+    private static class Shard {
+        private final long parentCell;
+        private final ICachePersistence<H3DistanceCache> source;
+        private volatile H3DistanceCache cache;
+        private volatile long lastAccess;
+
+        Shard(long parentCell, ICachePersistence<H3DistanceCache> source) {
+            this.parentCell = parentCell;
+            this.source = source;
+        }
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Metrics {
+        private long shardLookups;
+        private long borderLookups;
+        private long shardLoads;
+        private long shardEvictions;
+        private int loadedShards;
+        private long loadedBytes;
+        private int shards;
+    }
+
+    /**
+     * @param h3Resolution      The resolution of the hexagons in the shards.
+     * @param shardResolution   The resolution of the parent cells the shards are keyed by.
+     * @param borderCache       The cache for the cross-shard pairs, in a resolution between the shard resolution and
+     *                          the cache's resolution.
+     * @param shardSources      The persistence of the shards by parent cell.
+     * @param maxLoadedShards   The max number of shards kept in memory.
+     * @param maxLoadedBytes    The max size of the distance buffers of the loaded shards (the shard that is being
+     *                          loaded is kept even if it's larger).
+     */
+    public ShardedH3DistanceCache(int h3Resolution, int shardResolution, H3DistanceCache borderCache,
+                                  Map<Long, ICachePersistence<H3DistanceCache>> shardSources,
+                                  int maxLoadedShards, long maxLoadedBytes) {
+        if (shardResolution > h3Resolution) {
+            throw new IllegalArgumentException("The shard resolution (" + shardResolution + ") must not be finer than the cache resolution (" + h3Resolution + ")");
+        }
+        if (borderCache.getH3Resolution() < shardResolution || borderCache.getH3Resolution() > h3Resolution) {
+            throw new IllegalArgumentException("The border resolution (" + borderCache.getH3Resolution() + ") must be between the shard resolution (" + shardResolution + ") and the cache resolution (" + h3Resolution + ")");
+        }
+        if (maxLoadedShards < 1) {
+            throw new IllegalArgumentException("maxLoadedShards must be positive");
+        }
+        if (maxLoadedBytes < 1) {
+            throw new IllegalArgumentException("maxLoadedBytes must be positive");
+        }
+
+        this.h3Resolution = h3Resolution;
+        this.shardResolution = shardResolution;
+        this.borderCache = borderCache;
+        this.maxLoadedShards = maxLoadedShards;
+        this.maxLoadedBytes = maxLoadedBytes;
+
+        Map<Long, Shard> shards = new HashMap<>();
+        shardSources.forEach((parentCell, source) -> shards.put(parentCell, new Shard(parentCell, source)));
+        this.shards = Collections.unmodifiableMap(shards);
+    }
+
+    /**
+     * @return The parent cells of the shards.
+     */
+    public long[] getShardCells() {
+        return shards.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    /**
+     * @param hexa The hexagon, in the cache's resolution.
+     * @return The parent cell of the shard the hexagon belongs to.
+     */
+    public long shardCellOf(long hexa) {
+        return H3.h3().h3ToParent(hexa, shardResolution);
+    }
+
+    /**
+     * @param parentCell The parent cell of the shard.
+     * @return The cache of the shard (imported if it's not loaded), or <code>null</code> if there's no such shard.
+     */
+    public H3DistanceCache getShard(long parentCell) {
+        return this.loadedShardOrNull(parentCell);
+    }
+
+    @Override
+    public TravelDistance getDistanceTrusted(long hexaFrom, long hexaTo) {
+        H3DistanceCache shardCache = this.sharedShardOf(hexaFrom, hexaTo);
+        if (shardCache != null) {
+            TravelDistance distance = shardCache.getDistanceTrusted(hexaFrom, hexaTo);
+            if (distance != null && distance.getDistanceInMeters() != H3DistanceCache.MISSING_DISTANCE) {
+                shardLookups.increment();
+                return distance;
+            }
+        }
+
+        H3Core h3 = H3.h3();
+        int borderResolution = borderCache.getH3Resolution();
+        TravelDistance borderDistance = borderCache.getDistanceTrusted(h3.h3ToParent(hexaFrom, borderResolution), h3.h3ToParent(hexaTo, borderResolution));
+        if (borderDistance == null) {
+            return null;
+        }
+        borderLookups.increment();
+        return new TravelDistance(borderDistance.getDistanceInMeters(), borderDistance.getDistanceInSeconds(), H3DistanceCache.h3DistanceOf(h3, hexaFrom, hexaTo));
+    }
+
+    @Override
+    public int metersBetweenTrusted(long hexaFrom, long hexaTo) {
+        H3DistanceCache shardCache = this.sharedShardOf(hexaFrom, hexaTo);
+        if (shardCache != null) {
+            int meters = shardCache.metersBetweenTrusted(hexaFrom, hexaTo);
+            if (meters != H3DistanceCache.MISSING_DISTANCE) {
+                shardLookups.increment();
+                return meters;
+            }
+        }
+        return this.borderMetersBetween(H3.h3(), hexaFrom, hexaTo);
+    }
+
+    /**
+     * Fills the distance arrays. Every shard involved is resolved once, so a shard evicted concurrently is still
+     * used until the end of the fill. Pairs missing from their shard fall back to the border cache, like
+     * {@link #getDistanceTrusted(long, long)}.
+     */
+    @Override
+    public void fill(long[] hexagons, long[] meters, long[] seconds, int[] h3Distances, RoutingExecutor executor) {
+        H3Core h3 = H3.h3();
+        int dim = hexagons.length;
+        int borderResolution = borderCache.getH3Resolution();
+
+        // resolve every hexagon once: its shard (cell and cache), its index in the shard and in the border cache
+        long[] shardCells = new long[dim];
+        H3DistanceCache[] shardOf = new H3DistanceCache[dim];
+        int[] shardIdx = new int[dim];
+        int[] borderIdx = new int[dim];
+        Map<Long, H3DistanceCache> shardCaches = new HashMap<>();
+        for (int i = 0; i < dim; i++) {
+            shardCells[i] = h3.h3ToParent(hexagons[i], shardResolution);
+            shardOf[i] = shardCaches.computeIfAbsent(shardCells[i], this::loadedShardOrNull);
+            shardIdx[i] = shardOf[i] == null ? H3HexagonIndex.NOT_FOUND : shardOf[i].indexOf(hexagons[i]);
+            borderIdx[i] = borderCache.indexOf(h3.h3ToParent(hexagons[i], borderResolution));
+        }
+
+        MatrixTiles.forEachTile(executor, dim, dim, (rowFrom, rowTo, colFrom, colTo) -> {
+            int tileShardLookups = 0;
+            int tileBorderLookups = 0;
+            for (int i = rowFrom; i < rowTo; i++) {
+                for (int j = colFrom; j < colTo; j++) {
+                    int idx = i * dim + j;
+
+                    if (shardCells[i] == shardCells[j] && shardIdx[i] != H3HexagonIndex.NOT_FOUND && shardIdx[j] != H3HexagonIndex.NOT_FOUND) {
+                        int shardMeters = shardOf[i].metersAt(shardIdx[i], shardIdx[j]);
+                        if (shardMeters != H3DistanceCache.MISSING_DISTANCE) {
+                            meters[idx] = shardMeters;
+                            seconds[idx] = shardOf[i].secondsAt(shardIdx[i], shardIdx[j]);
+                            h3Distances[idx] = shardOf[i].h3DistanceAt(shardIdx[i], shardIdx[j]);
+                            tileShardLookups++;
+                            continue;
+                        }
+                    }
+
+                    if (borderIdx[i] == H3HexagonIndex.NOT_FOUND || borderIdx[j] == H3HexagonIndex.NOT_FOUND) {
+                        meters[idx] = H3DistanceCache.MISSING_DISTANCE;
+                        seconds[idx] = H3DistanceCache.MISSING_DISTANCE;
+                        h3Distances[idx] = H3DistanceCache.MISSING_DISTANCE;
+                        continue;
+                    }
+
+                    meters[idx] = borderCache.metersAt(borderIdx[i], borderIdx[j]);
+                    seconds[idx] = borderCache.secondsAt(borderIdx[i], borderIdx[j]);
+                    h3Distances[idx] = H3DistanceCache.h3DistanceOf(h3, hexagons[i], hexagons[j]);
+                    tileBorderLookups++;
+                }
+            }
+            shardLookups.add(tileShardLookups);
+            borderLookups.add(tileBorderLookups);
+        });
+    }
+
+    private int borderMetersBetween(H3Core h3, long hexaFrom, long hexaTo) {
+        int borderResolution = borderCache.getH3Resolution();
+        int meters = borderCache.metersBetweenTrusted(h3.h3ToParent(hexaFrom, borderResolution), h3.h3ToParent(hexaTo, borderResolution));
+        if (meters != H3DistanceCache.MISSING_DISTANCE) {
+            borderLookups.increment();
+        }
+        return meters;
+    }
+
+    /**
+     * @return The loaded cache of the shard both hexagons belong to, or <code>null</code> if they are in different shards.
+     */
+    private H3DistanceCache sharedShardOf(long hexaFrom, long hexaTo) {
+        H3Core h3 = H3.h3();
+        long fromCell = h3.h3ToParent(hexaFrom, shardResolution);
+        if (fromCell != h3.h3ToParent(hexaTo, shardResolution)) {
+            return null;
+        }
+        return this.loadedShardOrNull(fromCell);
+    }
+
+    /**
+     * @param parentCell The parent cell of the shard.
+     * @return The cache of the shard (imported if it's not loaded), or <code>null</code> if there's no such shard.
+     */
+    private H3DistanceCache loadedShardOrNull(long parentCell) {
+        Shard shard = shards.get(parentCell);
+        if (shard == null) {
+            return null;
+        }
+
+        shard.lastAccess = System.nanoTime();
+        H3DistanceCache cache = shard.cache;
+        if (cache != null) {
+            return cache;
+        }
+
+        synchronized (loadLock) {
+            if (shard.cache == null) {
+                long start = System.currentTimeMillis();
+                shard.cache = shard.source.importCache();
+                loadedShardCnt++;
+                loadedBytes += shard.cache.getDistanceBytes();
+                shardLoads.increment();
+                logger.info("Loaded shard {} ({} hexagons) in {}ms", Long.toHexString(parentCell), shard.cache.getH3Hexagons().length, System.currentTimeMillis() - start);
+
+                this.evictColdShards(shard);
+            }
+            return shard.cache;
+        }
+    }
+
+    /**
+     * Evicts the least recently used shards until the loaded shards fit both the max number of shards and the byte
+     * budget. Must be called holding the load lock.
+     *
+     * @param keep The shard that was just loaded, never evicted.
+     */
+    private void evictColdShards(Shard keep) {
+        while ((loadedShardCnt > maxLoadedShards || loadedBytes > maxLoadedBytes) && this.evictColdest(keep)) {
+            // evict until the loaded shards fit
+        }
+    }
+
+    private boolean evictColdest(Shard keep) {
+        Shard coldest = null;
+        for (Shard shard : shards.values()) {
+            if (shard == keep || shard.cache == null) {
+                continue;
+            }
+            if (coldest == null || shard.lastAccess < coldest.lastAccess) {
+                coldest = shard;
+            }
+        }
+
+        if (coldest == null) {
+            return false;
+        }
+
+        loadedBytes -= coldest.cache.getDistanceBytes();
+        coldest.cache = null;
+        loadedShardCnt--;
+        shardEvictions.increment();
+        logger.debug("Evicted shard {}", Long.toHexString(coldest.parentCell));
+        return true;
+    }
+
+    public Metrics getMetrics() {
+        synchronized (loadLock) {
+            return new Metrics(shardLookups.sum(), borderLookups.sum(), shardLoads.sum(), shardEvictions.sum(), loadedShardCnt, loadedBytes, shards.size());
+        }
+    }
+}
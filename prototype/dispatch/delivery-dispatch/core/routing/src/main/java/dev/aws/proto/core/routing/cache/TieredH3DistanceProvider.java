@@ -0,0 +1,265 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache;
+
+import dev.aws.proto.core.routing.distance.TravelDistance;
+import dev.aws.proto.core.routing.route.GraphhopperRouter;
+import dev.aws.proto.core.routing.route.RoutingExecutor;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tiered distance provider on top of an {@link IH3DistanceLookup} (a single {@link H3DistanceCache} or a
+ * {@link ShardedH3DistanceCache}).
+ * <p>
+ * Tiers:
+ * 1. the H3 distance cache
+ * 2. a bounded (LRU) memo of previously routed hexagon pairs
+ * 3. Graphhopper: pairs missing from the cache (e.g. hexagons on the edge of, or outside the coverage area) are
+ * routed between the hexagon centers, in parallel batches, and memoized. Pairs that can't be routed are reported
+ * with the router's <code>-1</code> distance and are not memoized, so they are retried on the next matrix.
+ * <p>
+ * Lookups and routing run on the {@link RoutingExecutor} of the router (or the given executor).
+ * <p>
+ * Without a router, misses are reported with {@link H3DistanceCache#MISSING_DISTANCE}.
+ */
+public class TieredH3DistanceProvider {
+    private static final Logger logger = LoggerFactory.getLogger(TieredH3DistanceProvider.class);
+
+    public static final int DEFAULT_MEMO_SIZE = 100_000;
+
+    @Getter
+    private final IH3DistanceLookup distanceCache;
+    private final GraphhopperRouter router;
+    @Getter
+    private final RoutingExecutor executor;
+    private final Map<HexagonPair, TravelDistance> memo;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder memoHits = new LongAdder();
+    private final LongAdder routed = new LongAdder();
+    private final LongAdder unresolved = new LongAdder();
+    private final LongAdder unroutable = new LongAdder();
+
+    public TieredH3DistanceProvider(IH3DistanceLookup distanceCache, GraphhopperRouter router) {
+        this(distanceCache, router, DEFAULT_MEMO_SIZE);
+    }
+
+    public TieredH3DistanceProvider(IH3DistanceLookup distanceCache, GraphhopperRouter router, int maxMemoSize) {
+        this(distanceCache, router, maxMemoSize, router == null ? RoutingExecutor.shared() : router.getExecutor());
+    }
+
+    public TieredH3DistanceProvider(IH3DistanceLookup distanceCache, GraphhopperRouter router, int maxMemoSize, RoutingExecutor executor) {
+        this.distanceCache = distanceCache;
+        this.router = router;
+        this.executor = executor;
+        this.memo = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<HexagonPair, TravelDistance> eldest) {
+                return size() > maxMemoSize;
+            }
+        });
+    }
+
+    /**
+     * An ordered pair of hexagons.
+     */
+    @Data
+    @AllArgsConstructor(staticName = "of")
+    public static class HexagonPair {
+        private final long from;
+        private final long to;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Metrics {
+        private long cacheHits;
+        private long memoHits;
+        private long routed;
+        private long unresolved;
+        private long unroutable;
+        private int memoSize;
+
+        /**
+         * @return The ratio of lookups served from the cache or the memo.
+         */
+        public double getHitRatio() {
+            long total = cacheHits + memoHits + routed + unresolved;
+            return total == 0 ? 0.0 : (double) (cacheHits + memoHits) / total;
+        }
+    }
+
+    /**
+     * Gets the distance between two hexagons in the cache's resolution.
+     *
+     * @param hexaFrom Origin hexagon.
+     * @param hexaTo   Destination hexagon.
+     * @return The travel distance, or <code>null</code> if the pair is not in the cache and there's no router.
+     */
+    public TravelDistance getDistance(long hexaFrom, long hexaTo) {
+        TravelDistance distance = distanceCache.getDistanceTrusted(hexaFrom, hexaTo);
+        if (distance != null) {
+            cacheHits.increment();
+            return distance;
+        }
+
+        return this.fromMemoOrRoute(HexagonPair.of(hexaFrom, hexaTo));
+    }
+
+    /**
+     * Routes the pairs that are neither in the cache nor in the memo, in parallel, and memoizes the routable ones.
+     *
+     * @param pairs The hexagon pairs.
+     */
+    public void prefetch(Collection<HexagonPair> pairs) {
+        if (router == null) {
+            return;
+        }
+
+        this.routeAll(pairs.stream()
+                .filter(pair -> distanceCache.metersBetweenTrusted(pair.getFrom(), pair.getTo()) == H3DistanceCache.MISSING_DISTANCE)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return The distances of the pairs routed now (unroutable ones included).
+     */
+    private Map<HexagonPair, TravelDistance> routeAll(Collection<HexagonPair> pairs) {
+        if (router == null) {
+            return Collections.emptyMap();
+        }
+
+        List<HexagonPair> toRoute = pairs.stream()
+                .filter(pair -> !memo.containsKey(pair))
+                .distinct()
+                .collect(Collectors.toList());
+
+        if (toRoute.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        long start = System.currentTimeMillis();
+        Map<HexagonPair, TravelDistance> routedDistances = new ConcurrentHashMap<>();
+        executor.forEach(toRoute.size(), i -> {
+            HexagonPair pair = toRoute.get(i);
+            routedDistances.put(pair, this.route(pair));
+        });
+        logger.debug("Routed {} hexagon pairs missing from the H3DistanceCache in {}ms", toRoute.size(), System.currentTimeMillis() - start);
+        return routedDistances;
+    }
+
+    /**
+     * Routes the pair with Graphhopper. Only routable pairs are memoized, router failures are not final (e.g. a
+     * different snap accuracy or an updated graph may route them).
+     */
+    private TravelDistance route(HexagonPair pair) {
+        TravelDistance distance = H3DistanceCache.calculateTravelDistance(router, pair.getFrom(), pair.getTo());
+        routed.increment();
+        if (distance.getDistanceInMeters() < 0) {
+            unroutable.increment();
+        } else {
+            memo.put(pair, distance);
+        }
+        return distance;
+    }
+
+    /**
+     * Fills row-major distance arrays for the given hexagons. Pairs missing from the cache are routed in one
+     * parallel batch before filling. Pairs that can't be routed are filled with <code>-1</code>.
+     *
+     * @param hexagons    The hexagons, in the cache's resolution.
+     * @param meters      Output: meters.
+     * @param seconds     Output: seconds.
+     * @param h3Distances Output: h3 distances.
+     */
+    public void fill(long[] hexagons, long[] meters, long[] seconds, int[] h3Distances) {
+        int dim = hexagons.length;
+        distanceCache.fill(hexagons, meters, seconds, h3Distances, executor);
+
+        int[] missingCells = IntStream.range(0, dim * dim)
+                .filter(idx -> meters[idx] == H3DistanceCache.MISSING_DISTANCE)
+                .toArray();
+        cacheHits.add((long) dim * dim - missingCells.length);
+
+        if (missingCells.length == 0) {
+            return;
+        }
+
+        // route all the pairs that are not in the cache in one parallel batch
+        Set<HexagonPair> missingPairs = new HashSet<>();
+        for (int idx : missingCells) {
+            missingPairs.add(HexagonPair.of(hexagons[idx / dim], hexagons[idx % dim]));
+        }
+        logger.info("{} hexagon pairs are not in the H3DistanceCache", missingPairs.size());
+        Map<HexagonPair, TravelDistance> routedDistances = this.routeAll(missingPairs);
+
+        executor.forEach(missingCells.length, m -> {
+            int idx = missingCells[m];
+            HexagonPair pair = HexagonPair.of(hexagons[idx / dim], hexagons[idx % dim]);
+            TravelDistance distance = routedDistances.get(pair);
+            if (distance == null) {
+                distance = this.fromMemoOrRoute(pair);
+            }
+            if (distance == null) {
+                return;
+            }
+
+            meters[idx] = distance.getDistanceInMeters();
+            seconds[idx] = distance.getDistanceInSeconds();
+            h3Distances[idx] = distance.getH3Distance();
+        });
+    }
+
+    private TravelDistance fromMemoOrRoute(HexagonPair pair) {
+        TravelDistance distance = memo.get(pair);
+        if (distance != null) {
+            memoHits.increment();
+            return distance;
+        }
+
+        if (router == null) {
+            unresolved.increment();
+            logger.warn("No distance found between {} -- {}", Long.toHexString(pair.getFrom()), Long.toHexString(pair.getTo()));
+            return null;
+        }
+
+        return this.route(pair);
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(cacheHits.sum(), memoHits.sum(), routed.sum(), unresolved.sum(), unroutable.sum(), memo.size());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.encoding;
+
+/**
+ * Encoding of the meters/seconds cells of a distance cache, in memory and in the mapped cache file.
+ */
+public enum CellEncoding {
+    /**
+     * Plain 4 byte ints, see {@link Int32Column}.
+     */
+    INT32(0, Integer.BYTES),
+
+    /**
+     * 3 byte unsigned values with an overflow escape, see {@link Int24Column}.
+     */
+    INT24(1, Int24Column.BYTES);
+
+    private final int code;
+    private final int bytes;
+
+    CellEncoding(int code, int bytes) {
+        this.code = code;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return The code of the encoding in the cache file header.
+     */
+    public int code() {
+        return code;
+    }
+
+    /**
+     * @return The number of bytes per cell.
+     */
+    public int bytes() {
+        return bytes;
+    }
+
+    public static CellEncoding ofCode(int code) {
+        for (CellEncoding encoding : values()) {
+            if (encoding.code == code) {
+                return encoding;
+            }
+        }
+        throw new IllegalArgumentException("Unknown cell encoding: " + code);
+    }
+
+    /**
+     * Encodes a column with this encoding.
+     *
+     * @param column The column.
+     * @return The encoded column, or the column itself if it's already in this encoding.
+     */
+    public DistanceColumn encode(DistanceColumn column) {
+        if (column.encoding() == this) {
+            return column;
+        }
+        return this == INT24 ? Int24Column.encode(column) : Int32Column.encode(column);
+    }
+}
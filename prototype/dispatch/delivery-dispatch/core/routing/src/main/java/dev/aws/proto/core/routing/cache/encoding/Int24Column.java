@@ -0,0 +1,165 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.encoding;
+
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Distance column of 3 byte unsigned values (big endian), backed by a heap or a mapped buffer.
+ * <p>
+ * City-scale meters and seconds fit in 24 bits. Routing errors (-1) have their own code, every other value that
+ * doesn't fit (negative or too large) is escaped and kept in a small overflow table, sorted by cell index.
+ */
+public class Int24Column implements DistanceColumn {
+    public static final int BYTES = 3;
+
+    /**
+     * Largest value stored directly.
+     */
+    public static final int MAX_DIRECT_VALUE = 0xFFFFFD;
+
+    /**
+     * Code of the -1 (routing error) value.
+     */
+    static final int ERROR_CODE = 0xFFFFFE;
+
+    /**
+     * Code of the values stored in the overflow table.
+     */
+    public static final int ESCAPE_CODE = 0xFFFFFF;
+
+    /**
+     * The largest number of cells where the column still fits in one (heap or mapped) buffer.
+     */
+    public static final int MAX_SIZE = Integer.MAX_VALUE / BYTES;
+
+    @Getter
+    private final ByteBuffer buffer;
+    private final int size;
+
+    @Getter
+    private final int[] overflowCells;
+    @Getter
+    private final int[] overflowValues;
+
+    /**
+     * @param buffer         The encoded values (3 bytes per cell).
+     * @param size           The number of cells.
+     * @param overflowCells  Cell indexes of the escaped values, ascending.
+     * @param overflowValues The escaped values.
+     */
+    public Int24Column(ByteBuffer buffer, int size, int[] overflowCells, int[] overflowValues) {
+        checkSize(size);
+        if (buffer.limit() != (long) size * BYTES) {
+            throw new IllegalArgumentException("Buffer doesn't match the number of cells (" + size + ")");
+        }
+        if (overflowCells.length != overflowValues.length) {
+            throw new IllegalArgumentException("Overflow cells and values don't match");
+        }
+
+        this.buffer = buffer;
+        this.size = size;
+        this.overflowCells = overflowCells;
+        this.overflowValues = overflowValues;
+    }
+
+    /**
+     * @param value The value.
+     * @return The 24 bit code of the value ({@link #ESCAPE_CODE} if it has to go to the overflow table).
+     */
+    public static int codeOf(int value) {
+        if (value >= 0 && value <= MAX_DIRECT_VALUE) {
+            return value;
+        }
+        return value == -1 ? ERROR_CODE : ESCAPE_CODE;
+    }
+
+    public static Int24Column encode(DistanceColumn column) {
+        int size = column.size();
+        checkSize(size);
+        ByteBuffer buffer = ByteBuffer.allocate(size * BYTES);
+
+        int overflowCnt = 0;
+        int[] overflowCells = new int[0];
+        int[] overflowValues = new int[0];
+
+        for (int cellIdx = 0; cellIdx < size; cellIdx++) {
+            int value = column.get(cellIdx);
+            int code = codeOf(value);
+            putCode(buffer, cellIdx, code);
+
+            if (code == ESCAPE_CODE) {
+                if (overflowCnt == overflowCells.length) {
+                    overflowCells = Arrays.copyOf(overflowCells, Math.max(16, overflowCnt * 2));
+                    overflowValues = Arrays.copyOf(overflowValues, overflowCells.length);
+                }
+                overflowCells[overflowCnt] = cellIdx;
+                overflowValues[overflowCnt] = value;
+                overflowCnt++;
+            }
+        }
+
+        return new Int24Column(buffer, size, Arrays.copyOf(overflowCells, overflowCnt), Arrays.copyOf(overflowValues, overflowCnt));
+    }
+
+    private static void checkSize(int size) {
+        if (size < 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Number of cells " + size + " exceeds the maximum of " + MAX_SIZE + " for the INT24 encoding");
+        }
+    }
+
+    private static void putCode(ByteBuffer buffer, int cellIdx, int code) {
+        int offset = cellIdx * BYTES;
+        buffer.put(offset, (byte) (code >>> 16));
+        buffer.put(offset + 1, (byte) (code >>> 8));
+        buffer.put(offset + 2, (byte) code);
+    }
+
+    @Override
+    public int get(int cellIdx) {
+        int offset = cellIdx * BYTES;
+        int code = ((buffer.get(offset) & 0xFF) << 16)
+                | ((buffer.get(offset + 1) & 0xFF) << 8)
+                | (buffer.get(offset + 2) & 0xFF);
+
+        if (code <= MAX_DIRECT_VALUE) {
+            return code;
+        }
+        if (code == ERROR_CODE) {
+            return -1;
+        }
+        return overflowValues[Arrays.binarySearch(overflowCells, cellIdx)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public CellEncoding encoding() {
+        return CellEncoding.INT24;
+    }
+
+    public int getOverflowCount() {
+        return overflowCells.length;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.encoding;
+
+import lombok.Getter;
+
+import java.nio.IntBuffer;
+
+/**
+ * Distance column of plain ints, backed by a heap or a mapped buffer.
+ */
+public class Int32Column implements DistanceColumn {
+    @Getter
+    private final IntBuffer buffer;
+
+    public Int32Column(IntBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public static Int32Column encode(DistanceColumn column) {
+        int[] values = new int[column.size()];
+        for (int cellIdx = 0; cellIdx < values.length; cellIdx++) {
+            values[cellIdx] = column.get(cellIdx);
+        }
+        return new Int32Column(IntBuffer.wrap(values));
+    }
+
+    @Override
+    public int get(int cellIdx) {
+        return buffer.get(cellIdx);
+    }
+
+    @Override
+    public int size() {
+        return buffer.limit();
+    }
+
+    @Override
+    public CellEncoding encoding() {
+        return CellEncoding.INT32;
+    }
+}
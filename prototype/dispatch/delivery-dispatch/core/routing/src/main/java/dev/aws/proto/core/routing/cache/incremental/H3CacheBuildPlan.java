@@ -0,0 +1,393 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.incremental;
+
+import dev.aws.proto.core.routing.cache.persistence.CachePersistenceException;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * The plan of an incremental h3 cache build, kept in a build directory.
+ * <p>
+ * The hexagons are recorded in generations: generation 0 is the initial hexagon set, every later generation holds
+ * the hexagons added to it (e.g. a polygon growth). The plan is split into row-block work units (see
+ * {@link H3CacheWorkUnit}); a new generation only adds units for the new rows and the new columns. Each computed
+ * unit is checkpointed into a segment file (see {@link H3CacheSegment}), a build resumes by computing the units
+ * without a segment.
+ * <p>
+ * Directory layout:
+ * <p>
+ * build.properties            -- Manifest: h3 resolution, block size, number of generations
+ * generation-[g].hexagons     -- The hexagons added in generation g (count, then the sorted hexagons)
+ * units.txt                   -- The work units (id, rows, columns), for inspection
+ * segments/[unit id].seg      -- The computed units
+ * segments/[unit id].claim    -- A unit being computed by a worker
+ * <p>
+ * Workers on several nodes can share the build directory (e.g. on a network file system): a worker claims a unit by
+ * creating its claim file, and keeps touching it while computing the unit (see {@link #touchClaim(H3CacheWorkUnit)}).
+ * Claims that weren't touched for a timeout (e.g. a terminated spot instance) are taken over by renaming them to a
+ * worker-unique name first, so only one worker wins the takeover.
+ */
+public class H3CacheBuildPlan {
+    private static final Logger logger = LoggerFactory.getLogger(H3CacheBuildPlan.class);
+
+    public static final int DEFAULT_BLOCK_SIZE = 256;
+    public static final String MANIFEST_FILE = "build.properties";
+    public static final String SEGMENTS_DIR = "segments";
+    public static final String UNITS_FILE = "units.txt";
+    public static final long DEFAULT_CLAIM_TIMEOUT_MILLIS = 60 * 60 * 1000L;
+
+    private static final String H3_RESOLUTION = "h3Resolution";
+    private static final String BLOCK_SIZE = "blockSize";
+    private static final String GENERATIONS = "generations";
+
+    /**
+     * Identifies the claim takeovers of this process.
+     */
+    private static final String WORKER_ID = UUID.randomUUID().toString();
+
+    @Getter
+    private final Path buildDir;
+    @Getter
+    private final int h3Resolution;
+    @Getter
+    private final int blockSize;
+    private final List<long[]> generations;
+
+    private H3CacheBuildPlan(Path buildDir, int h3Resolution, int blockSize, List<long[]> generations) {
+        this.buildDir = buildDir;
+        this.h3Resolution = h3Resolution;
+        this.blockSize = blockSize;
+        this.generations = generations;
+    }
+
+    /**
+     * @param buildDir The build directory.
+     * @return <code>true</code> if the directory contains a plan.
+     */
+    public static boolean exists(Path buildDir) {
+        return Files.isRegularFile(buildDir.resolve(MANIFEST_FILE));
+    }
+
+    /**
+     * Creates a plan in the build directory, or, if there's already one, adds the hexagons that are not in it yet as
+     * a new generation.
+     *
+     * @param buildDir     The build directory.
+     * @param h3Resolution The resolution of the hexagons.
+     * @param blockSize    The number of rows in a work unit (ignored when the plan exists).
+     * @param hexagons     The hexagons.
+     * @return The plan.
+     */
+    public static H3CacheBuildPlan createOrExtend(Path buildDir, int h3Resolution, int blockSize, Collection<Long> hexagons) {
+        if (exists(buildDir)) {
+            H3CacheBuildPlan plan = load(buildDir);
+            if (plan.getH3Resolution() != h3Resolution) {
+                throw new CachePersistenceException("The build in " + buildDir + " has resolution " + plan.getH3Resolution() + ", expected " + h3Resolution);
+            }
+            plan.addHexagons(hexagons);
+            return plan;
+        }
+
+        try {
+            Files.createDirectories(buildDir.resolve(SEGMENTS_DIR));
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error creating the build directory " + buildDir, ioEx);
+        }
+
+        H3CacheBuildPlan plan = new H3CacheBuildPlan(buildDir, h3Resolution, blockSize, new ArrayList<>());
+        plan.addHexagons(hexagons);
+        return plan;
+    }
+
+    /**
+     * @param buildDir The build directory.
+     * @return The plan in the build directory.
+     */
+    public static H3CacheBuildPlan load(Path buildDir) {
+        Properties manifest = new Properties();
+        try (InputStream inputStream = Files.newInputStream(buildDir.resolve(MANIFEST_FILE))) {
+            manifest.load(inputStream);
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error reading the build manifest from " + buildDir, ioEx);
+        }
+
+        int generationCnt = Integer.parseInt(manifest.getProperty(GENERATIONS));
+        List<long[]> generations = new ArrayList<>(generationCnt);
+        for (int g = 0; g < generationCnt; g++) {
+            generations.add(readHexagons(buildDir.resolve(generationFileName(g))));
+        }
+
+        return new H3CacheBuildPlan(buildDir,
+                Integer.parseInt(manifest.getProperty(H3_RESOLUTION)),
+                Integer.parseInt(manifest.getProperty(BLOCK_SIZE)),
+                generations);
+    }
+
+    /**
+     * Adds the hexagons that are not in the plan yet as a new generation, and saves the plan.
+     *
+     * @param hexagons The hexagons.
+     * @return The number of added hexagons.
+     */
+    public int addHexagons(Collection<Long> hexagons) {
+        long[] known = this.getHexagons();
+        long[] added = hexagons.stream()
+                .mapToLong(Long::longValue)
+                .filter(hexa -> Arrays.binarySearch(known, hexa) < 0)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        if (added.length == 0) {
+            logger.info("No new hexagons, the plan has {} hexagons in {} generations", known.length, generations.size());
+            return 0;
+        }
+
+        // the hexagons first, so a crash never leaves a manifest pointing to a missing generation
+        writeHexagons(buildDir.resolve(generationFileName(generations.size())), added);
+        generations.add(added);
+        this.saveManifest();
+
+        logger.info("Generation {}: added {} hexagons ({} in total)", generations.size() - 1, added.length, known.length + added.length);
+        return added.length;
+    }
+
+    /**
+     * @return All the hexagons of the plan, sorted.
+     */
+    public long[] getHexagons() {
+        return this.hexagonsUntil(generations.size());
+    }
+
+    public int getGenerationCount() {
+        return generations.size();
+    }
+
+    /**
+     * @return All the work units of the plan, in a stable order.
+     */
+    public List<H3CacheWorkUnit> getWorkUnits() {
+        List<H3CacheWorkUnit> units = new ArrayList<>();
+        for (int g = 0; g < generations.size(); g++) {
+            long[] added = generations.get(g);
+            long[] previous = this.hexagonsUntil(g);
+            long[] all = this.hexagonsUntil(g + 1);
+
+            // new rows against all the columns
+            for (int block = 0; block * blockSize < added.length; block++) {
+                units.add(new H3CacheWorkUnit(g, H3CacheWorkUnit.Kind.NEW_ROWS, block, this.blockOf(added, block), all));
+            }
+            // old rows against the new columns
+            for (int block = 0; block * blockSize < previous.length; block++) {
+                units.add(new H3CacheWorkUnit(g, H3CacheWorkUnit.Kind.NEW_COLUMNS, block, this.blockOf(previous, block), added));
+            }
+        }
+        return units;
+    }
+
+    /**
+     * @return The work units that don't have a segment yet.
+     */
+    public List<H3CacheWorkUnit> getPendingWorkUnits() {
+        return this.getWorkUnits().stream()
+                .filter(unit -> !this.isDone(unit))
+                .collect(Collectors.toList());
+    }
+
+    public boolean isDone(H3CacheWorkUnit unit) {
+        return Files.isRegularFile(this.segmentPath(unit));
+    }
+
+    public Path segmentPath(H3CacheWorkUnit unit) {
+        return buildDir.resolve(SEGMENTS_DIR).resolve(unit.getId() + ".seg");
+    }
+
+    /**
+     * @param unitId The id of the unit.
+     * @return The unit, or <code>null</code> if there's no such unit in the plan.
+     */
+    public H3CacheWorkUnit findWorkUnit(String unitId) {
+        return this.getWorkUnits().stream()
+                .filter(unit -> unit.getId().equals(unitId))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Claims a unit for the calling worker.
+     *
+     * @param unit               The work unit.
+     * @param claimTimeoutMillis The age after which another worker's claim is considered abandoned.
+     * @return <code>true</code> if the unit was claimed, <code>false</code> if it's done or claimed by another worker.
+     */
+    public boolean tryClaim(H3CacheWorkUnit unit, long claimTimeoutMillis) {
+        if (this.isDone(unit)) {
+            return false;
+        }
+
+        Path claimPath = this.claimPath(unit);
+        try {
+            Files.createFile(claimPath);
+            return true;
+        } catch (FileAlreadyExistsException existsEx) {
+            try {
+                long age = ageMillis(claimPath);
+                if (age < claimTimeoutMillis) {
+                    return false;
+                }
+
+                // only one worker can rename the claim, the others fail with NoSuchFileException
+                Path takenOverPath = claimPath.resolveSibling(claimPath.getFileName() + "." + WORKER_ID);
+                Files.move(claimPath, takenOverPath, StandardCopyOption.ATOMIC_MOVE);
+                if (ageMillis(takenOverPath) < claimTimeoutMillis) {
+                    // another worker took over the stale claim and re-created it in the meantime: give it back
+                    Files.move(takenOverPath, claimPath, StandardCopyOption.ATOMIC_MOVE);
+                    return false;
+                }
+                Files.delete(takenOverPath);
+
+                logger.warn("Taking over the claim of work unit {} ({}s old)", unit.getId(), age / 1000);
+                Files.createFile(claimPath);
+                return true;
+            } catch (IOException ioEx) {
+                // another worker took it over first
+                return false;
+            }
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error claiming work unit " + unit.getId(), ioEx);
+        }
+    }
+
+    /**
+     * Refreshes the claim of a unit being computed, so other workers don't take it over.
+     *
+     * @param unit The work unit.
+     */
+    public void touchClaim(H3CacheWorkUnit unit) {
+        try {
+            Files.setLastModifiedTime(this.claimPath(unit), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ioEx) {
+            logger.warn("Couldn't refresh the claim of work unit {}: {}", unit.getId(), ioEx.getMessage());
+        }
+    }
+
+    public void releaseClaim(H3CacheWorkUnit unit) {
+        try {
+            Files.deleteIfExists(this.claimPath(unit));
+        } catch (IOException ioEx) {
+            logger.warn("Couldn't release the claim of work unit {}: {}", unit.getId(), ioEx.getMessage());
+        }
+    }
+
+    /**
+     * Writes the list of work units next to the manifest.
+     */
+    public void writeUnitList() {
+        List<String> lines = this.getWorkUnits().stream()
+                .map(unit -> String.format("%s\t%d\t%d", unit.getId(), unit.getRowHexagons().length, unit.getColHexagons().length))
+                .collect(Collectors.toList());
+        try {
+            Files.write(buildDir.resolve(UNITS_FILE), lines);
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error writing the work units to " + buildDir, ioEx);
+        }
+    }
+
+    private Path claimPath(H3CacheWorkUnit unit) {
+        return buildDir.resolve(SEGMENTS_DIR).resolve(unit.getId() + ".claim");
+    }
+
+    private static long ageMillis(Path path) throws IOException {
+        return System.currentTimeMillis() - Files.getLastModifiedTime(path).toMillis();
+    }
+
+    private long[] blockOf(long[] hexagons, int block) {
+        int from = block * blockSize;
+        return Arrays.copyOfRange(hexagons, from, Math.min(from + blockSize, hexagons.length));
+    }
+
+    private long[] hexagonsUntil(int generationCnt) {
+        return generations.subList(0, generationCnt).stream()
+                .flatMapToLong(LongStream::of)
+                .sorted()
+                .toArray();
+    }
+
+    private void saveManifest() {
+        Properties manifest = new Properties();
+        manifest.setProperty(H3_RESOLUTION, String.valueOf(h3Resolution));
+        manifest.setProperty(BLOCK_SIZE, String.valueOf(blockSize));
+        manifest.setProperty(GENERATIONS, String.valueOf(generations.size()));
+
+        try (OutputStream outputStream = Files.newOutputStream(buildDir.resolve(MANIFEST_FILE))) {
+            manifest.store(outputStream, "H3DistanceCache build");
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error writing the build manifest to " + buildDir, ioEx);
+        }
+    }
+
+    private static String generationFileName(int generation) {
+        return "generation-" + generation + ".hexagons";
+    }
+
+    private static void writeHexagons(Path path, long[] hexagons) {
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            outputStream.writeInt(hexagons.length);
+            for (long hexa : hexagons) {
+                outputStream.writeLong(hexa);
+            }
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error writing hexagons to " + path, ioEx);
+        }
+    }
+
+    private static long[] readHexagons(Path path) {
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            long[] hexagons = new long[inputStream.readInt()];
+            for (int i = 0; i < hexagons.length; i++) {
+                hexagons[i] = inputStream.readLong();
+            }
+            return hexagons;
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error reading hexagons from " + path, ioEx);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.incremental;
+
+import dev.aws.proto.core.routing.cache.persistence.CachePersistenceException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A computed block of an h3 distance matrix: the distances from a list of row hexagons to a list of column hexagons.
+ * <p>
+ * Segments are the checkpoints of an incremental build: a segment file is only visible once it's completely written
+ * (written to a temp file, then moved in place), so an existing segment file is always a finished unit of work.
+ * <p>
+ * File format (big endian):
+ * <p>
+ * Bytes             -- Content
+ * 4                 -- Magic number ("H3SG")
+ * 4                 -- Format version
+ * 4                 -- Number of rows (R)
+ * 4                 -- Number of columns (C)
+ * [R x 8]           -- Row hexagons
+ * [C x 8]           -- Column hexagons
+ * [R x C x 4]       -- Meters, row-major
+ * [R x C x 4]       -- Seconds, row-major
+ */
+@Getter
+@AllArgsConstructor
+public class H3CacheSegment {
+    public static final int MAGIC = 0x48335347;
+    public static final int VERSION = 1;
+
+    private final long[] rowHexagons;
+    private final long[] colHexagons;
+    private final int[] meters;
+    private final int[] seconds;
+
+    /**
+     * Writes the segment atomically.
+     *
+     * @param path The path of the segment file.
+     */
+    public void write(Path path) {
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath)))) {
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeInt(rowHexagons.length);
+            outputStream.writeInt(colHexagons.length);
+            for (long hexa : rowHexagons) {
+                outputStream.writeLong(hexa);
+            }
+            for (long hexa : colHexagons) {
+                outputStream.writeLong(hexa);
+            }
+            for (int value : meters) {
+                outputStream.writeInt(value);
+            }
+            for (int value : seconds) {
+                outputStream.writeInt(value);
+            }
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error writing cache segment " + path, ioEx);
+        }
+
+        try {
+            Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error moving cache segment in place " + path, ioEx);
+        }
+    }
+
+    /**
+     * @param path The path of the segment file.
+     * @return The segment.
+     */
+    public static H3CacheSegment read(Path path) {
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (inputStream.readInt() != MAGIC) {
+                throw new CachePersistenceException("Not a cache segment: " + path);
+            }
+            int version = inputStream.readInt();
+            if (version != VERSION) {
+                throw new CachePersistenceException("Unsupported cache segment version " + version + " in " + path);
+            }
+
+            int rowCnt = inputStream.readInt();
+            int colCnt = inputStream.readInt();
+            long[] rowHexagons = new long[rowCnt];
+            for (int i = 0; i < rowCnt; i++) {
+                rowHexagons[i] = inputStream.readLong();
+            }
+            long[] colHexagons = new long[colCnt];
+            for (int j = 0; j < colCnt; j++) {
+                colHexagons[j] = inputStream.readLong();
+            }
+
+            int cellCnt = rowCnt * colCnt;
+            int[] meters = new int[cellCnt];
+            for (int idx = 0; idx < cellCnt; idx++) {
+                meters[idx] = inputStream.readInt();
+            }
+            int[] seconds = new int[cellCnt];
+            for (int idx = 0; idx < cellCnt; idx++) {
+                seconds[idx] = inputStream.readInt();
+            }
+            return new H3CacheSegment(rowHexagons, colHexagons, meters, seconds);
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error reading cache segment " + path, ioEx);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.incremental;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A unit of work of an incremental h3 cache build: a block of rows of the matrix, against a list of columns.
+ * <p>
+ * Generation 0 is the initial hexagon set. A later generation (hexagons added by a polygon growth) has two kinds of
+ * units: the new rows against all the columns, and the old rows against the new columns.
+ */
+@Getter
+@AllArgsConstructor
+public class H3CacheWorkUnit {
+    public enum Kind {
+        NEW_ROWS,
+        NEW_COLUMNS
+    }
+
+    private final int generation;
+    private final Kind kind;
+    private final int block;
+    private final long[] rowHexagons;
+    private final long[] colHexagons;
+
+    /**
+     * @return The stable identifier of the unit, also the name of its segment file.
+     */
+    public String getId() {
+        return String.format("g%d-%s-%d", generation, kind == Kind.NEW_ROWS ? "rows" : "cols", block);
+    }
+
+    public long getCellCount() {
+        return (long) rowHexagons.length * colHexagons.length;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%dx%d)", this.getId(), rowHexagons.length, colHexagons.length);
+    }
+}
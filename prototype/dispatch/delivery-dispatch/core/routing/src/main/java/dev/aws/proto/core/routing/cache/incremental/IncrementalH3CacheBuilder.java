@@ -0,0 +1,245 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.incremental;
+
+import com.uber.h3core.H3Core;
+import com.uber.h3core.util.GeoCoord;
+import dev.aws.proto.core.routing.H3;
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.cache.H3HexagonIndex;
+import dev.aws.proto.core.routing.cache.persistence.CachePersistenceException;
+import dev.aws.proto.core.routing.distance.Distance;
+import dev.aws.proto.core.routing.distance.MatrixTiles;
+import dev.aws.proto.core.routing.route.GraphhopperMatrixRouter;
+import dev.aws.proto.core.routing.route.GraphhopperRouter;
+import dev.aws.proto.core.routing.route.RoutingExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Computes the work units of an {@link H3CacheBuildPlan} and merges the segments into an {@link H3DistanceCache}.
+ * <p>
+ * Every unit is written to its segment file as soon as it's computed, so an interrupted build loses at most the
+ * units in progress. Units can be computed by several processes (on several nodes) on the same plan, each unit is
+ * claimed by one worker (see {@link H3CacheBuildPlan#tryClaim(H3CacheWorkUnit, long)}), which touches the claim
+ * while the unit is computed, so units that take longer than the claim timeout aren't taken over. The merge only
+ * needs the segment files.
+ */
+public class IncrementalH3CacheBuilder {
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalH3CacheBuilder.class);
+
+    /**
+     * Claims are touched this many times per claim timeout.
+     */
+    private static final int HEARTBEATS_PER_CLAIM_TIMEOUT = 4;
+
+    private final H3CacheBuildPlan plan;
+    private final GraphhopperMatrixRouter matrixRouter;
+    private final GraphhopperRouter router;
+
+    public IncrementalH3CacheBuilder(H3CacheBuildPlan plan, GraphhopperMatrixRouter matrixRouter) {
+        this.plan = plan;
+        this.matrixRouter = matrixRouter;
+        this.router = null;
+    }
+
+    public IncrementalH3CacheBuilder(H3CacheBuildPlan plan, GraphhopperRouter router) {
+        this.plan = plan;
+        this.matrixRouter = null;
+        this.router = router;
+    }
+
+    /**
+     * Computes the units that don't have a segment yet.
+     *
+     * @return The number of computed units.
+     */
+    public int run() {
+        return this.run(unit -> true, Integer.MAX_VALUE, H3CacheBuildPlan.DEFAULT_CLAIM_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Computes the selected units that don't have a segment yet and aren't claimed by another worker.
+     *
+     * @param selector           Selects the units of this worker.
+     * @param maxUnits           The max number of units to compute.
+     * @param claimTimeoutMillis The age after which another worker's claim is considered abandoned.
+     * @return The number of computed units.
+     */
+    public int run(Predicate<H3CacheWorkUnit> selector, int maxUnits, long claimTimeoutMillis) {
+        List<H3CacheWorkUnit> units = plan.getWorkUnits();
+        List<H3CacheWorkUnit> pending = plan.getPendingWorkUnits().stream()
+                .filter(selector)
+                .collect(Collectors.toList());
+        logger.info("{} of {} work units are done, {} are pending for this worker", units.size() - plan.getPendingWorkUnits().size(), units.size(), pending.size());
+
+        long heartbeatMillis = Math.max(1000L, claimTimeoutMillis / HEARTBEATS_PER_CLAIM_TIMEOUT);
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "h3-cache-claim-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int computed = 0;
+        try {
+            for (H3CacheWorkUnit unit : pending) {
+                if (computed >= maxUnits) {
+                    break;
+                }
+                // done or being computed by another worker
+                if (!plan.tryClaim(unit, claimTimeoutMillis)) {
+                    continue;
+                }
+
+                ScheduledFuture<?> touches = heartbeat.scheduleAtFixedRate(() -> plan.touchClaim(unit), heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+                try {
+                    this.compute(unit);
+                } finally {
+                    touches.cancel(false);
+                    plan.releaseClaim(unit);
+                }
+                computed++;
+                logger.info("Finished work unit {} ({} computed by this worker)", unit, computed);
+            }
+        } finally {
+            heartbeat.shutdownNow();
+        }
+        return computed;
+    }
+
+    /**
+     * Computes one unit and writes its segment.
+     *
+     * @param unit The work unit.
+     */
+    public void compute(H3CacheWorkUnit unit) {
+        long start = System.currentTimeMillis();
+        long[] rows = unit.getRowHexagons();
+        long[] cols = unit.getColHexagons();
+        int cellCnt = rows.length * cols.length;
+        int[] meters = new int[cellCnt];
+        int[] seconds = new int[cellCnt];
+
+        H3Core h3 = H3.h3();
+        if (matrixRouter != null) {
+            long[] routedMeters = new long[cellCnt];
+            long[] routedSeconds = new long[cellCnt];
+            matrixRouter.fill(centersOf(h3, rows), centersOf(h3, cols), routedMeters, routedSeconds);
+            for (int idx = 0; idx < cellCnt; idx++) {
+                meters[idx] = H3DistanceCache.clampToInt(routedMeters[idx]);
+                seconds[idx] = H3DistanceCache.clampToInt(routedSeconds[idx]);
+            }
+        } else {
+            GeoCoord[] rowCenters = centersOf(h3, rows);
+            GeoCoord[] colCenters = centersOf(h3, cols);
+            boolean[] rowSnappable = snappableOf(rowCenters);
+            boolean[] colSnappable = snappableOf(colCenters);
+            MatrixTiles.forEachTile(router.getExecutor(), rows.length, cols.length, MatrixTiles.ROUTED_TILE_ROWS, MatrixTiles.ROUTED_TILE_COLS, (rowFrom, rowTo, colFrom, colTo) -> {
+                for (int i = rowFrom; i < rowTo; i++) {
+                    for (int j = colFrom; j < colTo; j++) {
+                        int idx = i * cols.length + j;
+                        if (!rowSnappable[i] || !colSnappable[j]) {
+                            meters[idx] = -1;
+                            seconds[idx] = -1;
+                            continue;
+                        }
+                        Distance distance = router.travelDistance(rowCenters[i], colCenters[j]);
+                        meters[idx] = H3DistanceCache.clampToInt(distance.getDistanceInMeters());
+                        seconds[idx] = H3DistanceCache.clampToInt(distance.getDistanceInSeconds());
+                    }
+                }
+            });
+        }
+
+        new H3CacheSegment(rows, cols, meters, seconds).write(plan.segmentPath(unit));
+        logger.debug("Work unit {} :: calc time = {}ms", unit, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Assembles the full matrix of all the hexagons of the plan from the segments.
+     *
+     * @param plan The plan, with all the units done.
+     * @return The distance cache (full storage mode).
+     */
+    public static H3DistanceCache merge(H3CacheBuildPlan plan) {
+        List<H3CacheWorkUnit> pending = plan.getPendingWorkUnits();
+        if (!pending.isEmpty()) {
+            throw new CachePersistenceException(pending.size() + " work units are not done yet, e.g. " + pending.get(0));
+        }
+
+        long start = System.currentTimeMillis();
+        long[] hexagons = plan.getHexagons();
+        H3HexagonIndex index = new H3HexagonIndex(hexagons);
+        int dim = hexagons.length;
+        int[] meters = new int[dim * dim];
+        int[] seconds = new int[dim * dim];
+        Arrays.fill(meters, -1);
+        Arrays.fill(seconds, -1);
+
+        for (H3CacheWorkUnit unit : plan.getWorkUnits()) {
+            H3CacheSegment segment = H3CacheSegment.read(plan.segmentPath(unit));
+            long[] rows = segment.getRowHexagons();
+            long[] cols = segment.getColHexagons();
+            int[] colIdx = Arrays.stream(cols).mapToInt(index::indexOf).toArray();
+
+            for (int i = 0; i < rows.length; i++) {
+                int rowOffset = index.indexOf(rows[i]) * dim;
+                for (int j = 0; j < cols.length; j++) {
+                    meters[rowOffset + colIdx[j]] = segment.getMeters()[i * cols.length + j];
+                    seconds[rowOffset + colIdx[j]] = segment.getSeconds()[i * cols.length + j];
+                }
+            }
+        }
+
+        H3Core h3 = H3.h3();
+        short[] h3Distances = new short[dim * dim];
+        RoutingExecutor.shared().forEach(dim, i -> {
+            for (int j = 0; j < dim; j++) {
+                h3Distances[i * dim + j] = H3DistanceCache.clampToShort(H3DistanceCache.h3DistanceOf(h3, hexagons[i], hexagons[j]));
+            }
+        });
+
+        logger.info("Merged {} segments into a {}x{} matrix in {}ms", plan.getWorkUnits().size(), dim, dim, System.currentTimeMillis() - start);
+        return new H3DistanceCache(hexagons, IntBuffer.wrap(meters), IntBuffer.wrap(seconds), ShortBuffer.wrap(h3Distances), plan.getH3Resolution());
+    }
+
+    private static GeoCoord[] centersOf(H3Core h3, long[] hexagons) {
+        GeoCoord[] centers = new GeoCoord[hexagons.length];
+        for (int i = 0; i < hexagons.length; i++) {
+            centers[i] = h3.h3ToGeo(hexagons[i]);
+        }
+        return centers;
+    }
+
+    private boolean[] snappableOf(GeoCoord[] centers) {
+        boolean[] snappable = new boolean[centers.length];
+        router.getExecutor().forEach(centers.length, i -> snappable[i] = router.isSnappable(centers[i]));
+        return snappable;
+    }
+}
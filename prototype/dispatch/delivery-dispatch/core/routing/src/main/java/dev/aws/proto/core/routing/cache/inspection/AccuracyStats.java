@@ -0,0 +1,109 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.inspection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Error of approximated distances (e.g. looked up in a coarser resolution) compared with reference distances
+ * (e.g. from a full fine-resolution cache, or routed).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccuracyStats {
+    /**
+     * Number of hexagon pairs the stats are computed from.
+     */
+    private int comparedPairs;
+
+    /**
+     * Number of pairs that were missing from the approximation, but not from the reference.
+     */
+    private int missingPairs;
+
+    private float meanAbsMetersError;
+    private int maxAbsMetersError;
+    private float meanAbsSecondsError;
+    private int maxAbsSecondsError;
+
+    /**
+     * Mean of <code>|approximated - reference| / reference</code> of the meters, in percent.
+     */
+    private float meanRelMetersErrorPercent;
+
+    @Override
+    public String toString() {
+        return String.format("compared pairs = %d :: missing pairs = %d :: meters error mean/max = %.1f/%d (mean %.2f%%) :: seconds error mean/max = %.1f/%d",
+                comparedPairs, missingPairs, meanAbsMetersError, maxAbsMetersError, meanRelMetersErrorPercent, meanAbsSecondsError, maxAbsSecondsError);
+    }
+
+    /**
+     * Collects the error of hexagon pairs. Not thread-safe.
+     */
+    public static class Accumulator {
+        private int comparedPairs;
+        private int missingPairs;
+        private long sumAbsMeters;
+        private int maxAbsMeters;
+        private long sumAbsSeconds;
+        private int maxAbsSeconds;
+        private double sumRelMeters;
+        private int relMetersPairs;
+
+        /**
+         * Adds a pair. Pairs where any of the reference distances is a routing error (negative) are ignored.
+         */
+        public void add(long meters, long referenceMeters, long seconds, long referenceSeconds) {
+            if (referenceMeters < 0 || referenceSeconds < 0) {
+                return;
+            }
+            if (meters < 0 || seconds < 0) {
+                missingPairs++;
+                return;
+            }
+
+            int absMeters = (int) Math.min(Integer.MAX_VALUE, Math.abs(meters - referenceMeters));
+            int absSeconds = (int) Math.min(Integer.MAX_VALUE, Math.abs(seconds - referenceSeconds));
+
+            comparedPairs++;
+            sumAbsMeters += absMeters;
+            sumAbsSeconds += absSeconds;
+            maxAbsMeters = Math.max(maxAbsMeters, absMeters);
+            maxAbsSeconds = Math.max(maxAbsSeconds, absSeconds);
+            if (referenceMeters > 0) {
+                sumRelMeters += (double) absMeters / referenceMeters;
+                relMetersPairs++;
+            }
+        }
+
+        public AccuracyStats build() {
+            return new AccuracyStats(
+                    comparedPairs,
+                    missingPairs,
+                    comparedPairs == 0 ? 0f : (float) sumAbsMeters / comparedPairs,
+                    maxAbsMeters,
+                    comparedPairs == 0 ? 0f : (float) sumAbsSeconds / comparedPairs,
+                    maxAbsSeconds,
+                    relMetersPairs == 0 ? 0f : (float) (sumRelMeters / relMetersPairs * 100)
+            );
+        }
+    }
+}
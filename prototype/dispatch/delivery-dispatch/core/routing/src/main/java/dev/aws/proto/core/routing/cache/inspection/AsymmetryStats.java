@@ -0,0 +1,109 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.inspection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Deviation from symmetry of a distance cache (forward vs. backward distance between the same pair of hexagons).
+ * <p>
+ * It is measured when a cache is converted to a symmetric storage mode (all pairs), or sampled when the cache is
+ * built in symmetric mode, and persisted in the cache file header so the loader can report it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsymmetryStats {
+    /**
+     * Number of hexagon pairs the stats are computed from.
+     */
+    private int measuredPairs;
+
+    /**
+     * Number of pairs where the forward and backward distances differ.
+     */
+    private int asymmetricPairs;
+
+    private float meanAbsMetersDelta;
+    private int maxAbsMetersDelta;
+    private float meanAbsSecondsDelta;
+    private int maxAbsSecondsDelta;
+
+    /**
+     * Number of deltas that didn't fit in the delta encoding and were clamped.
+     */
+    private int clampedDeltas;
+
+    @Override
+    public String toString() {
+        return String.format("measured pairs = %d :: asymmetric pairs = %d :: meters delta mean/max = %.1f/%d :: seconds delta mean/max = %.1f/%d :: clamped deltas = %d",
+                measuredPairs, asymmetricPairs, meanAbsMetersDelta, maxAbsMetersDelta, meanAbsSecondsDelta, maxAbsSecondsDelta, clampedDeltas);
+    }
+
+    /**
+     * Collects the asymmetry of hexagon pairs. Not thread-safe.
+     */
+    public static class Accumulator {
+        private int measuredPairs;
+        private int asymmetricPairs;
+        private long sumAbsMeters;
+        private int maxAbsMeters;
+        private long sumAbsSeconds;
+        private int maxAbsSeconds;
+        private int clampedDeltas;
+
+        /**
+         * Adds a pair. Pairs where any of the distances is a routing error (negative) are ignored.
+         */
+        public void add(int metersForward, int metersBackward, int secondsForward, int secondsBackward) {
+            if (metersForward < 0 || metersBackward < 0 || secondsForward < 0 || secondsBackward < 0) {
+                return;
+            }
+
+            int absMeters = Math.abs(metersBackward - metersForward);
+            int absSeconds = Math.abs(secondsBackward - secondsForward);
+
+            measuredPairs++;
+            if (absMeters != 0 || absSeconds != 0) {
+                asymmetricPairs++;
+            }
+            sumAbsMeters += absMeters;
+            sumAbsSeconds += absSeconds;
+            maxAbsMeters = Math.max(maxAbsMeters, absMeters);
+            maxAbsSeconds = Math.max(maxAbsSeconds, absSeconds);
+        }
+
+        public void addClamped() {
+            clampedDeltas++;
+        }
+
+        public AsymmetryStats build() {
+            return new AsymmetryStats(
+                    measuredPairs,
+                    asymmetricPairs,
+                    measuredPairs == 0 ? 0f : (float) sumAbsMeters / measuredPairs,
+                    maxAbsMeters,
+                    measuredPairs == 0 ? 0f : (float) sumAbsSeconds / measuredPairs,
+                    maxAbsSeconds,
+                    clampedDeltas
+            );
+        }
+    }
+}
@@ -17,10 +17,24 @@
 
 package dev.aws.proto.core.routing.cache.inspection;
 
-import dev.aws.proto.core.routing.H3;
 import dev.aws.proto.core.routing.exception.CacheResolutionException;
 
 public class ResolutionChecker {
+    /**
+     * Position and mask of the resolution bits in the H3 index (see the H3 index bit layout).
+     */
+    private static final int H3_RES_OFFSET = 52;
+    private static final long H3_RES_MASK = 0xFL;
+
+    /**
+     * Reads the resolution of a hexagon straight from its index bits, without calling into the native H3 library.
+     *
+     * @param hexa The hexagon represented with long.
+     * @return The resolution of the hexagon.
+     */
+    public static int resolutionOf(long hexa) {
+        return (int) ((hexa >>> H3_RES_OFFSET) & H3_RES_MASK);
+    }
 
     /**
      * Validates if the hexagon is with the expected resolution. Otherwise, throws an exception.
@@ -29,7 +43,7 @@ public class ResolutionChecker {
      * @param expectedResolution The expected H3 resolution.
      */
     public static void validate(long hexa, int expectedResolution) {
-        int res = H3.h3().h3GetResolution(hexa);
+        int res = resolutionOf(hexa);
         if (res != expectedResolution) {
             throw new CacheResolutionException(
                     String.format("Resolution mismatch! %d has resolution %d - expected resolution is %d",
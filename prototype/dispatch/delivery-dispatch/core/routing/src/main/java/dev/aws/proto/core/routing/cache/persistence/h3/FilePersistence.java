@@ -18,6 +18,7 @@
 package dev.aws.proto.core.routing.cache.persistence.h3;
 
 import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.cache.encoding.CellEncoding;
 import dev.aws.proto.core.routing.cache.persistence.CachePersistenceException;
 import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
 import dev.aws.proto.core.routing.distance.TravelDistance;
@@ -26,10 +27,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 
 /**
  * Persist the h3 distance cache object to a file, or load it from a file.
  * <p>
+ * This is the legacy, row-wise format. For large caches prefer {@link MappedFilePersistence}.
+ * <p>
  * File format:
  * <p>
  * Bytes     -- Content
@@ -70,11 +75,9 @@ public class FilePersistence implements ICachePersistence<H3DistanceCache> {
                 outputStream.writeLong(hexagons[i]);
             }
 
-            TravelDistance[][] distances = h3DistanceCache.getDistances();
-
             for (int i = 0; i < dim; i++) {
                 for (int j = 0; j < dim; j++) {
-                    TravelDistance travelDistance = distances[i][j];
+                    TravelDistance travelDistance = h3DistanceCache.getDistanceAt(i, j);
 
                     outputStream.writeLong(travelDistance.getDistanceInMeters());
                     outputStream.writeLong(travelDistance.getDistanceInSeconds());
@@ -111,18 +114,19 @@ public class FilePersistence implements ICachePersistence<H3DistanceCache> {
                 hexagons[i] = inputStream.readLong();
             }
 
-            TravelDistance[][] distances = new TravelDistance[dim][dim];
-            for (int i = 0; i < dim; i++) {
-                for (int j = 0; j < dim; j++) {
-                    long meters = inputStream.readLong();
-                    long seconds = inputStream.readLong();
-                    int h3Distance = inputStream.readInt();
-
-                    distances[i][j] = new TravelDistance(meters, seconds, h3Distance);
-                }
+            int cellCnt = dim * dim;
+            int[] meters = new int[cellCnt];
+            int[] seconds = new int[cellCnt];
+            short[] h3Distances = new short[cellCnt];
+            for (int cellIdx = 0; cellIdx < cellCnt; cellIdx++) {
+                meters[cellIdx] = H3DistanceCache.clampToInt(inputStream.readLong());
+                seconds[cellIdx] = H3DistanceCache.clampToInt(inputStream.readLong());
+                h3Distances[cellIdx] = H3DistanceCache.clampToShort(inputStream.readInt());
             }
 
-            H3DistanceCache cache = new H3DistanceCache(hexagons, distances, resolution);
+            // keep the meters/seconds compact in memory
+            H3DistanceCache cache = new H3DistanceCache(hexagons, IntBuffer.wrap(meters), IntBuffer.wrap(seconds), ShortBuffer.wrap(h3Distances), resolution)
+                    .withCellEncoding(CellEncoding.INT24);
             logger.info("Successfully imported H3DistanceCache from {} (dim = {}).", this.cacheFilePath, cache.getH3Hexagons().length);
             return cache;
 
@@ -0,0 +1,69 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.persistence.h3;
+
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The supported h3 distance cache file formats.
+ */
+public enum H3CacheFileFormat {
+    /**
+     * Row-wise stream format, see {@link FilePersistence}.
+     */
+    LEGACY,
+
+    /**
+     * Versioned, column-packed, memory-mapped format, see {@link MappedFilePersistence}.
+     */
+    MAPPED;
+
+    /**
+     * Detects the format of an existing cache file.
+     *
+     * @param path The path to the cache file.
+     * @return The format of the file.
+     */
+    public static H3CacheFileFormat detect(Path path) {
+        return MappedFilePersistence.isMappedFormat(path) ? MAPPED : LEGACY;
+    }
+
+    /**
+     * Creates the file persistence for this format.
+     *
+     * @param cacheFilePath The path to the cache file.
+     * @return The persistence object.
+     */
+    public ICachePersistence<H3DistanceCache> persistence(String cacheFilePath) {
+        return this == MAPPED ? new MappedFilePersistence(cacheFilePath) : new FilePersistence(cacheFilePath);
+    }
+
+    /**
+     * Creates the file persistence matching the format of an existing cache file.
+     *
+     * @param cacheFilePath The path to the cache file.
+     * @return The persistence object.
+     */
+    public static ICachePersistence<H3DistanceCache> persistenceFor(String cacheFilePath) {
+        return detect(Paths.get(cacheFilePath)).persistence(cacheFilePath);
+    }
+}
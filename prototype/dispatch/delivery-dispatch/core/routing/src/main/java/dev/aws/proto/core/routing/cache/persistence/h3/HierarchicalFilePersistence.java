@@ -0,0 +1,177 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.persistence.h3;
+
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.cache.HierarchicalH3DistanceCache;
+import dev.aws.proto.core.routing.cache.persistence.CachePersistenceException;
+import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Persist a {@link HierarchicalH3DistanceCache} into a directory, or import it from a directory.
+ * <p>
+ * Directory layout:
+ * <p>
+ * near.bin          -- The nearby pairs table
+ * coarse.distcache  -- The coarse cache, in the mapped format
+ * <p>
+ * near.bin format (big endian):
+ * <p>
+ * Bytes             -- Content
+ * 4                 -- Magic number ("H3NR")
+ * 4                 -- Format version
+ * 4                 -- H3 resolution
+ * 4                 -- Rings
+ * 4                 -- Number of hexagons (dim)
+ * 4                 -- Number of nearby pairs (N)
+ * [Dim x 8]         -- Hexagons, sorted ascending
+ * [(Dim + 1) x 4]   -- Row offsets
+ * [N x 4]           -- Neighbor indices
+ * [N x 4]           -- Meters
+ * [N x 4]           -- Seconds
+ */
+public class HierarchicalFilePersistence implements ICachePersistence<HierarchicalH3DistanceCache> {
+    private static final Logger logger = LoggerFactory.getLogger(HierarchicalFilePersistence.class);
+
+    public static final int MAGIC = 0x48334E52;
+    public static final int VERSION = 1;
+    public static final String NEAR_FILE = "near.bin";
+    public static final String COARSE_FILE = "coarse.distcache";
+
+    @Getter
+    private final String cacheDirPath;
+
+    public HierarchicalFilePersistence(String cacheDirPath) {
+        this.cacheDirPath = cacheDirPath;
+    }
+
+    /**
+     * Checks whether a path is a hierarchical cache directory.
+     *
+     * @param path The path.
+     * @return <code>true</code> if the path is a directory with a nearby pairs table.
+     */
+    public static boolean isHierarchicalCache(Path path) {
+        return Files.isDirectory(path) && Files.isRegularFile(path.resolve(NEAR_FILE));
+    }
+
+    @Override
+    public void buildCache(HierarchicalH3DistanceCache distanceCache) {
+        try {
+            Files.createDirectories(Paths.get(this.cacheDirPath));
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error creating the cache directory " + this.cacheDirPath, ioEx);
+        }
+
+        new MappedFilePersistence(this.resolve(COARSE_FILE)).buildCache(distanceCache.getCoarseCache());
+
+        String nearFilePath = this.resolve(NEAR_FILE);
+        try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(nearFilePath))))) {
+            long[] hexagons = distanceCache.getH3Hexagons();
+            int[] rowOffsets = distanceCache.getRowOffsets();
+            int[] neighbors = distanceCache.getNeighbors();
+
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeInt(distanceCache.getH3Resolution());
+            outputStream.writeInt(distanceCache.getRings());
+            outputStream.writeInt(hexagons.length);
+            outputStream.writeInt(neighbors.length);
+            for (long hexa : hexagons) {
+                outputStream.writeLong(hexa);
+            }
+            for (int offset : rowOffsets) {
+                outputStream.writeInt(offset);
+            }
+            for (int neighbor : neighbors) {
+                outputStream.writeInt(neighbor);
+            }
+            for (int meters : distanceCache.getNearMeters()) {
+                outputStream.writeInt(meters);
+            }
+            for (int seconds : distanceCache.getNearSeconds()) {
+                outputStream.writeInt(seconds);
+            }
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error writing the nearby pairs table to " + nearFilePath, ioEx);
+        }
+
+        logger.info("Successfully wrote HierarchicalH3DistanceCache to {}", this.cacheDirPath);
+    }
+
+    @Override
+    public HierarchicalH3DistanceCache importCache() {
+        H3DistanceCache coarseCache = H3CacheFileFormat.persistenceFor(this.resolve(COARSE_FILE)).importCache();
+
+        String nearFilePath = this.resolve(NEAR_FILE);
+        try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(nearFilePath))))) {
+            if (inputStream.readInt() != MAGIC) {
+                throw new CachePersistenceException("Not a nearby pairs table: " + nearFilePath);
+            }
+            int version = inputStream.readInt();
+            if (version != VERSION) {
+                throw new CachePersistenceException("Unsupported nearby pairs table version " + version + " in " + nearFilePath);
+            }
+
+            int h3Resolution = inputStream.readInt();
+            int rings = inputStream.readInt();
+            int dim = inputStream.readInt();
+            int nearCnt = inputStream.readInt();
+
+            long[] hexagons = new long[dim];
+            for (int i = 0; i < dim; i++) {
+                hexagons[i] = inputStream.readLong();
+            }
+            int[] rowOffsets = readInts(inputStream, dim + 1);
+            int[] neighbors = readInts(inputStream, nearCnt);
+            int[] nearMeters = readInts(inputStream, nearCnt);
+            int[] nearSeconds = readInts(inputStream, nearCnt);
+
+            logger.info("Imported HierarchicalH3DistanceCache :: resolution = {} :: rings = {} :: dim = {} :: nearby pairs = {} :: coarse resolution = {} :: coarse dim = {}",
+                    h3Resolution, rings, dim, nearCnt, coarseCache.getH3Resolution(), coarseCache.getH3Hexagons().length);
+
+            return new HierarchicalH3DistanceCache(h3Resolution, rings, hexagons, rowOffsets, neighbors, nearMeters, nearSeconds, coarseCache);
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error reading the nearby pairs table from " + nearFilePath, ioEx);
+        }
+    }
+
+    private static int[] readInts(DataInputStream inputStream, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = inputStream.readInt();
+        }
+        return values;
+    }
+
+    private String resolve(String fileName) {
+        return Paths.get(this.cacheDirPath, fileName).toString();
+    }
+}
@@ -0,0 +1,430 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.persistence.h3;
+
+import dev.aws.proto.core.routing.cache.H3CacheStorageMode;
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.cache.encoding.CellEncoding;
+import dev.aws.proto.core.routing.cache.encoding.DistanceColumn;
+import dev.aws.proto.core.routing.cache.encoding.Int24Column;
+import dev.aws.proto.core.routing.cache.encoding.Int32Column;
+import dev.aws.proto.core.routing.cache.inspection.AsymmetryStats;
+import dev.aws.proto.core.routing.cache.persistence.CachePersistenceException;
+import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Persist the h3 distance cache object to a versioned, column-packed file, or map it from a file.
+ * <p>
+ * The file is opened with {@link FileChannel#map}, the distance columns are never copied to the heap. Lookups read
+ * straight from the mapped buffers, so startup only costs reading the hexagon index, and multiple JVMs on the same
+ * node share one page cache copy of the file.
+ * <p>
+ * File format (big endian), version 2:
+ * <p>
+ * Bytes             -- Content
+ * 4                 -- Magic number ("H3DC")
+ * 4                 -- Format version
+ * 4                 -- Number of hexagons (dim)
+ * 4                 -- H3 Resolution
+ * 4                 -- Storage mode (see {@link H3CacheStorageMode#code()})
+ * 28                -- Asymmetry stats (measured pairs (-1 if not measured), asymmetric pairs, mean/max meters delta,
+ *                      mean/max seconds delta, clamped deltas)
+ * 4                 -- Cell encoding of meters/seconds (see {@link CellEncoding#code()}, 0 = INT32)
+ * 12                -- Reserved
+ * [Dim x 8]         -- Hexagons, sorted ascending
+ * [Cells x E]       -- Meters (E = 4 for INT32, 3 for INT24), row-major
+ * [Cells x E]       -- Seconds, row-major
+ * [Cells x 2]       -- H3 distances (short), row-major
+ * [Cells x 2]       -- Meters delta (short), only in SYMMETRIC_DELTA mode
+ * [Cells x 2]       -- Seconds delta (short), only in SYMMETRIC_DELTA mode
+ * 4 + [N x 8]       -- Meters overflow table (N, then cell index/value int pairs), only in INT24 encoding
+ * 4 + [N x 8]       -- Seconds overflow table, only in INT24 encoding
+ * <p>
+ * Cells is Dim * Dim in FULL mode, and Dim * (Dim + 1) / 2 (upper triangle) in the symmetric modes.
+ * Version 1 files (32 bytes header, FULL mode, no stats) are still supported.
+ */
+public class MappedFilePersistence implements ICachePersistence<H3DistanceCache> {
+    private static final Logger logger = LoggerFactory.getLogger(MappedFilePersistence.class);
+
+    public static final int MAGIC = 0x48334443;
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 64;
+    public static final int HEADER_SIZE_V1 = 32;
+
+    /**
+     * The largest dimension where a single column still fits in one mapped buffer.
+     */
+    public static final int MAX_DIM = (int) Math.sqrt(Integer.MAX_VALUE / Integer.BYTES);
+
+    @Getter
+    private final String cacheFilePath;
+
+    public MappedFilePersistence(String cacheFilePath) {
+        this.cacheFilePath = cacheFilePath;
+    }
+
+    /**
+     * Checks whether a file starts with the magic number of this format.
+     *
+     * @param path The path to the file.
+     * @return <code>true</code> if the file is a mapped cache file.
+     */
+    public static boolean isMappedFormat(Path path) {
+        try (DataInputStream inputStream = new DataInputStream(new FileInputStream(path.toFile()))) {
+            return inputStream.readInt() == MAGIC;
+        } catch (IOException ioEx) {
+            return false;
+        }
+    }
+
+    /**
+     * Predicted size of a cache file.
+     *
+     * @param dim         The number of hexagons.
+     * @param storageMode The storage mode.
+     * @return The size of the file in bytes.
+     */
+    public static long fileSize(int dim, H3CacheStorageMode storageMode, CellEncoding cellEncoding) {
+        long cellCnt = storageMode.cellCount(dim);
+        int bytesPerCell = 2 * cellEncoding.bytes() + Short.BYTES
+                + (storageMode == H3CacheStorageMode.SYMMETRIC_DELTA ? 2 * Short.BYTES : 0);
+        long overflowTables = cellEncoding == CellEncoding.INT24 ? 2 * Integer.BYTES : 0;
+        return HEADER_SIZE + (long) dim * Long.BYTES + cellCnt * bytesPerCell + overflowTables;
+    }
+
+    /**
+     * Persist the cache into a file. If the hexagons of the cache are not sorted, rows and columns are reordered.
+     *
+     * @param h3DistanceCache The cache object.
+     */
+    @Override
+    public void buildCache(H3DistanceCache h3DistanceCache) {
+        long[] hexagons = h3DistanceCache.getH3Hexagons();
+        int dim = hexagons.length;
+        H3CacheStorageMode storageMode = h3DistanceCache.getStorageMode();
+        CellEncoding cellEncoding = h3DistanceCache.getCellEncoding();
+        logger.info("Exporting H3DistanceCache (dim = {}, mode = {}, encoding = {}) in mapped format v{}", dim, storageMode, cellEncoding, VERSION);
+
+        if (dim > MAX_DIM) {
+            throw new CachePersistenceException("H3DistanceCache dimension " + dim + " exceeds the maximum of " + MAX_DIM + " for the mapped format");
+        }
+
+        // order[k] = index in the cache of the k-th smallest hexagon
+        int[] order = IntStream.range(0, dim).toArray();
+        if (!h3DistanceCache.isSorted()) {
+            order = IntStream.range(0, dim)
+                    .boxed()
+                    .sorted(Comparator.comparingLong(idx -> hexagons[idx]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        final int[] sortedOrder = order;
+
+        try (FileOutputStream fos = new FileOutputStream(this.cacheFilePath)) {
+            DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16));
+
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeInt(dim);
+            outputStream.writeInt(h3DistanceCache.getH3Resolution());
+            outputStream.writeInt(storageMode.code());
+            writeAsymmetryStats(outputStream, h3DistanceCache.getAsymmetryStats());
+            outputStream.writeInt(cellEncoding.code());
+            outputStream.write(new byte[HEADER_SIZE - 52]);
+
+            for (int k = 0; k < dim; k++) {
+                outputStream.writeLong(hexagons[order[k]]);
+            }
+
+            List<int[]> metersOverflow = writeDistanceColumn(outputStream, dim, storageMode, cellEncoding,
+                    (i, j) -> h3DistanceCache.metersAt(sortedOrder[i], sortedOrder[j]));
+            List<int[]> secondsOverflow = writeDistanceColumn(outputStream, dim, storageMode, cellEncoding,
+                    (i, j) -> h3DistanceCache.secondsAt(sortedOrder[i], sortedOrder[j]));
+            writeColumn(outputStream, dim, storageMode, true,
+                    (i, j) -> h3DistanceCache.h3DistanceAt(sortedOrder[i], sortedOrder[j]));
+
+            if (storageMode == H3CacheStorageMode.SYMMETRIC_DELTA) {
+                writeColumn(outputStream, dim, storageMode, true,
+                        (i, j) -> clampDelta((long) h3DistanceCache.metersAt(sortedOrder[j], sortedOrder[i]) - h3DistanceCache.metersAt(sortedOrder[i], sortedOrder[j])));
+                writeColumn(outputStream, dim, storageMode, true,
+                        (i, j) -> clampDelta((long) h3DistanceCache.secondsAt(sortedOrder[j], sortedOrder[i]) - h3DistanceCache.secondsAt(sortedOrder[i], sortedOrder[j])));
+            }
+
+            if (cellEncoding == CellEncoding.INT24) {
+                writeOverflowTable(outputStream, metersOverflow);
+                writeOverflowTable(outputStream, secondsOverflow);
+            }
+
+            outputStream.flush();
+        } catch (IOException ioEx) {
+            logger.error("Error writing h3DistanceCache to mapped cache file. {}", ioEx.getMessage());
+            ioEx.printStackTrace();
+        }
+
+        logger.info("Successfully wrote H3DistanceCache to {}", this.cacheFilePath);
+    }
+
+    /**
+     * Writes one distance column in the layout of the storage mode (full or upper triangle, row-major).
+     */
+    private static void writeColumn(DataOutputStream outputStream, int dim, H3CacheStorageMode storageMode, boolean asShort,
+                                    IntBinaryOperator valueAt) throws IOException {
+        for (int i = 0; i < dim; i++) {
+            for (int j = storageMode.isTriangular() ? i : 0; j < dim; j++) {
+                int value = valueAt.applyAsInt(i, j);
+                if (asShort) {
+                    outputStream.writeShort(value);
+                } else {
+                    outputStream.writeInt(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a meters/seconds column in the cell encoding.
+     *
+     * @return The escaped (cell index, value) pairs for the INT24 encoding.
+     */
+    private static List<int[]> writeDistanceColumn(DataOutputStream outputStream, int dim, H3CacheStorageMode storageMode,
+                                                   CellEncoding cellEncoding, IntBinaryOperator valueAt) throws IOException {
+        if (cellEncoding == CellEncoding.INT32) {
+            writeColumn(outputStream, dim, storageMode, false, valueAt);
+            return List.of();
+        }
+
+        List<int[]> overflow = new ArrayList<>();
+        int cellIdx = 0;
+        for (int i = 0; i < dim; i++) {
+            for (int j = storageMode.isTriangular() ? i : 0; j < dim; j++, cellIdx++) {
+                int value = valueAt.applyAsInt(i, j);
+                int code = Int24Column.codeOf(value);
+                outputStream.writeByte(code >>> 16);
+                outputStream.writeByte(code >>> 8);
+                outputStream.writeByte(code);
+
+                if (code == Int24Column.ESCAPE_CODE) {
+                    overflow.add(new int[]{cellIdx, value});
+                }
+            }
+        }
+        return overflow;
+    }
+
+    private static void writeOverflowTable(DataOutputStream outputStream, List<int[]> overflow) throws IOException {
+        outputStream.writeInt(overflow.size());
+        for (int[] entry : overflow) {
+            outputStream.writeInt(entry[0]);
+            outputStream.writeInt(entry[1]);
+        }
+    }
+
+    private static int clampDelta(long delta) {
+        return (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, delta));
+    }
+
+    private static void writeAsymmetryStats(DataOutputStream outputStream, AsymmetryStats stats) throws IOException {
+        if (stats == null) {
+            outputStream.writeInt(-1);
+            outputStream.write(new byte[24]);
+            return;
+        }
+
+        outputStream.writeInt(stats.getMeasuredPairs());
+        outputStream.writeInt(stats.getAsymmetricPairs());
+        outputStream.writeFloat(stats.getMeanAbsMetersDelta());
+        outputStream.writeInt(stats.getMaxAbsMetersDelta());
+        outputStream.writeFloat(stats.getMeanAbsSecondsDelta());
+        outputStream.writeInt(stats.getMaxAbsSecondsDelta());
+        outputStream.writeInt(stats.getClampedDeltas());
+    }
+
+    /**
+     * Reads an overflow table of the INT24 encoding.
+     *
+     * @return The cell indexes and the values.
+     */
+    private int[][] readOverflowTable(FileChannel channel, long offset) throws IOException {
+        if (offset + Integer.BYTES > channel.size()) {
+            throw new CachePersistenceException("Corrupt H3DistanceCache file: overflow table is missing");
+        }
+
+        int overflowCnt = channel.map(FileChannel.MapMode.READ_ONLY, offset, Integer.BYTES).getInt();
+        if (overflowCnt < 0 || offset + Integer.BYTES + (long) overflowCnt * 2 * Integer.BYTES > channel.size()) {
+            throw new CachePersistenceException("Corrupt H3DistanceCache file: invalid overflow table size " + overflowCnt);
+        }
+
+        IntBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, offset + Integer.BYTES, (long) overflowCnt * 2 * Integer.BYTES).asIntBuffer();
+        int[] cells = new int[overflowCnt];
+        int[] values = new int[overflowCnt];
+        for (int k = 0; k < overflowCnt; k++) {
+            cells[k] = entries.get();
+            values[k] = entries.get();
+        }
+        return new int[][]{cells, values};
+    }
+
+    private static AsymmetryStats readAsymmetryStats(ByteBuffer header) {
+        int measuredPairs = header.getInt();
+        if (measuredPairs < 0) {
+            return null;
+        }
+
+        return new AsymmetryStats(measuredPairs, header.getInt(), header.getFloat(), header.getInt(),
+                header.getFloat(), header.getInt(), header.getInt());
+    }
+
+    /**
+     * Map the h3 distance cache from a file.
+     *
+     * @return The cache object, backed by the mapped file.
+     */
+    @Override
+    public H3DistanceCache importCache() {
+        logger.info("Mapping H3DistanceCache from {}", this.cacheFilePath);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(this.cacheFilePath), StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER_SIZE, channel.size()));
+
+            int magic = header.getInt();
+            int version = header.getInt();
+            int dim = header.getInt();
+            int resolution = header.getInt();
+
+            if (magic != MAGIC) {
+                throw new CachePersistenceException("Not a mapped H3DistanceCache file: " + this.cacheFilePath);
+            }
+            if (version != 1 && version != VERSION) {
+                throw new CachePersistenceException("Unsupported H3DistanceCache file version " + version + " (supported: 1, " + VERSION + ")");
+            }
+            if (dim <= 0 || dim > MAX_DIM) {
+                throw new CachePersistenceException("Invalid H3DistanceCache dimension in file header: " + dim);
+            }
+
+            H3CacheStorageMode storageMode = H3CacheStorageMode.FULL;
+            CellEncoding cellEncoding = CellEncoding.INT32;
+            AsymmetryStats asymmetryStats = null;
+            long headerSize = HEADER_SIZE_V1;
+            if (version == VERSION) {
+                try {
+                    storageMode = H3CacheStorageMode.ofCode(header.getInt());
+                } catch (IllegalArgumentException e) {
+                    throw new CachePersistenceException("Corrupt H3DistanceCache file: " + e.getMessage());
+                }
+                asymmetryStats = readAsymmetryStats(header);
+                try {
+                    cellEncoding = CellEncoding.ofCode(header.getInt());
+                } catch (IllegalArgumentException e) {
+                    throw new CachePersistenceException("Corrupt H3DistanceCache file: " + e.getMessage());
+                }
+                headerSize = HEADER_SIZE;
+            }
+
+            long cellCnt = storageMode.cellCount(dim);
+            int cellBytes = cellEncoding.bytes();
+            long hexagonsOffset = headerSize;
+            long metersOffset = hexagonsOffset + (long) dim * Long.BYTES;
+            long secondsOffset = metersOffset + cellCnt * cellBytes;
+            long h3DistancesOffset = secondsOffset + cellCnt * cellBytes;
+            long metersDeltaOffset = h3DistancesOffset + cellCnt * Short.BYTES;
+            long secondsDeltaOffset = metersDeltaOffset + cellCnt * Short.BYTES;
+            long columnsEnd = storageMode == H3CacheStorageMode.SYMMETRIC_DELTA
+                    ? secondsDeltaOffset + cellCnt * Short.BYTES
+                    : metersDeltaOffset;
+
+            int[][] metersOverflow = null;
+            int[][] secondsOverflow = null;
+            long expectedSize = columnsEnd;
+            if (cellEncoding == CellEncoding.INT24) {
+                metersOverflow = readOverflowTable(channel, columnsEnd);
+                long secondsOverflowOffset = columnsEnd + Integer.BYTES + (long) metersOverflow[0].length * 2 * Integer.BYTES;
+                secondsOverflow = readOverflowTable(channel, secondsOverflowOffset);
+                expectedSize = secondsOverflowOffset + Integer.BYTES + (long) secondsOverflow[0].length * 2 * Integer.BYTES;
+            }
+
+            if (channel.size() != expectedSize) {
+                throw new CachePersistenceException("Corrupt H3DistanceCache file: expected " + expectedSize + " bytes, found " + channel.size());
+            }
+
+            long[] hexagons = new long[dim];
+            LongBuffer hexagonBuffer = channel.map(FileChannel.MapMode.READ_ONLY, hexagonsOffset, (long) dim * Long.BYTES).asLongBuffer();
+            hexagonBuffer.get(hexagons);
+
+            MappedByteBuffer metersBuffer = channel.map(FileChannel.MapMode.READ_ONLY, metersOffset, cellCnt * cellBytes);
+            MappedByteBuffer secondsBuffer = channel.map(FileChannel.MapMode.READ_ONLY, secondsOffset, cellCnt * cellBytes);
+            MappedByteBuffer h3DistancesBuffer = channel.map(FileChannel.MapMode.READ_ONLY, h3DistancesOffset, cellCnt * Short.BYTES);
+
+            DistanceColumn meters;
+            DistanceColumn seconds;
+            if (cellEncoding == CellEncoding.INT24) {
+                meters = new Int24Column(metersBuffer, (int) cellCnt, metersOverflow[0], metersOverflow[1]);
+                seconds = new Int24Column(secondsBuffer, (int) cellCnt, secondsOverflow[0], secondsOverflow[1]);
+            } else {
+                meters = new Int32Column(metersBuffer.asIntBuffer());
+                seconds = new Int32Column(secondsBuffer.asIntBuffer());
+            }
+            ShortBuffer h3Distances = h3DistancesBuffer.asShortBuffer();
+
+            ShortBuffer metersDelta = null;
+            ShortBuffer secondsDelta = null;
+            if (storageMode == H3CacheStorageMode.SYMMETRIC_DELTA) {
+                metersDelta = channel.map(FileChannel.MapMode.READ_ONLY, metersDeltaOffset, cellCnt * Short.BYTES).asShortBuffer();
+                secondsDelta = channel.map(FileChannel.MapMode.READ_ONLY, secondsDeltaOffset, cellCnt * Short.BYTES).asShortBuffer();
+            }
+
+            H3DistanceCache cache = new H3DistanceCache(hexagons, storageMode, meters, seconds, h3Distances,
+                    metersDelta, secondsDelta, resolution, asymmetryStats);
+            if (!cache.isSorted()) {
+                throw new CachePersistenceException("Corrupt H3DistanceCache file: hexagon index is not sorted");
+            }
+
+            logger.info("Successfully mapped H3DistanceCache from {} (dim = {}, mode = {}, encoding = {}).", this.cacheFilePath, dim, storageMode, cellEncoding);
+            if (asymmetryStats != null) {
+                logger.info("H3DistanceCache asymmetry :: {}", asymmetryStats);
+            } else if (storageMode == H3CacheStorageMode.SYMMETRIC) {
+                logger.warn("H3DistanceCache is stored symmetric, but its asymmetry error was not measured");
+            }
+            return cache;
+
+        } catch (IOException ioEx) {
+            logger.error("Error mapping h3DistanceCache file. {}", ioEx.getMessage());
+            ioEx.printStackTrace();
+
+            throw new CachePersistenceException("Error while importing H3DistanceCache", ioEx);
+        }
+    }
+}
@@ -20,22 +20,34 @@ package dev.aws.proto.core.routing.cache.persistence.h3;
 import dev.aws.proto.core.routing.cache.H3DistanceCache;
 import dev.aws.proto.core.routing.cache.persistence.CachePersistenceException;
 import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
-import dev.aws.proto.core.util.aws.S3Utility;
+import dev.aws.proto.core.util.aws.S3ChunkedTransfer;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
 /**
  * S3 File persistence for the H3DistanceCache:
  * - Exports the cache object to a temporary file and uploads to S3;
  * - Downloads the cache file from S3 and loads it into memory.
+ * <p>
+ * Exports use the given {@link H3CacheFileFormat}, imports detect the format of the downloaded file.
+ * <p>
+ * Files are transferred in chunks (see {@link S3ChunkedTransfer}): imports issue parallel ranged GETs, verify the
+ * checksum of every chunk and write it straight into the temporary file. A {@link H3CacheFileFormat#MAPPED} file is
+ * then mapped without parsing, so importing it is bound by the download.
  */
 public class S3FilePersistence implements ICachePersistence<H3DistanceCache> {
     /**
-     * The {@link FilePersistence} object to load/write temporary file.
+     * The path to the temporary file.
      */
-    private final FilePersistence filePersistence;
+    private final String tmpFilePath;
+
+    /**
+     * The file format used for exports.
+     */
+    private final H3CacheFileFormat fileFormat;
 
     /**
      * The bucket name.
@@ -47,13 +59,30 @@ public class S3FilePersistence implements ICachePersistence<H3DistanceCache> {
      */
     private final String cacheFileKeyPath;
 
+    /**
+     * The number of concurrent ranged GETs of the import.
+     */
+    private final int downloadParallelism;
+
     public S3FilePersistence(String bucketName, String cacheFileKeyPath) {
+        this(bucketName, cacheFileKeyPath, H3CacheFileFormat.LEGACY);
+    }
+
+    public S3FilePersistence(String bucketName, String cacheFileKeyPath, H3CacheFileFormat fileFormat) {
+        this(bucketName, cacheFileKeyPath, fileFormat, S3ChunkedTransfer.DEFAULT_PARALLELISM);
+    }
+
+    public S3FilePersistence(String bucketName, String cacheFileKeyPath, H3CacheFileFormat fileFormat, int downloadParallelism) {
         this.bucketName = bucketName;
         this.cacheFileKeyPath = cacheFileKeyPath;
+        this.fileFormat = fileFormat;
+        this.downloadParallelism = downloadParallelism;
 
         try {
-            String tmpFilePath = Files.createTempFile("h3Distance", ".tmp").toAbsolutePath().toString();
-            this.filePersistence = new FilePersistence(tmpFilePath);
+            Path tmpFile = Files.createTempFile("h3Distance", ".tmp").toAbsolutePath();
+            // a mapped cache keeps reading from this file, so it is only removed when the JVM exits
+            tmpFile.toFile().deleteOnExit();
+            this.tmpFilePath = tmpFile.toString();
         } catch (IOException ioException) {
             ioException.printStackTrace();
             throw new CachePersistenceException("Error creating a temp file for S3 file persistence", ioException);
@@ -67,8 +96,8 @@ public class S3FilePersistence implements ICachePersistence<H3DistanceCache> {
      */
     @Override
     public void buildCache(H3DistanceCache h3DistanceCache) {
-        this.filePersistence.buildCache(h3DistanceCache);
-        S3Utility.uploadFile(this.bucketName, this.cacheFileKeyPath, Paths.get(this.filePersistence.getCacheFilePath()));
+        this.fileFormat.persistence(this.tmpFilePath).buildCache(h3DistanceCache);
+        S3ChunkedTransfer.upload(this.bucketName, this.cacheFileKeyPath, Paths.get(this.tmpFilePath));
     }
 
     /**
@@ -78,7 +107,7 @@ public class S3FilePersistence implements ICachePersistence<H3DistanceCache> {
      */
     @Override
     public H3DistanceCache importCache() {
-        S3Utility.downloadFile(this.bucketName, this.cacheFileKeyPath, Paths.get(this.filePersistence.getCacheFilePath()));
-        return this.filePersistence.importCache();
+        S3ChunkedTransfer.download(this.bucketName, this.cacheFileKeyPath, Paths.get(this.tmpFilePath), this.downloadParallelism);
+        return H3CacheFileFormat.persistenceFor(this.tmpFilePath).importCache();
     }
 }
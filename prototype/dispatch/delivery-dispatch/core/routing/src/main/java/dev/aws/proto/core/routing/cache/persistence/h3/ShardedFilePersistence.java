@@ -0,0 +1,193 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.cache.persistence.h3;
+
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.cache.ShardedH3DistanceCache;
+import dev.aws.proto.core.routing.cache.persistence.CachePersistenceException;
+import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Persist a {@link ShardedH3DistanceCache} into a directory, or import it from a directory.
+ * <p>
+ * Directory layout:
+ * <p>
+ * shards.properties        -- Manifest: h3 resolution, shard resolution and the parent cells of the shards
+ * border.distcache         -- The border cache, in the mapped format
+ * shard-[parentCell].distcache -- One cache file per shard (parent cell in hex), in the mapped format
+ * <p>
+ * The import only maps the border cache, the shards are imported by the {@link ShardedH3DistanceCache} on first use.
+ */
+public class ShardedFilePersistence implements ICachePersistence<ShardedH3DistanceCache> {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedFilePersistence.class);
+
+    public static final String MANIFEST_FILE = "shards.properties";
+    public static final String BORDER_FILE = "border.distcache";
+
+    private static final String H3_RESOLUTION = "h3Resolution";
+    private static final String SHARD_RESOLUTION = "shardResolution";
+    private static final String SHARDS = "shards";
+
+    @Getter
+    private final String cacheDirPath;
+    private final int maxLoadedShards;
+    private final long maxLoadedBytes;
+
+    public ShardedFilePersistence(String cacheDirPath) {
+        this(cacheDirPath, ShardedH3DistanceCache.DEFAULT_MAX_LOADED_SHARDS, ShardedH3DistanceCache.DEFAULT_MAX_LOADED_BYTES);
+    }
+
+    public ShardedFilePersistence(String cacheDirPath, int maxLoadedShards, long maxLoadedBytes) {
+        this.cacheDirPath = cacheDirPath;
+        this.maxLoadedShards = maxLoadedShards;
+        this.maxLoadedBytes = maxLoadedBytes;
+    }
+
+    /**
+     * Checks whether a path is a sharded cache directory.
+     *
+     * @param path The path.
+     * @return <code>true</code> if the path is a directory with a shard manifest.
+     */
+    public static boolean isShardedCache(Path path) {
+        return Files.isDirectory(path) && Files.isRegularFile(path.resolve(MANIFEST_FILE));
+    }
+
+    /**
+     * @param parentCell The parent cell of the shard.
+     * @return The name of the shard's cache file.
+     */
+    public static String shardFileName(long parentCell) {
+        return "shard-" + Long.toHexString(parentCell) + ".distcache";
+    }
+
+    /**
+     * Writes the cache of one shard. Lets the shards be written one by one while they are generated.
+     *
+     * @param parentCell The parent cell of the shard.
+     * @param shardCache The cache of the shard.
+     */
+    public void buildShard(long parentCell, H3DistanceCache shardCache) {
+        new MappedFilePersistence(this.resolve(shardFileName(parentCell))).buildCache(shardCache);
+    }
+
+    public void buildBorder(H3DistanceCache borderCache) {
+        new MappedFilePersistence(this.resolve(BORDER_FILE)).buildCache(borderCache);
+    }
+
+    /**
+     * Writes the manifest. Call it after all the shards and the border cache are written.
+     *
+     * @param h3Resolution    The resolution of the hexagons in the shards.
+     * @param shardResolution The resolution of the parent cells.
+     * @param shardCells      The parent cells of the shards.
+     */
+    public void buildManifest(int h3Resolution, int shardResolution, long[] shardCells) {
+        Properties manifest = new Properties();
+        manifest.setProperty(H3_RESOLUTION, String.valueOf(h3Resolution));
+        manifest.setProperty(SHARD_RESOLUTION, String.valueOf(shardResolution));
+        manifest.setProperty(SHARDS, Arrays.stream(shardCells).mapToObj(Long::toHexString).collect(Collectors.joining(",")));
+
+        try (OutputStream outputStream = Files.newOutputStream(Paths.get(this.resolve(MANIFEST_FILE)))) {
+            manifest.store(outputStream, "ShardedH3DistanceCache");
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error writing the shard manifest to " + this.cacheDirPath, ioEx);
+        }
+        logger.info("Successfully wrote sharded H3DistanceCache manifest ({} shards) to {}", shardCells.length, this.cacheDirPath);
+    }
+
+    /**
+     * Persist the cache into the directory. Every shard is imported to be written.
+     *
+     * @param distanceCache The cache object.
+     */
+    @Override
+    public void buildCache(ShardedH3DistanceCache distanceCache) {
+        this.createDirectory();
+
+        long[] shardCells = distanceCache.getShardCells();
+        for (long shardCell : shardCells) {
+            this.buildShard(shardCell, distanceCache.getShard(shardCell));
+        }
+        this.buildBorder(distanceCache.getBorderCache());
+        this.buildManifest(distanceCache.getH3Resolution(), distanceCache.getShardResolution(), shardCells);
+    }
+
+    /**
+     * Imports the manifest and the border cache. The shards are imported lazily.
+     *
+     * @return The cache object.
+     */
+    @Override
+    public ShardedH3DistanceCache importCache() {
+        Properties manifest = new Properties();
+        try (InputStream inputStream = Files.newInputStream(Paths.get(this.resolve(MANIFEST_FILE)))) {
+            manifest.load(inputStream);
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error reading the shard manifest from " + this.cacheDirPath, ioEx);
+        }
+
+        int h3Resolution = Integer.parseInt(manifest.getProperty(H3_RESOLUTION));
+        int shardResolution = Integer.parseInt(manifest.getProperty(SHARD_RESOLUTION));
+        Map<Long, ICachePersistence<H3DistanceCache>> shardSources = new HashMap<>();
+        for (String shardCell : manifest.getProperty(SHARDS, "").split(",")) {
+            if (shardCell.isBlank()) {
+                continue;
+            }
+            long parentCell = Long.parseUnsignedLong(shardCell.trim(), 16);
+            shardSources.put(parentCell, H3CacheFileFormat.persistenceFor(this.resolve(shardFileName(parentCell))));
+        }
+
+        H3DistanceCache borderCache = H3CacheFileFormat.persistenceFor(this.resolve(BORDER_FILE)).importCache();
+        logger.info("Imported sharded H3DistanceCache :: resolution = {} :: shard resolution = {} :: shards = {} :: border resolution = {} :: border dim = {}",
+                h3Resolution, shardResolution, shardSources.size(), borderCache.getH3Resolution(), borderCache.getH3Hexagons().length);
+
+        return new ShardedH3DistanceCache(h3Resolution, shardResolution, borderCache, shardSources,
+                this.maxLoadedShards, this.maxLoadedBytes);
+    }
+
+    /**
+     * Creates the cache directory if it doesn't exist.
+     */
+    public void createDirectory() {
+        try {
+            Files.createDirectories(Paths.get(this.cacheDirPath));
+        } catch (IOException ioEx) {
+            throw new CachePersistenceException("Error creating the cache directory " + this.cacheDirPath, ioEx);
+        }
+    }
+
+    private String resolve(String fileName) {
+        return Paths.get(this.cacheDirPath, fileName).toString();
+    }
+}
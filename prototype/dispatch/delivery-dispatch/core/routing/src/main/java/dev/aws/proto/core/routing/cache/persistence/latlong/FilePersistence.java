@@ -28,8 +28,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Persist a lat/long distance cache object to a file, or load it from a file.
@@ -66,8 +64,7 @@ public class FilePersistence implements ICachePersistence<DistanceMatrix> {
             int dim = distanceMatrix.getMetrics().getDimension();
             outputStream.writeInt(dim);
 
-            ILocation[] locationArr = new ILocation[dim];
-            distanceMatrix.getMatrix().keySet().toArray(locationArr);
+            ILocation[] locationArr = distanceMatrix.getLocations();
 
             for (int i = 0; i < dim; i++) {
                 Coordinate coordinate = locationArr[i].coordinate();
@@ -103,8 +100,6 @@ public class FilePersistence implements ICachePersistence<DistanceMatrix> {
         logger.info("Importing DistanceMatrix from {}", this.cacheFilePath);
         long start = System.currentTimeMillis();
 
-        Map<ILocation, Map<ILocation, Distance>> matrix = new HashMap<>();
-
         try (FileInputStream fis = new FileInputStream(this.cacheFilePath)) {
             DataInputStream inputStream = new DataInputStream(new BufferedInputStream(fis));
 
@@ -125,22 +120,16 @@ public class FilePersistence implements ICachePersistence<DistanceMatrix> {
                 locationArr[i] = loc;
             }
 
-            for (int i = 0; i < dim; i++) {
-                Map<ILocation, Distance> row = new HashMap<>();
-                for (int j = 0; j < dim; j++) {
-                    long meters_ij = inputStream.readLong();
-                    long seconds_ij = inputStream.readLong();
-
-                    Distance dist_ij = Distance.ofValue(meters_ij, seconds_ij);
-                    row.put(locationArr[j], dist_ij); // TODO: review indexing
-                }
-
-                matrix.put(locationArr[i], row);
+            long[] meters = new long[dim * dim];
+            long[] seconds = new long[dim * dim];
+            for (int cellIdx = 0; cellIdx < dim * dim; cellIdx++) {
+                meters[cellIdx] = inputStream.readLong();
+                seconds[cellIdx] = inputStream.readLong();
             }
 
             logger.info("Successfully imported DistanceMatrix from {} (dim = {}).", this.cacheFilePath, dim);
 
-            return DistanceMatrix.fromMatrix(matrix);
+            return DistanceMatrix.fromArrays(locationArr, meters, seconds);
         } catch (IOException ioEx) {
             logger.error("Error reading distanceMatrix from data input stream. {}", ioEx.getMessage());
             ioEx.printStackTrace();
@@ -18,11 +18,14 @@ package dev.aws.proto.core.routing.config;
 
 import com.graphhopper.GraphHopper;
 import dev.aws.proto.core.routing.route.GraphhopperLoader;
+import dev.aws.proto.core.routing.route.RouteCache;
+import dev.aws.proto.core.routing.route.RoutingExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.concurrent.TimeUnit;
 
 @ApplicationScoped
 public class RoutingConfig {
@@ -32,6 +35,10 @@ public class RoutingConfig {
 
     private GraphhopperLoader loader;
 
+    private RouteCache routeCache;
+
+    private RoutingExecutor routingExecutor;
+
     RoutingConfig(RoutingProperties routingProperties) {
         this.loader = new GraphhopperLoader(
                 routingProperties.localOsmDir(),
@@ -42,6 +49,24 @@ public class RoutingConfig {
         this.routingProperties = routingProperties;
 
         this.loader.initAndLoad();
+
+        this.routeCache = new RouteCache(
+                routingProperties.routeCacheMaxSize().orElse(RouteCache.DEFAULT_MAX_SIZE),
+                routingProperties.routeCacheTtlInMinutes().orElse(RouteCache.DEFAULT_TTL_IN_MINUTES),
+                TimeUnit.MINUTES
+        );
+        logger.info("Route cache initialized :: maxSize = {} :: ttl = {}ms", routeCache.getMaxSize(), routeCache.getTtlInMillis());
+
+        int parallelism = routingProperties.executorParallelism().orElse(RoutingExecutor.defaultParallelism());
+        this.routingExecutor = new RoutingExecutor(
+                parallelism,
+                routingProperties.executorMaxRequestParallelism().orElse(parallelism),
+                routingProperties.executorMaxConcurrentRequests().orElse(RoutingExecutor.DEFAULT_MAX_CONCURRENT_REQUESTS),
+                routingProperties.executorMaxQueuedRequests().orElse(RoutingExecutor.DEFAULT_MAX_QUEUED_REQUESTS)
+        );
+        logger.info("Routing executor initialized :: parallelism = {} :: per request = {} :: concurrent requests = {} :: max queued = {}",
+                routingExecutor.getParallelism(), routingExecutor.getMaxRequestParallelism(),
+                routingExecutor.getMaxConcurrentRequests(), routingExecutor.getMaxQueuedRequests());
     }
 
 
@@ -57,4 +82,22 @@ public class RoutingConfig {
     public String routingProfile() {
         return this.routingProperties.routingProfile();
     }
+
+    /**
+     * Route cache shared between the routers of the application.
+     *
+     * @return RouteCache
+     */
+    public RouteCache routeCache() {
+        return this.routeCache;
+    }
+
+    /**
+     * Thread pool of the matrix generation, shared between the routers of the application.
+     *
+     * @return RoutingExecutor
+     */
+    public RoutingExecutor routingExecutor() {
+        return this.routingExecutor;
+    }
 }
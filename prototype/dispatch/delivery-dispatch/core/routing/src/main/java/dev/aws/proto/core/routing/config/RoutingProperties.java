@@ -19,6 +19,8 @@ package dev.aws.proto.core.routing.config;
 import io.smallrye.config.ConfigMapping;
 import io.smallrye.config.WithName;
 
+import java.util.Optional;
+
 @ConfigMapping(prefix = "app.routing")
 public interface RoutingProperties {
 
@@ -33,4 +35,22 @@ public interface RoutingProperties {
 
     @WithName("routing-profile")
     String routingProfile();
+
+    @WithName("route-cache.max-size")
+    Optional<Integer> routeCacheMaxSize();
+
+    @WithName("route-cache.ttl-in-minutes")
+    Optional<Long> routeCacheTtlInMinutes();
+
+    @WithName("executor.parallelism")
+    Optional<Integer> executorParallelism();
+
+    @WithName("executor.max-request-parallelism")
+    Optional<Integer> executorMaxRequestParallelism();
+
+    @WithName("executor.max-concurrent-requests")
+    Optional<Integer> executorMaxConcurrentRequests();
+
+    @WithName("executor.max-queued-requests")
+    Optional<Integer> executorMaxQueuedRequests();
 }
@@ -29,6 +29,17 @@ public class Distance {
      */
     public static final Distance ZERO = Distance.ofValue(0L, 0L);
 
+    /**
+     * Meters reported for legs that are missing from the matrix or can't be routed (10 000 km).
+     * Large enough for the solver to avoid the leg, small enough to be summed and multiplied without overflow.
+     */
+    public static final long UNREACHABLE_METERS = 10_000_000L;
+
+    /**
+     * Seconds reported for legs that are missing from the matrix or can't be routed (10 days).
+     */
+    public static final long UNREACHABLE_SECONDS = 864_000L;
+
     protected final long distanceInMeters;
     protected final long distanceInSeconds;
 
@@ -17,7 +17,11 @@
 
 package dev.aws.proto.core.routing.distance;
 
+import com.uber.h3core.util.GeoCoord;
+import dev.aws.proto.core.routing.location.Coordinate;
 import dev.aws.proto.core.routing.location.ILocation;
+import dev.aws.proto.core.routing.location.LocationBase;
+import dev.aws.proto.core.routing.route.GraphhopperMatrixRouter;
 import dev.aws.proto.core.routing.route.GraphhopperRouter;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -26,28 +30,40 @@ import lombok.NoArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.IntStream;
 
+/**
+ * Distance matrix between a list of locations.
+ * <p>
+ * Distances are stored in contiguous row-major <code>long[]</code> arrays (row = origin, column = destination).
+ * When the matrix is built, every {@link LocationBase} gets its dense index in the matrix (see
+ * {@link LocationBase#getMatrixIndex()}), so a lookup is a single array read. Other {@link ILocation} implementations
+ * fall back to a hash lookup.
+ */
 public class DistanceMatrix implements IDistanceMatrix<Distance> {
     private static final Logger logger = LoggerFactory.getLogger(DistanceMatrix.class);
 
-    @Getter
-    private final Map<ILocation, Map<ILocation, Distance>> matrix;
+    private final MatrixLocationIndex locationIndex;
+    private final long[] meters;
+    private final long[] seconds;
+    private final int dimension;
+
     @Getter
     private final long generatedTime;
 
     @Getter
     private final DistanceMatrix.Metrics metrics;
 
-    private DistanceMatrix(Map<ILocation, Map<ILocation, Distance>> matrix, long generatedTime) {
-        this.matrix = matrix;
+    private DistanceMatrix(ILocation[] locations, long[] meters, long[] seconds, long generatedTime) {
+        this.locationIndex = new MatrixLocationIndex(locations);
+        this.meters = meters;
+        this.seconds = seconds;
+        this.dimension = locations.length;
         this.generatedTime = generatedTime;
 
-        this.metrics = new Metrics(generatedTime, matrix.size());
+        this.metrics = new Metrics(generatedTime, dimension);
     }
 
     @Data
@@ -61,13 +77,84 @@ public class DistanceMatrix implements IDistanceMatrix<Distance> {
     @Override
     public Distance distanceBetween(ILocation origin, ILocation destination) {
         logger.trace("Calculating distance between {} and {}", origin, destination);
-        Map<ILocation, Distance> distanceRow = this.matrix.get(origin);
+        int indexFrom = this.indexOf(origin);
+        int indexTo = this.indexOf(destination);
+
+        if (indexFrom < 0 || indexTo < 0) {
+            return null;
+        }
+
+        int cellIdx = indexFrom * dimension + indexTo;
+        return Distance.ofValue(meters[cellIdx], seconds[cellIdx]);
+    }
+
+    @Override
+    public long metersBetween(int originIdx, int destinationIdx) {
+        long value = meters[originIdx * dimension + destinationIdx];
+        // unroutable pairs are stored as -1
+        return value < 0 ? Distance.UNREACHABLE_METERS : value;
+    }
+
+    @Override
+    public long secondsBetween(int originIdx, int destinationIdx) {
+        long value = seconds[originIdx * dimension + destinationIdx];
+        return value < 0 ? Distance.UNREACHABLE_SECONDS : value;
+    }
+
+    /**
+     * Index of the location in this matrix.
+     *
+     * @param location The location.
+     * @return The index, or -1 if the location is not part of the matrix.
+     */
+    public int indexOf(ILocation location) {
+        return this.locationIndex.indexOf(location);
+    }
 
-        return distanceRow.get(destination);
+    public ILocation[] getLocations() {
+        return this.locationIndex.getLocations();
     }
 
+    /**
+     * Creates a distance matrix from nested maps.
+     *
+     * @param matrix origin -> (destination -> distance) map.
+     * @return The distance matrix.
+     */
     public static DistanceMatrix fromMatrix(Map<ILocation, Map<ILocation, Distance>> matrix) {
-        return new DistanceMatrix(matrix, 0);
+        int dim = matrix.size();
+        ILocation[] locations = new ILocation[dim];
+        matrix.keySet().toArray(locations);
+
+        long[] meters = new long[dim * dim];
+        long[] seconds = new long[dim * dim];
+        for (int i = 0; i < dim; i++) {
+            Map<ILocation, Distance> row = matrix.get(locations[i]);
+            for (int j = 0; j < dim; j++) {
+                Distance dist = row.get(locations[j]);
+                meters[i * dim + j] = dist.getDistanceInMeters();
+                seconds[i * dim + j] = dist.getDistanceInSeconds();
+            }
+        }
+
+        return new DistanceMatrix(locations, meters, seconds, 0);
+    }
+
+    /**
+     * Creates a distance matrix from row-major arrays.
+     *
+     * @param locations The locations.
+     * @param meters    Distances in meters, row-major.
+     * @param seconds   Distances in seconds, row-major.
+     * @return The distance matrix.
+     */
+    public static DistanceMatrix fromArrays(ILocation[] locations, long[] meters, long[] seconds) {
+        int cellCnt = locations.length * locations.length;
+        if (meters.length != cellCnt || seconds.length != cellCnt) {
+            throw new IllegalArgumentException("Distance arrays don't match the number of locations (dim = " + locations.length + ")");
+        }
+
+        return new DistanceMatrix(locations, meters, seconds, 0);
     }
 
     public static DistanceMatrix generate(List<ILocation> locationList, GraphhopperRouter router) {
@@ -78,47 +165,83 @@ public class DistanceMatrix implements IDistanceMatrix<Distance> {
 
         logger.debug("DMatrix :: dimension = {}x{} ({} cells)", locCnt, locCnt, locCnt * locCnt);
 
-        // create inverse lookup
-        Map<ILocation, Integer> locIdxLookup = new HashMap<>();
-        for (int i = 0; i < locCnt; i++) {
-            locIdxLookup.put(locations[i], i);
-        }
-
-        Distance[][] distances = new Distance[locCnt][locCnt];
+        // resolve every location once, cells of locations that can't be snapped are not routed
+        GeoCoord[] points = new GeoCoord[locCnt];
+        boolean[] snappable = new boolean[locCnt];
+        router.getExecutor().forEach(locCnt, i -> {
+            Coordinate coordinate = locations[i].coordinate();
+            points[i] = new GeoCoord(coordinate.getLatitude(), coordinate.getLongitude());
+            snappable[i] = router.isSnappable(points[i]);
+        });
 
         int cellCnt = locCnt * locCnt;
+        long[] meters = new long[cellCnt];
+        long[] seconds = new long[cellCnt];
+
         AtomicInteger ctr = new AtomicInteger(0);
         int onePercentOr1000 = Math.max((cellCnt / 100), 1000);
 
-        IntStream.range(0, cellCnt)
-                .parallel()
-                .forEach(idx -> {
-                    int i = idx / locCnt;
-                    int j = idx % locCnt;
-
-                    Distance d = router.travelDistance(locations[i].coordinate(), locations[j].coordinate());
-                    distances[i][j] = d;
-
-                    int localCtr = ctr.incrementAndGet();
-                    if (localCtr % onePercentOr1000 == 0) {
-                        logger.debug("Processing {}/{} ({}%)", localCtr, cellCnt, ((double) localCtr / cellCnt) * 100);
+        MatrixTiles.forEachTile(router.getExecutor(), locCnt, locCnt, MatrixTiles.ROUTED_TILE_ROWS, MatrixTiles.ROUTED_TILE_COLS, (rowFrom, rowTo, colFrom, colTo) -> {
+            for (int i = rowFrom; i < rowTo; i++) {
+                for (int j = colFrom; j < colTo; j++) {
+                    int idx = i * locCnt + j;
+                    if (snappable[i] && snappable[j]) {
+                        Distance d = router.travelDistance(points[i], points[j]);
+                        meters[idx] = d.getDistanceInMeters();
+                        seconds[idx] = d.getDistanceInSeconds();
+                    } else {
+                        meters[idx] = -1;
+                        seconds[idx] = -1;
                     }
-                });
-
-        Map<ILocation, Map<ILocation, Distance>> matrix = new HashMap<>();
-        for (int i = 0; i < locCnt; i++) {
-            Map<ILocation, Distance> row = new HashMap<>();
-            for (int j = 0; j < locCnt; j++) {
-                row.put(locations[j], distances[j][i]); // TODO: review indexing
+                }
             }
 
-            matrix.put(locations[i], row);
-        }
+            int tileCellCnt = (rowTo - rowFrom) * (colTo - colFrom);
+            int before = ctr.getAndAdd(tileCellCnt);
+            if (before / onePercentOr1000 != (before + tileCellCnt) / onePercentOr1000) {
+                logger.debug("Processing {}/{} ({}%)", before + tileCellCnt, cellCnt, ((double) (before + tileCellCnt) / cellCnt) * 100);
+            }
+        });
 
         long generatedTime = System.currentTimeMillis() - start;
 
         logger.info("DistanceMatrix :: calc time = {}ms :: dim = {}x{} :: per cell = {}ms :: errors = {}", generatedTime, locCnt, locCnt, ((double) generatedTime / (locCnt * locCnt)), router.getErrorCnt().get());
+        logger.debug("DistanceMatrix :: routing executor metrics :: {}", router.getExecutor().getMetrics());
         router.getErrorCnt().set(0);
-        return new DistanceMatrix(matrix, generatedTime);
+        return new DistanceMatrix(locations, meters, seconds, generatedTime);
+    }
+
+    /**
+     * Generates the distance matrix with one-to-many routing (one shortest-path-tree search per origin).
+     *
+     * @param locationList The locations.
+     * @param matrixRouter The matrix router.
+     * @return The distance matrix.
+     */
+    public static DistanceMatrix generate(List<ILocation> locationList, GraphhopperMatrixRouter matrixRouter) {
+        long start = System.currentTimeMillis();
+        int locCnt = locationList.size();
+        ILocation[] locations = new ILocation[locCnt];
+        locationList.toArray(locations);
+
+        logger.debug("DMatrix :: dimension = {}x{} ({} cells)", locCnt, locCnt, locCnt * locCnt);
+
+        GeoCoord[] points = new GeoCoord[locCnt];
+        for (int i = 0; i < locCnt; i++) {
+            Coordinate coordinate = locations[i].coordinate();
+            points[i] = new GeoCoord(coordinate.getLatitude(), coordinate.getLongitude());
+        }
+
+        int cellCnt = locCnt * locCnt;
+        long[] meters = new long[cellCnt];
+        long[] seconds = new long[cellCnt];
+        matrixRouter.fill(points, meters, seconds);
+
+        long generatedTime = System.currentTimeMillis() - start;
+
+        logger.info("DistanceMatrix :: calc time = {}ms :: dim = {}x{} :: per cell = {}ms :: errors = {}", generatedTime, locCnt, locCnt, ((double) generatedTime / cellCnt), matrixRouter.getErrorCnt().get());
+        logger.debug("DistanceMatrix :: routing executor metrics :: {}", matrixRouter.getExecutor().getMetrics());
+        matrixRouter.getErrorCnt().set(0);
+        return new DistanceMatrix(locations, meters, seconds, generatedTime);
     }
 }
@@ -21,4 +21,24 @@ import dev.aws.proto.core.routing.location.ILocation;
 
 public interface IDistanceMatrix<TDistance extends Distance> {
     TDistance distanceBetween(ILocation origin, ILocation destination);
+
+    /**
+     * Distance in meters between two locations, addressed by their index in the matrix.
+     * See {@link dev.aws.proto.core.routing.location.LocationBase#getMatrixIndex()}.
+     *
+     * @param originIdx      Index of the origin.
+     * @param destinationIdx Index of the destination.
+     * @return distance in meters, or {@link Distance#UNREACHABLE_METERS} if the pair is missing or can't be routed
+     */
+    long metersBetween(int originIdx, int destinationIdx);
+
+    /**
+     * Distance in seconds between two locations, addressed by their index in the matrix.
+     * See {@link dev.aws.proto.core.routing.location.LocationBase#getMatrixIndex()}.
+     *
+     * @param originIdx      Index of the origin.
+     * @param destinationIdx Index of the destination.
+     * @return distance in seconds, or {@link Distance#UNREACHABLE_SECONDS} if the pair is missing or can't be routed
+     */
+    long secondsBetween(int originIdx, int destinationIdx);
 }
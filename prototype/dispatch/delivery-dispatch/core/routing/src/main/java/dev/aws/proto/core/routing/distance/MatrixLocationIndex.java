@@ -0,0 +1,80 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.distance;
+
+import dev.aws.proto.core.routing.location.ILocation;
+import dev.aws.proto.core.routing.location.LocationBase;
+import lombok.Getter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense index of the locations of a distance matrix.
+ * <p>
+ * Assigns every {@link LocationBase} its position in the matrix (see {@link LocationBase#getMatrixIndex()}), so lookups
+ * don't need to hash the location. Other {@link ILocation} implementations fall back to a hash lookup.
+ */
+public class MatrixLocationIndex {
+    public static final int NOT_FOUND = -1;
+
+    @Getter
+    private final ILocation[] locations;
+    private final Map<ILocation, Integer> locIdxLookup;
+
+    public MatrixLocationIndex(ILocation[] locations) {
+        this.locations = locations;
+        this.locIdxLookup = new HashMap<>();
+
+        for (int i = 0; i < locations.length; i++) {
+            locIdxLookup.put(locations[i], i);
+
+            if (locations[i] instanceof LocationBase) {
+                ((LocationBase<?>) locations[i]).setMatrixIndex(i);
+            }
+        }
+    }
+
+    public MatrixLocationIndex(List<? extends ILocation> locationList) {
+        this(locationList.toArray(new ILocation[0]));
+    }
+
+    public int size() {
+        return locations.length;
+    }
+
+    /**
+     * Index of the location in the matrix.
+     *
+     * @param location The location.
+     * @return The index, or {@link #NOT_FOUND} if the location is not part of the matrix.
+     */
+    public int indexOf(ILocation location) {
+        if (location instanceof LocationBase) {
+            int idx = ((LocationBase<?>) location).getMatrixIndex();
+            // the index is only valid if it was assigned by this matrix
+            if (idx >= 0 && idx < locations.length && locations[idx] == location) {
+                return idx;
+            }
+        }
+
+        Integer idx = this.locIdxLookup.get(location);
+        return idx == null ? NOT_FOUND : idx;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.distance;
+
+import dev.aws.proto.core.routing.route.RoutingExecutor;
+
+/**
+ * Splits a row-major matrix into tiles (a block of consecutive rows times a block of consecutive columns) and fills
+ * them in parallel on a {@link RoutingExecutor}.
+ * <p>
+ * The matrix builders resolve their locations once (hexagons, cache indices, snapped points), then fill tile by tile
+ * instead of cell by cell: a tile row is written to consecutive cells of the output arrays, and the per-location data
+ * of the tile's columns stays in the CPU cache while the rows of the tile are filled.
+ */
+public final class MatrixTiles {
+    /**
+     * Tile size of the cache lookups, a few microseconds per tile row.
+     */
+    public static final int DEFAULT_TILE_ROWS = 16;
+    public static final int DEFAULT_TILE_COLS = 256;
+
+    /**
+     * Tile size of the point-to-point routed fills: routing a cell takes milliseconds, so smaller tiles keep all the
+     * threads busy on small matrices.
+     */
+    public static final int ROUTED_TILE_ROWS = 1;
+    public static final int ROUTED_TILE_COLS = 64;
+
+    /**
+     * Fills the cells of one tile, rows in <code>[rowFrom, rowTo)</code>, columns in <code>[colFrom, colTo)</code>.
+     */
+    @FunctionalInterface
+    public interface ITileAction {
+        void fill(int rowFrom, int rowTo, int colFrom, int colTo);
+    }
+
+    private MatrixTiles() {
+    }
+
+    /**
+     * Fills the tiles of a matrix with the default tile size.
+     *
+     * @param executor The executor.
+     * @param rowCnt   The number of rows.
+     * @param colCnt   The number of columns.
+     * @param action   Fills one tile.
+     */
+    public static void forEachTile(RoutingExecutor executor, int rowCnt, int colCnt, ITileAction action) {
+        forEachTile(executor, rowCnt, colCnt, DEFAULT_TILE_ROWS, DEFAULT_TILE_COLS, action);
+    }
+
+    /**
+     * Fills the tiles of a matrix. The tiles on the last row and column of tiles can be smaller.
+     *
+     * @param executor The executor.
+     * @param rowCnt   The number of rows.
+     * @param colCnt   The number of columns.
+     * @param tileRows The number of rows of a tile.
+     * @param tileCols The number of columns of a tile.
+     * @param action   Fills one tile.
+     */
+    public static void forEachTile(RoutingExecutor executor, int rowCnt, int colCnt, int tileRows, int tileCols, ITileAction action) {
+        if (tileRows <= 0 || tileCols <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive (" + tileRows + "x" + tileCols + ")");
+        }
+
+        int rowTiles = (rowCnt + tileRows - 1) / tileRows;
+        int colTiles = (colCnt + tileCols - 1) / tileCols;
+        executor.forEach(rowTiles * colTiles, tile -> {
+            int rowFrom = (tile / colTiles) * tileRows;
+            int colFrom = (tile % colTiles) * tileCols;
+            action.fill(rowFrom, Math.min(rowFrom + tileRows, rowCnt), colFrom, Math.min(colFrom + tileCols, colCnt));
+        });
+    }
+}
@@ -32,6 +32,11 @@ public class LocationBase<TDistance extends Distance> implements ILocation, Comp
     private LocationType locationType;
     private IDistanceMatrix<TDistance> distanceMatrix;
 
+    /**
+     * Dense index of this location in its distance matrix, assigned when the matrix is built. -1 if not assigned.
+     */
+    private int matrixIndex = -1;
+
     protected LocationBase(String id, Coordinate coordinate, LocationType locationType) {
         this.id = id;
         this.coordinate = coordinate;
@@ -42,6 +47,43 @@ public class LocationBase<TDistance extends Distance> implements ILocation, Comp
         return this.distanceMatrix.distanceBetween(this, other);
     }
 
+    /**
+     * Distance in meters to the other location, read by matrix index. Falls back to {@link #distanceTo(ILocation)}
+     * if any of the locations has no index assigned, or the two locations are not indexed in the same matrix.
+     *
+     * @param other The other location.
+     * @return distance in meters, or {@link Distance#UNREACHABLE_METERS} if the leg is missing or can't be routed
+     */
+    public long metersTo(LocationBase<?> other) {
+        if (!this.sharesMatrixWith(other)) {
+            TDistance distance = this.distanceTo(other);
+            return distance == null || distance.getDistanceInMeters() < 0 ? Distance.UNREACHABLE_METERS : distance.getDistanceInMeters();
+        }
+        return this.distanceMatrix.metersBetween(this.matrixIndex, other.matrixIndex);
+    }
+
+    /**
+     * Distance in seconds to the other location, read by matrix index. Falls back to {@link #distanceTo(ILocation)}
+     * if any of the locations has no index assigned, or the two locations are not indexed in the same matrix.
+     *
+     * @param other The other location.
+     * @return distance in seconds, or {@link Distance#UNREACHABLE_SECONDS} if the leg is missing or can't be routed
+     */
+    public long secondsTo(LocationBase<?> other) {
+        if (!this.sharesMatrixWith(other)) {
+            TDistance distance = this.distanceTo(other);
+            return distance == null || distance.getDistanceInSeconds() < 0 ? Distance.UNREACHABLE_SECONDS : distance.getDistanceInSeconds();
+        }
+        return this.distanceMatrix.secondsBetween(this.matrixIndex, other.matrixIndex);
+    }
+
+    /**
+     * Matrix indices are only meaningful in the matrix they were assigned by.
+     */
+    private boolean sharesMatrixWith(LocationBase<?> other) {
+        return this.matrixIndex >= 0 && other.matrixIndex >= 0 && this.distanceMatrix != null && this.distanceMatrix == other.distanceMatrix;
+    }
+
     @Override
     public Coordinate coordinate() {
         return this.coordinate;
@@ -0,0 +1,307 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.route;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.index.Snap;
+import com.uber.h3core.util.GeoCoord;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * One-to-many matrix router on top of the loaded Graphhopper graph.
+ * <p>
+ * Instead of running a point-to-point search for every cell (see {@link GraphhopperRouter}), it snaps every point
+ * to the graph once, then runs one shortest-path-tree sweep per source, which fills the whole matrix row at once.
+ * A sweep stops as soon as all the targets of its row are settled, so clustered targets don't make every row explore
+ * the whole graph. Sources are processed in parallel, on the {@link RoutingExecutor} of the router.
+ * <p>
+ * Cells that can't be routed (point couldn't be snapped to the graph or target is unreachable) are set to -1,
+ * the same way {@link GraphhopperRouter#travelDistance(GeoCoord, GeoCoord)} reports routing errors.
+ */
+public class GraphhopperMatrixRouter {
+    private static final Logger logger = LoggerFactory.getLogger(GraphhopperMatrixRouter.class);
+
+    /**
+     * Value of the cells that couldn't be routed.
+     */
+    public static final long UNROUTABLE = -1;
+
+    private final GraphHopper graphhopper;
+
+    @Getter
+    private final String profile;
+
+    private final GraphhopperSnapper snapper;
+
+    /**
+     * A counter to get information about routing errors (unsnappable points and unreachable cells).
+     */
+    @Getter
+    private final AtomicInteger errorCnt;
+
+    /**
+     * The executor the rows (and the snapping of the points) run on.
+     */
+    @Getter
+    private final RoutingExecutor executor;
+
+    public GraphhopperMatrixRouter(GraphHopper graphhopper, String profile) {
+        this(graphhopper, profile, RoutingExecutor.shared());
+    }
+
+    public GraphhopperMatrixRouter(GraphHopper graphhopper, String profile, RoutingExecutor executor) {
+        this.snapper = new GraphhopperSnapper(graphhopper, profile, executor);
+        this.graphhopper = graphhopper;
+        this.profile = profile;
+        this.errorCnt = new AtomicInteger(0);
+        this.executor = executor;
+    }
+
+    /**
+     * Calculates the NxN travel distance matrix between the points.
+     *
+     * @param points  The points (sources and targets).
+     * @param meters  Output, row-major distances in meters (length = N*N).
+     * @param seconds Output, row-major distances in seconds (length = N*N).
+     */
+    public void fill(GeoCoord[] points, long[] meters, long[] seconds) {
+        Snap[] snaps = snapper.snapAll(points);
+        this.fill(snaps, snaps, meters, seconds);
+    }
+
+    /**
+     * Calculates the SxT travel distance matrix from the sources to the targets (e.g. a block of rows of a matrix).
+     *
+     * @param sources The source points (rows).
+     * @param targets The target points (columns).
+     * @param meters  Output, row-major distances in meters (length = S*T).
+     * @param seconds Output, row-major distances in seconds (length = S*T).
+     */
+    public void fill(GeoCoord[] sources, GeoCoord[] targets, long[] meters, long[] seconds) {
+        this.fill(snapper.snapAll(sources), snapper.snapAll(targets), meters, seconds);
+    }
+
+    private void fill(Snap[] sourceSnaps, Snap[] targetSnaps, long[] meters, long[] seconds) {
+        int rowCnt = sourceSnaps.length;
+        int colCnt = targetSnaps.length;
+        int cellCnt = rowCnt * colCnt;
+        if (meters.length != cellCnt || seconds.length != cellCnt) {
+            throw new IllegalArgumentException("Distance arrays don't match the number of points (" + rowCnt + "x" + colCnt + ")");
+        }
+
+        Arrays.fill(meters, UNROUTABLE);
+        Arrays.fill(seconds, UNROUTABLE);
+
+        // create the query graph with the virtual nodes of all snaps (once for a square matrix)
+        List<Snap> validSnaps = new ArrayList<>(rowCnt + colCnt);
+        for (Snap snap : sourceSnaps) {
+            if (snap == null) {
+                errorCnt.incrementAndGet();
+            } else {
+                validSnaps.add(snap);
+            }
+        }
+        if (targetSnaps != sourceSnaps) {
+            for (Snap snap : targetSnaps) {
+                if (snap != null) {
+                    validSnaps.add(snap);
+                }
+            }
+        }
+
+        QueryGraph queryGraph = QueryGraph.create(graphhopper.getGraphHopperStorage(), validSnaps);
+        Weighting queryWeighting = queryGraph.wrapWeighting(snapper.getWeighting());
+
+        // graph node -> indices of the targets snapped to it
+        Map<Integer, List<Integer>> targetsByNode = new HashMap<>();
+        int snappedTargetCnt = 0;
+        for (int j = 0; j < colCnt; j++) {
+            if (targetSnaps[j] != null) {
+                targetsByNode.computeIfAbsent(targetSnaps[j].getClosestNode(), n -> new ArrayList<>()).add(j);
+                snappedTargetCnt++;
+            }
+        }
+
+        int snappedCnt = snappedTargetCnt;
+        AtomicInteger ctr = new AtomicInteger(0);
+        int onePercentOr10 = Math.max((rowCnt / 100), 10);
+
+        executor.forEach(rowCnt, i -> {
+            if (sourceSnaps[i] != null) {
+                this.fillRow(queryGraph, queryWeighting, sourceSnaps[i].getClosestNode(), i * colCnt, targetsByNode, snappedCnt, meters, seconds);
+            }
+
+            int localCtr = ctr.incrementAndGet();
+            if (localCtr % onePercentOr10 == 0) {
+                logger.debug("Processing rows {}/{} ({}%)", localCtr, rowCnt, ((double) localCtr / rowCnt) * 100);
+            }
+        });
+
+        long unroutable = IntStream.range(0, cellCnt).filter(idx -> meters[idx] < 0).count();
+        logger.debug("Matrix routing :: dim = {}x{} :: unroutable cells = {}", rowCnt, colCnt, unroutable);
+    }
+
+    /**
+     * Calculates the travel distances from every point to a few targets each (e.g. its neighbours). The searches are
+     * bounded by a distance limit, so a row doesn't sweep the whole graph.
+     *
+     * @param points        The points (sources and targets).
+     * @param targets       The indices of the target points for each source point.
+     * @param distanceLimit The max distance explored by a search, in meters. Targets further away are unroutable.
+     * @param meters        Output, distances in meters, <code>meters[i][t]</code> is the distance to <code>targets[i][t]</code>.
+     * @param seconds       Output, distances in seconds, in the same layout.
+     */
+    public void fillSparse(GeoCoord[] points, int[][] targets, double distanceLimit, long[][] meters, long[][] seconds) {
+        int dim = points.length;
+        if (targets.length != dim || meters.length != dim || seconds.length != dim) {
+            throw new IllegalArgumentException("Target and distance arrays don't match the number of points (dim = " + dim + ")");
+        }
+
+        Snap[] snaps = snapper.snapAll(points);
+        List<Snap> validSnaps = new ArrayList<>(dim);
+        for (Snap snap : snaps) {
+            if (snap == null) {
+                errorCnt.incrementAndGet();
+            } else {
+                validSnaps.add(snap);
+            }
+        }
+
+        QueryGraph queryGraph = QueryGraph.create(graphhopper.getGraphHopperStorage(), validSnaps);
+        Weighting queryWeighting = queryGraph.wrapWeighting(snapper.getWeighting());
+
+        AtomicInteger ctr = new AtomicInteger(0);
+        int onePercentOr10 = Math.max((dim / 100), 10);
+
+        executor.forEach(dim, i -> {
+            Arrays.fill(meters[i], UNROUTABLE);
+            Arrays.fill(seconds[i], UNROUTABLE);
+
+            if (snaps[i] != null) {
+                // graph node -> positions of the targets snapped to it, in this row
+                Map<Integer, List<Integer>> targetsByNode = new HashMap<>();
+                for (int t = 0; t < targets[i].length; t++) {
+                    Snap targetSnap = snaps[targets[i][t]];
+                    if (targetSnap != null) {
+                        targetsByNode.computeIfAbsent(targetSnap.getClosestNode(), n -> new ArrayList<>()).add(t);
+                    }
+                }
+
+                ShortestPathTree tree = new ShortestPathTree(queryGraph, queryWeighting, false, TraversalMode.NODE_BASED);
+                tree.setDistanceLimit(distanceLimit);
+                searchUntilSettled(tree, snaps[i].getClosestNode(), targetsByNode.size(), label -> {
+                    List<Integer> rowTargets = targetsByNode.get(label.node);
+                    if (rowTargets == null) {
+                        return false;
+                    }
+                    for (int t : rowTargets) {
+                        meters[i][t] = (long) label.distance;
+                        seconds[i][t] = label.time / 1000L;
+                    }
+                    return true;
+                });
+            }
+
+            int localCtr = ctr.incrementAndGet();
+            if (localCtr % onePercentOr10 == 0) {
+                logger.debug("Processing rows {}/{} ({}%)", localCtr, dim, ((double) localCtr / dim) * 100);
+            }
+        });
+    }
+
+    private void fillRow(QueryGraph queryGraph, Weighting queryWeighting, int sourceNode, int rowOffset,
+                         Map<Integer, List<Integer>> targetsByNode, int snappedCnt, long[] meters, long[] seconds) {
+        ShortestPathTree tree = new ShortestPathTree(queryGraph, queryWeighting, false, TraversalMode.NODE_BASED);
+
+        AtomicInteger reached = new AtomicInteger(0);
+        searchUntilSettled(tree, sourceNode, targetsByNode.size(), label -> {
+            List<Integer> targets = targetsByNode.get(label.node);
+            if (targets == null) {
+                return false;
+            }
+
+            for (int target : targets) {
+                meters[rowOffset + target] = (long) label.distance;
+                seconds[rowOffset + target] = label.time / 1000L;
+            }
+            reached.addAndGet(targets.size());
+            return true;
+        });
+
+        if (reached.get() < snappedCnt) {
+            errorCnt.addAndGet(snappedCnt - reached.get());
+        }
+    }
+
+    /**
+     * Runs the shortest-path tree from the source until all the target nodes are settled (or the tree's limits are
+     * reached). {@link ShortestPathTree} has no finish condition, the search is cut short from its label consumer.
+     *
+     * @param tree          The shortest-path tree (with its limits set).
+     * @param sourceNode    The source node.
+     * @param targetNodeCnt The number of distinct target nodes.
+     * @param targetVisitor Called with every settled label, returns <code>true</code> if its node is a target node.
+     */
+    private static void searchUntilSettled(ShortestPathTree tree, int sourceNode, int targetNodeCnt, TargetVisitor targetVisitor) {
+        if (targetNodeCnt == 0) {
+            return;
+        }
+
+        int[] settled = {0};
+        try {
+            tree.search(sourceNode, label -> {
+                if (targetVisitor.visit(label) && ++settled[0] == targetNodeCnt) {
+                    throw AllTargetsSettled.INSTANCE;
+                }
+            });
+        } catch (AllTargetsSettled done) {
+            // every target is settled, the rest of the graph doesn't need to be explored
+        }
+    }
+
+    @FunctionalInterface
+    private interface TargetVisitor {
+        boolean visit(ShortestPathTree.IsoLabel label);
+    }
+
+    /**
+     * Ends a {@link ShortestPathTree#search(int, Consumer)} early. Thrown without a stack trace, once per row.
+     */
+    private static final class AllTargetsSettled extends RuntimeException {
+        private static final AllTargetsSettled INSTANCE = new AllTargetsSettled();
+
+        private AllTargetsSettled() {
+            super(null, null, false, false);
+        }
+    }
+}
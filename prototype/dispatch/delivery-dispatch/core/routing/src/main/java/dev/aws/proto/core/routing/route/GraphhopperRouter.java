@@ -22,9 +22,11 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.ResponsePath;
 import com.graphhopper.routing.util.FlagEncoderFactory;
 import com.graphhopper.util.PointList;
+import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.uber.h3core.util.GeoCoord;
 import dev.aws.proto.core.routing.distance.Distance;
 import dev.aws.proto.core.routing.distance.IDistanceCalculator;
+import dev.aws.proto.core.routing.exception.DistanceCalculationException;
 import dev.aws.proto.core.routing.location.Coordinate;
 import lombok.Getter;
 import org.slf4j.Logger;
@@ -33,7 +35,10 @@ import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.StreamSupport;
 
@@ -99,12 +104,51 @@ public class GraphhopperRouter implements IDistanceCalculator {
     @Getter
     private final AtomicInteger errorCnt;
 
+    /**
+     * Optional cache of routes (distance and encoded path), keyed on the normalized coordinate pair.
+     */
+    @Getter
+    private final RouteCache routeCache;
+
+    /**
+     * Snaps the points to the road graph before routing.
+     */
+    private final GraphhopperSnapper snapper;
+
+    /**
+     * Snap results per (normalized) coordinate, so every point is snapped once, and points that can't be snapped are
+     * not routed (and retried) over and over again. Bounded (LRU) by the max size of the route cache.
+     */
+    private final Map<Coordinate, Boolean> snapResults;
+
+    /**
+     * The executor the matrix builders run the routing of this router on.
+     */
+    @Getter
+    private final RoutingExecutor executor;
+
     public GraphhopperRouter(GraphHopper graphhopper, String profile) {
         // set default GPS accuracy to 5 (1.11m)
         this(graphhopper, profile, defaultGpsAccuracy);
     }
 
+    public GraphhopperRouter(GraphHopper graphhopper, String profile, RouteCache routeCache) {
+        this(graphhopper, profile, defaultGpsAccuracy, routeCache);
+    }
+
     public GraphhopperRouter(GraphHopper graphhopper, String profile, int gpsAccuracy) {
+        this(graphhopper, profile, gpsAccuracy, null);
+    }
+
+    public GraphhopperRouter(GraphHopper graphhopper, String profile, RouteCache routeCache, RoutingExecutor executor) {
+        this(graphhopper, profile, defaultGpsAccuracy, routeCache, executor);
+    }
+
+    public GraphhopperRouter(GraphHopper graphhopper, String profile, int gpsAccuracy, RouteCache routeCache) {
+        this(graphhopper, profile, gpsAccuracy, routeCache, RoutingExecutor.shared());
+    }
+
+    public GraphhopperRouter(GraphHopper graphhopper, String profile, int gpsAccuracy, RouteCache routeCache, RoutingExecutor executor) {
         if (graphhopper == null) {
             throw new IllegalArgumentException("Graphhopper router cannot be null.");
         }
@@ -120,6 +164,16 @@ public class GraphhopperRouter implements IDistanceCalculator {
         this.profile = profile;
         this.gpsAccuracy = gpsAccuracy;
         this.errorCnt = new AtomicInteger(0);
+        this.routeCache = routeCache;
+        this.snapper = new GraphhopperSnapper(graphhopper, profile, executor);
+        int maxSnapResults = routeCache == null ? RouteCache.DEFAULT_MAX_SIZE : routeCache.getMaxSize();
+        this.snapResults = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Coordinate, Boolean> eldest) {
+                return size() > maxSnapResults;
+            }
+        });
+        this.executor = executor;
     }
 
     private double getNormalizedDouble(double val, int accuracy) {
@@ -144,6 +198,19 @@ public class GraphhopperRouter implements IDistanceCalculator {
             toLng = getNormalizedDouble(toLng, accuracy);
         }
 
+        boolean fromSnappable = this.isSnappableAt(fromLat, fromLng);
+        boolean toSnappable = this.isSnappableAt(toLat, toLng);
+        if (!fromSnappable || !toSnappable) {
+            if (accuracy - 1 >= minGpsAccuracy) {
+                return this.getRoute(fromLat, fromLng, toLat, toLng, accuracy - 1);
+            }
+
+            int pointIdx = fromSnappable ? 1 : 0;
+            GHResponse ghResponse = new GHResponse();
+            ghResponse.addError(new PointNotFoundException("Cannot snap point " + pointIdx + " to the road graph", pointIdx));
+            return ghResponse;
+        }
+
         GHRequest ghRequest = new GHRequest(fromLat, fromLng, toLat, toLng);
         ghRequest.setProfile(this.profile);
         GHResponse ghResponse = graphhopper.route(ghRequest);
@@ -162,6 +229,99 @@ public class GraphhopperRouter implements IDistanceCalculator {
         return ghResponse;
     }
 
+    private boolean isSnappableAt(double lat, double lng) {
+        Coordinate coord = new Coordinate(lat, lng);
+        Boolean cached = snapResults.get(coord);
+        if (cached != null) {
+            return cached;
+        }
+
+        // snap outside the lock of the map, concurrent snaps of the same point yield the same result
+        boolean snappable = snapper.snap(lat, lng) != null;
+        if (!snappable) {
+            logger.warn("Point {}/{} can't be snapped to the road graph", lat, lng);
+        }
+        snapResults.put(coord, snappable);
+        return snappable;
+    }
+
+    /**
+     * Checks if a point can be snapped to the road graph (on any of the accuracies the router tries).
+     * The result is cached per point, matrix builders use it to skip points that can't be routed.
+     *
+     * @param point The point.
+     * @return <code>true</code> if the point can be routed from/to.
+     */
+    public boolean isSnappable(GeoCoord point) {
+        double lat = point.lat;
+        double lng = point.lng;
+        for (int accuracy = this.gpsAccuracy; accuracy >= minGpsAccuracy; accuracy--) {
+            lat = getNormalizedDouble(lat, accuracy);
+            lng = getNormalizedDouble(lng, accuracy);
+            if (this.isSnappableAt(lat, lng)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private RouteCache.RouteKey routeKey(double fromLat, double fromLng, double toLat, double toLng) {
+        return RouteCache.RouteKey.of(this.profile,
+                getNormalizedDouble(fromLat, this.gpsAccuracy), getNormalizedDouble(fromLng, this.gpsAccuracy),
+                getNormalizedDouble(toLat, this.gpsAccuracy), getNormalizedDouble(toLng, this.gpsAccuracy));
+    }
+
+    private static String encodePath(ResponsePath path) {
+        List<Coordinate> points = StreamSupport.stream(path.getPoints().spliterator(), false)
+                .map(ghPoint3D -> new Coordinate(ghPoint3D.lat, ghPoint3D.lon))
+                .collect(toList());
+        return PolylineHelper.encodePointsToPolyline(points);
+    }
+
+    /**
+     * Looks up the route in the route cache, or routes it with Graphhopper and caches it.
+     *
+     * @return The route, or <code>null</code> if Graphhopper couldn't find it.
+     */
+    private RouteCache.CachedRoute cachedRoute(double fromLat, double fromLng, double toLat, double toLng) {
+        RouteCache.RouteKey key = this.routeKey(fromLat, fromLng, toLat, toLng);
+        RouteCache.CachedRoute cached = routeCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        GHResponse ghResponse = this.getRoute(fromLat, fromLng, toLat, toLng);
+        if (ghResponse.hasErrors()) {
+            // errors are not cached
+            return null;
+        }
+
+        ResponsePath bestPath = ghResponse.getBest();
+        Distance distance = Distance.ofValue((long) bestPath.getDistance(), bestPath.getTime() / 1000L);
+        RouteCache.CachedRoute route = new RouteCache.CachedRoute(distance, encodePath(bestPath), System.currentTimeMillis());
+        routeCache.put(key, route);
+        return route;
+    }
+
+    /**
+     * Gets a routing path between two geo points, encoded as a polyline.
+     *
+     * @param origin      The starting point.
+     * @param destination The endpoint.
+     * @return The encoded polyline of the travel path.
+     */
+    public String getEncodedPath(Coordinate origin, Coordinate destination) {
+        if (routeCache == null) {
+            return PolylineHelper.encodePointsToPolyline(this.getPath(origin, destination));
+        }
+
+        RouteCache.CachedRoute route = this.cachedRoute(origin.getLatitude(), origin.getLongitude(), destination.getLatitude(), destination.getLongitude());
+        if (route == null) {
+            throw new DistanceCalculationException("No route found between " + origin + " and " + destination);
+        }
+        return route.getEncodedPath();
+    }
+
     /**
      * Gets a routing path between two geo points.
      *
@@ -172,6 +332,10 @@ public class GraphhopperRouter implements IDistanceCalculator {
     public List<Coordinate> getPath(Coordinate origin, Coordinate destination) {
         logger.trace("getPath between {} and {}", origin, destination);
 
+        if (routeCache != null) {
+            return PolylineHelper.decodePolylineToPoints(this.getEncodedPath(origin, destination));
+        }
+
         GHResponse ghResponse = this.getRoute(
                 origin.getLatitude(), origin.getLongitude(), destination.getLatitude(), destination.getLongitude());
 
@@ -198,6 +362,16 @@ public class GraphhopperRouter implements IDistanceCalculator {
      */
     public Distance travelDistance(GeoCoord from, GeoCoord to) {
         logger.trace("Calculating distance between {} and {}", from, to);
+
+        if (routeCache != null) {
+            RouteCache.CachedRoute route = this.cachedRoute(from.lat, from.lng, to.lat, to.lng);
+            if (route == null) {
+                errorCnt.incrementAndGet();
+                return Distance.ofValue(-1, -1);
+            }
+            return route.getDistance();
+        }
+
         GHResponse ghResponse = this.getRoute(from.lat, from.lng, to.lat, to.lng);
 
         if (ghResponse.hasErrors()) {
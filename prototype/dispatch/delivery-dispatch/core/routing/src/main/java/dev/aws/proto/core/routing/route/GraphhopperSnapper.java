@@ -0,0 +1,107 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.route;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.Profile;
+import com.graphhopper.routing.ev.Subnetwork;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.PMap;
+import com.uber.h3core.util.GeoCoord;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Snaps points to the road graph of a Graphhopper profile.
+ * <p>
+ * Matrix builders use it to resolve every location once (instead of once per cell), and to record the points that
+ * can't be snapped, so they are skipped instead of being routed (and retried) for every pair.
+ */
+public class GraphhopperSnapper {
+    private static final Logger logger = LoggerFactory.getLogger(GraphhopperSnapper.class);
+
+    private final GraphHopper graphhopper;
+
+    @Getter
+    private final Weighting weighting;
+
+    private final EdgeFilter snapFilter;
+
+    private final RoutingExecutor executor;
+
+    public GraphhopperSnapper(GraphHopper graphhopper, String profile) {
+        this(graphhopper, profile, RoutingExecutor.shared());
+    }
+
+    public GraphhopperSnapper(GraphHopper graphhopper, String profile, RoutingExecutor executor) {
+        if (graphhopper == null) {
+            throw new IllegalArgumentException("Graphhopper router cannot be null.");
+        }
+
+        Profile ghProfile = graphhopper.getProfile(profile);
+        if (ghProfile == null) {
+            throw new IllegalArgumentException("Graphhopper profile " + profile + " doesn't exist.");
+        }
+
+        this.graphhopper = graphhopper;
+        this.weighting = graphhopper.createWeighting(ghProfile, new PMap());
+        this.snapFilter = new DefaultSnapFilter(this.weighting,
+                graphhopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profile)));
+        this.executor = executor;
+    }
+
+    /**
+     * Snaps a point to the road graph.
+     *
+     * @param lat Latitude.
+     * @param lng Longitude.
+     * @return The snap, or <code>null</code> if the point can't be snapped.
+     */
+    public Snap snap(double lat, double lng) {
+        Snap snap = graphhopper.getLocationIndex().findClosest(lat, lng, snapFilter);
+        return snap.isValid() ? snap : null;
+    }
+
+    /**
+     * Snaps all points to the road graph (in parallel, on the routing executor). Failures are logged once per point.
+     *
+     * @param points The points.
+     * @return The snaps, in the order of the points (<code>null</code> for the points that can't be snapped).
+     */
+    public Snap[] snapAll(GeoCoord[] points) {
+        Snap[] snaps = new Snap[points.length];
+        AtomicInteger failures = new AtomicInteger(0);
+
+        executor.forEach(points.length, i -> {
+            snaps[i] = this.snap(points[i].lat, points[i].lng);
+            if (snaps[i] == null) {
+                logger.warn("Couldn't snap point {} to the road graph", points[i]);
+                failures.incrementAndGet();
+            }
+        });
+
+        logger.debug("Snapped {} points :: failures = {}", points.length, failures.get());
+        return snaps;
+    }
+}
@@ -36,6 +36,12 @@ public class PolylineHelper {
         return PolylineUtils.encode(path, OSRMv5_PRECISION);
     }
 
+    public static List<Coordinate> decodePolylineToPoints(String encodedPolyline) {
+        return PolylineUtils.decode(encodedPolyline, OSRMv5_PRECISION).stream()
+                .map(point -> new Coordinate(point.latitude(), point.longitude()))
+                .collect(Collectors.toList());
+    }
+
     public static String concatEncodedPolylines(List<String> encodedPolylines) {
         List<Point> path = new ArrayList<>();
         for (String encodedLine : encodedPolylines) {
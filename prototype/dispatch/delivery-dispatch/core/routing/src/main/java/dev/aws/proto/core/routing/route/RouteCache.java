@@ -0,0 +1,161 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.route;
+
+import dev.aws.proto.core.routing.distance.Distance;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size- and TTL-bounded concurrent cache of routes, used by {@link GraphhopperRouter}.
+ * <p>
+ * Keys are the origin/destination coordinates normalized to the router's GPS accuracy (plus the routing profile),
+ * values hold both the travel distance and the encoded path. When the cache grows over its max size, the least recently
+ * used entry is evicted. Expired entries are dropped on read.
+ * <p>
+ * The cache is thread-safe (the map and its access order are updated together under the cache's lock) and can be
+ * shared between router instances.
+ */
+public class RouteCache {
+    public static final int DEFAULT_MAX_SIZE = 50_000;
+    public static final long DEFAULT_TTL_IN_MINUTES = 360;
+
+    @Getter
+    private final int maxSize;
+    @Getter
+    private final long ttlInMillis;
+
+    private final LinkedHashMap<RouteKey, CachedRoute> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public RouteCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL_IN_MINUTES, TimeUnit.MINUTES);
+    }
+
+    public RouteCache(int maxSize, long ttl, TimeUnit ttlUnit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Route cache max size must be positive");
+        }
+
+        this.maxSize = maxSize;
+        this.ttlInMillis = ttlUnit.toMillis(ttl);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RouteKey, CachedRoute> eldest) {
+                if (size() > RouteCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Origin/destination pair, normalized to the router's GPS accuracy.
+     */
+    @Data
+    @AllArgsConstructor(staticName = "of")
+    public static class RouteKey {
+        private final String profile;
+        private final double fromLat;
+        private final double fromLng;
+        private final double toLat;
+        private final double toLng;
+    }
+
+    /**
+     * A cached route.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class CachedRoute {
+        private final Distance distance;
+        private final String encodedPath;
+        private final long createdAt;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Metrics {
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long expirations;
+        private int size;
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    /**
+     * @param key The route key.
+     * @return The cached route, or <code>null</code> if it's not cached or expired.
+     */
+    public CachedRoute get(RouteKey key) {
+        synchronized (entries) {
+            CachedRoute route = entries.get(key);
+            if (route == null) {
+                misses.increment();
+                return null;
+            }
+
+            if (System.currentTimeMillis() - route.getCreatedAt() > ttlInMillis) {
+                entries.remove(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+
+            hits.increment();
+            return route;
+        }
+    }
+
+    public void put(RouteKey key, CachedRoute route) {
+        synchronized (entries) {
+            entries.put(key, route);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Metrics getMetrics() {
+        synchronized (entries) {
+            return new Metrics(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), entries.size());
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package dev.aws.proto.core.routing.route;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Bounded thread pool for routing and matrix generation.
+ * <p>
+ * The matrix builders used to run on the common ForkJoinPool, which is shared with the solver's move threads (and any
+ * other parallel stream in the JVM), so concurrent dispatch requests competed for the same threads. This executor
+ * owns a dedicated {@link ForkJoinPool}:
+ * - a request (one {@link #forEach(int, IntConsumer)} call) uses at most <code>maxRequestParallelism</code> threads
+ * - at most <code>maxConcurrentRequests</code> requests run at the same time, the others wait in a queue
+ * - requests are rejected when more than <code>maxQueuedRequests</code> are waiting
+ * <p>
+ * A request started from a thread of the pool (a builder calling another builder) runs in the calling thread, so
+ * nested requests neither wait for a permit they can't get, nor oversubscribe the pool.
+ */
+public class RoutingExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(RoutingExecutor.class);
+
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 2;
+    public static final int DEFAULT_MAX_QUEUED_REQUESTS = 32;
+
+    /**
+     * Every worker of a request takes this many chunks of the index range on average, so the work stays balanced
+     * when some rows are slower to route than others.
+     */
+    private static final int CHUNKS_PER_WORKER = 16;
+
+    private static volatile RoutingExecutor sharedExecutor;
+
+    private final ForkJoinPool pool;
+
+    @Getter
+    private final int parallelism;
+    @Getter
+    private final int maxRequestParallelism;
+    @Getter
+    private final int maxConcurrentRequests;
+    @Getter
+    private final int maxQueuedRequests;
+
+    private final Semaphore requestPermits;
+    private final AtomicInteger queuedRequests = new AtomicInteger(0);
+    private final AtomicInteger runningRequests = new AtomicInteger(0);
+
+    private final LongAdder completedRequests = new LongAdder();
+    private final LongAdder rejectedRequests = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final long startedAt;
+
+    /**
+     * @param parallelism           The number of threads of the pool.
+     * @param maxRequestParallelism The max number of threads used by one request.
+     * @param maxConcurrentRequests The max number of requests running at the same time.
+     * @param maxQueuedRequests     The max number of requests waiting for a permit.
+     */
+    public RoutingExecutor(int parallelism, int maxRequestParallelism, int maxConcurrentRequests, int maxQueuedRequests) {
+        if (parallelism <= 0 || maxRequestParallelism <= 0 || maxConcurrentRequests <= 0 || maxQueuedRequests < 0) {
+            throw new IllegalArgumentException("Routing executor parallelism and request limits must be positive");
+        }
+
+        this.parallelism = parallelism;
+        this.maxRequestParallelism = Math.min(maxRequestParallelism, parallelism);
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxQueuedRequests = maxQueuedRequests;
+        this.requestPermits = new Semaphore(maxConcurrentRequests, true);
+        this.pool = new ForkJoinPool(parallelism, RoutingExecutor::newWorkerThread, null, false);
+        this.startedAt = System.nanoTime();
+    }
+
+    /**
+     * Executor sized to the available processors, for the command line tools and the routers created without an
+     * explicit executor.
+     *
+     * @return The shared executor.
+     */
+    public static RoutingExecutor shared() {
+        if (sharedExecutor == null) {
+            synchronized (RoutingExecutor.class) {
+                if (sharedExecutor == null) {
+                    int processors = Runtime.getRuntime().availableProcessors();
+                    sharedExecutor = new RoutingExecutor(processors, processors, DEFAULT_MAX_CONCURRENT_REQUESTS, DEFAULT_MAX_QUEUED_REQUESTS);
+                }
+            }
+        }
+        return sharedExecutor;
+    }
+
+    /**
+     * @return The default number of threads a request can use: half of the available processors, the rest is left
+     * for the solver.
+     */
+    public static int defaultParallelism() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    private static ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("routing-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Metrics {
+        private int parallelism;
+        private int activeThreads;
+        private int runningRequests;
+        private int queuedRequests;
+        private long queuedTasks;
+        private long completedRequests;
+        private long rejectedRequests;
+        private double avgQueueWaitInMs;
+
+        /**
+         * Ratio of the pool's thread time spent on routing tasks since the executor was created.
+         */
+        private double utilization;
+    }
+
+    /**
+     * Runs the action for every index in <code>[0, count)</code> and waits for it to finish.
+     * <p>
+     * Indices are handed out in chunks to at most <code>maxRequestParallelism</code> workers. The first exception
+     * thrown by the action is rethrown to the caller.
+     *
+     * @param count  The number of indices.
+     * @param action The action.
+     * @throws RejectedExecutionException If the queue of waiting requests is full.
+     */
+    public void forEach(int count, IntConsumer action) {
+        if (count <= 0) {
+            return;
+        }
+
+        // nested request from one of our workers: the caller already holds a permit and a thread
+        if (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool) {
+            for (int idx = 0; idx < count; idx++) {
+                action.accept(idx);
+            }
+            return;
+        }
+
+        this.acquire();
+        runningRequests.incrementAndGet();
+        try {
+            int workerCnt = Math.min(maxRequestParallelism, count);
+            int chunkSize = Math.max(1, count / (workerCnt * CHUNKS_PER_WORKER));
+            AtomicInteger nextIdx = new AtomicInteger(0);
+
+            List<ForkJoinTask<?>> workers = new ArrayList<>(workerCnt);
+            for (int w = 0; w < workerCnt; w++) {
+                workers.add(pool.submit(() -> this.work(count, chunkSize, nextIdx, action)));
+            }
+            // wait for every worker, even if one of them failed, so the permit is released when the request is idle
+            RuntimeException failure = null;
+            for (ForkJoinTask<?> worker : workers) {
+                try {
+                    worker.join();
+                } catch (RuntimeException ex) {
+                    failure = failure == null ? ex : failure;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            completedRequests.increment();
+        } finally {
+            runningRequests.decrementAndGet();
+            requestPermits.release();
+        }
+    }
+
+    private void work(int count, int chunkSize, AtomicInteger nextIdx, IntConsumer action) {
+        long start = System.nanoTime();
+        try {
+            int from;
+            while ((from = nextIdx.getAndAdd(chunkSize)) < count) {
+                int to = Math.min(from + chunkSize, count);
+                for (int idx = from; idx < to; idx++) {
+                    action.accept(idx);
+                }
+            }
+        } catch (RuntimeException | Error ex) {
+            // stop the other workers of the request
+            nextIdx.set(count);
+            throw ex;
+        } finally {
+            busyNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private void acquire() {
+        if (requestPermits.tryAcquire()) {
+            return;
+        }
+
+        if (queuedRequests.incrementAndGet() > maxQueuedRequests) {
+            queuedRequests.decrementAndGet();
+            rejectedRequests.increment();
+            throw new RejectedExecutionException("Routing executor queue is full (" + maxQueuedRequests + " requests waiting)");
+        }
+
+        long start = System.nanoTime();
+        try {
+            logger.debug("Routing request waiting for a permit :: running = {} :: queued = {}", runningRequests.get(), queuedRequests.get());
+            requestPermits.acquire();
+        } catch (InterruptedException intEx) {
+            Thread.currentThread().interrupt();
+            rejectedRequests.increment();
+            throw new RejectedExecutionException("Interrupted while waiting for the routing executor", intEx);
+        } finally {
+            queuedRequests.decrementAndGet();
+            queueWaitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    public Metrics getMetrics() {
+        long completed = completedRequests.sum();
+        long elapsedNanos = Math.max(1, System.nanoTime() - startedAt);
+        return new Metrics(
+                parallelism,
+                pool.getActiveThreadCount(),
+                runningRequests.get(),
+                queuedRequests.get(),
+                pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount(),
+                completed,
+                rejectedRequests.sum(),
+                completed == 0 ? 0.0 : queueWaitNanos.sum() / 1e6 / completed,
+                Math.min(1.0, (double) busyNanos.sum() / ((double) elapsedNanos * parallelism))
+        );
+    }
+
+    /**
+     * Stops the pool, running requests are completed.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package dev.aws.proto.core.routing.cache;
+
+import com.uber.h3core.H3Core;
+import dev.aws.proto.core.routing.H3;
+import dev.aws.proto.core.routing.cache.persistence.ICachePersistence;
+import dev.aws.proto.core.routing.route.RoutingExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Two shards (two resolution 7 cells with three resolution 9 hexagons each) and a resolution 8 border cache.
+ */
+class ShardedH3DistanceCacheTest {
+    private static final int H3_RESOLUTION = 9;
+    private static final int SHARD_RESOLUTION = 7;
+    private static final int BORDER_RESOLUTION = 8;
+
+    private final H3Core h3 = H3.h3();
+
+    private long[] shardAHexagons;
+    private long[] shardBHexagons;
+    private H3DistanceCache shardA;
+    private H3DistanceCache shardB;
+    private H3DistanceCache borderCache;
+    private CountingSource sourceA;
+    private CountingSource sourceB;
+
+    @BeforeEach
+    void createShards() {
+        long cellA = h3.geoToH3(1.3521, 103.8198, SHARD_RESOLUTION);
+        long cellB = h3.kRing(cellA, 1).stream().filter(cell -> cell != cellA).findFirst().orElseThrow();
+
+        shardAHexagons = firstChildren(cellA, 3);
+        shardBHexagons = firstChildren(cellB, 3);
+        shardA = cacheOf(shardAHexagons, H3_RESOLUTION, 1000);
+        shardB = cacheOf(shardBHexagons, H3_RESOLUTION, 2000);
+        // a pair (0 -> 1) the shard couldn't route
+        int missingCell = 1;
+        shardA = new H3DistanceCache(shardAHexagons, withMissing(shardA, missingCell, true), withMissing(shardA, missingCell, false),
+                shardA.getH3Distances(), H3_RESOLUTION);
+
+        long[] borderHexagons = Arrays.stream(concat(shardAHexagons, shardBHexagons))
+                .map(hexa -> h3.h3ToParent(hexa, BORDER_RESOLUTION))
+                .distinct()
+                .sorted()
+                .toArray();
+        borderCache = cacheOf(borderHexagons, BORDER_RESOLUTION, 5000);
+
+        sourceA = new CountingSource(shardA);
+        sourceB = new CountingSource(shardB);
+    }
+
+    @Test
+    void looksUpPairsOfOneShardInTheShardAndOthersInTheBorderCache() {
+        ShardedH3DistanceCache cache = this.shardedCache(16, ShardedH3DistanceCache.DEFAULT_MAX_LOADED_BYTES);
+
+        long a0 = shardAHexagons[0];
+        long a2 = shardAHexagons[2];
+        long b1 = shardBHexagons[1];
+        assertEquals(shardA.metersBetween(a0, a2), cache.metersBetweenTrusted(a0, a2));
+        assertEquals(shardB.metersBetween(b1, b1), cache.metersBetweenTrusted(b1, b1));
+        assertEquals(this.borderMeters(a0, b1), cache.metersBetweenTrusted(a0, b1));
+        assertEquals(this.borderMeters(a0, b1), cache.getDistanceTrusted(a0, b1).getDistanceInMeters());
+        assertEquals(H3DistanceCache.h3DistanceOf(h3, a0, b1), cache.getDistanceTrusted(a0, b1).getH3Distance());
+
+        ShardedH3DistanceCache.Metrics metrics = cache.getMetrics();
+        assertEquals(2, metrics.getShardLookups());
+        assertEquals(3, metrics.getBorderLookups());
+    }
+
+    @Test
+    void fallsBackToTheBorderCacheForPairsMissingFromTheShard() {
+        ShardedH3DistanceCache cache = this.shardedCache(16, ShardedH3DistanceCache.DEFAULT_MAX_LOADED_BYTES);
+
+        long a0 = shardAHexagons[0];
+        long a1 = shardAHexagons[1];
+        assertEquals(H3DistanceCache.MISSING_DISTANCE, shardA.metersBetween(a0, a1));
+        assertEquals(this.borderMeters(a0, a1), cache.metersBetweenTrusted(a0, a1));
+        assertEquals(this.borderMeters(a0, a1), cache.getDistanceTrusted(a0, a1).getDistanceInMeters());
+    }
+
+    @Test
+    void fillsFromTheShardsAndTheBorderCache() {
+        ShardedH3DistanceCache cache = this.shardedCache(16, ShardedH3DistanceCache.DEFAULT_MAX_LOADED_BYTES);
+
+        long[] hexagons = {shardAHexagons[0], shardAHexagons[1], shardAHexagons[2], shardBHexagons[0], 0x89283082803ffffL};
+        int dim = hexagons.length;
+        long[] meters = new long[dim * dim];
+        long[] seconds = new long[dim * dim];
+        int[] h3Distances = new int[dim * dim];
+        cache.fill(hexagons, meters, seconds, h3Distances, RoutingExecutor.shared());
+
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                int idx = i * dim + j;
+                if (i == dim - 1 || j == dim - 1) {
+                    // outside of the border cache
+                    assertEquals(H3DistanceCache.MISSING_DISTANCE, meters[idx]);
+                    continue;
+                }
+                assertEquals(cache.metersBetweenTrusted(hexagons[i], hexagons[j]), meters[idx], "meters " + i + " -> " + j);
+                assertEquals(cache.getDistanceTrusted(hexagons[i], hexagons[j]).getDistanceInSeconds(), seconds[idx], "seconds " + i + " -> " + j);
+                assertEquals(cache.getDistanceTrusted(hexagons[i], hexagons[j]).getH3Distance(), h3Distances[idx], "h3 distance " + i + " -> " + j);
+            }
+        }
+        // the missing pair of shard A is filled from the border cache
+        assertEquals(this.borderMeters(hexagons[0], hexagons[1]), meters[1]);
+    }
+
+    @Test
+    void loadsShardsLazily() {
+        ShardedH3DistanceCache cache = this.shardedCache(16, ShardedH3DistanceCache.DEFAULT_MAX_LOADED_BYTES);
+        assertEquals(0, sourceA.imports + sourceB.imports);
+
+        cache.metersBetweenTrusted(shardAHexagons[0], shardAHexagons[2]);
+        cache.metersBetweenTrusted(shardAHexagons[2], shardAHexagons[0]);
+        // cross-shard pairs don't load shards
+        cache.metersBetweenTrusted(shardAHexagons[0], shardBHexagons[0]);
+
+        assertEquals(1, sourceA.imports);
+        assertEquals(0, sourceB.imports);
+        assertEquals(1, cache.getMetrics().getLoadedShards());
+        assertEquals(shardA.getDistanceBytes(), cache.getMetrics().getLoadedBytes());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedShardOverTheMaxNumberOfShards() {
+        ShardedH3DistanceCache cache = this.shardedCache(1, ShardedH3DistanceCache.DEFAULT_MAX_LOADED_BYTES);
+        this.assertEvictions(cache);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedShardOverTheByteBudget() {
+        ShardedH3DistanceCache cache = this.shardedCache(16, Math.max(shardA.getDistanceBytes(), shardB.getDistanceBytes()));
+        this.assertEvictions(cache);
+    }
+
+    private void assertEvictions(ShardedH3DistanceCache cache) {
+        assertSame(shardA, cache.getShard(h3.h3ToParent(shardAHexagons[0], SHARD_RESOLUTION)));
+        assertSame(shardB, cache.getShard(h3.h3ToParent(shardBHexagons[0], SHARD_RESOLUTION)));
+
+        ShardedH3DistanceCache.Metrics metrics = cache.getMetrics();
+        assertEquals(1, metrics.getShardEvictions());
+        assertEquals(1, metrics.getLoadedShards());
+        assertEquals(shardB.getDistanceBytes(), metrics.getLoadedBytes());
+
+        // the evicted shard is imported again
+        assertEquals(shardA.metersBetween(shardAHexagons[0], shardAHexagons[2]), cache.metersBetweenTrusted(shardAHexagons[0], shardAHexagons[2]));
+        assertEquals(2, sourceA.imports);
+        assertEquals(1, sourceB.imports);
+        assertEquals(2, cache.getMetrics().getShardEvictions());
+    }
+
+    private ShardedH3DistanceCache shardedCache(int maxLoadedShards, long maxLoadedBytes) {
+        Map<Long, ICachePersistence<H3DistanceCache>> sources = new HashMap<>();
+        sources.put(h3.h3ToParent(shardAHexagons[0], SHARD_RESOLUTION), sourceA);
+        sources.put(h3.h3ToParent(shardBHexagons[0], SHARD_RESOLUTION), sourceB);
+        return new ShardedH3DistanceCache(H3_RESOLUTION, SHARD_RESOLUTION, borderCache, sources, maxLoadedShards, maxLoadedBytes);
+    }
+
+    private int borderMeters(long hexaFrom, long hexaTo) {
+        return borderCache.metersBetween(h3.h3ToParent(hexaFrom, BORDER_RESOLUTION), h3.h3ToParent(hexaTo, BORDER_RESOLUTION));
+    }
+
+    private long[] firstChildren(long cell, int count) {
+        return h3.h3ToChildren(cell, H3_RESOLUTION).stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .limit(count)
+                .toArray();
+    }
+
+    /**
+     * @return A full cache with <code>base + 10 * i + j</code> meters and twice as many seconds from i to j.
+     */
+    private H3DistanceCache cacheOf(long[] hexagons, int resolution, int base) {
+        int dim = hexagons.length;
+        int[] meters = new int[dim * dim];
+        int[] seconds = new int[dim * dim];
+        short[] h3Distances = new short[dim * dim];
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                meters[i * dim + j] = base + 10 * i + j;
+                seconds[i * dim + j] = 2 * (base + 10 * i + j);
+                h3Distances[i * dim + j] = (short) H3DistanceCache.h3DistanceOf(h3, hexagons[i], hexagons[j]);
+            }
+        }
+        return new H3DistanceCache(hexagons, IntBuffer.wrap(meters), IntBuffer.wrap(seconds), ShortBuffer.wrap(h3Distances), resolution);
+    }
+
+    private static IntBuffer withMissing(H3DistanceCache cache, int cellIdx, boolean meters) {
+        int cellCnt = cache.getH3Distances().limit();
+        int[] values = new int[cellCnt];
+        for (int idx = 0; idx < cellCnt; idx++) {
+            values[idx] = meters ? cache.getMeters().get(idx) : cache.getSeconds().get(idx);
+        }
+        values[cellIdx] = H3DistanceCache.MISSING_DISTANCE;
+        return IntBuffer.wrap(values);
+    }
+
+    private static long[] concat(long[] left, long[] right) {
+        long[] all = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, all, left.length, right.length);
+        return all;
+    }
+
+    /**
+     * Hands out an in-memory shard and counts the imports.
+     */
+    private static class CountingSource implements ICachePersistence<H3DistanceCache> {
+        private final H3DistanceCache cache;
+        private int imports;
+
+        CountingSource(H3DistanceCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public void buildCache(H3DistanceCache distanceCache) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public H3DistanceCache importCache() {
+            imports++;
+            return cache;
+        }
+    }
+}
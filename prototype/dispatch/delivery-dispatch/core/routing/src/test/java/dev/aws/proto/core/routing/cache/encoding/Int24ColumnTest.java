@@ -0,0 +1,100 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package dev.aws.proto.core.routing.cache.encoding;
+
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class Int24ColumnTest {
+    private static final int[] VALUES = {
+            0, 1, 12345, Int24Column.MAX_DIRECT_VALUE,
+            -1,
+            Int24Column.MAX_DIRECT_VALUE + 1, Int24Column.ESCAPE_CODE, 0x1000000, Integer.MAX_VALUE,
+            -2, H3DistanceCache.MISSING_DISTANCE
+    };
+
+    @Test
+    void codesDirectValuesErrorsAndEscapes() {
+        assertEquals(0, Int24Column.codeOf(0));
+        assertEquals(Int24Column.MAX_DIRECT_VALUE, Int24Column.codeOf(Int24Column.MAX_DIRECT_VALUE));
+        assertEquals(Int24Column.ERROR_CODE, Int24Column.codeOf(-1));
+        assertEquals(Int24Column.ESCAPE_CODE, Int24Column.codeOf(Int24Column.MAX_DIRECT_VALUE + 1));
+        assertEquals(Int24Column.ESCAPE_CODE, Int24Column.codeOf(Int24Column.ESCAPE_CODE));
+        assertEquals(Int24Column.ESCAPE_CODE, Int24Column.codeOf(-2));
+        assertEquals(Int24Column.ESCAPE_CODE, Int24Column.codeOf(H3DistanceCache.MISSING_DISTANCE));
+    }
+
+    @Test
+    void encodesEveryValue() {
+        Int24Column column = Int24Column.encode(new Int32Column(IntBuffer.wrap(VALUES)));
+
+        assertEquals(VALUES.length, column.size());
+        assertEquals(VALUES.length * Int24Column.BYTES, column.getBuffer().limit());
+        for (int cellIdx = 0; cellIdx < VALUES.length; cellIdx++) {
+            assertEquals(VALUES[cellIdx], column.get(cellIdx), "cell " + cellIdx);
+        }
+
+        // -1 has its own code, the values that don't fit in 24 bits go to the overflow table
+        assertArrayEquals(new int[]{5, 6, 7, 8, 9, 10}, column.getOverflowCells());
+        assertArrayEquals(new int[]{Int24Column.MAX_DIRECT_VALUE + 1, Int24Column.ESCAPE_CODE, 0x1000000, Integer.MAX_VALUE, -2, H3DistanceCache.MISSING_DISTANCE},
+                column.getOverflowValues());
+    }
+
+    @Test
+    void decodesABufferWithTheOverflowTable() {
+        Int24Column encoded = Int24Column.encode(new Int32Column(IntBuffer.wrap(VALUES)));
+        ByteBuffer copy = ByteBuffer.allocate(encoded.getBuffer().limit()).put(encoded.getBuffer().duplicate().rewind());
+
+        Int24Column column = new Int24Column(copy, VALUES.length, encoded.getOverflowCells(), encoded.getOverflowValues());
+
+        for (int cellIdx = 0; cellIdx < VALUES.length; cellIdx++) {
+            assertEquals(VALUES[cellIdx], column.get(cellIdx), "cell " + cellIdx);
+        }
+    }
+
+    @Test
+    void rejectsColumnsThatDontFitInOneBuffer() {
+        DistanceColumn tooLarge = new DistanceColumn() {
+            @Override
+            public int get(int cellIdx) {
+                return 0;
+            }
+
+            @Override
+            public int size() {
+                return Int24Column.MAX_SIZE + 1;
+            }
+
+            @Override
+            public CellEncoding encoding() {
+                return CellEncoding.INT32;
+            }
+        };
+
+        assertThrows(IllegalArgumentException.class, () -> Int24Column.encode(tooLarge));
+        assertThrows(IllegalArgumentException.class, () -> new Int24Column(ByteBuffer.allocate(0), Int24Column.MAX_SIZE + 1, new int[0], new int[0]));
+    }
+}
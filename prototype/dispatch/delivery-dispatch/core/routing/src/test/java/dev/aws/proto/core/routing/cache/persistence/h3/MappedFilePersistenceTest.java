@@ -0,0 +1,178 @@
+/*
+ * Copyright Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies of
+ * the Software, and to permit persons to whom the Software is furnished to do so.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER
+ * IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package dev.aws.proto.core.routing.cache.persistence.h3;
+
+import com.uber.h3core.H3Core;
+import dev.aws.proto.core.routing.H3;
+import dev.aws.proto.core.routing.cache.H3CacheStorageMode;
+import dev.aws.proto.core.routing.cache.H3DistanceCache;
+import dev.aws.proto.core.routing.cache.encoding.CellEncoding;
+import dev.aws.proto.core.routing.cache.encoding.Int24Column;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Exports generated caches in every storage mode and cell encoding, maps them back and compares every cell.
+ */
+class MappedFilePersistenceTest {
+    private static final int H3_RESOLUTION = 9;
+
+    /**
+     * Values of the upper triangle: direct INT24 values, the routing error, and values that need the overflow table.
+     */
+    private static final int[] SPECIAL_VALUES = {
+            0, 1, 5000, Int24Column.MAX_DIRECT_VALUE,
+            -1,
+            Int24Column.MAX_DIRECT_VALUE + 1, 0xFFFFFF, 0x1000000, Integer.MAX_VALUE,
+            -2, H3DistanceCache.MISSING_DISTANCE
+    };
+
+    @TempDir
+    Path tempDir;
+
+    static Stream<Arguments> layouts() {
+        return Arrays.stream(H3CacheStorageMode.values())
+                .flatMap(mode -> Arrays.stream(CellEncoding.values()).map(encoding -> Arguments.of(mode, encoding)));
+    }
+
+    @ParameterizedTest
+    @MethodSource("layouts")
+    void mapsTheExportedCache(H3CacheStorageMode mode, CellEncoding encoding) throws IOException {
+        H3DistanceCache source = generateCache(12);
+        H3DistanceCache expected = source.withStorageMode(mode).withCellEncoding(encoding);
+
+        Path file = tempDir.resolve("cache-" + mode + "-" + encoding + ".distcache");
+        new MappedFilePersistence(file.toString()).buildCache(expected);
+        H3DistanceCache mapped = new MappedFilePersistence(file.toString()).importCache();
+
+        assertArrayEquals(expected.getH3Hexagons(), mapped.getH3Hexagons());
+        assertEquals(H3_RESOLUTION, mapped.getH3Resolution());
+        assertEquals(mode, mapped.getStorageMode());
+        assertEquals(encoding, mapped.getCellEncoding());
+        assertEquals(expected.getAsymmetryStats(), mapped.getAsymmetryStats());
+
+        int dim = source.getH3Hexagons().length;
+        for (int i = 0; i < dim; i++) {
+            for (int j = 0; j < dim; j++) {
+                String cell = mode + "/" + encoding + " (" + i + ", " + j + ")";
+                assertEquals(expected.metersAt(i, j), mapped.metersAt(i, j), "meters " + cell);
+                assertEquals(expected.secondsAt(i, j), mapped.secondsAt(i, j), "seconds " + cell);
+                assertEquals(expected.h3DistanceAt(i, j), mapped.h3DistanceAt(i, j), "h3 distance " + cell);
+
+                // the layouts only lose the lower triangle in SYMMETRIC mode
+                if (mode != H3CacheStorageMode.SYMMETRIC || i <= j) {
+                    assertEquals(source.metersAt(i, j), mapped.metersAt(i, j), "meters of the source " + cell);
+                    assertEquals(source.secondsAt(i, j), mapped.secondsAt(i, j), "seconds of the source " + cell);
+                }
+            }
+        }
+
+        assertHeader(file, dim, mode, encoding);
+        long overflowEntries = 0;
+        if (encoding == CellEncoding.INT24) {
+            overflowEntries = ((Int24Column) mapped.getMeters()).getOverflowCount() + ((Int24Column) mapped.getSeconds()).getOverflowCount();
+            assertEquals(this.escapedCells(expected, true), ((Int24Column) mapped.getMeters()).getOverflowCount());
+            assertEquals(this.escapedCells(expected, false), ((Int24Column) mapped.getSeconds()).getOverflowCount());
+        }
+        assertEquals(MappedFilePersistence.fileSize(dim, mode, encoding) + overflowEntries * 2 * Integer.BYTES, Files.size(file));
+    }
+
+    private static void assertHeader(Path file, int dim, H3CacheStorageMode mode, CellEncoding encoding) throws IOException {
+        try (DataInputStream inputStream = new DataInputStream(Files.newInputStream(file))) {
+            assertEquals(MappedFilePersistence.MAGIC, inputStream.readInt());
+            assertEquals(MappedFilePersistence.VERSION, inputStream.readInt());
+            assertEquals(dim, inputStream.readInt());
+            assertEquals(H3_RESOLUTION, inputStream.readInt());
+            assertEquals(mode.code(), inputStream.readInt());
+            // asymmetry stats
+            inputStream.skipBytes(28);
+            assertEquals(encoding.code(), inputStream.readInt());
+        }
+    }
+
+    /**
+     * @return The number of stored cells that go to the INT24 overflow table.
+     */
+    private long escapedCells(H3DistanceCache cache, boolean meters) {
+        int dim = cache.getH3Hexagons().length;
+        long escaped = 0;
+        for (int i = 0; i < dim; i++) {
+            for (int j = cache.getStorageMode().isTriangular() ? i : 0; j < dim; j++) {
+                int value = meters ? cache.metersAt(i, j) : cache.secondsAt(i, j);
+                if (Int24Column.codeOf(value) == Int24Column.ESCAPE_CODE) {
+                    escaped++;
+                }
+            }
+        }
+        return escaped;
+    }
+
+    /**
+     * Generates a full cache of sorted hexagons. The upper triangle cycles through {@link #SPECIAL_VALUES} and
+     * regular distances, the lower triangle mirrors the special values and deviates slightly from the regular ones,
+     * so the SYMMETRIC_DELTA layout keeps every cell.
+     */
+    private static H3DistanceCache generateCache(int dim) {
+        H3Core h3 = H3.h3();
+        long parent = h3.geoToH3(1.3521, 103.8198, 7);
+        long[] hexagons = h3.h3ToChildren(parent, H3_RESOLUTION).stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .limit(dim)
+                .toArray();
+
+        int[] meters = new int[dim * dim];
+        int[] seconds = new int[dim * dim];
+        short[] h3Distances = new short[dim * dim];
+        int upperIdx = 0;
+        for (int i = 0; i < dim; i++) {
+            for (int j = i; j < dim; j++, upperIdx++) {
+                int upperMeters = upperIdx % 2 == 0 ? SPECIAL_VALUES[(upperIdx / 2) % SPECIAL_VALUES.length] : 1000 + 37 * upperIdx;
+                int upperSeconds = upperIdx % 3 == 0 ? SPECIAL_VALUES[(upperIdx / 3 + 5) % SPECIAL_VALUES.length] : 100 + 7 * upperIdx;
+                boolean regularMeters = upperIdx % 2 != 0;
+                boolean regularSeconds = upperIdx % 3 != 0;
+
+                meters[i * dim + j] = upperMeters;
+                seconds[i * dim + j] = upperSeconds;
+                meters[j * dim + i] = regularMeters ? upperMeters + (j - i) : upperMeters;
+                seconds[j * dim + i] = regularSeconds ? upperSeconds - (j - i) : upperSeconds;
+
+                short h3Distance = (short) H3DistanceCache.h3DistanceOf(h3, hexagons[i], hexagons[j]);
+                h3Distances[i * dim + j] = h3Distance;
+                h3Distances[j * dim + i] = h3Distance;
+            }
+        }
+
+        return new H3DistanceCache(hexagons, IntBuffer.wrap(meters), IntBuffer.wrap(seconds), ShortBuffer.wrap(h3Distances), H3_RESOLUTION);
+    }
+}